@@ -0,0 +1,408 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.benchmarks;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.xml.sax.InputSource;
+
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.DefaultContext;
+import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+/**
+ * <p>
+ * Configurations of the benchmarked checks. By default the configuration
+ * "sevntu-benchmark-checks.xml" shipped with the benchmarks is used, it
+ * contains every sevntu check with the options they need to run. Another
+ * configuration, for example the one of a pre-commit hook, can be given with
+ * the "sevntu.benchmark.config" system property.
+ * </p>
+ * <p>
+ * A check is selected by the simple name of its class, "all" selects all the
+ * checks of the configuration. Checks under TreeWalker and FileSetChecks
+ * under Checker are selected the same way, but only the former can be
+ * created alone by {@link #createCheck}. Checks which work in pairs, like
+ * the collector of string literals and the check which reports literals
+ * duplicated across files, are selected together by the name of either.
+ * </p>
+ */
+public final class BenchmarkChecks
+{
+    /** Name which selects all the checks of the configuration. */
+    public static final String ALL_CHECKS = "all";
+
+    /** Name of the default configuration resource. */
+    private static final String DEFAULT_CONFIG = "sevntu-benchmark-checks.xml";
+
+    /** Name of the TreeWalker module. */
+    private static final String TREE_WALKER = "TreeWalker";
+
+    /** Tab width which is passed to checks, as Checker does by default. */
+    private static final int TAB_WIDTH = 8;
+
+    /** Simple class names of checks which are selected together. */
+    private static final String[][] PAIRED_CHECKS = {
+        {"StringLiteralsCollectorCheck", "MultipleStringLiteralsAcrossFilesCheck"},
+        {"PackageImportsCollectorCheck", "PackageDependencyGraphCheck"},
+    };
+
+    /** Prevents instantiation. */
+    private BenchmarkChecks()
+    {
+    }
+
+    /**
+     * Loads the configuration of the benchmarked checks.
+     * @return the root module of the configuration.
+     * @throws CheckstyleException
+     *         if the configuration can not be loaded.
+     */
+    public static Configuration loadConfiguration() throws CheckstyleException
+    {
+        final PropertiesExpander properties =
+                new PropertiesExpander(System.getProperties());
+        final String location = System.getProperty("sevntu.benchmark.config");
+        final Configuration result;
+        if (location == null) {
+            final InputStream stream =
+                    BenchmarkChecks.class.getResourceAsStream(DEFAULT_CONFIG);
+            result = ConfigurationLoader.loadConfiguration(
+                    new InputSource(stream), properties, true);
+        }
+        else {
+            result = ConfigurationLoader.loadConfiguration(location,
+                    properties, true);
+        }
+        return result;
+    }
+
+    /**
+     * Makes the configuration for Checker which contains the selected checks
+     * only, with the root module options of the given configuration.
+     * TreeWalker is omitted if no check under it is selected, so files are
+     * not parsed for FileSetChecks which do not need it.
+     * @param configuration
+     *        the root module of the configuration.
+     * @param checkName
+     *        the simple class name of the check or "all".
+     * @return the root module of the configuration for Checker.
+     * @throws CheckstyleException
+     *         if the check is not found in the configuration.
+     */
+    public static Configuration selectChecks(Configuration configuration,
+            String checkName) throws CheckstyleException
+    {
+        final DefaultConfiguration root =
+                new DefaultConfiguration(configuration.getName());
+        for (String attribute : configuration.getAttributeNames()) {
+            root.addAttribute(attribute,
+                    configuration.getAttribute(attribute));
+        }
+        final DefaultConfiguration treeWalker =
+                new DefaultConfiguration(TREE_WALKER);
+        final List<Configuration> fileSetChecks = new ArrayList<Configuration>();
+        if (ALL_CHECKS.equals(checkName)) {
+            for (Configuration check : getTreeWalker(configuration).getChildren()) {
+                treeWalker.addChild(check);
+            }
+            for (Configuration child : configuration.getChildren()) {
+                if (!TREE_WALKER.equals(child.getName())) {
+                    fileSetChecks.add(child);
+                }
+            }
+        }
+        else {
+            for (String name : getPairedChecks(checkName)) {
+                final Configuration check = findModule(
+                        getTreeWalker(configuration), name);
+                if (check == null) {
+                    fileSetChecks.add(findFileSetCheck(configuration, name));
+                }
+                else {
+                    treeWalker.addChild(check);
+                }
+            }
+        }
+        if (treeWalker.getChildren().length > 0) {
+            root.addChild(treeWalker);
+        }
+        for (Configuration check : fileSetChecks) {
+            root.addChild(check);
+        }
+        return root;
+    }
+
+    /**
+     * Creates the check as TreeWalker does: contextualizes, configures and
+     * initializes it.
+     * @param configuration
+     *        the root module of the configuration.
+     * @param checkName
+     *        the simple class name of the check.
+     * @param messages
+     *        the collector of messages which are logged by the check.
+     * @return the check which is ready to process files.
+     * @throws CheckstyleException
+     *         if the check is not found or can not be created.
+     */
+    public static Check createCheck(Configuration configuration,
+            String checkName, LocalizedMessages messages)
+        throws CheckstyleException
+    {
+        final Configuration checkConfig = findCheck(configuration, checkName);
+        final ClassLoader classLoader = BenchmarkChecks.class.getClassLoader();
+        final Check check = instantiate(checkConfig.getName(), classLoader);
+
+        final DefaultContext context = new DefaultContext();
+        context.add("classLoader", classLoader);
+        context.add("messages", messages);
+        context.add("severity", "error");
+        context.add("tabWidth", String.valueOf(TAB_WIDTH));
+        check.contextualize(context);
+        check.configure(checkConfig);
+        check.init();
+        return check;
+    }
+
+    /**
+     * Gets types of tokens which the check is registered for.
+     * @param check
+     *        the check.
+     * @return sorted types of tokens.
+     */
+    public static int[] getTokenTypes(Check check)
+    {
+        final Set<String> tokenNames = check.getTokenNames();
+        int[] result;
+        if (tokenNames.isEmpty()) {
+            result = check.getDefaultTokens().clone();
+        }
+        else {
+            result = new int[tokenNames.size()];
+            int index = 0;
+            for (String tokenName : tokenNames) {
+                result[index++] = TokenTypes.getTokenId(tokenName);
+            }
+        }
+        final int[] required = check.getRequiredTokens();
+        final int length = result.length;
+        result = Arrays.copyOf(result, length + required.length);
+        System.arraycopy(required, 0, result, length, required.length);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Walks the syntax tree as TreeWalker does, calling the check for the
+     * tokens it is registered for. The file contents are expected to be set
+     * to the check already.
+     * @param check
+     *        the check.
+     * @param tokenTypes
+     *        sorted types of tokens the check is registered for.
+     * @param rootAST
+     *        the root of the syntax tree.
+     */
+    public static void walk(Check check, int[] tokenTypes, DetailAST rootAST)
+    {
+        check.beginTree(rootAST);
+        DetailAST node = rootAST;
+        while (node != null) {
+            if (Arrays.binarySearch(tokenTypes, node.getType()) >= 0) {
+                check.visitToken(node);
+            }
+            DetailAST next = node.getFirstChild();
+            while (node != null && next == null) {
+                if (Arrays.binarySearch(tokenTypes, node.getType()) >= 0) {
+                    check.leaveToken(node);
+                }
+                next = node.getNextSibling();
+                if (next == null) {
+                    node = node.getParent();
+                }
+            }
+            node = next;
+        }
+        check.finishTree(rootAST);
+    }
+
+    /**
+     * Instantiates the check by the module name, the name is resolved as
+     * Checker resolves it: as a fully qualified class name, or in one of the
+     * known packages with or without the "Check" suffix.
+     * @param moduleName
+     *        the name of the module in the configuration.
+     * @param classLoader
+     *        the class loader of checks.
+     * @return the check.
+     * @throws CheckstyleException
+     *         if the module is not found or is not a check.
+     */
+    private static Check instantiate(String moduleName,
+            ClassLoader classLoader) throws CheckstyleException
+    {
+        final List<String> classNames = new ArrayList<String>();
+        classNames.add(moduleName);
+        classNames.add(moduleName + "Check");
+        for (String packageName : PackageNamesLoader.getPackageNames(classLoader)) {
+            classNames.add(packageName + moduleName);
+            classNames.add(packageName + moduleName + "Check");
+        }
+        for (String className : classNames) {
+            final Class<?> moduleClass;
+            try {
+                moduleClass = Class.forName(className, true, classLoader);
+            }
+            catch (ClassNotFoundException e) {
+                continue;
+            }
+            if (!Check.class.isAssignableFrom(moduleClass)) {
+                throw new CheckstyleException(className + " is not a check");
+            }
+            try {
+                return (Check) moduleClass.newInstance();
+            }
+            catch (Exception e) {
+                throw new CheckstyleException("Can not instantiate "
+                        + className, e);
+            }
+        }
+        throw new CheckstyleException("Check " + moduleName
+                + " is not found");
+    }
+
+    /**
+     * Gets simple class names of the check and the checks which are
+     * selected together with it.
+     * @param checkName
+     *        the simple class name of the check.
+     * @return the names, the given one first.
+     */
+    private static List<String> getPairedChecks(String checkName)
+    {
+        final List<String> result = new ArrayList<String>();
+        result.add(checkName);
+        for (String[] pair : PAIRED_CHECKS) {
+            if (pair[0].equals(checkName)) {
+                result.add(pair[1]);
+            }
+            else if (pair[1].equals(checkName)) {
+                result.add(pair[0]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the configuration of the check under TreeWalker.
+     * @param configuration
+     *        the root module of the configuration.
+     * @param checkName
+     *        the simple class name of the check.
+     * @return the configuration of the check.
+     * @throws CheckstyleException
+     *         if the check is not found.
+     */
+    private static Configuration findCheck(Configuration configuration,
+            String checkName) throws CheckstyleException
+    {
+        final Configuration result =
+                findModule(getTreeWalker(configuration), checkName);
+        if (result == null) {
+            throw new CheckstyleException("Check " + checkName
+                    + " is not found under " + TREE_WALKER
+                    + " of the configuration");
+        }
+        return result;
+    }
+
+    /**
+     * Finds the configuration of the FileSetCheck under Checker.
+     * @param configuration
+     *        the root module of the configuration.
+     * @param checkName
+     *        the simple class name of the check.
+     * @return the configuration of the check.
+     * @throws CheckstyleException
+     *         if the check is not found.
+     */
+    private static Configuration findFileSetCheck(Configuration configuration,
+            String checkName) throws CheckstyleException
+    {
+        final Configuration result = findModule(configuration, checkName);
+        if (result == null) {
+            throw new CheckstyleException("Check " + checkName
+                    + " is not found in the configuration");
+        }
+        return result;
+    }
+
+    /**
+     * Finds the child module by the simple class name.
+     * @param parent
+     *        the parent module.
+     * @param checkName
+     *        the simple class name of the module.
+     * @return the configuration of the module, or null if it is not found.
+     */
+    private static Configuration findModule(Configuration parent,
+            String checkName)
+    {
+        for (Configuration child : parent.getChildren()) {
+            final String name = child.getName();
+            if (name.equals(checkName) || name.endsWith("." + checkName)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the TreeWalker module of the configuration.
+     * @param configuration
+     *        the root module of the configuration.
+     * @return the TreeWalker module.
+     * @throws CheckstyleException
+     *         if there is no TreeWalker module.
+     */
+    private static Configuration getTreeWalker(Configuration configuration)
+        throws CheckstyleException
+    {
+        for (Configuration child : configuration.getChildren()) {
+            if (TREE_WALKER.equals(child.getName())) {
+                return child;
+            }
+        }
+        throw new CheckstyleException("The configuration has no "
+                + TREE_WALKER + " module");
+    }
+}
@@ -0,0 +1,214 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+
+/**
+ * <p>
+ * Files the benchmarks are run on. The corpus is selected by name:
+ * </p>
+ * <ul>
+ * <li>"synthetic" - the generated {@link SyntheticCorpus} only;</li>
+ * <li>"inputs" - the test inputs of sevntu-checks only;</li>
+ * <li>"all" - both of them.</li>
+ * </ul>
+ * <p>
+ * The location of the test inputs is taken from the
+ * "sevntu.benchmark.inputs" system property, by default it is
+ * "../sevntu-checks/src/test/resources" relative to the working directory.
+ * The seed and the scale of the synthetic corpus are taken from the
+ * "sevntu.benchmark.seed" and "sevntu.benchmark.scale" system properties.
+ * </p>
+ */
+public final class BenchmarkCorpus
+{
+    /** Name of the corpus of generated files only. */
+    public static final String SYNTHETIC = "synthetic";
+
+    /** Name of the corpus of test inputs only. */
+    public static final String INPUTS = "inputs";
+
+    /** Name of the corpus of generated files and test inputs. */
+    public static final String ALL = "all";
+
+    /** Default location of the test inputs of sevntu-checks. */
+    private static final String DEFAULT_INPUTS =
+            "../sevntu-checks/src/test/resources";
+
+    /** Charset of the files of the corpus. */
+    private static final String CHARSET = "ISO-8859-1";
+
+    /** Files of the corpus. */
+    private final List<File> files;
+
+    /**
+     * Creates the corpus.
+     * @param files
+     *        files of the corpus.
+     */
+    private BenchmarkCorpus(List<File> files)
+    {
+        this.files = Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Loads the corpus by name, generating the synthetic files if they are
+     * required.
+     * @param name
+     *        the name of the corpus.
+     * @return the corpus.
+     * @throws IOException
+     *         if the synthetic files can not be written.
+     */
+    public static BenchmarkCorpus load(String name) throws IOException
+    {
+        final List<File> files = new ArrayList<File>();
+        if (SYNTHETIC.equals(name) || ALL.equals(name)) {
+            final long seed = Long.getLong("sevntu.benchmark.seed",
+                    SyntheticCorpus.DEFAULT_SEED);
+            final int scale = Integer.getInteger("sevntu.benchmark.scale",
+                    SyntheticCorpus.DEFAULT_SCALE);
+            final File directory = new File(System.getProperty("java.io.tmpdir"),
+                    "sevntu-benchmark-corpus-" + seed + "-" + scale);
+            files.addAll(new SyntheticCorpus(seed, scale).writeTo(directory));
+        }
+        if (INPUTS.equals(name) || ALL.equals(name)) {
+            final File inputs = new File(System.getProperty(
+                    "sevntu.benchmark.inputs", DEFAULT_INPUTS));
+            if (!inputs.isDirectory()) {
+                throw new IOException("Test inputs are not found at "
+                        + inputs.getAbsolutePath()
+                        + ", set the sevntu.benchmark.inputs system property");
+            }
+            collectJavaFiles(inputs, files);
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("Unknown corpus: " + name);
+        }
+        return new BenchmarkCorpus(files);
+    }
+
+    /**
+     * Gets the files of the corpus.
+     * @return files of the corpus in a stable order.
+     */
+    public List<File> getFiles()
+    {
+        return files;
+    }
+
+    /**
+     * Parses the files of the corpus. Files which can not be read or parsed
+     * are skipped, as Checker would report them instead of running checks.
+     * @return parsed files in the order of files of the corpus.
+     */
+    public List<ParsedFile> parse()
+    {
+        final List<ParsedFile> result = new ArrayList<ParsedFile>(files.size());
+        for (File file : files) {
+            try {
+                final FileContents contents =
+                        new FileContents(new FileText(file, CHARSET));
+                result.add(new ParsedFile(contents, TreeWalker.parse(contents)));
+            }
+            catch (Exception e) {
+                BenchmarkMain.log("Skipped " + file + ": " + e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects Java files of the directory in a stable order.
+     * @param directory
+     *        the directory.
+     * @param result
+     *        the list to add found files to.
+     */
+    private static void collectJavaFiles(File directory, List<File> result)
+    {
+        final File[] children = directory.listFiles();
+        if (children != null) {
+            final List<File> sorted = new ArrayList<File>();
+            Collections.addAll(sorted, children);
+            Collections.sort(sorted);
+            for (File child : sorted) {
+                if (child.isDirectory()) {
+                    collectJavaFiles(child, result);
+                }
+                else if (child.getName().endsWith(".java")) {
+                    result.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Contents and the syntax tree of a file of the corpus.
+     */
+    public static final class ParsedFile
+    {
+        /** Contents of the file. */
+        private final FileContents contents;
+
+        /** The root of the syntax tree of the file. */
+        private final DetailAST rootAST;
+
+        /**
+         * Creates the parsed file.
+         * @param contents
+         *        contents of the file.
+         * @param rootAST
+         *        the root of the syntax tree of the file.
+         */
+        ParsedFile(FileContents contents, DetailAST rootAST)
+        {
+            this.contents = contents;
+            this.rootAST = rootAST;
+        }
+
+        /**
+         * Gets contents of the file.
+         * @return contents of the file.
+         */
+        public FileContents getContents()
+        {
+            return contents;
+        }
+
+        /**
+         * Gets the root of the syntax tree of the file.
+         * @return the root of the syntax tree.
+         */
+        public DetailAST getRootAST()
+        {
+            return rootAST;
+        }
+    }
+}
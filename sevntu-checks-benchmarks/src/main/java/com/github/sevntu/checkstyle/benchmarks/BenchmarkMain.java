@@ -0,0 +1,221 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.format.OutputFormat;
+import org.openjdk.jmh.runner.format.OutputFormatFactory;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+/**
+ * <p>
+ * Main class of the benchmarks jar, which takes the same options as the
+ * main class of JMH. Messages of the benchmarks about files which are
+ * skipped or excluded are written by the forked VMs to a log, which is
+ * printed through the output of the run when it finishes, so the
+ * "-o" and "-v" options apply to them as well as to the results.
+ * </p>
+ * <p>
+ * Options which do not run benchmarks, such as "-h" and "-l", and invalid
+ * options are passed to the main class of JMH as they are.
+ * </p>
+ */
+public final class BenchmarkMain
+{
+    /** System property with the path of the log of messages. */
+    static final String LOG_PROPERTY = "sevntu.benchmark.log";
+
+    /** Charset of the log. */
+    private static final String LOG_CHARSET = "UTF-8";
+
+    /** Prevents instantiation. */
+    private BenchmarkMain()
+    {
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args
+     *        options of JMH.
+     * @throws RunnerException
+     *         if the benchmarks fail.
+     * @throws IOException
+     *         if the output or the log can not be written.
+     */
+    public static void main(String[] args) throws RunnerException, IOException
+    {
+        final CommandLineOptions options;
+        try {
+            options = new CommandLineOptions(args);
+        }
+        catch (CommandLineOptionException e) {
+            Main.main(args);
+            return;
+        }
+        if (options.shouldHelp() || options.shouldList()
+                || options.shouldListWithParams() || options.shouldListProfilers()
+                || options.shouldListResultFormats())
+        {
+            Main.main(args);
+            return;
+        }
+
+        final File log = File.createTempFile("sevntu-benchmark", ".log");
+        try {
+            // benchmarks which are not forked log in this VM
+            System.setProperty(LOG_PROPERTY, log.getAbsolutePath());
+            final List<String> jvmArgs = new ArrayList<String>(
+                    options.getJvmArgsAppend().orElse(
+                            Collections.<String>emptyList()));
+            jvmArgs.add("-D" + LOG_PROPERTY + "=" + log.getAbsolutePath());
+            final Options runOptions = new OptionsBuilder().parent(options)
+                    .jvmArgsAppend(jvmArgs.toArray(new String[jvmArgs.size()]))
+                    .build();
+            run(options, runOptions, log);
+        }
+        finally {
+            System.clearProperty(LOG_PROPERTY);
+            log.delete();
+        }
+    }
+
+    /**
+     * Runs the benchmarks and prints the log after the results.
+     * @param options
+     *        options of the command line, which select the output.
+     * @param runOptions
+     *        options of the run.
+     * @param log
+     *        the log of messages of the benchmarks.
+     * @throws RunnerException
+     *         if the benchmarks fail.
+     * @throws IOException
+     *         if the output can not be written or the log can not be read.
+     */
+    private static void run(CommandLineOptions options, Options runOptions,
+            File log) throws RunnerException, IOException
+    {
+        final PrintStream stream;
+        if (options.getOutput().hasValue()) {
+            stream = new PrintStream(new FileOutputStream(
+                    options.getOutput().get()), true, LOG_CHARSET);
+        }
+        else {
+            stream = System.out;
+        }
+        final OutputFormat out = OutputFormatFactory.createFormatInstance(
+                stream, options.verbosity().orElse(VerboseMode.NORMAL));
+        try {
+            new Runner(runOptions, out).run();
+        }
+        finally {
+            // every fork of the benchmark logs the same files
+            final Collection<String> messages = readLog(log);
+            if (!messages.isEmpty()) {
+                out.println("");
+            }
+            for (String message : messages) {
+                out.println(message);
+            }
+            out.flush();
+            if (stream != System.out) {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Reads distinct messages of the log in the order they were written.
+     * @param log
+     *        the log.
+     * @return the messages.
+     * @throws IOException
+     *         if the log can not be read.
+     */
+    private static Collection<String> readLog(File log) throws IOException
+    {
+        final Set<String> result = new LinkedHashSet<String>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(log), LOG_CHARSET));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                result.add(line);
+                line = reader.readLine();
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    /**
+     * Writes the message of a benchmark to the log of the run. Without the
+     * log, when the benchmark is run by other main class, the message is
+     * written to the standard error stream.
+     * @param message
+     *        the message.
+     */
+    static synchronized void log(String message)
+    {
+        final String logPath = System.getProperty(LOG_PROPERTY);
+        if (logPath == null) {
+            System.err.println(message);
+            return;
+        }
+        try {
+            final Writer writer = new OutputStreamWriter(
+                    new FileOutputStream(logPath, true), LOG_CHARSET);
+            try {
+                writer.write(message);
+                writer.write('\n');
+            }
+            finally {
+                writer.close();
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to write the log "
+                    + logPath, e);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sevntu.checkstyle.benchmarks.BenchmarkCorpus.ParsedFile;
+import com.github.sevntu.checkstyle.checks.coding.MultipleStringLiteralsAcrossFilesCheck;
+import com.github.sevntu.checkstyle.checks.coding.PackageDependencyGraphCheck;
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+
+/**
+ * <p>
+ * Measures the cost of a single check on pre-parsed syntax trees: files of
+ * the corpus are read and parsed once before the measurement, so only the
+ * walk over the tree and the work of the check are measured.
+ * </p>
+ * <p>
+ * Files on which the check throws an exception are excluded from the
+ * measurement: Checker would report the exception and skip the rest of the
+ * file, so their cost is not representative.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckAstBenchmark
+{
+    /** Simple class name of the benchmarked check. */
+    @Param({
+        "ForbidAnnotationCheck",
+        "AvoidConstantAsFirstOperandInConditionCheck",
+        "AvoidDefaultSerializableInInnerClasses",
+        "AvoidHidingCauseExceptionCheck",
+        "AvoidModifiersForTypesCheck",
+        "AvoidNotShortCircuitOperatorsForBooleanCheck",
+        "ConfusingConditionCheck",
+        "CustomDeclarationOrderCheck",
+        "DiamondOperatorForVariableDefinitionCheck",
+        "EitherLogOrThrowCheck",
+        "EmptyPublicCtorInClassCheck",
+        "FinalizeImplementationCheck",
+        "ForbidCCommentsInMethods",
+        "ForbidCertainImportsCheck",
+        "ForbidInstantiationCheck",
+        "ForbidReturnInFinallyBlockCheck",
+        "ForbidThrowAnonymousExceptionsCheck",
+        "IllegalCatchExtendedCheck",
+        "LogicConditionNeedOptimizationCheck",
+        "MapIterationInForEachLoopCheck",
+        "MultipleStringLiteralsExtendedCheck",
+        "MultipleVariableDeclarationsExtendedCheck",
+        "NameConventionForJunit4TestClassesCheck",
+        "NoNullForCollectionReturnCheck",
+        "OverridableMethodInConstructorCheck",
+        "PackageImportsCollectorCheck",
+        "RedundantReturnCheck",
+        "ReturnBooleanFromTernary",
+        "ReturnCountExtendedCheck",
+        "ReturnNullInsteadOfBoolean",
+        "SimpleAccessorNameNotationCheck",
+        "StringLiteralsCollectorCheck",
+        "TernaryPerExpressionCountCheck",
+        "UnnecessaryParenthesesExtendedCheck",
+        "UselessSingleCatchCheck",
+        "UselessSuperCtorCallCheck",
+        "AvoidConditionInversionCheck",
+        "CauseParameterInExceptionCheck",
+        "ChildBlockLengthCheck",
+        "ForbidWildcardAsReturnTypeCheck",
+        "HideUtilityClassConstructorCheck",
+        "InnerClassCheck",
+        "NoMainMethodInAbstractClassCheck",
+        "PublicReferenceToPrivateTypeCheck",
+        "EnumValueNameCheck",
+        "InterfaceTypeParameterNameCheck",
+        "LineLengthExtendedCheck",
+    })
+    private String check;
+
+    /** Name of the corpus, see {@link BenchmarkCorpus}. */
+    @Param({BenchmarkCorpus.SYNTHETIC, BenchmarkCorpus.INPUTS })
+    private String corpus;
+
+    /** Collector of messages of the check. */
+    private LocalizedMessages messages;
+
+    /** The benchmarked check. */
+    private Check checkInstance;
+
+    /** Sorted types of tokens the check is registered for. */
+    private int[] tokenTypes;
+
+    /** Files the check is run on. */
+    private List<ParsedFile> files;
+
+    /**
+     * The check whose audit StringLiteralsCollectorCheck collects literals
+     * for, or PackageImportsCollectorCheck collects imports for, or null.
+     */
+    private AbstractFileSetCheck reportingCheck;
+
+    /**
+     * Creates the check and parses the corpus.
+     * @throws Exception
+     *         if the check can not be created or the corpus can not be read.
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        messages = new LocalizedMessages();
+        checkInstance = BenchmarkChecks.createCheck(
+                BenchmarkChecks.loadConfiguration(), check, messages);
+        tokenTypes = BenchmarkChecks.getTokenTypes(checkInstance);
+        if ("StringLiteralsCollectorCheck".equals(check)) {
+            // literals are collected only while the reporting check runs
+            reportingCheck = new MultipleStringLiteralsAcrossFilesCheck();
+            reportingCheck.beginProcessing("UTF-8");
+        }
+        else if ("PackageImportsCollectorCheck".equals(check)) {
+            // imports are collected only while the reporting check runs
+            reportingCheck = new PackageDependencyGraphCheck();
+            reportingCheck.beginProcessing("UTF-8");
+        }
+
+        files = new ArrayList<ParsedFile>();
+        for (ParsedFile file : BenchmarkCorpus.load(corpus).parse()) {
+            try {
+                process(file);
+                files.add(file);
+            }
+            catch (RuntimeException e) {
+                BenchmarkMain.log("Excluded " + file.getContents().getFilename()
+                        + " from " + check + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Begins a new audit of the dependency graph before each pass: the graph
+     * keeps every collected import, so it would grow from pass to pass.
+     */
+    @Setup(Level.Invocation)
+    public void beginGraphAudit()
+    {
+        if (reportingCheck instanceof PackageDependencyGraphCheck) {
+            reportingCheck.destroy();
+            reportingCheck.beginProcessing("UTF-8");
+        }
+    }
+
+    /**
+     * Destroys the check, and the reporting check of collected data.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        checkInstance.destroy();
+        if (reportingCheck != null) {
+            reportingCheck.destroy();
+        }
+    }
+
+    /**
+     * Runs the check on all files of the corpus.
+     * @return the count of violations, so the work is not eliminated.
+     */
+    @Benchmark
+    public int processFiles()
+    {
+        int violations = 0;
+        for (ParsedFile file : files) {
+            process(file);
+            violations += messages.size();
+        }
+        return violations;
+    }
+
+    /**
+     * Runs the check on the file.
+     * @param file
+     *        the parsed file.
+     */
+    private void process(ParsedFile file)
+    {
+        messages.reset();
+        checkInstance.setFileContents(file.getContents());
+        BenchmarkChecks.walk(checkInstance, tokenTypes, file.getRootAST());
+    }
+}
@@ -0,0 +1,152 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.benchmarks;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+
+/**
+ * <p>
+ * Measures the cost of checks end-to-end through {@link Checker}: reading,
+ * parsing and walking of files as they are done by a real audit. "all"
+ * measures all the checks of the configuration in one audit, which is the
+ * cost of a whole configuration in a pre-commit hook.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckerBenchmark
+{
+    /** Simple class name of the benchmarked check, or "all". */
+    @Param({
+        BenchmarkChecks.ALL_CHECKS,
+        "ForbidAnnotationCheck",
+        "AvoidConstantAsFirstOperandInConditionCheck",
+        "AvoidDefaultSerializableInInnerClasses",
+        "AvoidHidingCauseExceptionCheck",
+        "AvoidModifiersForTypesCheck",
+        "AvoidNotShortCircuitOperatorsForBooleanCheck",
+        "ConfusingConditionCheck",
+        "CustomDeclarationOrderCheck",
+        "DiamondOperatorForVariableDefinitionCheck",
+        "EitherLogOrThrowCheck",
+        "EmptyPublicCtorInClassCheck",
+        "FinalizeImplementationCheck",
+        "ForbidCCommentsInMethods",
+        "ForbidCertainImportsCheck",
+        "ForbidInstantiationCheck",
+        "ForbidReturnInFinallyBlockCheck",
+        "ForbidThrowAnonymousExceptionsCheck",
+        "IllegalCatchExtendedCheck",
+        "LogicConditionNeedOptimizationCheck",
+        "MapIterationInForEachLoopCheck",
+        "MultipleStringLiteralsExtendedCheck",
+        "MultipleVariableDeclarationsExtendedCheck",
+        "NameConventionForJunit4TestClassesCheck",
+        "NoNullForCollectionReturnCheck",
+        "OverridableMethodInConstructorCheck",
+        "RedundantReturnCheck",
+        "ReturnBooleanFromTernary",
+        "ReturnCountExtendedCheck",
+        "ReturnNullInsteadOfBoolean",
+        "SimpleAccessorNameNotationCheck",
+        "TernaryPerExpressionCountCheck",
+        "UnnecessaryParenthesesExtendedCheck",
+        "UselessSingleCatchCheck",
+        "UselessSuperCtorCallCheck",
+        "AvoidConditionInversionCheck",
+        "CauseParameterInExceptionCheck",
+        "ChildBlockLengthCheck",
+        "ForbidWildcardAsReturnTypeCheck",
+        "HideUtilityClassConstructorCheck",
+        "InnerClassCheck",
+        "NoMainMethodInAbstractClassCheck",
+        "PublicReferenceToPrivateTypeCheck",
+        "EnumValueNameCheck",
+        "InterfaceTypeParameterNameCheck",
+        "LineLengthExtendedCheck",
+        "MultipleStringLiteralsAcrossFilesCheck",
+        "PackageDependencyGraphCheck",
+    })
+    private String check;
+
+    /** Name of the corpus, see {@link BenchmarkCorpus}. */
+    @Param({BenchmarkCorpus.SYNTHETIC, BenchmarkCorpus.INPUTS })
+    private String corpus;
+
+    /** The configured Checker. */
+    private Checker checker;
+
+    /** Files of the corpus. */
+    private List<File> files;
+
+    /**
+     * Configures Checker with the check and loads the corpus.
+     * @throws Exception
+     *         if Checker can not be configured or the corpus can not be read.
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        checker = new Checker();
+        checker.setModuleClassLoader(CheckerBenchmark.class.getClassLoader());
+        checker.configure(BenchmarkChecks.selectChecks(
+                BenchmarkChecks.loadConfiguration(), check));
+        files = BenchmarkCorpus.load(corpus).getFiles();
+    }
+
+    /**
+     * Destroys Checker.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        checker.destroy();
+    }
+
+    /**
+     * Audits all files of the corpus.
+     * @return the count of violations, so the work is not eliminated.
+     */
+    @Benchmark
+    public int processFiles()
+    {
+        return checker.process(files);
+    }
+}
@@ -0,0 +1,445 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Generator of the synthetic corpus of Java sources which stresses the checks
+ * in the ways the test inputs do not: very large classes, deeply nested blocks
+ * and many literals. The corpus depends only on the seed and the scale, so the
+ * same files are generated on every machine and every run.
+ * </p>
+ * <p>
+ * The corpus may be written to a directory with
+ * <code>java -cp benchmarks.jar
+ * com.github.sevntu.checkstyle.benchmarks.SyntheticCorpus &lt;directory&gt;
+ * [seed] [scale]</code> to be inspected or used outside of the benchmarks.
+ * </p>
+ */
+public final class SyntheticCorpus
+{
+    /** Default seed of the generator. */
+    public static final long DEFAULT_SEED = 20150101L;
+
+    /** Default scale of the corpus. */
+    public static final int DEFAULT_SCALE = 1;
+
+    /** Count of fields (with getters and setters) of the large class. */
+    private static final int LARGE_CLASS_FIELDS = 400;
+
+    /** Count of methods of the large class. */
+    private static final int LARGE_CLASS_METHODS = 300;
+
+    /** Nesting depth of blocks of the nested class. */
+    private static final int NESTING_DEPTH = 40;
+
+    /** Count of deeply nested methods of the nested class. */
+    private static final int NESTED_METHODS = 20;
+
+    /** Count of string literals of the literals class. */
+    private static final int LITERALS = 3000;
+
+    /** Count of distinct values of the string literals. */
+    private static final int DISTINCT_LITERALS = 150;
+
+    /** Count of operands of the longest concatenation. */
+    private static final int CONCATENATION_LENGTH = 500;
+
+    /** Types of fields of the generated classes. */
+    private static final String[] FIELD_TYPES = {
+        "int", "long", "String", "boolean", "java.util.List<String>",
+        "java.util.Map<String, Integer>", "Object", "double",
+    };
+
+    /** Modifiers of fields of the generated classes. */
+    private static final String[] FIELD_MODIFIERS = {
+        "private ", "private static ", "protected ", "public ",
+        "private final ", "public static final ", "", "private transient ",
+    };
+
+    /** Block statements used to nest blocks. */
+    private static final String[] BLOCK_OPENINGS = {
+        "if (value%1$d > %2$d) {",
+        "for (int i%1$d = 0; i%1$d < %2$d; i%1$d++) {",
+        "while (value%1$d-- > %2$d) {",
+        "try {",
+        "synchronized (this) {",
+        "do {",
+        "switch (value%1$d) { case %2$d: {",
+    };
+
+    /** Closings of the block statements, in the order of openings. */
+    private static final String[] BLOCK_CLOSINGS = {
+        "} else { value%1$d = value%1$d > 0 ? value%1$d : -value%1$d; }",
+        "}",
+        "}",
+        "} catch (IllegalStateException e%1$d) {"
+            + " throw new IllegalArgumentException(\"failed\"); }",
+        "}",
+        "} while (value%1$d > %2$d);",
+        "} default: break; }",
+    };
+
+    /** Random generator of the corpus. */
+    private final Random random;
+
+    /** Scale of the corpus. */
+    private final int scale;
+
+    /**
+     * Creates the generator.
+     * @param seed
+     *        the seed of the generator.
+     * @param scale
+     *        the scale of the corpus, each file is repeated so many times.
+     */
+    public SyntheticCorpus(long seed, int scale)
+    {
+        if (scale < 1) {
+            throw new IllegalArgumentException("Scale should be positive: "
+                    + scale);
+        }
+        this.random = new Random(seed);
+        this.scale = scale;
+    }
+
+    /**
+     * Writes the corpus to the directory.
+     * @param directory
+     *        the directory to write to, it is created if it does not exist.
+     * @return written files in the order of generation.
+     * @throws IOException
+     *         if files can not be written.
+     */
+    public List<File> writeTo(File directory) throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create directory " + directory);
+        }
+        final List<File> files = new ArrayList<File>();
+        for (int copy = 0; copy < scale; copy++) {
+            files.add(write(directory, "SyntheticLargeClass" + copy,
+                    generateLargeClass("SyntheticLargeClass" + copy)));
+            files.add(write(directory, "SyntheticNestedBlocks" + copy,
+                    generateNestedBlocks("SyntheticNestedBlocks" + copy)));
+            files.add(write(directory, "SyntheticLiterals" + copy,
+                    generateLiterals("SyntheticLiterals" + copy)));
+        }
+        return files;
+    }
+
+    /**
+     * Generates the class with many fields, accessors and methods.
+     * @param className
+     *        the name of the class.
+     * @return the source of the class.
+     */
+    String generateLargeClass(String className)
+    {
+        final StringBuilder source = new StringBuilder();
+        appendHeader(source);
+        source.append("public class ").append(className)
+            .append(" extends java.util.AbstractList<String>\n{\n");
+
+        for (int i = 0; i < LARGE_CLASS_FIELDS; i++) {
+            source.append("    ").append(pick(FIELD_MODIFIERS))
+                .append(pick(FIELD_TYPES)).append(" field").append(i)
+                .append(fieldInitializer(i)).append(";\n");
+        }
+
+        source.append("\n    public ").append(className).append("()\n    {\n");
+        for (int i = 0; i < LARGE_CLASS_METHODS; i += 10) {
+            source.append("        method").append(i).append("(").append(i)
+                .append(");\n");
+        }
+        source.append("    }\n");
+
+        for (int i = 0; i < LARGE_CLASS_FIELDS; i++) {
+            source.append("\n    public Object getValue").append(i)
+                .append("()\n    {\n        return value").append(i)
+                .append(";\n    }\n\n    public void setValue").append(i)
+                .append("(Object value").append(i)
+                .append(")\n    {\n        this.value").append(i)
+                .append(" = value").append(i).append(";\n    }\n");
+            source.append("\n    private Object value").append(i)
+                .append(";\n");
+        }
+
+        for (int i = 0; i < LARGE_CLASS_METHODS; i++) {
+            appendMethod(source, i);
+        }
+
+        source.append("\n    @Override\n    public String get(int index)\n"
+                + "    {\n        return null;\n    }\n\n"
+                + "    @Override\n    public int size()\n    {\n"
+                + "        return 0;\n    }\n}\n");
+        return source.toString();
+    }
+
+    /**
+     * Generates the class with deeply nested blocks.
+     * @param className
+     *        the name of the class.
+     * @return the source of the class.
+     */
+    String generateNestedBlocks(String className)
+    {
+        final StringBuilder source = new StringBuilder();
+        appendHeader(source);
+        source.append("public class ").append(className).append("\n{\n");
+        for (int method = 0; method < NESTED_METHODS; method++) {
+            source.append("    public int nested").append(method)
+                .append("(int value0)\n    {\n");
+            for (int depth = 1; depth <= NESTING_DEPTH; depth++) {
+                source.append("        int value").append(depth)
+                    .append(" = value").append(depth - 1)
+                    .append(" > 0 ? value").append(depth - 1).append(" : ")
+                    .append(random.nextInt(100)).append(";\n");
+            }
+            final int[] blocks = new int[NESTING_DEPTH];
+            for (int depth = 0; depth < NESTING_DEPTH; depth++) {
+                blocks[depth] = random.nextInt(BLOCK_OPENINGS.length);
+                indent(source, depth);
+                source.append(String.format(BLOCK_OPENINGS[blocks[depth]],
+                        depth, random.nextInt(10))).append('\n');
+                indent(source, depth + 1);
+                source.append("/* depth ").append(depth).append(" */ value")
+                    .append(depth).append(" += value").append(depth + 1)
+                    .append(" > 1 ? (value").append(depth)
+                    .append(" < 2 ? 1 : 2) : 3;\n");
+            }
+            for (int depth = NESTING_DEPTH - 1; depth >= 0; depth--) {
+                indent(source, depth + 1);
+                source.append("if (value").append(depth)
+                    .append(" == 0) {\n");
+                indent(source, depth + 2);
+                source.append("return value").append(depth).append(";\n");
+                indent(source, depth + 1);
+                source.append("}\n");
+                indent(source, depth);
+                source.append(String.format(BLOCK_CLOSINGS[blocks[depth]],
+                        depth, random.nextInt(10))).append('\n');
+            }
+            source.append("        return value0;\n    }\n\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Generates the class with many repeated string literals, long lines and
+     * long concatenations.
+     * @param className
+     *        the name of the class.
+     * @return the source of the class.
+     */
+    String generateLiterals(String className)
+    {
+        final StringBuilder source = new StringBuilder();
+        appendHeader(source);
+        source.append("public class ").append(className).append("\n{\n");
+
+        source.append("    private static final String CONCATENATION = \"\"");
+        for (int i = 0; i < CONCATENATION_LENGTH; i++) {
+            source.append(" + \"").append(literal()).append('"');
+        }
+        source.append(";\n\n");
+
+        final int literalsPerMethod = 100;
+        for (int method = 0; method * literalsPerMethod < LITERALS; method++) {
+            source.append("    @SuppressWarnings(\"").append(literal())
+                .append("\")\n    public java.util.List<String> literals")
+                .append(method).append("()\n    {\n")
+                .append("        java.util.List<String> result ="
+                        + " new java.util.ArrayList<String>();\n");
+            for (int i = 0; i < literalsPerMethod; i++) {
+                if (i % 10 == 0) {
+                    source.append("        result.add(\"").append(literal())
+                        .append("\" + \"").append(literal()).append("\");")
+                        .append(" // \"").append(literal()).append("\"\n");
+                }
+                else {
+                    source.append("        result.add(\"").append(literal())
+                        .append("\");\n");
+                }
+            }
+            source.append("        return result;\n    }\n\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Appends the header of a generated file.
+     * @param source
+     *        the source to append to.
+     */
+    private static void appendHeader(StringBuilder source)
+    {
+        source.append("package com.github.sevntu.checkstyle.benchmarks.corpus;"
+                + "\n\nimport java.util.HashMap;\nimport java.util.Map;\n\n");
+    }
+
+    /**
+     * Appends a method of the large class.
+     * @param source
+     *        the source to append to.
+     * @param index
+     *        the index of the method.
+     */
+    private void appendMethod(StringBuilder source, int index)
+    {
+        source.append("\n    protected int method").append(index)
+            .append("(int argument)\n    {\n")
+            .append("        Map<String, Integer> map = new HashMap<String,"
+                    + " Integer>();\n")
+            .append("        int result = argument;\n")
+            .append("        for (String key : map.keySet()) {\n")
+            .append("            result += map.get(key);\n        }\n")
+            .append("        switch (argument) {\n");
+        final int cases = 1 + random.nextInt(8);
+        for (int i = 0; i < cases; i++) {
+            source.append("            case ").append(i).append(":\n")
+                .append("                result += \"").append(literal())
+                .append("\".length();\n                break;\n");
+        }
+        source.append("            default:\n                break;\n"
+                + "        }\n");
+        if (index + 1 < LARGE_CLASS_METHODS) {
+            source.append("        if (result > ").append(random.nextInt(1000))
+                .append(") {\n            return method").append(index + 1)
+                .append("(result - 1);\n        }\n");
+        }
+        source.append("        return result;\n    }\n");
+    }
+
+    /**
+     * Gets the initializer of a field of the large class.
+     * @param index
+     *        the index of the field.
+     * @return the initializer, may be empty.
+     */
+    private String fieldInitializer(int index)
+    {
+        final String result;
+        switch (index % 4) {
+            case 0:
+                result = "";
+                break;
+            case 1:
+                result = " = null";
+                break;
+            case 2:
+                result = " = new Object() { }.hashCode() > 0 ? null : null";
+                break;
+            default:
+                result = " = (\"" + literal() + "\" == null) ? null : null";
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Gets a string literal value from a limited set, so values repeat.
+     * @return the value of a string literal.
+     */
+    private String literal()
+    {
+        return "literal" + random.nextInt(DISTINCT_LITERALS);
+    }
+
+    /**
+     * Picks a random element of the array.
+     * @param values
+     *        the array.
+     * @return the element of the array.
+     */
+    private String pick(String[] values)
+    {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Appends the indentation of the nested block.
+     * @param source
+     *        the source to append to.
+     * @param depth
+     *        the depth of the block.
+     */
+    private static void indent(StringBuilder source, int depth)
+    {
+        for (int i = 0; i < depth + 2; i++) {
+            source.append("    ");
+        }
+    }
+
+    /**
+     * Writes the file of the corpus.
+     * @param directory
+     *        the directory to write to.
+     * @param className
+     *        the name of the class in the file.
+     * @param source
+     *        the source of the file.
+     * @return the written file.
+     * @throws IOException
+     *         if the file can not be written.
+     */
+    private static File write(File directory, String className, String source)
+        throws IOException
+    {
+        final File file = new File(directory, className + ".java");
+        final Writer writer =
+                new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(source);
+        }
+        finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    /**
+     * Writes the corpus to the directory.
+     * @param args
+     *        the directory, the optional seed and the optional scale.
+     * @throws IOException
+     *         if files can not be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1 || args.length > 3) {
+            throw new IllegalArgumentException(
+                    "Usage: SyntheticCorpus <directory> [seed] [scale]");
+        }
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        final int scale = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SCALE;
+        new SyntheticCorpus(seed, scale).writeTo(new File(args[0]));
+    }
+}
@@ -0,0 +1,698 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.Filter;
+
+/**
+ * <p>
+ * Changed lines of files, read from a unified diff, like the output of
+ * <code>git diff</code>. Only added and modified lines of the new version
+ * of files are changed lines: a removed line changes no line of the file.
+ * </p>
+ * <p>
+ * Runners of audits which report only violations on changed lines, like
+ * {@link com.github.sevntu.checkstyle.parallel.ParallelChecker}, set the
+ * changed lines as the scope of the thread which processes files. Checks
+ * whose violations depend only on the inspected part of the file get
+ * {@link #getCurrentRanges(String)} of the processed file at the beginning
+ * of the tree and skip parts of the file which have no changed lines,
+ * while other checks still inspect the whole file. Violations outside of
+ * changed lines are dropped by the runner, so skipping is only a matter of
+ * speed.
+ * </p>
+ * <p>
+ * Changed lines are also a filter of violations, and
+ * {@link #process(Checker, List)} runs the scoped audit with a plain
+ * Checker.
+ * </p>
+ */
+public final class ChangedLines implements Filter
+{
+    /** Header of a hunk of the unified diff. */
+    private static final Pattern HUNK_HEADER =
+            Pattern.compile("^@@ -\\d+(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@");
+
+    /** Prefix of the name of the new version of a file. */
+    private static final String NEW_FILE_PREFIX = "+++ ";
+
+    /** Prefix of paths of new versions of files in diffs of git. */
+    private static final String GIT_NEW_PATH_PREFIX = "b/";
+
+    /** Quote of paths with special characters in diffs of git. */
+    private static final char QUOTE = '"';
+
+    /** Escape character of quoted paths. */
+    private static final char ESCAPE = '\\';
+
+    /** Escaped characters of quoted paths, except octal codes of bytes. */
+    private static final String ESCAPED_CHARS = "abtnvfr\"\\";
+
+    /** Characters of escape sequences of {@link #ESCAPED_CHARS}. */
+    private static final String UNESCAPED_CHARS = "\u0007\b\t\n\u000b\f\r\"\\";
+
+    /** Count of digits of the octal code of a byte. */
+    private static final int OCTAL_CODE_LENGTH = 3;
+
+    /** Radix of octal codes. */
+    private static final int OCTAL_RADIX = 8;
+
+    /** Charset of quoted paths. */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Order of ranges by their first line, lines are positive. */
+    private static final Comparator<int[]> RANGE_ORDER = new Comparator<int[]>()
+    {
+        @Override
+        public int compare(int[] range1, int[] range2)
+        {
+            return range1[0] - range2[0];
+        }
+    };
+
+    /** Name of the new version of the removed file. */
+    private static final String NO_FILE = "/dev/null";
+
+    /** Changed lines of the file being processed by the thread. */
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<Scope>();
+
+    /** Ranges of changed lines by canonical path of the file. */
+    private final Map<String, Ranges> ranges;
+
+    /**
+     * Creates changed lines of files.
+     * @param ranges
+     *        ranges of changed lines by canonical path of the file.
+     */
+    private ChangedLines(Map<String, Ranges> ranges)
+    {
+        this.ranges = ranges;
+    }
+
+    /**
+     * Reads changed lines from the unified diff file.
+     * @param diffFile
+     *        the diff file.
+     * @param baseDirectory
+     *        the directory which paths of the diff are relative to.
+     * @return changed lines of files of the diff.
+     * @throws IOException
+     *         if the diff file can not be read.
+     */
+    public static ChangedLines parse(File diffFile, File baseDirectory)
+        throws IOException
+    {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(diffFile), "UTF-8"));
+        try {
+            return parse(reader, baseDirectory);
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads changed lines from the unified diff.
+     * @param reader
+     *        the reader of the diff.
+     * @param baseDirectory
+     *        the directory which paths of the diff are relative to.
+     * @return changed lines of files of the diff.
+     * @throws IOException
+     *         if the diff can not be read.
+     */
+    public static ChangedLines parse(BufferedReader reader, File baseDirectory)
+        throws IOException
+    {
+        final Map<String, List<int[]>> fileRanges =
+                new LinkedHashMap<String, List<int[]>>();
+        List<int[]> currentRanges = null;
+        int lineNo = 0;
+        int oldRemaining = 0;
+        int newRemaining = 0;
+        String line = reader.readLine();
+        while (line != null) {
+            if (oldRemaining > 0 || newRemaining > 0) {
+                final char kind = line.length() == 0 ? ' ' : line.charAt(0);
+                if (kind == '+') {
+                    if (currentRanges != null) {
+                        addLine(currentRanges, lineNo);
+                    }
+                    lineNo++;
+                    newRemaining--;
+                }
+                else if (kind == '-') {
+                    oldRemaining--;
+                }
+                else if (kind != '\\') {
+                    lineNo++;
+                    oldRemaining--;
+                    newRemaining--;
+                }
+            }
+            else if (line.startsWith(NEW_FILE_PREFIX)) {
+                final String path = getNewPath(line);
+                if (path == null) {
+                    currentRanges = null;
+                }
+                else {
+                    final String key = canonicalPath(new File(baseDirectory, path));
+                    currentRanges = fileRanges.get(key);
+                    if (currentRanges == null) {
+                        currentRanges = new ArrayList<int[]>();
+                        fileRanges.put(key, currentRanges);
+                    }
+                }
+            }
+            else {
+                final Matcher header = HUNK_HEADER.matcher(line);
+                if (header.find()) {
+                    oldRemaining = parseCount(header.group(1));
+                    lineNo = Integer.parseInt(header.group(2));
+                    newRemaining = parseCount(header.group(3));
+                }
+            }
+            line = reader.readLine();
+        }
+
+        final Map<String, Ranges> result = new LinkedHashMap<String, Ranges>();
+        for (Map.Entry<String, List<int[]>> entry : fileRanges.entrySet()) {
+            result.put(entry.getKey(), new Ranges(entry.getValue()));
+        }
+        return new ChangedLines(result);
+    }
+
+    /**
+     * Gets files which have changed lines, in the order of the diff.
+     * @return files of the diff.
+     */
+    public List<File> getFiles()
+    {
+        final List<File> result = new ArrayList<File>();
+        for (Map.Entry<String, Ranges> entry : ranges.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                result.add(new File(entry.getKey()));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Gets changed lines of the file.
+     * @param fileName
+     *        the name of the file.
+     * @return ranges of changed lines, empty if the file is not changed.
+     */
+    public Ranges getRanges(String fileName)
+    {
+        final Ranges result = ranges.get(canonicalPath(new File(fileName)));
+        if (result == null) {
+            return Ranges.EMPTY;
+        }
+        return result;
+    }
+
+    /**
+     * Sets these changed lines as the scope of files processed by the
+     * current thread, until {@link #exitScope()}.
+     */
+    public void enterScope()
+    {
+        CURRENT.set(new Scope(this));
+    }
+
+    /**
+     * Removes changed lines from the scope of the current thread, so files
+     * are inspected as a whole.
+     */
+    public static void exitScope()
+    {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs the audit of files by the Checker in the scope of these changed
+     * lines: checks which support the scope skip parts of files without
+     * changed lines, and only violations on changed lines are reported.
+     * @param checker
+     *        the Checker.
+     * @param files
+     *        files to audit.
+     * @return the count of reported errors.
+     */
+    public int process(Checker checker, List<File> files)
+    {
+        enterScope();
+        checker.addFilter(this);
+        try {
+            return checker.process(files);
+        }
+        finally {
+            checker.removeFilter(this);
+            exitScope();
+        }
+    }
+
+    /**
+     * Accepts violations on changed lines, and violations of the whole file
+     * if the file has changed lines.
+     * @param event
+     *        the violation.
+     * @return true if the violation is reported.
+     */
+    @Override
+    public boolean accept(AuditEvent event)
+    {
+        final Scope scope = CURRENT.get();
+        final Ranges fileRanges;
+        if (scope != null && scope.changedLines == this) {
+            fileRanges = scope.getRanges(event.getFileName());
+        }
+        else {
+            fileRanges = getRanges(event.getFileName());
+        }
+        return fileRanges.isInScope(event.getLine());
+    }
+
+    /**
+     * Gets changed lines of the file processed by the current thread.
+     * @param fileName
+     *        the name of the file.
+     * @return ranges of changed lines, or null if all lines of the file
+     *         should be inspected.
+     */
+    public static Ranges getCurrentRanges(String fileName)
+    {
+        final Scope scope = CURRENT.get();
+        if (scope == null) {
+            return null;
+        }
+        return scope.getRanges(fileName);
+    }
+
+    /**
+     * Adds the line to ranges of the file. Lines of a hunk are added in
+     * ascending order, so the line extends the last range if it is adjacent.
+     * @param fileRanges
+     *        ranges of the file, pairs of the first and the last line.
+     * @param lineNo
+     *        the line.
+     */
+    private static void addLine(List<int[]> fileRanges, int lineNo)
+    {
+        if (!fileRanges.isEmpty()) {
+            final int[] last = fileRanges.get(fileRanges.size() - 1);
+            if (last[1] + 1 == lineNo) {
+                last[1] = lineNo;
+                return;
+            }
+        }
+        fileRanges.add(new int[] {lineNo, lineNo});
+    }
+
+    /**
+     * Gets the path of the new version of the file of the diff.
+     * @param line
+     *        the line with the name of the new version.
+     * @return the path, or null if the file is removed.
+     */
+    private static String getNewPath(String line)
+    {
+        String path = line.substring(NEW_FILE_PREFIX.length());
+        if (path.length() > 0 && path.charAt(0) == QUOTE) {
+            path = unquote(path);
+        }
+        else {
+            final int tabIndex = path.indexOf('\t');
+            if (tabIndex >= 0) {
+                path = path.substring(0, tabIndex);
+            }
+            path = path.trim();
+        }
+        if (NO_FILE.equals(path)) {
+            return null;
+        }
+        if (path.startsWith(GIT_NEW_PATH_PREFIX)) {
+            path = path.substring(GIT_NEW_PATH_PREFIX.length());
+        }
+        return path;
+    }
+
+    /**
+     * Unquotes the path which git quotes if it has special characters, like
+     * <code>"b/caf\303\251.java"</code>: escaped characters are C escapes,
+     * bytes of UTF-8 are octal codes.
+     * @param quotedPath
+     *        the quoted path, the text after the closing quote is ignored.
+     * @return the path.
+     */
+    static String unquote(String quotedPath)
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int index = 1;
+        while (index < quotedPath.length()
+                && quotedPath.charAt(index) != QUOTE)
+        {
+            final char current = quotedPath.charAt(index++);
+            if (current != ESCAPE || index == quotedPath.length()) {
+                writeUtf8(bytes, current);
+                continue;
+            }
+            final char escaped = quotedPath.charAt(index);
+            final int escapedIndex = ESCAPED_CHARS.indexOf(escaped);
+            if (escapedIndex >= 0) {
+                writeUtf8(bytes, UNESCAPED_CHARS.charAt(escapedIndex));
+                index++;
+            }
+            else if (index + OCTAL_CODE_LENGTH <= quotedPath.length()
+                    && isOctalCode(quotedPath, index))
+            {
+                bytes.write(Integer.parseInt(quotedPath.substring(index,
+                        index + OCTAL_CODE_LENGTH), OCTAL_RADIX));
+                index += OCTAL_CODE_LENGTH;
+            }
+            else {
+                // not an escape sequence of git, the backslash is kept
+                writeUtf8(bytes, current);
+            }
+        }
+        return new String(bytes.toByteArray(), UTF_8);
+    }
+
+    /**
+     * Checks whether the text has the octal code of a byte at the index.
+     * @param text
+     *        the text.
+     * @param index
+     *        the index of the first digit.
+     * @return true if the code is there.
+     */
+    private static boolean isOctalCode(String text, int index)
+    {
+        for (int i = index; i < index + OCTAL_CODE_LENGTH; i++) {
+            if (Character.digit(text.charAt(i), OCTAL_RADIX) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes UTF-8 bytes of the character.
+     * @param bytes
+     *        the stream of bytes.
+     * @param character
+     *        the character.
+     */
+    private static void writeUtf8(ByteArrayOutputStream bytes, char character)
+    {
+        final byte[] encoded = String.valueOf(character).getBytes(UTF_8);
+        bytes.write(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Parses the count of lines of the hunk header.
+     * @param count
+     *        the count, or null if it is omitted.
+     * @return the count of lines.
+     */
+    private static int parseCount(String count)
+    {
+        if (count == null) {
+            return 1;
+        }
+        return Integer.parseInt(count);
+    }
+
+    /**
+     * Gets the canonical path of the file, or its absolute path if the
+     * canonical one can not be resolved.
+     * @param file
+     *        the file.
+     * @return the path.
+     */
+    private static String canonicalPath(File file)
+    {
+        try {
+            return file.getCanonicalPath();
+        }
+        catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Sorted disjoint ranges of changed lines of a file.
+     */
+    public static final class Ranges
+    {
+        /** Ranges of the file which is not changed. */
+        static final Ranges EMPTY = new Ranges(new ArrayList<int[]>());
+
+        /** First lines of ranges. */
+        private final int[] firstLines;
+
+        /** Last lines of ranges. */
+        private final int[] lastLines;
+
+        /**
+         * Creates ranges. Hunks of a diff are not required to be sorted, so
+         * ranges are sorted and overlapping or adjacent ones are merged.
+         * @param ranges
+         *        pairs of the first and the last line, in any order.
+         */
+        Ranges(List<int[]> ranges)
+        {
+            final int[][] sortedRanges = ranges.toArray(new int[ranges.size()][]);
+            Arrays.sort(sortedRanges, RANGE_ORDER);
+            final int[] firsts = new int[sortedRanges.length];
+            final int[] lasts = new int[sortedRanges.length];
+            int count = 0;
+            for (int[] range : sortedRanges) {
+                if (count > 0 && lasts[count - 1] + 1 >= range[0]) {
+                    lasts[count - 1] = Math.max(lasts[count - 1], range[1]);
+                }
+                else {
+                    firsts[count] = range[0];
+                    lasts[count] = range[1];
+                    count++;
+                }
+            }
+            firstLines = Arrays.copyOf(firsts, count);
+            lastLines = Arrays.copyOf(lasts, count);
+        }
+
+        /**
+         * Checks whether no line of the file is changed.
+         * @return true if no line is changed.
+         */
+        public boolean isEmpty()
+        {
+            return firstLines.length == 0;
+        }
+
+        /**
+         * Checks whether the line is changed.
+         * @param lineNo
+         *        the line.
+         * @return true if the line is changed.
+         */
+        public boolean contains(int lineNo)
+        {
+            return nextLine(lineNo) == lineNo;
+        }
+
+        /**
+         * Checks whether any line of the range is changed.
+         * @param firstLineNo
+         *        the first line of the range.
+         * @param lastLineNo
+         *        the last line of the range.
+         * @return true if the range has a changed line.
+         */
+        public boolean intersects(int firstLineNo, int lastLineNo)
+        {
+            return nextLine(firstLineNo) <= lastLineNo;
+        }
+
+        /**
+         * Checks whether the violation on the line is in the scope: it is
+         * on a changed line, or it is a violation of the whole file, which
+         * has changed lines.
+         * @param lineNo
+         *        the line of the violation, 0 for the whole file.
+         * @return true if the violation is in the scope.
+         */
+        public boolean isInScope(int lineNo)
+        {
+            if (lineNo == 0) {
+                return !isEmpty();
+            }
+            return contains(lineNo);
+        }
+
+        /**
+         * Finds nodes of the type in the file, skipping subtrees which have
+         * no changed lines without visiting their nodes. A subtree is
+         * assumed to span from the last line of the previous node to the
+         * line of its last token, so a subtree whose first token is on an
+         * earlier line than the node itself is not skipped by mistake.
+         * @param rootAST
+         *        the first top-level node of the file.
+         * @param type
+         *        the token type of nodes.
+         * @return found nodes in document order.
+         */
+        public List<DetailAST> findNodes(DetailAST rootAST, int type)
+        {
+            final List<DetailAST> result = new ArrayList<DetailAST>();
+            int firstLineNo = 1;
+            DetailAST node = rootAST;
+            while (node != null) {
+                final int lastLineNo = getLastLineNo(node);
+                if (intersects(firstLineNo, lastLineNo)) {
+                    if (node.getType() == type) {
+                        result.add(node);
+                    }
+                    final DetailAST firstChild = node.getFirstChild();
+                    if (firstChild != null) {
+                        // the first child starts where its parent starts
+                        node = firstChild;
+                        continue;
+                    }
+                }
+                // the last line of the last child is the last line of its
+                // parent, so it bounds the next node at any level
+                firstLineNo = lastLineNo;
+                while (node != null && node.getNextSibling() == null) {
+                    node = node.getParent();
+                }
+                if (node != null) {
+                    node = node.getNextSibling();
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Gets the line of the last token of the subtree.
+         * @param ast
+         *        the root of the subtree.
+         * @return the line.
+         */
+        private static int getLastLineNo(DetailAST ast)
+        {
+            DetailAST last = ast;
+            DetailAST lastChild = last.getLastChild();
+            while (lastChild != null) {
+                last = lastChild;
+                lastChild = last.getLastChild();
+            }
+            return last.getLineNo();
+        }
+
+        /**
+         * Finds the first changed line starting from the given one.
+         * @param lineNo
+         *        the line to start from.
+         * @return the changed line, or {@link Integer#MAX_VALUE} if there
+         *         are no changed lines starting from the given one.
+         */
+        public int nextLine(int lineNo)
+        {
+            int low = 0;
+            int high = lastLines.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (lastLines[middle] < lineNo) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            if (low == lastLines.length) {
+                return Integer.MAX_VALUE;
+            }
+            return Math.max(lineNo, firstLines[low]);
+        }
+    }
+
+    /**
+     * Changed lines in the scope of a thread, with the memoized ranges of
+     * the last looked up file, as all checks look up the same file.
+     */
+    private static final class Scope
+    {
+        /** Changed lines of files. */
+        private final ChangedLines changedLines;
+
+        /** The name of the last looked up file. */
+        private String fileName;
+
+        /** Ranges of the last looked up file. */
+        private Ranges fileRanges;
+
+        /**
+         * Creates the scope.
+         * @param changedLines
+         *        changed lines of files.
+         */
+        Scope(ChangedLines changedLines)
+        {
+            this.changedLines = changedLines;
+        }
+
+        /**
+         * Gets changed lines of the file.
+         * @param name
+         *        the name of the file.
+         * @return ranges of changed lines.
+         */
+        Ranges getRanges(String name)
+        {
+            if (!name.equals(fileName)) {
+                fileRanges = changedLines.getRanges(name);
+                fileName = name;
+            }
+            return fileRanges;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Declares that results of a configured check for a file may depend on
+ * files other than the processed one. Runners of audits which reuse results
+ * of unchanged files, like the cache of
+ * {@link com.github.sevntu.checkstyle.parallel.ParallelChecker}, ask each
+ * configured module which implements it; results of other modules are
+ * taken to depend only on the processed file.
+ */
+public interface FileDependencies
+{
+    /**
+     * Checks whether results of a file depend on other source files of the
+     * project, which are not known before the audit, or the check collects
+     * data of all files of the audit, so each file has to be processed.
+     * @return true if results depend on other source files.
+     */
+    boolean dependsOnSourceFiles();
+
+    /**
+     * Gets files which are not sources of the project, like files of rules,
+     * whose content results of each file depend on.
+     * @return files, empty if results depend on no such file.
+     */
+    List<File> getDependencyFiles();
+}
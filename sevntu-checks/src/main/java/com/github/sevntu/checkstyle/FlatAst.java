@@ -0,0 +1,625 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2011  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+/**
+ * <p>
+ * Flat view of a syntax tree, shared by all checks which process the same
+ * file. Nodes are numbered in document order (pre-order) and the tree is kept
+ * in parallel int arrays: token type, parent, the position right after the
+ * last node of the subtree, line and column. As any subtree is a continuous
+ * range of positions, the first child of a node is the next position and the
+ * next sibling is the position after the subtree, so they take no arrays;
+ * the last child and the previous sibling are found by a walk over the
+ * children or up the ancestors. Texts of nodes are interned to a table, so
+ * equal texts have equal ids and may be compared as ints.
+ * </p>
+ * <p>
+ * Nodes are addressed by their positions, the absent node is {@link #NONE}.
+ * Navigation by the view doesn't allocate and any subtree is a continuous
+ * range of positions, so a search in a subtree is a plain loop over the
+ * range. {@link #getNode(DetailAST)} and {@link #getAST(int)} convert between
+ * positions and DetailAST nodes. While nodes are looked up in document order,
+ * as TreeWalker passes them to checks, each one is searched forward from the
+ * position which was found last, so all lookups of a file take one pass over
+ * the nodes. The first lookup of a node before the position which was found
+ * last builds an identity hash table of all nodes, and all further lookups
+ * take a hash probe, so lookups out of order don't degrade to repeated scans.
+ * Checks should keep positions of other nodes rather than convert them back
+ * and forth.
+ * </p>
+ * <p>
+ * Lines and columns are filled on the first request of any of them, the table
+ * of texts is filled on the first request of an id of a text, so checks which
+ * don't need them don't pay for them.
+ * </p>
+ * <p>
+ * The view is built lazily on the first call of {@link #getInstance(DetailAST)}
+ * for a file and is kept until {@link #release(DetailAST)} is called from
+ * finishTree or another file is processed by the same thread. A check
+ * should release the view only if it requested the view for the file.
+ * </p>
+ */
+public final class FlatAst
+{
+    /** Position of the absent node. */
+    public static final int NONE = -1;
+
+    /** View of the file is currently being processed by the thread. */
+    private static final ThreadLocal<FlatAst> CURRENT =
+            new ThreadLocal<FlatAst>();
+
+    /** Initial capacity of arrays. */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /** Multiplier which spreads identity hash codes over the hash table. */
+    private static final int HASH_MULTIPLIER = 0x9e3779b9;
+
+    /** Shift which mixes high bits of hash codes into low ones. */
+    private static final int HASH_SHIFT = 16;
+
+    /** Ratio of the capacity of the hash table to the count of nodes. */
+    private static final int HASH_TABLE_RATIO = 4;
+
+    /** The first top-level node of the syntax tree. */
+    private final DetailAST rootAST;
+
+    /** Count of nodes. */
+    private int size;
+
+    /** Nodes in document order. */
+    private DetailAST[] nodes;
+
+    /** Token types of nodes. */
+    private int[] types;
+
+    /** Positions of parents of nodes. */
+    private int[] parents;
+
+    /** Positions right after the last node of the subtree of each node. */
+    private int[] subtreeEnds;
+
+    /** Line numbers of nodes, or null if they are not filled yet. */
+    private int[] lines;
+
+    /** Column numbers of nodes, or null if they are not filled yet. */
+    private int[] columns;
+
+    /** Ids of texts of nodes, or null if they are not filled yet. */
+    private int[] textIds;
+
+    /** Ids of interned texts. */
+    private Map<String, Integer> textIdsByText;
+
+    /** The position which was found by the last forward search of a node. */
+    private int lastFound;
+
+    /**
+     * Nodes of the hash table by their identity hash codes, or null while
+     * nodes are looked up in document order. The length is a power of two.
+     */
+    private DetailAST[] hashedNodes;
+
+    /** Positions of the nodes of the hash table. */
+    private int[] hashedPositions;
+
+    /**
+     * Builds the view of the syntax tree.
+     * @param rootAST
+     *        the first top-level node of the syntax tree.
+     */
+    private FlatAst(DetailAST rootAST)
+    {
+        this.rootAST = rootAST;
+        allocate(INITIAL_CAPACITY);
+
+        int[] openNodes = new int[16];
+        int depth = 0;
+
+        DetailAST node = rootAST;
+        while (node != null) {
+            if (size == nodes.length) {
+                allocate(size * 2);
+            }
+            final int position = size++;
+            nodes[position] = node;
+            types[position] = node.getType();
+            parents[position] = depth == 0 ? NONE : openNodes[depth - 1];
+
+            if (depth == openNodes.length) {
+                openNodes = Arrays.copyOf(openNodes, depth * 2);
+            }
+            openNodes[depth++] = position;
+
+            final DetailAST firstChild = node.getFirstChild();
+            if (firstChild != null) {
+                node = firstChild;
+            }
+            else {
+                // close the leaf and all the nodes which have no more children
+                while (node != null) {
+                    subtreeEnds[openNodes[--depth]] = size;
+                    final DetailAST nextSibling = node.getNextSibling();
+                    if (nextSibling != null) {
+                        node = nextSibling;
+                        break;
+                    }
+                    node = node.getParent();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the view of the syntax tree. The view is built on the first call
+     * for the tree and is reused by all checks until it is released.
+     * @param rootAST
+     *        the root of the syntax tree as it is passed to beginTree.
+     * @return the view of the syntax tree.
+     */
+    public static FlatAst getInstance(DetailAST rootAST)
+    {
+        FlatAst flatAst = CURRENT.get();
+        if (flatAst == null || flatAst.rootAST != rootAST) {
+            flatAst = new FlatAst(rootAST);
+            CURRENT.set(flatAst);
+        }
+        return flatAst;
+    }
+
+    /**
+     * Releases the view of the syntax tree, if it was built. Should be
+     * called from finishTree, so memory does not grow across files.
+     * @param rootAST
+     *        the root of the syntax tree as it is passed to finishTree.
+     */
+    public static void release(DetailAST rootAST)
+    {
+        final FlatAst flatAst = CURRENT.get();
+        if (flatAst != null && flatAst.rootAST == rootAST) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Gets the count of nodes in the syntax tree.
+     * @return the count of nodes.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the position of the node in document order.
+     * @param ast
+     *        a node of the syntax tree.
+     * @return the position of the node.
+     */
+    public int getNode(DetailAST ast)
+    {
+        if (hashedNodes == null) {
+            for (int position = lastFound; position < size; position++) {
+                if (nodes[position] == ast) {
+                    lastFound = position;
+                    return position;
+                }
+            }
+            fillHashTable();
+        }
+        final int mask = hashedNodes.length - 1;
+        int slot = getSlot(ast, mask);
+        while (hashedNodes[slot] != null) {
+            if (hashedNodes[slot] == ast) {
+                return hashedPositions[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        throw new IllegalArgumentException("The node is not in the tree: "
+                + ast);
+    }
+
+    /**
+     * Gets the DetailAST node at the position.
+     * @param node
+     *        the position of the node.
+     * @return the DetailAST node.
+     */
+    public DetailAST getAST(int node)
+    {
+        return nodes[node];
+    }
+
+    /**
+     * Gets the token type of the node.
+     * @param node
+     *        the position of the node.
+     * @return the token type.
+     */
+    public int getType(int node)
+    {
+        return types[node];
+    }
+
+    /**
+     * Gets the parent of the node.
+     * @param node
+     *        the position of the node.
+     * @return the position of the parent or {@link #NONE}.
+     */
+    public int getParent(int node)
+    {
+        return parents[node];
+    }
+
+    /**
+     * Gets the first child of the node.
+     * @param node
+     *        the position of the node.
+     * @return the position of the first child or {@link #NONE}.
+     */
+    public int getFirstChild(int node)
+    {
+        final int child = node + 1;
+        if (child < subtreeEnds[node]) {
+            return child;
+        }
+        return NONE;
+    }
+
+    /**
+     * Gets the last child of the node.
+     * @param node
+     *        the position of the node.
+     * @return the position of the last child or {@link #NONE}.
+     */
+    public int getLastChild(int node)
+    {
+        int result = getFirstChild(node);
+        if (result != NONE) {
+            int next = getNextSibling(result);
+            while (next != NONE) {
+                result = next;
+                next = getNextSibling(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the next sibling of the node.
+     * @param node
+     *        the position of the node.
+     * @return the position of the next sibling or {@link #NONE}.
+     */
+    public int getNextSibling(int node)
+    {
+        final int sibling = subtreeEnds[node];
+        final int parent = parents[node];
+        final int parentEnd;
+        if (parent == NONE) {
+            parentEnd = size;
+        }
+        else {
+            parentEnd = subtreeEnds[parent];
+        }
+        if (sibling < parentEnd) {
+            return sibling;
+        }
+        return NONE;
+    }
+
+    /**
+     * Gets the previous sibling of the node.
+     * @param node
+     *        the position of the node.
+     * @return the position of the previous sibling or {@link #NONE}.
+     */
+    public int getPreviousSibling(int node)
+    {
+        final int parent = parents[node];
+        int result = node - 1;
+        if (result == parent) {
+            // the first child or the first top-level node
+            result = NONE;
+        }
+        else {
+            // the previous sibling is the ancestor of the previous node
+            // which has the same parent
+            while (parents[result] != parent) {
+                result = parents[result];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the position right after the last node of the subtree of the
+     * node, so the subtree takes positions from the node to this one.
+     * @param node
+     *        the position of the node.
+     * @return the position after the subtree of the node.
+     */
+    public int getSubtreeEnd(int node)
+    {
+        return subtreeEnds[node];
+    }
+
+    /**
+     * Gets the line number of the node.
+     * @param node
+     *        the position of the node.
+     * @return the line number.
+     */
+    public int getLineNo(int node)
+    {
+        if (lines == null) {
+            fillPositionsInText();
+        }
+        return lines[node];
+    }
+
+    /**
+     * Gets the column number of the node.
+     * @param node
+     *        the position of the node.
+     * @return the column number.
+     */
+    public int getColumnNo(int node)
+    {
+        if (columns == null) {
+            fillPositionsInText();
+        }
+        return columns[node];
+    }
+
+    /**
+     * Gets the text of the node.
+     * @param node
+     *        the position of the node.
+     * @return the text.
+     */
+    public String getText(int node)
+    {
+        return nodes[node].getText();
+    }
+
+    /**
+     * Gets the id of the text of the node. Nodes of the tree have equal ids
+     * if and only if they have equal texts.
+     * @param node
+     *        the position of the node.
+     * @return the id of the text.
+     */
+    public int getTextId(int node)
+    {
+        if (textIds == null) {
+            fillTexts();
+        }
+        return textIds[node];
+    }
+
+    /**
+     * Gets the id of the text, so nodes with this text may be found by
+     * comparison of ints.
+     * @param text
+     *        the text.
+     * @return the id of the text or {@link #NONE} if no node of the tree
+     *         has this text.
+     */
+    public int findTextId(String text)
+    {
+        if (textIds == null) {
+            fillTexts();
+        }
+        final Integer result = textIdsByText.get(text);
+        if (result == null) {
+            return NONE;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the count of children of the node.
+     * @param node
+     *        the position of the node.
+     * @return the count of children.
+     */
+    public int getChildCount(int node)
+    {
+        int result = 0;
+        for (int child = getFirstChild(node); child != NONE;
+                child = getNextSibling(child))
+        {
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first child of the node with the token type.
+     * @param node
+     *        the position of the node.
+     * @param type
+     *        the token type.
+     * @return the position of the found child or {@link #NONE}.
+     */
+    public int findFirstChild(int node, int type)
+    {
+        int child = getFirstChild(node);
+        while (child != NONE && types[child] != type) {
+            child = getNextSibling(child);
+        }
+        return child;
+    }
+
+    /**
+     * Checks whether the node has a child with the token type.
+     * @param node
+     *        the position of the node.
+     * @param type
+     *        the token type.
+     * @return true if the node has such child.
+     */
+    public boolean hasChild(int node, int type)
+    {
+        return findFirstChild(node, type) != NONE;
+    }
+
+    /**
+     * Finds the closest ancestor of the node with the token type.
+     * @param node
+     *        the position of the node.
+     * @param type
+     *        the token type.
+     * @return the position of the found ancestor or {@link #NONE}.
+     */
+    public int findAncestor(int node, int type)
+    {
+        int ancestor = parents[node];
+        while (ancestor != NONE && types[ancestor] != type) {
+            ancestor = parents[ancestor];
+        }
+        return ancestor;
+    }
+
+    /**
+     * Finds the first node with the token type in the range of positions.
+     * @param from
+     *        the first position of the range.
+     * @param to
+     *        the position after the last position of the range.
+     * @param type
+     *        the token type.
+     * @return the position of the found node or {@link #NONE}.
+     */
+    public int findFirst(int from, int to, int type)
+    {
+        for (int node = from; node < to; node++) {
+            if (types[node] == type) {
+                return node;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Allocates arrays for the given count of nodes, keeping nodes which
+     * are added already.
+     * @param capacity
+     *        the count of nodes.
+     */
+    private void allocate(int capacity)
+    {
+        if (nodes == null) {
+            nodes = new DetailAST[capacity];
+            types = new int[capacity];
+            parents = new int[capacity];
+            subtreeEnds = new int[capacity];
+        }
+        else {
+            nodes = Arrays.copyOf(nodes, capacity);
+            types = Arrays.copyOf(types, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            subtreeEnds = Arrays.copyOf(subtreeEnds, capacity);
+        }
+    }
+
+    /**
+     * Fills line and column numbers of all nodes.
+     */
+    private void fillPositionsInText()
+    {
+        lines = new int[size];
+        columns = new int[size];
+        for (int i = 0; i < size; i++) {
+            lines[i] = nodes[i].getLineNo();
+            columns[i] = nodes[i].getColumnNo();
+        }
+    }
+
+    /**
+     * Fills the hash table of all nodes, which is at most half full, so
+     * probes are short.
+     */
+    private void fillHashTable()
+    {
+        final int capacity = Integer.highestOneBit(size) * HASH_TABLE_RATIO;
+        final int mask = capacity - 1;
+        hashedNodes = new DetailAST[capacity];
+        hashedPositions = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            int slot = getSlot(nodes[i], mask);
+            while (hashedNodes[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            hashedNodes[slot] = nodes[i];
+            hashedPositions[slot] = i;
+        }
+    }
+
+    /**
+     * Gets the first slot of the hash table to probe for the node.
+     * @param ast
+     *        the node.
+     * @param mask
+     *        the length of the hash table less one.
+     * @return the slot.
+     */
+    private static int getSlot(DetailAST ast, int mask)
+    {
+        final int hash = System.identityHashCode(ast) * HASH_MULTIPLIER;
+        return (hash ^ (hash >>> HASH_SHIFT)) & mask;
+    }
+
+    /**
+     * Fills the table of texts and ids of texts of all nodes.
+     */
+    private void fillTexts()
+    {
+        textIds = new int[size];
+        textIdsByText = new HashMap<String, Integer>();
+        for (int i = 0; i < size; i++) {
+            textIds[i] = intern(nodes[i].getText());
+        }
+    }
+
+    /**
+     * Adds the text to the table of texts, if it is not added yet.
+     * @param text
+     *        the text.
+     * @return the id of the text.
+     */
+    private int intern(String text)
+    {
+        final Integer id = textIdsByText.get(text);
+        if (id != null) {
+            return id;
+        }
+        final int result = textIdsByText.size();
+        textIdsByText.put(text, result);
+        return result;
+    }
+}
@@ -0,0 +1,242 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FullIdent;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+/**
+ * <p>
+ * Table of the package and imports of a file, shared by all checks which
+ * process the same file, which resolves names of types as they are written
+ * in the code to fully qualified names they may denote. The table is built
+ * once from PACKAGE_DEF, IMPORT and STATIC_IMPORT nodes at the top of the
+ * syntax tree, so checks do not collect imports on their own.
+ * </p>
+ * <p>
+ * The first part of a name is resolved as the JLS shadows declarations: the
+ * single-type import or the single static import of the member with that
+ * simple name is the only candidate if there is one, otherwise candidates
+ * are the type of the package of the file and then every on-demand import,
+ * both type-import-on-demand and static-import-on-demand (the name may be
+ * a nested type). Types which are not imported explicitly, like ones of
+ * java.lang, are not candidates. Candidates of each name are memoized, so
+ * repeated lookups of the same name take constant time.
+ * </p>
+ * <p>
+ * The table is built lazily on the first call of {@link #getInstance(DetailAST)}
+ * for a file and is kept until {@link #release(DetailAST)} is called from
+ * finishTree or another file is processed by the same thread.
+ * </p>
+ */
+public final class ImportTable
+{
+    /** Table of the file is currently being processed by the thread. */
+    private static final ThreadLocal<ImportTable> CURRENT =
+            new ThreadLocal<ImportTable>();
+
+    /** Suffix of on-demand imports. */
+    private static final String ON_DEMAND_SUFFIX = ".*";
+
+    /** The first top-level node of the syntax tree. */
+    private final DetailAST rootAST;
+
+    /** The package of the file, or empty string for the default package. */
+    private String packageName = "";
+
+    /** Texts of all imports, like "java.util.List" or "java.util.*". */
+    private final Set<String> importTexts = new HashSet<String>();
+
+    /**
+     * Fully qualified names of single-type imports and single static imports
+     * by their simple names. The first import of a simple name wins.
+     */
+    private final Map<String, String> singleImports = new HashMap<String, String>();
+
+    /** Prefixes of names, ending with a dot, of all on-demand imports. */
+    private final List<String> onDemandPrefixes = new ArrayList<String>();
+
+    /** Memoized candidates by the name as it is written. */
+    private final Map<String, List<String>> candidates =
+            new HashMap<String, List<String>>();
+
+    /**
+     * Builds the table of the syntax tree.
+     * @param rootAST
+     *        the first top-level node of the syntax tree.
+     */
+    private ImportTable(DetailAST rootAST)
+    {
+        this.rootAST = rootAST;
+        for (DetailAST node = rootAST; node != null; node = node.getNextSibling()) {
+            switch (node.getType()) {
+                case TokenTypes.PACKAGE_DEF:
+                    packageName = FullIdent.createFullIdent(
+                            node.getLastChild().getPreviousSibling()).getText();
+                    break;
+                case TokenTypes.IMPORT:
+                    addImport(FullIdent.createFullIdent(node.getFirstChild()).getText());
+                    break;
+                case TokenTypes.STATIC_IMPORT:
+                    addImport(FullIdent.createFullIdent(
+                            node.getFirstChild().getNextSibling()).getText());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Gets the table of the syntax tree. The table is built on the first
+     * call for the tree and is reused by all checks until it is released.
+     * @param rootAST
+     *        the root of the syntax tree as it is passed to beginTree.
+     * @return the table of the syntax tree.
+     */
+    public static ImportTable getInstance(DetailAST rootAST)
+    {
+        ImportTable table = CURRENT.get();
+        if (table == null || table.rootAST != rootAST) {
+            table = new ImportTable(rootAST);
+            CURRENT.set(table);
+        }
+        return table;
+    }
+
+    /**
+     * Releases the table of the syntax tree, if it was built. Should be
+     * called from finishTree, so memory does not grow across files.
+     * @param rootAST
+     *        the root of the syntax tree as it is passed to finishTree.
+     */
+    public static void release(DetailAST rootAST)
+    {
+        final ImportTable table = CURRENT.get();
+        if (table != null && table.rootAST == rootAST) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Gets the package of the file.
+     * @return the package name, or empty string for the default package.
+     */
+    public String getPackageName()
+    {
+        return packageName;
+    }
+
+    /**
+     * Checks whether the file has the import with the text, like
+     * "java.util.List" or "java.util.*". Static imports are written without
+     * the static keyword.
+     * @param importText
+     *        the text of the import.
+     * @return true if the file has the import.
+     */
+    public boolean isImported(String importText)
+    {
+        return importTexts.contains(importText);
+    }
+
+    /**
+     * Gets fully qualified names which the name of a type may denote.
+     * @param name
+     *        the simple or qualified name as it is written in the code.
+     * @return unmodifiable list of candidates, only the one of the single
+     *         import if the name is imported explicitly, otherwise the one
+     *         of the package of the file and then ones of on-demand imports
+     *         in their order.
+     */
+    public List<String> getCandidates(String name)
+    {
+        List<String> result = candidates.get(name);
+        if (result == null) {
+            result = Collections.unmodifiableList(resolve(name));
+            candidates.put(name, result);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the import to the table.
+     * @param importText
+     *        the text of the import.
+     */
+    private void addImport(String importText)
+    {
+        importTexts.add(importText);
+        if (importText.endsWith(ON_DEMAND_SUFFIX)) {
+            onDemandPrefixes.add(importText.substring(0, importText.length() - 1));
+        }
+        else {
+            final String simpleName =
+                    importText.substring(importText.lastIndexOf('.') + 1);
+            if (!singleImports.containsKey(simpleName)) {
+                singleImports.put(simpleName, importText);
+            }
+        }
+    }
+
+    /**
+     * Resolves the name to candidates.
+     * @param name
+     *        the simple or qualified name.
+     * @return candidates of the name.
+     */
+    private List<String> resolve(String name)
+    {
+        final List<String> result = new ArrayList<String>(onDemandPrefixes.size() + 1);
+        final int firstDotIndex = name.indexOf('.');
+        final String firstPart;
+        if (firstDotIndex == -1) {
+            firstPart = name;
+        }
+        else {
+            firstPart = name.substring(0, firstDotIndex);
+        }
+        final String singleImport = singleImports.get(firstPart);
+        if (singleImport != null) {
+            // a single import shadows types of the package and on-demand imports
+            result.add(singleImport + name.substring(firstPart.length()));
+        }
+        else {
+            if (packageName.isEmpty()) {
+                result.add(name);
+            }
+            else {
+                result.add(packageName + "." + name);
+            }
+            for (String prefix : onDemandPrefixes) {
+                result.add(prefix + name);
+            }
+        }
+        return result;
+    }
+}
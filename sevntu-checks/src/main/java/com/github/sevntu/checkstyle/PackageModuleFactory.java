@@ -0,0 +1,139 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+/**
+ * <p>
+ * Creates modules of a configuration by their names as the default factory
+ * of Checker does: a name is tried as the name of a class and in packages of
+ * checkstyle_packages.xml files of the class loader, then the same with the
+ * "Check" suffix.
+ * </p>
+ * <p>
+ * It is set to Checker by {@link
+ * com.puppycrawl.tools.checkstyle.Checker#setModuleFactory(ModuleFactory)}
+ * before the configuration, and Checker hands it over to TreeWalker, so all
+ * modules of the configuration are created by it. Subclasses see each
+ * created module in {@link #created(Object)} and may replace it, like
+ * runners of audits which wrap checks or need to know their instances.
+ * </p>
+ */
+public class PackageModuleFactory implements ModuleFactory
+{
+    /** Prefixes of names of classes of modules. */
+    private final List<String> packages = new ArrayList<String>();
+
+    /** The class loader of modules. */
+    private final ClassLoader moduleClassLoader;
+
+    /**
+     * Creates the factory.
+     * @param moduleClassLoader
+     *        the class loader of modules and of checkstyle_packages.xml
+     *        files.
+     * @throws CheckstyleException
+     *         if packages of modules can not be read.
+     */
+    public PackageModuleFactory(ClassLoader moduleClassLoader)
+        throws CheckstyleException
+    {
+        this.moduleClassLoader = moduleClassLoader;
+        packages.add("");
+        packages.addAll(PackageNamesLoader.getPackageNames(moduleClassLoader));
+    }
+
+    @Override
+    public Object createModule(String name) throws CheckstyleException
+    {
+        Object module = createObject(name);
+        if (module == null) {
+            module = createObject(name + "Check");
+        }
+        if (module == null) {
+            throw new CheckstyleException("Unable to instantiate " + name);
+        }
+        return created(module);
+    }
+
+    /**
+     * Called with each created module.
+     * @param module
+     *        the created module.
+     * @return the module to configure, the same one by default.
+     * @throws CheckstyleException
+     *         if the module can not be used.
+     */
+    protected Object created(Object module) throws CheckstyleException
+    {
+        return module;
+    }
+
+    /**
+     * Creates the object of the first class which is found by the name in
+     * packages of modules.
+     * @param name
+     *        the name of the class, with or without its package.
+     * @return the object, or null if no class is found.
+     * @throws CheckstyleException
+     *         if the class can not be instantiated.
+     */
+    private Object createObject(String name) throws CheckstyleException
+    {
+        for (String prefix : packages) {
+            final Class<?> moduleClass = findClass(prefix + name);
+            if (moduleClass != null) {
+                try {
+                    return moduleClass.newInstance();
+                }
+                catch (InstantiationException e) {
+                    throw new CheckstyleException("Unable to instantiate "
+                            + moduleClass.getName(), e);
+                }
+                catch (IllegalAccessException e) {
+                    throw new CheckstyleException("Unable to instantiate "
+                            + moduleClass.getName(), e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the class by its full name.
+     * @param className
+     *        the full name of the class.
+     * @return the class, or null if it is not found.
+     */
+    private Class<?> findClass(String className)
+    {
+        try {
+            return Class.forName(className, true, moduleClassLoader);
+        }
+        catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
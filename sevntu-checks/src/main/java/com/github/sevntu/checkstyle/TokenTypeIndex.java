@@ -0,0 +1,264 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2011  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+/**
+ * <p>
+ * Index of the nodes of a syntax tree by token type, shared by all checks
+ * which process the same file. All nodes are numbered in document order
+ * (pre-order), and for each node the position right after the last node of
+ * its subtree is kept, so any subtree or sibling range is a continuous range
+ * of positions. "All nodes of type X under node N" is answered by a binary
+ * search in the sorted positions of nodes of type X instead of a traversal.
+ * Nodes are numbered by {@link FlatAst} of the same tree.
+ * </p>
+ * <p>
+ * The index is built lazily on the first call of {@link #getInstance(DetailAST)}
+ * for a file and is kept until {@link #release(DetailAST)} is called from
+ * finishTree or another file is processed by the same thread.
+ * </p>
+ */
+public final class TokenTypeIndex
+{
+    /** Index of the file is currently being processed by the thread. */
+    private static final ThreadLocal<TokenTypeIndex> CURRENT =
+            new ThreadLocal<TokenTypeIndex>();
+
+    /** Empty array of token types. */
+    private static final int[] NO_TYPES = {};
+
+    /** The first top-level node of the syntax tree. */
+    private final DetailAST rootAST;
+
+    /** Flat view of the syntax tree, which numbers nodes. */
+    private final FlatAst flatAst;
+
+    /** Sorted positions of nodes of each token type. */
+    private final int[][] positionsByType;
+
+    /**
+     * Builds the index of the syntax tree.
+     * @param rootAST
+     *        the first top-level node of the syntax tree.
+     */
+    private TokenTypeIndex(DetailAST rootAST)
+    {
+        this.rootAST = rootAST;
+        flatAst = FlatAst.getInstance(rootAST);
+
+        final int size = flatAst.size();
+        int maxType = 0;
+        for (int i = 0; i < size; i++) {
+            maxType = Math.max(maxType, flatAst.getType(i));
+        }
+        final int[] typeCounts = new int[maxType + 1];
+        for (int i = 0; i < size; i++) {
+            typeCounts[flatAst.getType(i)]++;
+        }
+
+        positionsByType = new int[maxType + 1][];
+        for (int type = 0; type <= maxType; type++) {
+            positionsByType[type] = new int[typeCounts[type]];
+            typeCounts[type] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            final int type = flatAst.getType(i);
+            positionsByType[type][typeCounts[type]++] = i;
+        }
+    }
+
+    /**
+     * Gets the index of the syntax tree. The index is built on the first
+     * call for the tree and is reused by all checks until it is released.
+     * @param rootAST
+     *        the root of the syntax tree as it is passed to beginTree.
+     * @return the index of the syntax tree.
+     */
+    public static TokenTypeIndex getInstance(DetailAST rootAST)
+    {
+        TokenTypeIndex index = CURRENT.get();
+        if (index == null || index.rootAST != rootAST) {
+            index = new TokenTypeIndex(rootAST);
+            CURRENT.set(index);
+        }
+        return index;
+    }
+
+    /**
+     * Releases the index of the syntax tree and its {@link FlatAst}, if they
+     * were built. Should be called from finishTree, so memory does not grow
+     * across files.
+     * @param rootAST
+     *        the root of the syntax tree as it is passed to finishTree.
+     */
+    public static void release(DetailAST rootAST)
+    {
+        final TokenTypeIndex index = CURRENT.get();
+        if (index != null && index.rootAST == rootAST) {
+            CURRENT.remove();
+        }
+        FlatAst.release(rootAST);
+    }
+
+    /**
+     * Gets the count of nodes in the syntax tree.
+     * @return the count of nodes.
+     */
+    public int size()
+    {
+        return flatAst.size();
+    }
+
+    /**
+     * Gets the position of the node in document order.
+     * @param node
+     *        a node of the syntax tree.
+     * @return the position of the node.
+     */
+    public int getPosition(DetailAST node)
+    {
+        return flatAst.getNode(node);
+    }
+
+    /**
+     * Gets the position right after the last node of the subtree of the
+     * node.
+     * @param node
+     *        a node of the syntax tree.
+     * @return the position after the subtree of the node.
+     */
+    public int getSubtreeEnd(DetailAST node)
+    {
+        return flatAst.getSubtreeEnd(getPosition(node));
+    }
+
+    /**
+     * Gets all nodes of the given types in the subtree of the node, including
+     * the node itself, in document order.
+     * @param node
+     *        the root of the subtree.
+     * @param tokenTypes
+     *        the types of nodes to search.
+     * @return the list of found nodes.
+     */
+    public List<DetailAST> getSubtreeNodes(DetailAST node, int... tokenTypes)
+    {
+        final int position = getPosition(node);
+        return getNodes(position, flatAst.getSubtreeEnd(position), tokenTypes,
+                NO_TYPES);
+    }
+
+    /**
+     * Gets all nodes of the given types below the node, in document order.
+     * @param node
+     *        the root of the subtree.
+     * @param tokenTypes
+     *        the types of nodes to search.
+     * @return the list of found nodes.
+     */
+    public List<DetailAST> getDescendants(DetailAST node, int... tokenTypes)
+    {
+        final int position = getPosition(node);
+        return getNodes(position + 1, flatAst.getSubtreeEnd(position), tokenTypes,
+                NO_TYPES);
+    }
+
+    /**
+     * Gets all nodes of the given types which are placed in the range of
+     * positions, in document order. The nodes which are placed below nodes
+     * of the skipped types are not returned, the nodes of the skipped types
+     * themselves are returned if they have one of the searched types.
+     * @param from
+     *        the first position of the range.
+     * @param to
+     *        the position after the last position of the range.
+     * @param tokenTypes
+     *        the types of nodes to search.
+     * @param skippedTypes
+     *        the types of nodes whose subtrees are not searched.
+     * @return the list of found nodes.
+     */
+    public List<DetailAST> getNodes(int from, int to, int[] tokenTypes,
+            int[] skippedTypes)
+    {
+        final int[] found = getPositions(from, to, tokenTypes);
+        final int[] skipped = getPositions(from, to, skippedTypes);
+        final List<DetailAST> result = new ArrayList<DetailAST>(found.length);
+
+        int skippedIndex = 0;
+        int skippedEnd = from;
+        for (int position : found) {
+            while (skippedIndex < skipped.length
+                    && skipped[skippedIndex] < position)
+            {
+                skippedEnd = Math.max(skippedEnd,
+                        flatAst.getSubtreeEnd(skipped[skippedIndex]));
+                skippedIndex++;
+            }
+            if (position >= skippedEnd) {
+                result.add(flatAst.getAST(position));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets sorted positions of nodes of the given types in the range.
+     * @param from
+     *        the first position of the range.
+     * @param to
+     *        the position after the last position of the range.
+     * @param tokenTypes
+     *        the types of nodes to search.
+     * @return sorted positions of found nodes.
+     */
+    private int[] getPositions(int from, int to, int... tokenTypes)
+    {
+        int[] result = new int[0];
+        for (int tokenType : tokenTypes) {
+            if (tokenType >= 0 && tokenType < positionsByType.length) {
+                final int[] typePositions = positionsByType[tokenType];
+                int first = Arrays.binarySearch(typePositions, from);
+                if (first < 0) {
+                    first = -first - 1;
+                }
+                int last = Arrays.binarySearch(typePositions, to);
+                if (last < 0) {
+                    last = -last - 1;
+                }
+                if (first < last) {
+                    final int length = result.length;
+                    result = Arrays.copyOf(result, length + last - first);
+                    System.arraycopy(typePositions, first, result, length,
+                            last - first);
+                }
+            }
+        }
+        if (tokenTypes.length > 1) {
+            Arrays.sort(result);
+        }
+        return result;
+    }
+}
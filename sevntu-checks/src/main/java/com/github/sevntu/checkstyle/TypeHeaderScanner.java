@@ -0,0 +1,511 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2011  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Lexical scanner which reads only the package, imports and headers of type
+ * declarations of a Java source: bodies of types are skipped by counting
+ * braces, comments and literals are skipped, and no syntax tree is built.
+ * It is used to build {@link TypeHierarchyIndex} for all files of a project
+ * much faster than parsing them.
+ * </p>
+ * <p>
+ * Names of nested and local types are qualified with the names of enclosing
+ * types, the same way as they are qualified by
+ * {@link TypeHierarchyIndex#getQualifiedName(com.puppycrawl.tools.checkstyle.api.DetailAST)}.
+ * </p>
+ */
+final class TypeHeaderScanner
+{
+    /** Type of token which is a name or a keyword. */
+    private static final int IDENT = -1;
+
+    /** Type of token at the end of the text. */
+    private static final int EOF = -2;
+
+    /** The scanned text. */
+    private final CharSequence text;
+
+    /** Position of the next character to scan. */
+    private int position;
+
+    /** Type of the current token: IDENT, EOF or the character itself. */
+    private int tokenType;
+
+    /** Start of the current token. */
+    private int tokenStart;
+
+    /** End of the current token. */
+    private int tokenEnd;
+
+    /**
+     * Creates the scanner.
+     * @param text
+     *        the text of a Java source.
+     */
+    private TypeHeaderScanner(CharSequence text)
+    {
+        this.text = text;
+    }
+
+    /**
+     * Scans the text of a Java source.
+     * @param text
+     *        the text of a Java source.
+     * @return headers of the file.
+     */
+    static FileHeader scan(CharSequence text)
+    {
+        return new TypeHeaderScanner(text).scanFile();
+    }
+
+    /**
+     * Scans the file.
+     * @return headers of the file.
+     */
+    private FileHeader scanFile()
+    {
+        final FileHeader file = new FileHeader();
+        final List<TypeHeader> openTypes = new ArrayList<TypeHeader>();
+        final List<Integer> openTypeDepths = new ArrayList<Integer>();
+        int braceDepth = 0;
+        int previousTokenType = EOF;
+
+        nextToken();
+        while (tokenType != EOF) {
+            if (tokenType == '{') {
+                braceDepth++;
+            }
+            else if (tokenType == '}') {
+                final int last = openTypes.size() - 1;
+                if (last >= 0 && openTypeDepths.get(last) == braceDepth) {
+                    openTypes.remove(last);
+                    openTypeDepths.remove(last);
+                }
+                braceDepth--;
+            }
+            else if (tokenType == IDENT && previousTokenType != '.') {
+                if (braceDepth == 0 && isToken("package")) {
+                    nextToken();
+                    file.packageName = scanName();
+                }
+                else if (braceDepth == 0 && isToken("import")) {
+                    scanImport(file);
+                }
+                else if (isToken("class") || isToken("interface")
+                        || isToken("enum"))
+                {
+                    final TypeHeader outer = openTypes.isEmpty() ? null
+                            : openTypes.get(openTypes.size() - 1);
+                    final TypeHeader type = scanTypeHeader(file, outer);
+                    if (type == null) {
+                        // the current token is not a part of the declaration
+                        previousTokenType = EOF;
+                        continue;
+                    }
+                    file.types.add(type);
+                    braceDepth++;
+                    openTypes.add(type);
+                    openTypeDepths.add(braceDepth);
+                }
+            }
+            previousTokenType = tokenType;
+            nextToken();
+        }
+        return file;
+    }
+
+    /**
+     * Scans the import declaration, starting at the "import" keyword.
+     * Static imports are skipped.
+     * @param file
+     *        the file to add the import to.
+     */
+    private void scanImport(FileHeader file)
+    {
+        nextToken();
+        if (tokenType == IDENT && isToken("static")) {
+            skipTo(';');
+        }
+        else {
+            final String name = scanName();
+            if (tokenType == '*') {
+                file.onDemandImports.add(name);
+                nextToken();
+            }
+            else if (name.length() > 0) {
+                file.singleTypeImports.add(name);
+            }
+        }
+    }
+
+    /**
+     * Scans the header of a type declaration, starting at the "class",
+     * "interface" or "enum" keyword, up to the opening brace of the body.
+     * @param file
+     *        the file of the type.
+     * @param outer
+     *        the enclosing type, or null for a top-level type.
+     * @return the header of the type, or null if the keyword does not start
+     *         a type declaration.
+     */
+    private TypeHeader scanTypeHeader(FileHeader file, TypeHeader outer)
+    {
+        nextToken();
+        if (tokenType != IDENT) {
+            return null;
+        }
+        final String name = getToken();
+        final String qualifiedName;
+        if (outer != null) {
+            qualifiedName = outer.qualifiedName + "." + name;
+        }
+        else if (file.packageName.length() > 0) {
+            qualifiedName = file.packageName + "." + name;
+        }
+        else {
+            qualifiedName = name;
+        }
+        final TypeHeader type = new TypeHeader(file, outer, qualifiedName);
+
+        boolean inSupertypes = false;
+        int genericDepth = 0;
+        nextToken();
+        while (tokenType != '{') {
+            if (tokenType == EOF || tokenType == ';') {
+                return null;
+            }
+            if (tokenType == '<') {
+                genericDepth++;
+                nextToken();
+            }
+            else if (tokenType == '>') {
+                genericDepth--;
+                nextToken();
+            }
+            else if (tokenType == '@') {
+                skipAnnotation();
+            }
+            else if (genericDepth == 0 && tokenType == IDENT) {
+                if (isToken("extends") || isToken("implements")) {
+                    inSupertypes = true;
+                    nextToken();
+                }
+                else if (inSupertypes) {
+                    type.supertypeNames.add(scanName());
+                }
+                else {
+                    nextToken();
+                }
+            }
+            else {
+                nextToken();
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Skips the annotation, starting at the "@" character.
+     */
+    private void skipAnnotation()
+    {
+        nextToken();
+        if (tokenType == IDENT && isToken("interface")) {
+            // it is an annotation type declaration, not an annotation
+            return;
+        }
+        scanName();
+        if (tokenType == '(') {
+            int depth = 0;
+            do {
+                if (tokenType == '(') {
+                    depth++;
+                }
+                else if (tokenType == ')') {
+                    depth--;
+                }
+                nextToken();
+            }
+            while (depth > 0 && tokenType != EOF);
+        }
+    }
+
+    /**
+     * Scans the qualified name, starting at its first identifier. Stops at
+     * the first token after the name.
+     * @return the name, or empty string if there is no name.
+     */
+    private String scanName()
+    {
+        final StringBuilder name = new StringBuilder();
+        while (tokenType == IDENT) {
+            name.append(getToken());
+            nextToken();
+            if (tokenType != '.') {
+                break;
+            }
+            nextToken();
+            if (tokenType == IDENT) {
+                name.append('.');
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * Skips tokens up to the given character, inclusive.
+     * @param character
+     *        the character to skip to.
+     */
+    private void skipTo(char character)
+    {
+        while (tokenType != character && tokenType != EOF) {
+            nextToken();
+        }
+    }
+
+    /**
+     * Checks whether the current token is the given word.
+     * @param word
+     *        the word.
+     * @return true if the current token is the word.
+     */
+    private boolean isToken(String word)
+    {
+        final int length = tokenEnd - tokenStart;
+        if (length != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(tokenStart + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the text of the current token.
+     * @return the text of the current token.
+     */
+    private String getToken()
+    {
+        return text.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    /**
+     * Moves to the next token, skipping whitespaces, comments, string and
+     * character literals.
+     */
+    private void nextToken()
+    {
+        final int length = text.length();
+        while (position < length) {
+            final char character = text.charAt(position);
+            if (Character.isWhitespace(character)) {
+                position++;
+            }
+            else if (character == '/' && position + 1 < length
+                    && text.charAt(position + 1) == '/')
+            {
+                while (position < length && text.charAt(position) != '\n') {
+                    position++;
+                }
+            }
+            else if (character == '/' && position + 1 < length
+                    && text.charAt(position + 1) == '*')
+            {
+                position += 2;
+                while (position < length && !(text.charAt(position) == '*'
+                        && position + 1 < length
+                        && text.charAt(position + 1) == '/'))
+                {
+                    position++;
+                }
+                position += 2;
+            }
+            else if (character == '"' || character == '\'') {
+                position++;
+                while (position < length && text.charAt(position) != character
+                        && text.charAt(position) != '\n')
+                {
+                    if (text.charAt(position) == '\\') {
+                        position++;
+                    }
+                    position++;
+                }
+                position++;
+            }
+            else if (Character.isJavaIdentifierStart(character)
+                    || Character.isDigit(character))
+            {
+                tokenStart = position;
+                while (position < length
+                        && Character.isJavaIdentifierPart(text.charAt(position)))
+                {
+                    position++;
+                }
+                tokenEnd = position;
+                tokenType = IDENT;
+                return;
+            }
+            else {
+                tokenStart = position;
+                position++;
+                tokenEnd = position;
+                tokenType = character;
+                return;
+            }
+        }
+        tokenStart = length;
+        tokenEnd = length;
+        tokenType = EOF;
+    }
+
+    /**
+     * Package, imports and type headers of a file.
+     */
+    static final class FileHeader
+    {
+        /** Name of the package, or empty string for the default package. */
+        private String packageName = "";
+
+        /** Names of single type imports. */
+        private final List<String> singleTypeImports = new ArrayList<String>();
+
+        /** Names of packages and types of on demand imports. */
+        private final List<String> onDemandImports = new ArrayList<String>();
+
+        /** Types declared in the file, outer types before nested ones. */
+        private final List<TypeHeader> types = new ArrayList<TypeHeader>();
+
+        /**
+         * Gets the name of the package.
+         * @return the name of the package, or empty string.
+         */
+        String getPackageName()
+        {
+            return packageName;
+        }
+
+        /**
+         * Gets names of single type imports.
+         * @return names of imported types.
+         */
+        List<String> getSingleTypeImports()
+        {
+            return Collections.unmodifiableList(singleTypeImports);
+        }
+
+        /**
+         * Gets names of on demand imports.
+         * @return names of packages and types without ".*".
+         */
+        List<String> getOnDemandImports()
+        {
+            return Collections.unmodifiableList(onDemandImports);
+        }
+
+        /**
+         * Gets types declared in the file.
+         * @return headers of types.
+         */
+        List<TypeHeader> getTypes()
+        {
+            return Collections.unmodifiableList(types);
+        }
+    }
+
+    /**
+     * Header of a type declaration.
+     */
+    static final class TypeHeader
+    {
+        /** The file of the type. */
+        private final FileHeader file;
+
+        /** The enclosing type, or null for a top-level type. */
+        private final TypeHeader outer;
+
+        /** Qualified name of the type. */
+        private final String qualifiedName;
+
+        /** Names of supertypes as they are written in the source. */
+        private final List<String> supertypeNames = new ArrayList<String>();
+
+        /**
+         * Creates the header.
+         * @param file
+         *        the file of the type.
+         * @param outer
+         *        the enclosing type, or null for a top-level type.
+         * @param qualifiedName
+         *        qualified name of the type.
+         */
+        private TypeHeader(FileHeader file, TypeHeader outer,
+                String qualifiedName)
+        {
+            this.file = file;
+            this.outer = outer;
+            this.qualifiedName = qualifiedName;
+        }
+
+        /**
+         * Gets the file of the type.
+         * @return the file of the type.
+         */
+        FileHeader getFile()
+        {
+            return file;
+        }
+
+        /**
+         * Gets the enclosing type.
+         * @return the enclosing type, or null for a top-level type.
+         */
+        TypeHeader getOuter()
+        {
+            return outer;
+        }
+
+        /**
+         * Gets qualified name of the type.
+         * @return qualified name of the type.
+         */
+        String getQualifiedName()
+        {
+            return qualifiedName;
+        }
+
+        /**
+         * Gets names of supertypes as they are written in the source.
+         * @return names of the superclass and interfaces.
+         */
+        List<String> getSupertypeNames()
+        {
+            return Collections.unmodifiableList(supertypeNames);
+        }
+    }
+}
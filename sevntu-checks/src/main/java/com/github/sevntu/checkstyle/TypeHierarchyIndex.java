@@ -0,0 +1,665 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2011  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.sevntu.checkstyle.TypeHeaderScanner.FileHeader;
+import com.github.sevntu.checkstyle.TypeHeaderScanner.TypeHeader;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FullIdent;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+/**
+ * <p>
+ * Index of supertypes of all types of a project, which lets checks see
+ * the hierarchy of a type beyond the file being processed. The project is
+ * made of the configured source directories, or, if none are configured,
+ * of the source directory of the processed file: the directory which
+ * contains the directories of its package. All Java files of the source
+ * directories are read by {@link TypeHeaderScanner} when the index is first
+ * requested, which reads only the package, imports and headers of types,
+ * so it costs much less than parsing of the files.
+ * </p>
+ * <p>
+ * The source directory of a file of the default package, or of a file which
+ * is not in the directory of its package, can not be derived, so without
+ * configured source directories such a file is indexed alone. A processed
+ * file which is outside of the source directories is added to its own view
+ * of the index: the view reads only that file and looks up other types in
+ * the shared index, so the types of the project are collected once.
+ * Files are read with the charset of the Checker, which the checks take
+ * from the text of the processed file.
+ * </p>
+ * <p>
+ * Names of supertypes are resolved the way the compiler does for types of
+ * the project: member types of enclosing types, single type imports, the
+ * same package, on demand imports. Names of types which are not found in
+ * the project, like types of JDK or libraries, are kept as they are written
+ * in the source, so only their simple names are reliable.
+ * </p>
+ * <p>
+ * Indexes are shared by all checks of an audit: a check calls
+ * {@link #acquire()} before the first use and {@link #release()} when it is
+ * destroyed, and indexes are dropped when the last check releases them.
+ * Up to {@value #MAX_INDEXES} indexes are kept, the least recently used
+ * ones are dropped, so a caller which does not acquire indexes still gets
+ * the built one and does not hold more memory than that. While an index is
+ * kept, a processed file which is changed since it was indexed makes the
+ * index read again all files which are changed, added or removed, so a
+ * long-lived Checker does not see stale types.
+ * </p>
+ */
+public final class TypeHierarchyIndex
+{
+    /** Maximal count of kept indexes. */
+    static final int MAX_INDEXES = 4;
+
+    /** Token types of type declarations. */
+    private static final int[] TYPE_DEF_TYPES = {
+        TokenTypes.ANNOTATION_DEF,
+        TokenTypes.CLASS_DEF,
+        TokenTypes.ENUM_DEF,
+        TokenTypes.INTERFACE_DEF,
+    };
+
+    /** Indexes by the charset and the list of their source directories. */
+    private static final Map<String, TypeHierarchyIndex> INSTANCES =
+            new LinkedHashMap<String, TypeHierarchyIndex>(MAX_INDEXES, 1, true)
+            {
+                /** Serial version of the map. */
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, TypeHierarchyIndex> eldest)
+                {
+                    return size() > MAX_INDEXES;
+                }
+            };
+
+    /** Count of users of indexes. */
+    private static int usersCount;
+
+    /** Charset to read files with. */
+    private final Charset charset;
+
+    /** The shared index which a view of an extra file looks up, or null. */
+    private final TypeHierarchyIndex base;
+
+    /** Indexed files by path, sorted so the first of duplicate types wins. */
+    private final Map<String, IndexedFile> files =
+            new TreeMap<String, IndexedFile>();
+
+    /** Types of the indexed files by qualified name. */
+    private final Map<String, TypeHeader> types =
+            new HashMap<String, TypeHeader>();
+
+    /** Memoized supertypes by qualified name. */
+    private final Map<String, Set<String>> supertypes =
+            new ConcurrentHashMap<String, Set<String>>();
+
+    static {
+        Arrays.sort(TYPE_DEF_TYPES);
+    }
+
+    /**
+     * Builds the index of the source directories. Files which are not
+     * changed since they were indexed by the previous index are not read.
+     * @param directories
+     *        the source directories.
+     * @param charset
+     *        charset to read files with.
+     * @param previous
+     *        the previous index of the directories, or null.
+     */
+    private TypeHierarchyIndex(List<File> directories, Charset charset,
+            TypeHierarchyIndex previous)
+    {
+        this.charset = charset;
+        base = null;
+        for (File directory : directories) {
+            indexDirectory(directory, previous);
+        }
+        indexTypes();
+    }
+
+    /**
+     * Builds the view of the index with one more file. Only the added file
+     * is read and indexed, other types are looked up in the shared index.
+     * @param base
+     *        the shared index.
+     * @param file
+     *        the added file.
+     */
+    private TypeHierarchyIndex(TypeHierarchyIndex base, File file)
+    {
+        charset = base.charset;
+        this.base = base;
+        indexFile(file, base);
+        indexTypes();
+    }
+
+    /**
+     * Registers a user of indexes, indexes are kept until all users
+     * release them.
+     */
+    public static synchronized void acquire()
+    {
+        usersCount++;
+    }
+
+    /**
+     * Unregisters a user of indexes. Indexes are dropped when the last user
+     * releases them.
+     */
+    public static synchronized void release()
+    {
+        usersCount--;
+        if (usersCount <= 0) {
+            usersCount = 0;
+            INSTANCES.clear();
+        }
+    }
+
+    /**
+     * Gets the index of the source directories which contains the types of
+     * the file. The index is built on the first call for the directories and
+     * is built again when the file is changed since it was indexed.
+     * @param sourceDirectories
+     *        configured source directories of the project, or empty array
+     *        to derive the source directory from the package of the file.
+     * @param fileName
+     *        name of the processed file.
+     * @param rootAST
+     *        the root of the syntax tree of the file.
+     * @param charset
+     *        charset of the Checker to read files with.
+     * @return the index which contains the types of the file.
+     */
+    public static synchronized TypeHierarchyIndex getInstance(
+            String[] sourceDirectories, String fileName, DetailAST rootAST,
+            Charset charset)
+    {
+        final File file = new File(fileName).getAbsoluteFile();
+        final List<File> directories = new ArrayList<File>();
+        if (sourceDirectories.length > 0) {
+            for (String directory : sourceDirectories) {
+                directories.add(new File(directory).getAbsoluteFile());
+            }
+        }
+        else {
+            final File directory =
+                    getSourceDirectory(file, getPackageName(rootAST));
+            if (directory != null) {
+                directories.add(directory);
+            }
+        }
+
+        final String key = charset.name() + directories;
+        TypeHierarchyIndex index = INSTANCES.get(key);
+        if (index == null
+                || isInDirectories(file, directories) && !index.isIndexed(file))
+        {
+            index = new TypeHierarchyIndex(directories, charset, index);
+            INSTANCES.put(key, index);
+        }
+        if (!index.isIndexed(file)) {
+            index = new TypeHierarchyIndex(index, file);
+        }
+        return index;
+    }
+
+    /**
+     * Gets the source directory of the file: the directory which contains
+     * the directories of its package.
+     * @param file
+     *        the file.
+     * @param packageName
+     *        the package of the file.
+     * @return the source directory, or null if the file is in the default
+     *         package or is not in the directory of its package.
+     */
+    private static File getSourceDirectory(File file, String packageName)
+    {
+        File result = null;
+        if (packageName.length() > 0) {
+            result = file.getParentFile();
+            final String[] packageDirectories = packageName.split("\\.");
+            for (int i = packageDirectories.length - 1;
+                    i >= 0 && result != null; i--)
+            {
+                if (result.getName().equals(packageDirectories[i])) {
+                    result = result.getParentFile();
+                }
+                else {
+                    result = null;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the file is in one of the directories or their
+     * subdirectories.
+     * @param file
+     *        the file.
+     * @param directories
+     *        the directories.
+     * @return true if the file is in one of the directories.
+     */
+    private static boolean isInDirectories(File file, List<File> directories)
+    {
+        for (File directory : directories) {
+            if (file.getPath().startsWith(directory.getPath() + File.separator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the file is indexed and is not changed since then.
+     * @param file
+     *        the file.
+     * @return true if the index has the current content of the file.
+     */
+    private boolean isIndexed(File file)
+    {
+        final IndexedFile indexedFile = files.get(file.getPath());
+        return indexedFile != null
+                && indexedFile.getStamp().equals(getStamp(file));
+    }
+
+    /**
+     * Gets the qualified name of the type, as it is used by the index:
+     * names of nested and local types are qualified with names of the
+     * enclosing types.
+     * @param typeDef
+     *        the CLASS_DEF, INTERFACE_DEF, ENUM_DEF or ANNOTATION_DEF node.
+     * @return the qualified name of the type.
+     */
+    public static String getQualifiedName(DetailAST typeDef)
+    {
+        final StringBuilder result = new StringBuilder();
+        DetailAST topLevelType = typeDef;
+        for (DetailAST node = typeDef; node != null; node = node.getParent()) {
+            if (Arrays.binarySearch(TYPE_DEF_TYPES, node.getType()) >= 0) {
+                if (result.length() > 0) {
+                    result.insert(0, '.');
+                }
+                result.insert(0, node.findFirstToken(TokenTypes.IDENT).getText());
+                topLevelType = node;
+            }
+        }
+        final String packageName = getPackageName(topLevelType);
+        if (packageName.length() > 0) {
+            result.insert(0, packageName + ".");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Gets the simple name of the type.
+     * @param typeName
+     *        simple or qualified name of the type.
+     * @return the last part of the name.
+     */
+    public static String getSimpleName(String typeName)
+    {
+        return typeName.substring(typeName.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Gets all supertypes of the type: superclasses and implemented or
+     * extended interfaces, direct and inherited. Supertypes which are found
+     * in the project have qualified names, others have names as they are
+     * written in the source.
+     * @param qualifiedName
+     *        the qualified name of the type.
+     * @return names of supertypes, empty if the type is not found.
+     */
+    public Set<String> getSupertypes(String qualifiedName)
+    {
+        Set<String> result = supertypes.get(qualifiedName);
+        if (result == null) {
+            result = collectSupertypes(qualifiedName);
+            supertypes.put(qualifiedName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the type or any of its supertypes has the simple name.
+     * @param qualifiedName
+     *        the qualified name of the type.
+     * @param simpleName
+     *        the simple name of a supertype.
+     * @return true if the type has the supertype with the simple name.
+     */
+    public boolean hasSupertype(String qualifiedName, String simpleName)
+    {
+        for (String supertype : getSupertypes(qualifiedName)) {
+            if (getSimpleName(supertype).equals(simpleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects supertypes of the type by walking the hierarchy.
+     * @param qualifiedName
+     *        the qualified name of the type.
+     * @return names of supertypes.
+     */
+    private Set<String> collectSupertypes(String qualifiedName)
+    {
+        final Set<String> result = new LinkedHashSet<String>();
+        final Deque<TypeHeader> queue = new ArrayDeque<TypeHeader>();
+        final TypeHeader type = findType(qualifiedName);
+        if (type != null) {
+            queue.add(type);
+        }
+        while (!queue.isEmpty()) {
+            final TypeHeader current = queue.poll();
+            for (String name : current.getSupertypeNames()) {
+                final String supertype = resolve(current, name);
+                final TypeHeader supertypeHeader = findType(supertype);
+                if (result.add(supertype) && supertypeHeader != null) {
+                    queue.add(supertypeHeader);
+                }
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Resolves the name of a supertype of the type.
+     * @param type
+     *        the type which declares the supertype.
+     * @param name
+     *        the name of the supertype as it is written in the source.
+     * @return the qualified name if the supertype is found in the project,
+     *         otherwise the name as it is written.
+     */
+    private String resolve(TypeHeader type, String name)
+    {
+        final int dot = name.indexOf('.');
+        final String firstName = dot < 0 ? name : name.substring(0, dot);
+        final String resolvedFirstName = resolveSimpleName(type, firstName);
+        String result = name;
+        if (resolvedFirstName != null) {
+            result = resolvedFirstName + (dot < 0 ? "" : name.substring(dot));
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the simple name of a type in the scope of the type header.
+     * @param type
+     *        the type which declares the supertype.
+     * @param simpleName
+     *        the simple name.
+     * @return the qualified name, or null if the type is not found.
+     */
+    private String resolveSimpleName(TypeHeader type, String simpleName)
+    {
+        for (TypeHeader outer = type.getOuter(); outer != null;
+                outer = outer.getOuter())
+        {
+            if (getSimpleName(outer.getQualifiedName()).equals(simpleName)) {
+                return outer.getQualifiedName();
+            }
+            final String member = outer.getQualifiedName() + "." + simpleName;
+            if (findType(member) != null) {
+                return member;
+            }
+        }
+
+        final FileHeader file = type.getFile();
+        for (String imported : file.getSingleTypeImports()) {
+            if (getSimpleName(imported).equals(simpleName)) {
+                return imported;
+            }
+        }
+
+        final String packageName = file.getPackageName();
+        final String samePackageType = packageName.length() > 0
+                ? packageName + "." + simpleName : simpleName;
+        if (findType(samePackageType) != null) {
+            return samePackageType;
+        }
+
+        for (String imported : file.getOnDemandImports()) {
+            final String importedType = imported + "." + simpleName;
+            if (findType(importedType) != null) {
+                return importedType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the type in the indexed files or in the shared index.
+     * @param qualifiedName
+     *        the qualified name of the type.
+     * @return the header of the type, or null if the type is not found.
+     */
+    private TypeHeader findType(String qualifiedName)
+    {
+        TypeHeader result = types.get(qualifiedName);
+        if (result == null && base != null) {
+            result = base.types.get(qualifiedName);
+        }
+        return result;
+    }
+
+    /**
+     * Indexes Java files of the directory and its subdirectories.
+     * @param directory
+     *        the directory.
+     * @param previous
+     *        the previous index, or null.
+     */
+    private void indexDirectory(File directory, TypeHierarchyIndex previous)
+    {
+        final File[] directoryFiles = directory.listFiles();
+        if (directoryFiles != null) {
+            for (File file : directoryFiles) {
+                if (file.isDirectory()) {
+                    indexDirectory(file, previous);
+                }
+                else if (file.getName().endsWith(".java")) {
+                    indexFile(file, previous);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes the Java file, or takes it from the previous index if it is
+     * not changed since then.
+     * @param file
+     *        the Java file.
+     * @param previous
+     *        the previous index, or null.
+     */
+    private void indexFile(File file, TypeHierarchyIndex previous)
+    {
+        final String stamp = getStamp(file);
+        IndexedFile indexedFile = null;
+        if (previous != null) {
+            indexedFile = previous.files.get(file.getPath());
+        }
+        if (indexedFile == null || !indexedFile.getStamp().equals(stamp)) {
+            try {
+                indexedFile = new IndexedFile(stamp, TypeHeaderScanner.scan(
+                        new String(readFile(file), charset)));
+            }
+            catch (IOException e) {
+                // an unreadable file is just not indexed
+                com.puppycrawl.tools.checkstyle.api.Utils.getExceptionLogger()
+                        .debug("Unable to read " + file, e);
+                indexedFile = null;
+            }
+        }
+        if (indexedFile != null) {
+            files.put(file.getPath(), indexedFile);
+        }
+    }
+
+    /**
+     * Indexes types of all indexed files. Types which are already found in
+     * another file, or in the shared index, are not replaced.
+     */
+    private void indexTypes()
+    {
+        for (IndexedFile indexedFile : files.values()) {
+            for (TypeHeader type : indexedFile.getHeader().getTypes()) {
+                if (findType(type.getQualifiedName()) == null) {
+                    types.put(type.getQualifiedName(), type);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the stamp of the file, which changes when the file is changed.
+     * @param file
+     *        the file.
+     * @return the time of the last modification and the length of the file.
+     */
+    private static String getStamp(File file)
+    {
+        return file.lastModified() + ":" + file.length();
+    }
+
+    /**
+     * Reads the content of the file.
+     * @param file
+     *        the file.
+     * @return bytes of the file.
+     * @throws IOException
+     *         if the file can not be read.
+     */
+    private static byte[] readFile(File file) throws IOException
+    {
+        final InputStream stream = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream result =
+                    new ByteArrayOutputStream((int) file.length());
+            final byte[] buffer = new byte[8192];
+            int count = stream.read(buffer);
+            while (count >= 0) {
+                result.write(buffer, 0, count);
+                count = stream.read(buffer);
+            }
+            return result.toByteArray();
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Gets the name of the package of the file.
+     * @param node
+     *        a top-level node of the file.
+     * @return the name of the package, or empty string for the default
+     *         package.
+     */
+    private static String getPackageName(DetailAST node)
+    {
+        DetailAST packageDef = node;
+        while (packageDef != null
+                && packageDef.getType() != TokenTypes.PACKAGE_DEF)
+        {
+            packageDef = packageDef.getPreviousSibling();
+        }
+        String result = "";
+        if (packageDef != null) {
+            result = FullIdent.createFullIdent(
+                    packageDef.getLastChild().getPreviousSibling()).getText();
+        }
+        return result;
+    }
+
+    /**
+     * Headers of an indexed file with the stamp of the file when it was read.
+     */
+    private static final class IndexedFile
+    {
+        /** The stamp of the file. */
+        private final String stamp;
+
+        /** Headers of the file. */
+        private final FileHeader header;
+
+        /**
+         * Creates the indexed file.
+         * @param stamp
+         *        the stamp of the file.
+         * @param header
+         *        headers of the file.
+         */
+        IndexedFile(String stamp, FileHeader header)
+        {
+            this.stamp = stamp;
+            this.header = header;
+        }
+
+        /**
+         * Gets the stamp of the file when it was read.
+         * @return the stamp.
+         */
+        String getStamp()
+        {
+            return stamp;
+        }
+
+        /**
+         * Gets headers of the file.
+         * @return headers.
+         */
+        FileHeader getHeader()
+        {
+            return header;
+        }
+    }
+}
@@ -21,6 +21,7 @@ package com.github.sevntu.checkstyle.checks.coding;
 import java.util.LinkedList;
 import java.util.List;
 
+import com.github.sevntu.checkstyle.TokenTypeIndex;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 import com.puppycrawl.tools.checkstyle.api.Check;
@@ -70,12 +71,39 @@ public class AvoidHidingCauseExceptionCheck extends Check
 { 
     public static final String MSG_KEY = "avoid.hiding.cause.exception";
 
+    /**
+     * Types of nodes whose subtrees are not searched for "throw" keywords.
+     */
+    private static final int[] THROW_SEARCH_SKIPPED_TYPES = {
+        TokenTypes.PARAMETER_DEF,
+        TokenTypes.LITERAL_THROW,
+        TokenTypes.LITERAL_TRY,
+    };
+
+    /**
+     * The root of the syntax tree of the current file.
+     */
+    private DetailAST rootAST;
+
     @Override
     public int[] getDefaultTokens()
     {
         return new int[] {TokenTypes.LITERAL_CATCH};
     }
 
+    @Override
+    public void beginTree(DetailAST rootAST)
+    {
+        this.rootAST = rootAST;
+    }
+
+    @Override
+    public void finishTree(DetailAST rootAST)
+    {
+        TokenTypeIndex.release(rootAST);
+        this.rootAST = null;
+    }
+
     @Override
     public void visitToken(DetailAST detailAST)
     {
@@ -93,16 +121,13 @@ public class AvoidHidingCauseExceptionCheck extends Check
 
         for (DetailAST throwAST : throwList) {
 
-            if (throwAST.getType() == TokenTypes.LITERAL_THROW) {
-                
-                List<DetailAST> throwParamNamesList = 
-                        new LinkedList<DetailAST>();
-                getThrowParamNamesList(throwAST, throwParamNamesList);
-                if (!isContainsCaughtExc(throwParamNamesList, wrapExcNames))
-                {
-                    log(throwAST, MSG_KEY,
-                            originExcName);
-                }
+            List<DetailAST> throwParamNamesList = 
+                    new LinkedList<DetailAST>();
+            getThrowParamNamesList(throwAST, throwParamNamesList);
+            if (!isContainsCaughtExc(throwParamNamesList, wrapExcNames))
+            {
+                log(throwAST, MSG_KEY,
+                        originExcName);
             }
         }
     }
@@ -161,33 +186,20 @@ public class AvoidHidingCauseExceptionCheck extends Check
     }
 
     /**
-     * Recursive method which searches for the <code>LITERAL_THROW</code>
-     * DetailASTs all levels below on the current <code>aParentAST</code> node
-     * without entering into nested try/catch blocks.
+     * Searches for the <code>LITERAL_THROW</code> DetailASTs all levels
+     * below on the current <code>aParentAST</code> node without entering
+     * into nested try/catch blocks.
      * @param parentAST A start node for "throw" keyword <code>DetailASTs
      * </code> searching.
      * @return list of throw literals
      */
     private List<DetailAST> makeThrowList(DetailAST parentAST)
     {
-
-        List<DetailAST> throwList = new LinkedList<DetailAST>();
-        for (DetailAST currentNode : getChildNodes(parentAST)) {
-
-            if (currentNode.getType() == TokenTypes.LITERAL_THROW) {
-                throwList.add(currentNode);
-            }
-
-            if (currentNode.getType() != TokenTypes.PARAMETER_DEF
-                    && currentNode.getType() != TokenTypes.LITERAL_THROW
-                    && currentNode.getType() != TokenTypes.LITERAL_TRY
-                    && currentNode.getNumberOfChildren() > 0)
-            {
-                throwList.addAll(makeThrowList(currentNode));
-            }
-
-        }
-        return throwList;
+        final TokenTypeIndex index = TokenTypeIndex.getInstance(rootAST);
+        final int position = index.getPosition(parentAST);
+        return index.getNodes(position + 1, index.getSubtreeEnd(parentAST),
+                new int[] {TokenTypes.LITERAL_THROW},
+                THROW_SEARCH_SKIPPED_TYPES);
     }
 
     /**
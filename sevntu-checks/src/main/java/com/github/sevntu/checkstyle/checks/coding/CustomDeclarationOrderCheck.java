@@ -20,19 +20,24 @@ package com.github.sevntu.checkstyle.checks.coding;
 
 import java.beans.Introspector;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.beanutils.ConversionException;
 
+import com.github.sevntu.checkstyle.FlatAst;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -195,6 +200,18 @@ public class CustomDeclarationOrderCheck extends Check
 
     private static final String SETTER_PREFIX = "set";
 
+    /**
+     * Format of RegExp which consists only of literals separated by ".*".
+     */
+    private static final Pattern LITERALS_FORMAT =
+            Pattern.compile("[\\w@ ]*(\\.\\*[\\w@ ]*)*");
+
+    /**
+     * Characters which are not matched by "." of a RegExp without the DOTALL
+     * flag.
+     */
+    private static final String LINE_TERMINATORS = "\n\r\u0085\u2028\u2029";
+
     /** Default format for custom declaration check */
     private static final String DEFAULT_DECLARATION = "Field(.*public .*) "
             + "### Field(.*protected .*) ### Field(.*private .*) ### CTOR(.*) ### "
@@ -202,21 +219,50 @@ public class CustomDeclarationOrderCheck extends Check
             + "### InnerInterface(.*) ### InnerEnum(.*)";
 
     /**
-     * Compares line numbers.
+     * Compares line numbers of getters and setters. Getters go before setters
+     * which are declared on the same line.
      */
-    private static final Comparator<DetailAST> AST_LINE_COMPARATOR = new Comparator<DetailAST>()
+    private static final Comparator<GetterSetter> GETTER_SETTER_LINE_COMPARATOR =
+            new Comparator<GetterSetter>()
     {
-        
-        public int compare(DetailAST aObj1, DetailAST aObj2)
+
+        public int compare(GetterSetter aObj1, GetterSetter aObj2)
         {
-            return aObj1.getLineNo() - aObj2.getLineNo();
+            int result = aObj1.getAst().getLineNo() - aObj2.getAst().getLineNo();
+            if (result == 0) {
+                result = (aObj1.isSetter() ? 1 : 0) - (aObj2.isSetter() ? 1 : 0);
+            }
+            return result;
         }
     };
 
+    /**
+     * Bits of modifiers which are used to match class members against rules
+     * without building of the text representation of a member.
+     */
+    private static final Map<String, Integer> MODIFIER_BITS =
+            new HashMap<String, Integer>();
+
+    static {
+        final String[] modifiers = {"public", "protected", "private",
+            "abstract", "static", "final", "transient", "volatile",
+            "synchronized", "native", "strictfp", "default", };
+        for (int i = 0; i < modifiers.length; i++) {
+            MODIFIER_BITS.put(modifiers[i], 1 << i);
+        }
+    }
+
     /** List of order declaration customizing by user */
     private final List<FormatMatcher> customOrderDeclaration =
         new ArrayList<FormatMatcher>();
 
+    /**
+     * Positions of rules in custom order declaration grouped by the type of
+     * class member they are applied to.
+     */
+    private final Map<Integer, List<Integer>> rulesByClassMember =
+        new HashMap<Integer, List<Integer>>();
+
     /** save compile flags for further usage */
     private int compileFlags;
 
@@ -240,6 +286,17 @@ public class CustomDeclarationOrderCheck extends Check
      */
     private final Deque<ClassDetail> classDetails = new LinkedList<ClassDetail>();
 
+    /**
+     * The root of the syntax tree of the file is currently being processed.
+     */
+    private DetailAST rootAST;
+
+    /**
+     * The flat view of the syntax tree of the file is currently being
+     * processed, or null if it is not requested yet.
+     */
+    private FlatAst flatAst;
+
 
     /** Constructor to set default format. */
     public CustomDeclarationOrderCheck()
@@ -256,11 +313,19 @@ public class CustomDeclarationOrderCheck extends Check
     public void setCustomDeclarationOrder(final String inputOrderDeclaration)
     {
         customOrderDeclaration.clear();
+        rulesByClassMember.clear();
         for (String currentState : inputOrderDeclaration.split("\\s*###\\s*"))
         {
             try {
-                customOrderDeclaration
-                        .add(parseInputDeclarationRule(currentState));
+                final FormatMatcher rule = parseInputDeclarationRule(currentState);
+                List<Integer> memberRules =
+                        rulesByClassMember.get(rule.getClassMember());
+                if (memberRules == null) {
+                    memberRules = new ArrayList<Integer>();
+                    rulesByClassMember.put(rule.getClassMember(), memberRules);
+                }
+                memberRules.add(customOrderDeclaration.size());
+                customOrderDeclaration.add(rule);
             }
             catch (StringIndexOutOfBoundsException exp) {
                 //if the structure of the input rule isn't correct
@@ -317,6 +382,22 @@ public class CustomDeclarationOrderCheck extends Check
         return tokenTypes;
     }
 
+    @Override
+    public void beginTree(DetailAST rootAST)
+    {
+        this.rootAST = rootAST;
+    }
+
+    @Override
+    public void finishTree(DetailAST rootAST)
+    {
+        if (flatAst != null) {
+            FlatAst.release(rootAST);
+        }
+        this.rootAST = null;
+        flatAst = null;
+    }
+
     @Override
     public void visitToken(DetailAST ast)
     {
@@ -564,18 +645,21 @@ public class CustomDeclarationOrderCheck extends Check
             final String methodName = getIdentifier(methodDefAst);
             if (isGetterName(methodName)) {
                 if (isGetterCorrect(methodDefAst, GETTER_PREFIX)) {
-                    classDetails.peek().addGetter(methodDefAst);
+                    classDetails.peek().addGetter(methodDefAst,
+                            getNameWithoutPrefix(methodName, GETTER_PREFIX));
                 }
             }
             else if (isBooleanGetterName(methodName)) {
                 if (isGetterCorrect(methodDefAst, BOOLEAN_GETTER_PREFIX)) {
-                    classDetails.peek().addGetter(methodDefAst);
+                    classDetails.peek().addGetter(methodDefAst,
+                            getNameWithoutPrefix(methodName, BOOLEAN_GETTER_PREFIX));
                 }
             }
             else if (isSetterName(methodName)
                     && isSetterCorrect(methodDefAst, SETTER_PREFIX))
             {
-                classDetails.peek().addSetter(methodDefAst);
+                classDetails.peek().addSetter(methodDefAst,
+                        getNameWithoutPrefix(methodName, SETTER_PREFIX));
             }
         }
     }
@@ -591,45 +675,45 @@ public class CustomDeclarationOrderCheck extends Check
     private int getPositionInOrderDeclaration(final DetailAST ast)
     {
         int result = -1;
-        final String modifiers = getCombinedModifiersList(ast);
-        for (int index = 0; index < customOrderDeclaration.size(); index++) {
-            final FormatMatcher currentRule = customOrderDeclaration.get(index);
-            if (currentRule.getClassMember() == ast.getType()
-                    && currentRule.getRegexp().matcher(modifiers).find())
-            {
-                if (currentRule.hasRule(ANNON_CLASS_FIELD_MACRO)) {
-                    if (isAnonymousClassField(ast)) {
+        final List<Integer> memberRules = rulesByClassMember.get(ast.getType());
+        if (memberRules != null) {
+            final MemberSignature signature = new MemberSignature(ast);
+            for (int index : memberRules) {
+                final FormatMatcher currentRule = customOrderDeclaration.get(index);
+                if (currentRule.isAnnonClassFieldRule()) {
+                    if (isAnonymousClassField(ast)
+                            && currentRule.matches(signature))
+                    {
                         result = index;
                         break;
                     }
                 }
-                else if (currentRule.hasRule(GETTER_SETTER_MACRO)) {
+                else if (currentRule.isGetterSetterRule()) {
                     final String methodName = getIdentifier(ast);
                     final ClassDetail classDetail = classDetails.peek();
-                    if (classDetail.containsGetter(methodName)
+                    if ((classDetail.containsGetter(methodName)
                             || classDetail.containsSetter(methodName))
+                            && currentRule.matches(signature))
                     {
                         result = index;
                         break;
                     }
                 }
-                else if (currentRule.hasRule(MAIN_METHOD_MACRO)) {
-                    if (isMainMethod(ast)) {
+                else if (currentRule.isMainMethodRule()) {
+                    if (isMainMethod(ast) && currentRule.matches(signature)) {
                         result = index;
                         break;
                     }
                 }
-                else {
-                    // if more than one rule matches current AST node, then keep first one
-                    result = (result == -1) ? index : result;
-                    if (ast.getType() == TokenTypes.METHOD_DEF
-                            || ast.getType() == TokenTypes.VARIABLE_DEF)
+                // if more than one rule matches current AST node, then keep first one
+                else if (result == -1 && currentRule.matches(signature)) {
+                    result = index;
+                    if (ast.getType() != TokenTypes.METHOD_DEF
+                            && ast.getType() != TokenTypes.VARIABLE_DEF)
                     {
-                        // continue to find more specific rule
-                        continue;
-                    } else {
                         break;
                     }
+                    // continue to find more specific rule
                 }
             }
         }
@@ -715,14 +799,30 @@ public class CustomDeclarationOrderCheck extends Check
 
             final DetailAST statementsAst = methodDef.findFirstToken(TokenTypes.SLIST);
             if (statementsAst != null) {
-                final DetailAST returnStatementAst = statementsAst
-                        .findFirstToken(TokenTypes.LITERAL_RETURN);
+                // single pass over statements: first return and local variables
+                DetailAST returnStatementAst = null;
+                List<String> localVariables = Collections.emptyList();
+                DetailAST currNode = statementsAst.getFirstChild();
+                while (currNode != null) {
+                    if (currNode.getType() == TokenTypes.LITERAL_RETURN) {
+                        if (returnStatementAst == null) {
+                            returnStatementAst = currNode;
+                        }
+                    }
+                    else if (currNode.getType() == TokenTypes.VARIABLE_DEF) {
+                        if (localVariables.isEmpty()) {
+                            localVariables = new ArrayList<String>();
+                        }
+                        localVariables.add(getIdentifier(currNode));
+                    }
+                    currNode = currNode.getNextSibling();
+                }
 
                 if (returnStatementAst != null) {
                     final DetailAST exprAst = returnStatementAst.getFirstChild();
                     final String returnedFieldName = getNameOfGetterField(exprAst);
                     if (returnedFieldName != null
-                            && !localVariableHidesField(statementsAst, returnedFieldName)
+                            && !localVariables.contains(returnedFieldName)
                             && verifyFieldAndMethodName(returnedFieldName, methodNameWithoutPrefix))
                     {
                         result = true;
@@ -733,21 +833,6 @@ public class CustomDeclarationOrderCheck extends Check
         return result;
     }
 
-    private static boolean localVariableHidesField(DetailAST slist,
-            String fieldName) {
-        boolean result = false;
-        DetailAST currNode = slist.getFirstChild();
-        while (currNode != null) {
-            if (currNode.getType() == TokenTypes.VARIABLE_DEF
-                    && fieldName.equals(getIdentifier(currNode))) {
-                result = true;
-                break;
-            }
-            currNode = currNode.getNextSibling();
-        }
-        return result;
-    }
-
     /**
      * Returns true when setter is correct. Correct setter is method that has one parameter,
      * assigns this parameter to class field and has name 'set<i>FieldName</i>'.
@@ -772,7 +857,6 @@ public class CustomDeclarationOrderCheck extends Check
             final DetailAST statementsAst = methodDefAst.findFirstToken(TokenTypes.SLIST);
 
             result = statementsAst != null
-                    && !localVariableHidesField(statementsAst, setterFieldName)
                     && isFieldUpdate(statementsAst, setterFieldName);
         }
         return result;
@@ -814,9 +898,9 @@ public class CustomDeclarationOrderCheck extends Check
         }
 
         while (astNode.getType() != TokenTypes.IDENT) {
-            if (astNode != null && astNode.getFirstChild() != null) {
-                modifiers.append(getModifiersAsText(astNode.getFirstChild()));
-                modifiers.append(" ");
+            if (astNode.getFirstChild() != null) {
+                appendModifiersAsText(modifiers, astNode.getFirstChild());
+                modifiers.append(' ');
             }
             astNode = astNode.getNextSibling();
         }
@@ -827,36 +911,60 @@ public class CustomDeclarationOrderCheck extends Check
     }
 
     /**
-     * Get text representation of MODIFIERS node.
+     * Appends text representation of MODIFIERS node. The appended text
+     * is trimmed on each level of nesting.
      *
+     * @param modifiers builder to append text to.
      * @param ast current DetailAST node.
-     * @return text representation of MODIFIERS node.
      */
-    private static String getModifiersAsText(final DetailAST ast)
+    private static void appendModifiersAsText(final StringBuilder modifiers,
+            final DetailAST ast)
     {
+        final int start = modifiers.length();
         DetailAST astNode = ast;
-        String separator = "";
-        final StringBuffer modifiers = new StringBuffer();
+        // add separator between access modifiers and annotations
+        final boolean withSeparator =
+                astNode.getParent().getType() == TokenTypes.MODIFIERS;
 
-        if (astNode.getParent().getType() == TokenTypes.MODIFIERS) {
-            // add separator between access modifiers and annotations
-            separator = " ";
-        }
         while (astNode != null) {
             if (astNode.getFirstChild() != null) {
-                modifiers.append(getModifiersAsText(astNode.getFirstChild()));
+                appendModifiersAsText(modifiers, astNode.getFirstChild());
             }
             else {
                 if (astNode.getType() == TokenTypes.RBRACK) {
                     //if array
-                    modifiers.append("[");
+                    modifiers.append('[');
                 }
                 modifiers.append(astNode.getText());
             }
-            modifiers.append(separator);
+            if (withSeparator) {
+                modifiers.append(' ');
+            }
             astNode = astNode.getNextSibling();
         }
-        return modifiers.toString().trim();
+        trim(modifiers, start);
+    }
+
+    /**
+     * Removes leading and trailing whitespaces of the text which is appended
+     * to the builder after the start position, like {@link String#trim()}
+     * does.
+     *
+     * @param builder builder to trim.
+     * @param start start position of the text to trim.
+     */
+    private static void trim(final StringBuilder builder, final int start)
+    {
+        int end = builder.length();
+        while (end > start && builder.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        builder.setLength(end);
+        int leading = start;
+        while (leading < end && builder.charAt(leading) <= ' ') {
+            leading++;
+        }
+        builder.delete(start, leading);
     }
 
     /**
@@ -892,42 +1000,60 @@ public class CustomDeclarationOrderCheck extends Check
     }
 
     /**
-     * Verify that exists updating of a field.
+     * Verify that exists updating of a field and the field is not hidden by
+     * a local variable. Statements are traversed in a single pass.
      * @param statementsAst DetailAST of statements (SLIST).
      * @param fieldName name of target field.
      * @return true if there is updating of aFieldName in aStatementsAst.
      */
-    private static boolean isFieldUpdate(DetailAST statementsAst, String fieldName)
+    private boolean isFieldUpdate(DetailAST statementsAst, String fieldName)
     {
-        boolean result = false;
-        DetailAST currentStatement = statementsAst.getFirstChild();
-
-        while (currentStatement != null && currentStatement != statementsAst) {
-            
-            String nameOfSetterField = null;
-            if (currentStatement.getType() == TokenTypes.ASSIGN) {
-                nameOfSetterField = getNameOfAssignedField(currentStatement);
-            } else if (currentStatement.getType() == TokenTypes.METHOD_CALL) {
-                nameOfSetterField = getNameOfSuperClassUpdatedField(currentStatement);
+        boolean fieldUpdated = false;
+        boolean fieldHidden = false;
+        if (flatAst == null) {
+            flatAst = FlatAst.getInstance(rootAST);
+        }
+        final int statements = flatAst.getNode(statementsAst);
+        final int statementsEnd = flatAst.getSubtreeEnd(statements);
+        // nodes of the method body are traversed in pre-order
+        int currentNode = statements + 1;
+
+        while (currentNode < statementsEnd && !fieldHidden) {
+
+            final int type = flatAst.getType(currentNode);
+            if (type == TokenTypes.VARIABLE_DEF
+                    && flatAst.getParent(currentNode) == statements
+                    && fieldName.equals(flatAst.getText(flatAst.findFirstChild(
+                            currentNode, TokenTypes.IDENT))))
+            {
+                fieldHidden = true;
             }
-            
-            if (fieldName.equalsIgnoreCase(nameOfSetterField)) {
-                result = true;
-                break;
+            else if (!fieldUpdated) {
+                String nameOfSetterField = null;
+                if (type == TokenTypes.ASSIGN) {
+                    nameOfSetterField = getNameOfAssignedField(
+                            flatAst.getAST(currentNode));
+                }
+                else if (type == TokenTypes.METHOD_CALL) {
+                    nameOfSetterField = getNameOfSuperClassUpdatedField(
+                            flatAst.getAST(currentNode));
+                }
+                fieldUpdated = fieldName.equalsIgnoreCase(nameOfSetterField);
             }
 
-            DetailAST nextStatement = currentStatement.getFirstChild();
-
-            while ((currentStatement != null) && (nextStatement == null)) {
-                nextStatement = currentStatement.getNextSibling();
-                if (nextStatement == null) {
-                    currentStatement = currentStatement.getParent();
+            if (fieldUpdated) {
+                // only local variables of the method body are left to check
+                int currentStatement = currentNode;
+                while (flatAst.getParent(currentStatement) != statements) {
+                    currentStatement = flatAst.getParent(currentStatement);
                 }
+                currentNode = flatAst.getSubtreeEnd(currentStatement);
+            }
+            else {
+                currentNode++;
             }
-
-            currentStatement = nextStatement;
         }
-        return result;
+        return fieldUpdated && !fieldHidden;
     }
 
     /**
@@ -1207,6 +1333,26 @@ public class CustomDeclarationOrderCheck extends Check
         private final String rule;
         /** The string format of the RegExp */
         private String format;
+        /** Whether the rule is a DeclareAnnonClassField rule */
+        private final boolean annonClassFieldRule;
+        /** Whether the rule is a GetterSetter rule */
+        private final boolean getterSetterRule;
+        /** Whether the rule is a MainMethod rule */
+        private final boolean mainMethodRule;
+        /**
+         * Literal parts of the RegExp separated by ".*", or null if the RegExp
+         * can't be matched by a plain search of literals.
+         */
+        private String[] literals;
+        /**
+         * Bits of modifiers in the order they appear in the RegExp, or null
+         * if not all literals of RegExp are modifiers.
+         */
+        private int[] modifierSequence;
+        /** Bit mask of all modifiers from modifierSequence */
+        private int modifierMask;
+        /** Whether the RegExp is case insensitive */
+        private boolean caseInsensitive;
 
         /**
          * Creates a new <code>FormatMatcher</code> instance.
@@ -1221,6 +1367,11 @@ public class CustomDeclarationOrderCheck extends Check
         {
             this.classMember = classMember;
             rule = inputRule;
+            annonClassFieldRule = hasRule(ANNON_CLASS_FIELD_MACRO);
+            getterSetterRule = !annonClassFieldRule
+                    && hasRule(GETTER_SETTER_MACRO);
+            mainMethodRule = !annonClassFieldRule && !getterSetterRule
+                    && hasRule(MAIN_METHOD_MACRO);
         }
 
         /** @return the RegExp to match against */
@@ -1241,6 +1392,24 @@ public class CustomDeclarationOrderCheck extends Check
             return classMember;
         }
 
+        /** @return true if the rule is a DeclareAnnonClassField rule */
+        public final boolean isAnnonClassFieldRule()
+        {
+            return annonClassFieldRule;
+        }
+
+        /** @return true if the rule is a GetterSetter rule */
+        public final boolean isGetterSetterRule()
+        {
+            return getterSetterRule;
+        }
+
+        /** @return true if the rule is a MainMethod rule */
+        public final boolean isMainMethodRule()
+        {
+            return mainMethodRule;
+        }
+
         /**
          * Set the compile flags for the regular expression.
          *
@@ -1267,6 +1436,166 @@ public class CustomDeclarationOrderCheck extends Check
             catch (final PatternSyntaxException e) {
                 throw new ConversionException("unable to parse " + format, e);
             }
+            caseInsensitive = (compileFlags & Pattern.CASE_INSENSITIVE) != 0;
+            compileLiterals(format);
+        }
+
+        /**
+         * Splits the RegExp to literals if it consists only of literals
+         * separated by ".*". Such RegExp is found in the text if and only if
+         * all the literals are found one after another, so it is matched
+         * without the regular expression engine. If all the literals are
+         * modifiers, the RegExp is also matched by the modifiers of a class
+         * member in the same order.
+         *
+         * @param format the format of the regular expression.
+         */
+        private void compileLiterals(final String format)
+        {
+            literals = null;
+            modifierSequence = null;
+            modifierMask = 0;
+
+            if (LITERALS_FORMAT.matcher(format).matches()) {
+                final List<String> parts = new ArrayList<String>();
+                for (String part : format.split("\\.\\*")) {
+                    if (!part.isEmpty()) {
+                        parts.add(part);
+                    }
+                }
+                literals = parts.toArray(new String[parts.size()]);
+
+                final int[] sequence = new int[literals.length];
+                for (int i = 0; i < literals.length; i++) {
+                    final String literal = literals[i];
+                    final Integer bit = literal.endsWith(" ")
+                            ? MODIFIER_BITS.get(literal.substring(0,
+                                    literal.length() - 1))
+                            : null;
+                    if (bit == null) {
+                        return;
+                    }
+                    sequence[i] = bit;
+                    modifierMask |= bit;
+                }
+                modifierSequence = sequence;
+            }
+        }
+
+        /**
+         * Checks that the RegExp is found in the text representation of the
+         * class member.
+         *
+         * @param signature class member to match.
+         * @return true if the RegExp is found.
+         */
+        public boolean matches(final MemberSignature signature)
+        {
+            boolean result;
+            if (literals == null
+                    || literals.length > 1 && signature.hasLineTerminator())
+            {
+                // ".*" doesn't match line terminators
+                result = regExp.matcher(signature.getText()).find();
+            }
+            else if (modifierSequence != null
+                    && signature.hasModifiers(modifierMask, modifierSequence))
+            {
+                result = true;
+            }
+            else {
+                result = containsLiterals(signature.getText());
+            }
+            return result;
+        }
+
+        /**
+         * Checks that all the literals are found in the text one after
+         * another.
+         *
+         * @param text text to search in.
+         * @return true if all the literals are found.
+         */
+        private boolean containsLiterals(final String text)
+        {
+            int from = 0;
+            for (String literal : literals) {
+                final int position = indexOf(text, literal, from);
+                if (position == -1) {
+                    from = -1;
+                    break;
+                }
+                from = position + literal.length();
+            }
+            return from != -1;
+        }
+
+        /**
+         * Searches the literal in the text, ignoring case of ASCII characters
+         * if the RegExp is case insensitive.
+         *
+         * @param text text to search in.
+         * @param literal literal to search.
+         * @param from the index to start the search from.
+         * @return the index of the literal in the text or -1.
+         */
+        private int indexOf(final String text, final String literal,
+                final int from)
+        {
+            int result = -1;
+            if (caseInsensitive) {
+                final int last = text.length() - literal.length();
+                for (int i = from; i <= last; i++) {
+                    if (equalsIgnoreAsciiCase(text, i, literal)) {
+                        result = i;
+                        break;
+                    }
+                }
+            }
+            else {
+                result = text.indexOf(literal, from);
+            }
+            return result;
+        }
+
+        /**
+         * Compares the region of the text with the literal ignoring case of
+         * ASCII characters, the same way as {@link Pattern#CASE_INSENSITIVE}
+         * does.
+         *
+         * @param text text to compare.
+         * @param offset the start of the region in the text.
+         * @param literal literal to compare.
+         * @return true if the region is equal to the literal.
+         */
+        private static boolean equalsIgnoreAsciiCase(final String text,
+                final int offset, final String literal)
+        {
+            boolean result = true;
+            for (int i = 0; i < literal.length(); i++) {
+                if (toAsciiLowerCase(text.charAt(offset + i))
+                        != toAsciiLowerCase(literal.charAt(i)))
+                {
+                    result = false;
+                    break;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Converts ASCII character to lower case.
+         *
+         * @param character character to convert.
+         * @return lower case character.
+         */
+        private static char toAsciiLowerCase(final char character)
+        {
+            char result = character;
+            if (character >= 'A' && character <= 'Z') {
+                result = (char) (character + ('a' - 'A'));
+            }
+            return result;
         }
 
         /**
@@ -1286,6 +1615,108 @@ public class CustomDeclarationOrderCheck extends Check
         }
     }
 
+    /**
+     * Class member which is matched against rules. Its text representation
+     * and modifiers are computed on demand, at most once.
+     */
+    private static class MemberSignature
+    {
+        /** DetailAST of class member */
+        private final DetailAST ast;
+        /** Text representation of class member */
+        private String text;
+        /** Whether text representation contains line terminators */
+        private Boolean lineTerminator;
+        /** Bits of modifiers of class member in order of declaration */
+        private int[] modifiers;
+        /** Bit mask of all modifiers of class member */
+        private int modifierMask;
+
+        /**
+         * Creates a new <code>MemberSignature</code> instance.
+         * @param ast DetailAST of class member.
+         */
+        public MemberSignature(final DetailAST ast)
+        {
+            this.ast = ast;
+        }
+
+        /** @return text representation of class member */
+        public String getText()
+        {
+            if (text == null) {
+                text = getCombinedModifiersList(ast);
+            }
+            return text;
+        }
+
+        /** @return true if text representation contains line terminators */
+        public boolean hasLineTerminator()
+        {
+            if (lineTerminator == null) {
+                lineTerminator = Boolean.FALSE;
+                final String memberText = getText();
+                for (int i = 0; i < memberText.length(); i++) {
+                    if (LINE_TERMINATORS.indexOf(memberText.charAt(i)) != -1) {
+                        lineTerminator = Boolean.TRUE;
+                        break;
+                    }
+                }
+            }
+            return lineTerminator;
+        }
+
+        /**
+         * Checks that class member has all the modifiers in the given order.
+         * @param mask bit mask of all the modifiers.
+         * @param sequence bits of the modifiers in the required order.
+         * @return true if class member has the modifiers in the given order.
+         */
+        public boolean hasModifiers(final int mask, final int[] sequence)
+        {
+            if (modifiers == null) {
+                collectModifiers();
+            }
+            boolean result = (modifierMask & mask) == mask;
+            if (result && sequence.length > 1) {
+                int position = 0;
+                for (int bit : sequence) {
+                    while (position < modifiers.length
+                            && modifiers[position] != bit)
+                    {
+                        position++;
+                    }
+                    if (position == modifiers.length) {
+                        result = false;
+                        break;
+                    }
+                    position++;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Collects modifiers of class member.
+         */
+        private void collectModifiers()
+        {
+            final DetailAST modifiersAst = ast.findFirstToken(TokenTypes.MODIFIERS);
+            modifiers = new int[modifiersAst.getChildCount()];
+            int count = 0;
+            DetailAST modifier = modifiersAst.getFirstChild();
+            while (modifier != null) {
+                final Integer bit = MODIFIER_BITS.get(modifier.getText());
+                if (bit != null && modifier.getFirstChild() == null) {
+                    modifiers[count++] = bit;
+                    modifierMask |= bit;
+                }
+                modifier = modifier.getNextSibling();
+            }
+            modifiers = Arrays.copyOf(modifiers, count);
+        }
+    }
+
     /**
      * Class to keep current position and collect getters, setters.
      */
@@ -1295,13 +1726,17 @@ public class CustomDeclarationOrderCheck extends Check
          */
         private int currentPosition;
         /**
-         * List of getter ASTs
+         * Getters and setters in order of declaration
          */
-        private final List<DetailAST> getters = new LinkedList<DetailAST>();
+        private final List<GetterSetter> gettersSetters = new ArrayList<GetterSetter>();
         /**
-         * List of setter ASTs
+         * Names of getters
          */
-        private final List<DetailAST> setters = new LinkedList<DetailAST>();
+        private final Set<String> getterNames = new HashSet<String>();
+        /**
+         * Names of setters
+         */
+        private final Set<String> setterNames = new HashSet<String>();
 
         public int getCurrentPosition()
         {
@@ -1316,19 +1751,23 @@ public class CustomDeclarationOrderCheck extends Check
         /**
          * Add getter.
          * @param getterAst DetailAST of getter.
+         * @param fieldName name of getter without prefix.
          */
-        public void addGetter(DetailAST getterAst)
+        public void addGetter(DetailAST getterAst, String fieldName)
         {
-            getters.add(getterAst);
+            gettersSetters.add(new GetterSetter(getterAst, fieldName, false));
+            getterNames.add(getIdentifier(getterAst));
         }
 
         /**
          * Add setter.
          * @param setterAst DetailAST of setter.
+         * @param fieldName name of setter without prefix.
          */
-        public void addSetter(DetailAST setterAst)
+        public void addSetter(DetailAST setterAst, String fieldName)
         {
-            setters.add(setterAst);
+            gettersSetters.add(new GetterSetter(setterAst, fieldName, true));
+            setterNames.add(getIdentifier(setterAst));
         }
 
         /**
@@ -1339,45 +1778,35 @@ public class CustomDeclarationOrderCheck extends Check
         public Map<DetailAST, DetailAST> getWrongOrderedGettersSetters()
         {
             final Map<DetailAST, DetailAST> result = new LinkedHashMap<DetailAST, DetailAST>();
-            if (!getters.isEmpty() & !setters.isEmpty()) {
-                //  all getters and setters
-                final List<DetailAST> allGettersSetters = new ArrayList<DetailAST>(getters);
-                allGettersSetters.addAll(setters);
+            if (!getterNames.isEmpty() && !setterNames.isEmpty()) {
                 // sort by line numbers
-                Collections.sort(allGettersSetters, AST_LINE_COMPARATOR);
-
-                for (int i = 0; i < allGettersSetters.size(); i++) {
-                    final DetailAST getterAst = allGettersSetters.get(i);
-                    final String getterName = getIdentifier(getterAst);
-                    String getterField = null;
-                    if (isGetterName(getterName)) {
-                        getterField = getNameWithoutPrefix(getIdentifier(getterAst), GETTER_PREFIX);
-                    }
-                    else if (isBooleanGetterName(getterName)) {
-                        getterField = getNameWithoutPrefix(getIdentifier(getterAst), BOOLEAN_GETTER_PREFIX);
+                Collections.sort(gettersSetters, GETTER_SETTER_LINE_COMPARATOR);
+
+                // positions of setters by field name
+                final Map<String, List<Integer>> setterPositions =
+                        new HashMap<String, List<Integer>>();
+                for (int i = 0; i < gettersSetters.size(); i++) {
+                    final GetterSetter setter = gettersSetters.get(i);
+                    if (setter.isSetter()) {
+                        List<Integer> positions = setterPositions.get(setter.getFieldName());
+                        if (positions == null) {
+                            positions = new ArrayList<Integer>();
+                            setterPositions.put(setter.getFieldName(), positions);
+                        }
+                        positions.add(i);
                     }
+                }
 
-                    if (getterField != null) {
-                        // review rest of the list to find a proper setter
-                        for (int j = 0; j < allGettersSetters.size(); j++) {
-                            if (i == j) { // method is getter
-                                continue;
-                            }
-                            final DetailAST setterAst = allGettersSetters.get(j);
-                            final String setterName = getIdentifier(setterAst);
-                            String setterField = null;
-                            if (isSetterName(setterName)) {
-                                setterField = getNameWithoutPrefix(
-                                        getIdentifier(setterAst), SETTER_PREFIX);
-                            }
-                            else { // non-setter method
-                                continue;
-                            }
-                            // if fields are same and setter is sibling with getter
-                            if (getterField.equals(setterField)
-                                    && j != (i + 1))
-                            {
-                                result.put(setterAst, getterAst);
+                for (int i = 0; i < gettersSetters.size(); i++) {
+                    final GetterSetter getter = gettersSetters.get(i);
+                    final List<Integer> positions = getter.isSetter()
+                            ? null : setterPositions.get(getter.getFieldName());
+                    if (positions != null) {
+                        for (int position : positions) {
+                            // if setter is not sibling with getter
+                            if (position != i + 1) {
+                                result.put(gettersSetters.get(position).getAst(),
+                                        getter.getAst());
                                 break;
                             }
                         }
@@ -1394,14 +1823,7 @@ public class CustomDeclarationOrderCheck extends Check
          */
         private boolean containsGetter(String methodName)
         {
-            boolean result = false;
-            for (DetailAST methodAst: getters) {
-                final String name = getIdentifier(methodAst);
-                if (name.equals(methodName)) {
-                    result = true;
-                }
-            }
-            return result;
+            return getterNames.contains(methodName);
         }
 
         /**
@@ -1411,14 +1833,53 @@ public class CustomDeclarationOrderCheck extends Check
          */
         private boolean containsSetter(String methodName)
         {
-            boolean result = false;
-            for (DetailAST methodAst: setters) {
-                final String name = getIdentifier(methodAst);
-                if (name.equals(methodName)) {
-                    result = true;
-                }
-            }
-            return result;
+            return setterNames.contains(methodName);
+        }
+    }
+
+    /**
+     * Getter or setter of a class field.
+     */
+    private static class GetterSetter {
+        /**
+         * DetailAST of method
+         */
+        private final DetailAST ast;
+        /**
+         * Name of method without prefix
+         */
+        private final String fieldName;
+        /**
+         * Whether method is setter
+         */
+        private final boolean setter;
+
+        /**
+         * Creates a new <code>GetterSetter</code> instance.
+         * @param ast DetailAST of method.
+         * @param fieldName name of method without prefix.
+         * @param setter whether method is setter.
+         */
+        public GetterSetter(DetailAST ast, String fieldName, boolean setter)
+        {
+            this.ast = ast;
+            this.fieldName = fieldName;
+            this.setter = setter;
+        }
+
+        public DetailAST getAst()
+        {
+            return ast;
+        }
+
+        public String getFieldName()
+        {
+            return fieldName;
+        }
+
+        public boolean isSetter()
+        {
+            return setter;
         }
     }
 
@@ -25,6 +25,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import com.github.sevntu.checkstyle.ImportTable;
 import com.github.sevntu.checkstyle.Utils;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
@@ -131,11 +132,6 @@ public class EitherLogOrThrowCheck extends Check
      */
     private String loggerFullyQualifiedClassName = "org.slf4j.Logger";
 
-    /**
-     * Logger class name.
-     */
-    private String loggerSimpleClassName = "Logger";
-
     /**
      * Logger method names.
      */
@@ -148,9 +144,9 @@ public class EitherLogOrThrowCheck extends Check
     private List<String> loggerFieldNames = new LinkedList<String>();
 
     /**
-     * Logger class is in imports.
+     * Table of the package and imports of the current file.
      */
-    private boolean hasLoggerClassInImports;
+    private ImportTable importTable;
 
     /**
      * Regexp of printStackTrace method.
@@ -175,7 +171,7 @@ public class EitherLogOrThrowCheck extends Check
     private List<String> currentLocalLoggerVariableNames = new ArrayList<String>();
 
     /**
-     * Set logger full class name and logger simple class name.
+     * Set logger full class name.
      * @param loggerFullyQualifiedClassName
      *        Logger full class name. Example: org.slf4j.Logger.
      */
@@ -183,13 +179,6 @@ public class EitherLogOrThrowCheck extends Check
             String loggerFullyQualifiedClassName)
     {
         this.loggerFullyQualifiedClassName = loggerFullyQualifiedClassName;
-        loggerSimpleClassName = loggerFullyQualifiedClassName;
-        final int lastDotIndex =
-                this.loggerFullyQualifiedClassName.lastIndexOf('.');
-        if (lastDotIndex != -1) {
-            loggerSimpleClassName = this.loggerFullyQualifiedClassName
-                    .substring(lastDotIndex + 1);
-        }
     }
 
     public void setLoggingMethodNames(String[] loggingMethodNames)
@@ -201,24 +190,29 @@ public class EitherLogOrThrowCheck extends Check
     public int[] getDefaultTokens()
     {
         return new int[] {
-            TokenTypes.IMPORT,
             TokenTypes.CLASS_DEF,
             TokenTypes.LITERAL_CATCH,
             TokenTypes.VARIABLE_DEF,
             TokenTypes.METHOD_DEF, };
     }
 
+    @Override
+    public void beginTree(final DetailAST rootAST)
+    {
+        importTable = ImportTable.getInstance(rootAST);
+    }
+
+    @Override
+    public void finishTree(final DetailAST rootAST)
+    {
+        ImportTable.release(rootAST);
+        importTable = null;
+    }
+
     @Override
     public void visitToken(final DetailAST ast)
     {
         switch (ast.getType()) {
-            case TokenTypes.IMPORT:
-                if (!hasLoggerClassInImports
-                    && isLoggerImport(ast))
-                {
-                    hasLoggerClassInImports = true;
-                }
-                break;
             case TokenTypes.CLASS_DEF:
                 if (!isInnerClass(ast)) {
                     currentClassDefAst = ast;
@@ -252,18 +246,6 @@ public class EitherLogOrThrowCheck extends Check
         }
     }
 
-    /**
-     * @param importAst
-     *        DetailAST of import statement.
-     * @return true if import equals logger full class name.
-     */
-    private boolean isLoggerImport(final DetailAST importAst)
-    {
-        final String importIdentifier =
-                FullIdent.createFullIdent(importAst.getFirstChild()).getText();
-        return loggerFullyQualifiedClassName.equals(importIdentifier);
-    }
-
     /**
      * Verify that class is inner.
      * @param classDefAst
@@ -430,9 +412,9 @@ public class EitherLogOrThrowCheck extends Check
      */
     private boolean isLoggerClassName(String className)
     {
-        return (hasLoggerClassInImports
-                && className.equals(loggerSimpleClassName))
-                || className.equals(loggerFullyQualifiedClassName);
+        return className.equals(loggerFullyQualifiedClassName)
+                || importTable.getCandidates(className)
+                    .contains(loggerFullyQualifiedClassName);
     }
 
     /**
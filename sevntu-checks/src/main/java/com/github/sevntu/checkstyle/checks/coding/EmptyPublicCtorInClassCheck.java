@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import com.github.sevntu.checkstyle.ImportTable;
 import com.github.sevntu.checkstyle.Utils;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
@@ -93,19 +94,9 @@ public class EmptyPublicCtorInClassCheck extends Check
     public static final String MSG_KEY = "empty.public.ctor";
 
     /**
-     * List of single-type-imports for current AST.
+     * Table of the package and imports of current AST.
      */
-    private List<String> singleTypeImports = new ArrayList<String>();
-
-    /**
-     * List of on-demand-imports for current AST.
-     */
-    private List<String> onDemandImports = new ArrayList<String>();
-
-    /**
-     * Package name for current AST or empty string if AST does not contain package name.
-     */
-    private String filePackageName;
+    private ImportTable importTable;
 
     /**
      * Regex which matches names of class annotations which require class to have public no-argument
@@ -153,15 +144,20 @@ public class EmptyPublicCtorInClassCheck extends Check
     @Override
     public int[] getDefaultTokens()
     {
-        return new int[] { TokenTypes.CLASS_DEF, TokenTypes.PACKAGE_DEF, TokenTypes.IMPORT };
+        return new int[] { TokenTypes.CLASS_DEF };
     }
 
     @Override
     public void beginTree(DetailAST aRootNode)
     {
-        singleTypeImports.clear();
-        onDemandImports.clear();
-        filePackageName = "";
+        importTable = ImportTable.getInstance(aRootNode);
+    }
+
+    @Override
+    public void finishTree(DetailAST aRootNode)
+    {
+        ImportTable.release(aRootNode);
+        importTable = null;
     }
 
     @Override
@@ -169,19 +165,6 @@ public class EmptyPublicCtorInClassCheck extends Check
     {
         switch (node.getType()) {
 
-            case TokenTypes.IMPORT:
-                {
-                    String packageMemberName = getIdentifierName(node);
-        
-                    if (isOnDemandImport(packageMemberName)) {
-                        onDemandImports.add(packageMemberName);
-                    }
-                    else {
-                        singleTypeImports.add(packageMemberName);
-                    }
-                }
-                break;
-
             case TokenTypes.CLASS_DEF:
                 if (getClassCtorCount(node) == 1) {
                     DetailAST ctorDef = getFirstCtorDefinition(node);
@@ -199,9 +182,6 @@ public class EmptyPublicCtorInClassCheck extends Check
                 }
                 break;
 
-            case TokenTypes.PACKAGE_DEF:
-                filePackageName = getIdentifierName(node);
-                break;
             default:
                 Utils.reportInvalidToken(node.getType());
                 break;
@@ -336,7 +316,7 @@ public class EmptyPublicCtorInClassCheck extends Check
                 String annotationName = getIdentifierName(modifierNode);
 
                 List<String> annotationPossibleCanonicalNames =
-                        generateAnnotationPossibleCanonicalNames(annotationName);
+                        importTable.getCandidates(annotationName);
 
                 annotationNames.add(annotationName);
                 annotationNames.addAll(annotationPossibleCanonicalNames);
@@ -348,161 +328,6 @@ public class EmptyPublicCtorInClassCheck extends Check
         return annotationNames;
     }
 
-    /**
-     * Checks whether import is on demand import(one that imports entire package).
-     * @param importTargetName
-     *        target of import statement.
-     * @return true, if import is on demand import import.
-     */
-    private static boolean isOnDemandImport(String importTargetName)
-    {
-        return importTargetName.endsWith(".*");
-    }
-
-    /**
-     * <p>
-     * Generates possible canonical annotation names.
-     * </p>
-     * @param annotationName
-     *        simple annotation name.
-     * @return list of possible canonical annotation names.
-     */
-    private List<String>
-            generateAnnotationPossibleCanonicalNames(String annotationName)
-    {
-        List<String> annotationPossibleCanonicalNames = new ArrayList<String>();
-
-        for (String importEntry : singleTypeImports) {
-            String annotationCanonicalName =
-                    joinSingleTypeImportWithIdentifier(importEntry, annotationName);
-
-            if (annotationCanonicalName != null) {
-                annotationPossibleCanonicalNames.add(annotationCanonicalName);
-                break;
-            }
-        }
-
-        for (String importEntry : onDemandImports)
-        {
-            String annotationCanonicalName =
-                    joinOnDemandImportWithIdentifier(importEntry, annotationName);
-
-            annotationPossibleCanonicalNames.add(annotationCanonicalName);
-        }
-
-        String annotationCanonicalName =
-                joinFilePackageNameWithIdentifier(filePackageName, annotationName);
-
-        annotationPossibleCanonicalNames.add(annotationCanonicalName);
-
-        return annotationPossibleCanonicalNames;
-    }
-
-    /**
-     * <p>
-     * Joins single type import entry and identifier name into fully qualified name.
-     * </p>
-     * <p>
-     * For example: joinMemberImportWithIdentifier("package.Person","Person") returns
-     * "package.Person", joinMemberImportWithIdentifier("package.Person","Person.Name") returns
-     * "package.Person.Name".
-     * </p>
-     * @param importEntry
-     *        single type import entry for join.
-     * @param identifierName
-     *        identifier name to join to import.
-     * @return fully qualified identifier name if given import corresponds to identifier, otherwise
-     *         null.
-     */
-    private static String
-            joinSingleTypeImportWithIdentifier(String importEntry, String identifierName)
-    {
-        String importEntryLastPart = getSimpleIdentifierNameFromQualifiedName(importEntry);
-        String annotationNameFirstPart = getQualifiedNameFirstPart(identifierName);
-
-        if (importEntryLastPart.equals(annotationNameFirstPart)) {
-            return importEntry + identifierName.substring(annotationNameFirstPart.length());
-        }
-        else {
-            return null;
-        }
-    }
-
-    /**
-     * <p>
-     * Joins on demand import entry and identifier name into fully qualified name.
-     * </p>
-     * <p>
-     * For example: joinWildcardImportWithIdentifier("package.*","Person") returns "package.Person",
-     * joinWildcardImportWithIdentifier("package.*","Person.Name") returns "package.Person.Name".
-     * </p>
-     * @param importEntry
-     *        on demand import entry for join.
-     * @param identifierName
-     *        identifier name to join to import.
-     * @return fully qualified identifier name.
-     */
-    private static String
-            joinOnDemandImportWithIdentifier(String importEntry, String identifierName)
-    {
-        return importEntry.substring(0, importEntry.length() - 1) + identifierName;
-    }
-
-    /**
-     * <p>
-     * Joins package name with identifier name into fully qualified name.
-     * </p>
-     * <p>
-     * For example: joinFilePackageNameWithIdentifier("com.example","Person") returns
-     * "com.example.Person".
-     * </p>
-     * @param packageName
-     *        package name to use for join.
-     * @param identifierName
-     *        identifier name to join to package name.
-     * @return fully qualified identifier name.
-     */
-    private static String
-            joinFilePackageNameWithIdentifier(String packageName, String identifierName)
-    {
-        return packageName + "." + identifierName;
-    }
-
-    /**
-     * Returns first part of identifier name.
-     * @param canonicalName
-     *        identifier name.
-     * @return first part of identifier name if name is qualified, otherwise returns identifier name
-     *         argument.
-     */
-    private static String getQualifiedNameFirstPart(String canonicalName)
-    {
-        int firstDotIndex = canonicalName.indexOf('.');
-
-        if (firstDotIndex == -1) {
-            return canonicalName;
-        }
-        else {
-            return canonicalName.substring(0, firstDotIndex);
-        }
-    }
-
-    /**
-     * <p>
-     * Returns simple identifier name from its qualified name.
-     * </p>
-     * <p>
-     * For example: If method called for name "com.example.company.Person" it will return "Person".
-     * </p>
-     * @param qualifiedName
-     *        qualified identifier name.
-     * @return simple identifier name.
-     */
-    private static String getSimpleIdentifierNameFromQualifiedName(String qualifiedName)
-    {
-        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
-    }
-
     /**
      * Returns name of identifier contained in specified node.
      * @param aNodeWithIdent
@@ -18,10 +18,15 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.coding;
 
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
+import com.github.sevntu.checkstyle.ChangedLines;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TextBlock;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 
 /**
@@ -29,6 +34,16 @@ import com.puppycrawl.tools.checkstyle.api.TokenTypes;
  * This check forbid to use C style comments into the method body. If you use
  * class declaration into the method body you will get an error.
  * </p>
+ * <p>
+ * Comments which are placed on the same line as the opening or the closing
+ * brace of the method body are reported too, e.g.
+ * <code>{ /* comment *&#47;</code> or <code>/* comment *&#47; }</code>.
+ * </p>
+ * <p>
+ * If the audit is scoped to changed lines, see {@link ChangedLines}, only
+ * comments which start on changed lines are looked for, so methods without
+ * such comments are skipped.
+ * </p>
  * @author <a href="mailto:IliaDubinin91@gmail.com">Ilia Dubinin</a>
  */
 public class ForbidCCommentsInMethods extends Check
@@ -39,9 +54,35 @@ public class ForbidCCommentsInMethods extends Check
     public final static String MSG_KEY = "forbid.c.comments.in.the.method.body";
 
     /**
-     * Set contains C style comments from current file
+     * Orders comments by the position of their beginning.
+     */
+    private static final Comparator<TextBlock> COMMENT_POSITION_ORDER =
+            new Comparator<TextBlock>()
+            {
+                @Override
+                public int compare(TextBlock first, TextBlock second)
+                {
+                    int result = compareInts(first.getStartLineNo(),
+                            second.getStartLineNo());
+                    if (result == 0) {
+                        result = compareInts(first.getStartColNo(),
+                                second.getStartColNo());
+                    }
+                    return result;
+                }
+            };
+
+    /**
+     * Start lines of C style comments from current file, sorted by the
+     * position of the comment.
      */
-    private Set<Integer> clangComments;
+    private int[] commentLines;
+
+    /**
+     * Start columns of C style comments from current file, parallel to
+     * {@link #commentLines}.
+     */
+    private int[] commentColumns;
 
     @Override
     public int[] getDefaultTokens()
@@ -52,29 +93,116 @@ public class ForbidCCommentsInMethods extends Check
     @Override
     public void beginTree(DetailAST rootAST)
     {
-        clangComments = getFileContents().getCComments().keySet();
+        // only comments on changed lines are reported, if lines are scoped
+        final ChangedLines.Ranges changedLines = ChangedLines.getCurrentRanges(
+                getFileContents().getFilename());
+        final List<TextBlock> comments = new ArrayList<TextBlock>();
+        for (List<TextBlock> lineComments
+                : getFileContents().getCComments().values())
+        {
+            for (TextBlock comment : lineComments) {
+                if (changedLines == null
+                        || changedLines.contains(comment.getStartLineNo()))
+                {
+                    comments.add(comment);
+                }
+            }
+        }
+        Collections.sort(comments, COMMENT_POSITION_ORDER);
+
+        commentLines = new int[comments.size()];
+        commentColumns = new int[comments.size()];
+        for (int i = 0; i < commentLines.length; i++) {
+            commentLines[i] = comments.get(i).getStartLineNo();
+            commentColumns[i] = comments.get(i).getStartColNo();
+        }
     }
 
     @Override
     public void visitToken(DetailAST methodNode)
     {
-        if (!clangComments.isEmpty()) {
+        if (commentLines.length > 0) {
             final DetailAST borders =
                     methodNode.findFirstToken(TokenTypes.SLIST);
             //Could be null when aMethodNode doesn't have body 
             //(into interface for example)
             if (borders != null)    
             {
-                final int methodBodyBegin = borders.getLineNo();
-                final int methodBodyEnd = borders.getLastChild().getLineNo();
-                for (final int commentLineNo : clangComments) {
-                    if (commentLineNo > methodBodyBegin
-                            && commentLineNo < methodBodyEnd)
-                    {
-                        log(commentLineNo, MSG_KEY);
+                final DetailAST rightCurly = borders.getLastChild();
+                int lastLoggedLineNo = 0;
+                for (int i = findFirstCommentAfter(borders.getLineNo(),
+                        borders.getColumnNo());
+                        i < commentLines.length
+                        && isBefore(commentLines[i], commentColumns[i],
+                                rightCurly.getLineNo(), rightCurly.getColumnNo());
+                        i++)
+                {
+                    if (commentLines[i] != lastLoggedLineNo) {
+                        log(commentLines[i], MSG_KEY);
+                        lastLoggedLineNo = commentLines[i];
                     }
                 }
             }
         }
     }
+
+    /**
+     * Finds the first comment which starts after the given position.
+     * @param lineNo
+     *        line of the position.
+     * @param columnNo
+     *        column of the position.
+     * @return index of the comment, or count of comments if there is no
+     *         such comment.
+     */
+    private int findFirstCommentAfter(int lineNo, int columnNo)
+    {
+        int low = 0;
+        int high = commentLines.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (isBefore(lineNo, columnNo,
+                    commentLines[middle], commentColumns[middle]))
+            {
+                high = middle;
+            }
+            else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Checks whether the first position precedes the second one.
+     * @param firstLineNo
+     *        line of the first position.
+     * @param firstColumnNo
+     *        column of the first position.
+     * @param secondLineNo
+     *        line of the second position.
+     * @param secondColumnNo
+     *        column of the second position.
+     * @return true if the first position precedes the second one.
+     */
+    private static boolean isBefore(int firstLineNo, int firstColumnNo,
+            int secondLineNo, int secondColumnNo)
+    {
+        return firstLineNo < secondLineNo
+                || firstLineNo == secondLineNo && firstColumnNo < secondColumnNo;
+    }
+
+    /**
+     * Compares two int values.
+     * @param first
+     *        the first value.
+     * @param second
+     *        the second value.
+     * @return negative, zero or positive value as the first value is less
+     *         than, equal to or greater than the second one.
+     */
+    private static int compareInts(int first, int second)
+    {
+        return first < second ? -1 : (first == second ? 0 : 1);
+    }
 }
@@ -18,8 +18,15 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.coding;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.regex.Pattern;
 
+import org.apache.commons.beanutils.ConversionException;
+
+import com.github.sevntu.checkstyle.FileDependencies;
 import com.github.sevntu.checkstyle.Utils;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
@@ -52,10 +59,31 @@ import com.puppycrawl.tools.checkstyle.api.TokenTypes;
  * <br/>
  * You can cover more sophisticated rules by means of few check instances.<br/>
  * <br/>
+ * Many rules, like rules of all layers of a large project, are better kept
+ * in the rules file which is set by the "rulesFile" parameter. Each rule of
+ * the file has globs of packages it applies to, globs of forbidden imports
+ * and globs of imports which are allowed in spite of them, where "*" matches
+ * any characters except dots and "**" matches any characters:
+ * <pre>
+ * # the data access layer
+ * package com.example.**.dao.**
+ * forbid com.example.**.ui.**
+ * forbid javax.swing.**
+ * allow **Exception
+ * </pre>
+ * Consecutive "package" lines start a rule, following "forbid" and "allow"
+ * lines belong to it. The file is compiled once into an automaton, which
+ * checks an import against all rules in one pass over its characters, and
+ * is shared by all check instances until the file is changed. The forbidden
+ * glob of the first violated rule is reported. Rules of the file are applied
+ * in addition to the regexps above; the default package is matched as the
+ * empty name, so only "**" covers it.<br/>
+ * <br/>
  * @author <a href="mailto:Daniil.Yaroslavtsev@gmail.com"> Daniil
  *         Yaroslavtsev</a>
  */
 public class ForbidCertainImportsCheck extends Check
+    implements FileDependencies
 {
 
     /**
@@ -86,6 +114,16 @@ public class ForbidCertainImportsCheck extends Check
      */
     private boolean packageMatches;
 
+    /**
+     * Cursor of rules of the rules file, or null if the file is not set.
+     */
+    private ImportRules.Cursor rules;
+
+    /**
+     * The rules file, or null if it is not set.
+     */
+    private File rulesFile;
+
     /**
      * Sets the regexp for matching package fully qualified name.
      * @param packageNameRegexp
@@ -142,12 +180,51 @@ public class ForbidCertainImportsCheck extends Check
         }
     }
 
+    /**
+     * Sets the file of rules of forbidden imports.
+     * @param rulesFile
+     *        the path of the rules file.
+     */
+    public void setRulesFile(String rulesFile)
+    {
+        if (rulesFile != null) {
+            this.rulesFile = new File(rulesFile);
+            try {
+                rules = ImportRules.load(this.rulesFile).newCursor();
+            }
+            catch (IOException e) {
+                throw new ConversionException("Unable to read rules file "
+                        + rulesFile, e);
+            }
+            catch (IllegalArgumentException e) {
+                throw new ConversionException("Invalid rules file "
+                        + rulesFile + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public boolean dependsOnSourceFiles()
+    {
+        return false;
+    }
+
+    @Override
+    public List<File> getDependencyFiles()
+    {
+        if (rulesFile == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(rulesFile);
+    }
+
     @Override
     public int[] getDefaultTokens()
     {
         final int[] defaultTokens;
-        if (packageNamesRegexp == null || forbiddenImportsRegexp == null
-            || forbiddenImportsExcludesRegexp == null)
+        if (rules == null && (packageNamesRegexp == null
+            || forbiddenImportsRegexp == null
+            || forbiddenImportsExcludesRegexp == null))
         {
             defaultTokens = new int[] {};
         }
@@ -158,6 +235,14 @@ public class ForbidCertainImportsCheck extends Check
         return defaultTokens;
     }
 
+    @Override
+    public void beginTree(DetailAST rootAST)
+    {
+        if (rules != null) {
+            rules.selectPackage("");
+        }
+    }
+
     @Override
     public void visitToken(DetailAST ast)
     {
@@ -168,6 +253,9 @@ public class ForbidCertainImportsCheck extends Check
                     packageMatches = packageNamesRegexp.matcher(packageQualifiedName)
                         .matches();
                 }
+                if (rules != null) {
+                    rules.selectPackage(getText(ast));
+                }
                 break;
             case TokenTypes.IMPORT:
                 if (packageMatches && forbiddenImportsRegexp != null
@@ -178,17 +266,20 @@ public class ForbidCertainImportsCheck extends Check
                         log(ast, importQualifiedText);
                     }
                 }
+                logIfForbiddenByRules(ast);
                 break;
             case TokenTypes.LITERAL_NEW:
-                if (forbiddenImportsRegexp != null
-                    && forbiddenImportsExcludesRegexp != null
-                    && ast.findFirstToken(TokenTypes.DOT) != null
-                    && packageMatches)
-                {
-                    final String importQualifiedText = getText(ast);
-                    if (isImportForbidden(importQualifiedText)) {
-                        log(ast, importQualifiedText);
+                if (ast.findFirstToken(TokenTypes.DOT) != null) {
+                    if (forbiddenImportsRegexp != null
+                        && forbiddenImportsExcludesRegexp != null
+                        && packageMatches)
+                    {
+                        final String importQualifiedText = getText(ast);
+                        if (isImportForbidden(importQualifiedText)) {
+                            log(ast, importQualifiedText);
+                        }
                     }
+                    logIfForbiddenByRules(ast);
                 }
                 break;
             default:
@@ -209,6 +300,54 @@ public class ForbidCertainImportsCheck extends Check
                 && !forbiddenImportsExcludesRegexp.matcher(importText).matches();
     }
 
+    /**
+     * Logs message on the import or instantiation if it is forbidden by
+     * rules of the rules file.
+     * @param ast
+     *        IMPORT or LITERAL_NEW node with a qualified name.
+     */
+    private void logIfForbiddenByRules(DetailAST ast)
+    {
+        if (rules != null && rules.hasActiveRules()) {
+            // the name is fed by the texts of its nodes and is built only
+            // for the message
+            rules.startImport();
+            final DetailAST identNode = ast.findFirstToken(TokenTypes.IDENT);
+            if (identNode == null) {
+                final DetailAST parentDotAST = ast.findFirstToken(TokenTypes.DOT);
+                feedQualifiedName(parentDotAST.getFirstChild());
+                rules.feedImport('.');
+                rules.feedImport(parentDotAST.getFirstChild().getNextSibling()
+                        .getText());
+            }
+            else {
+                rules.feedImport(identNode.getText());
+            }
+            final String forbiddingGlob = rules.getForbiddingGlob();
+            if (forbiddingGlob != null) {
+                log(ast.getLineNo(), MSG_KEY, forbiddingGlob, getText(ast));
+            }
+        }
+    }
+
+    /**
+     * Feeds the qualified name to rules of the rules file, as
+     * {@link FullIdent} would build its text.
+     * @param ast
+     *        DOT or IDENT node of the name.
+     */
+    private void feedQualifiedName(DetailAST ast)
+    {
+        if (ast.getType() == TokenTypes.DOT) {
+            feedQualifiedName(ast.getFirstChild());
+            rules.feedImport('.');
+            feedQualifiedName(ast.getFirstChild().getNextSibling());
+        }
+        else {
+            rules.feedImport(ast.getText());
+        }
+    }
+
     /**
      * Logs message on the part of code.
      * @param nodeToWarn
@@ -241,7 +380,7 @@ public class ForbidCertainImportsCheck extends Check
             if (parentDotAST != null) {
                 final FullIdent dottedPathIdent = FullIdent
                         .createFullIdentBelow(parentDotAST);
-                final DetailAST nameAST = parentDotAST.getLastChild();
+                final DetailAST nameAST = parentDotAST.getFirstChild().getNextSibling();
                 result = dottedPathIdent.getText() + "." + nameAST.getText();
             }
         }
@@ -20,9 +20,8 @@ package com.github.sevntu.checkstyle.checks.coding;
 
 import java.util.Set;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 
+import com.github.sevntu.checkstyle.ImportTable;
 import com.github.sevntu.checkstyle.Utils;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
@@ -58,10 +57,10 @@ public class ForbidInstantiationCheck extends Check
     private Set<String> forbiddenClasses = new HashSet<String>();
 
     /**
-     * List which contains String representation of imports for class is
-     * currently being processed.
+     * Table of the package and imports of the file is currently being
+     * processed.
      */
-    private List<String> importsList = new LinkedList<String>();
+    private ImportTable importTable;
 
     /**
      * Creates the check instance.
@@ -91,13 +90,20 @@ public class ForbidInstantiationCheck extends Check
     @Override
     public void beginTree(final DetailAST rootAST)
     {
-        importsList.clear();
+        importTable = ImportTable.getInstance(rootAST);
+    }
+
+    @Override
+    public void finishTree(final DetailAST rootAST)
+    {
+        ImportTable.release(rootAST);
+        importTable = null;
     }
 
     @Override
     public int[] getDefaultTokens()
     {
-        return new int[] {TokenTypes.IMPORT, TokenTypes.LITERAL_NEW };
+        return new int[] {TokenTypes.LITERAL_NEW };
     }
 
     @Override
@@ -105,10 +111,6 @@ public class ForbidInstantiationCheck extends Check
     {
         switch (ast.getType()) {
 
-            case TokenTypes.IMPORT:
-                importsList.add(getText(ast));
-                break;
-
             case TokenTypes.LITERAL_NEW:
 
                 final String instanceClass = getText(ast);
@@ -131,10 +133,10 @@ public class ForbidInstantiationCheck extends Check
                                 log(ast, MSG_KEY, instanceClassName);
                             }
                         }
-                        else if (addedUsingForbiddenImport(instanceClass,
-                            forbiddenClass))
+                        else if (importTable.getCandidates(instanceClass)
+                            .contains(forbiddenClass))
                         {
-                            // className is short and exists in imports
+                            // className is short and resolved by imports
                             log(ast, MSG_KEY, instanceClass);
                         }
                     }
@@ -148,42 +150,6 @@ public class ForbidInstantiationCheck extends Check
 
     }
 
-    /**
-     * Checks that the class with given className is visible because of the
-     * forbidden import.
-     * @param className
-     *        - the name of the class to check.
-     * @param forbiddenClassNameAndPath
-     *        - full name&path of the given forbidden class.
-     * @return true if the class with given className is imported with the
-     *         forbidden import and false otherwise.
-     */
-    private boolean addedUsingForbiddenImport(final String className,
-            String forbiddenClassNameAndPath)
-    {
-        boolean result = false;
-
-        for (String importText : importsList) {
-            if (importText.endsWith("*")) {
-                final String importTextWithoutAsterisk =
-                        importText.substring(0, importText.length() - 1);
-                if (forbiddenClassNameAndPath.equals(
-                        importTextWithoutAsterisk + className))
-                {
-                    result = true;
-                    break;
-                }
-            }
-            else if (importText.equals(forbiddenClassNameAndPath)
-                    && importText.endsWith(className))
-            {
-                result = true;
-                break;
-            }
-        }
-        return result;
-    }
-
     /**
      * Gets the class name from full (dotted) classPath.
      * @param classNameAndPath
@@ -192,17 +158,15 @@ public class ForbidInstantiationCheck extends Check
      */
     private static String getClassName(final String classNameAndPath)
     {
-        return classNameAndPath.replaceAll(".+\\.", "");
+        return classNameAndPath.substring(classNameAndPath.lastIndexOf('.') + 1);
     }
 
     /**
      * Gets the text representation from the given DetailAST node.
      * @param ast
-     *        - DetailAST node is pointing to import definition or to the "new"
-     *        literal node ("IMPORT" or "LITERAL_NEW" node types).
-     * @return Import text without "import" word and semicolons for given
-     *         "IMPORT" node or instanstiated class Name&Path for given
-     *         "LITERAL_NEW" node.
+     *        - DetailAST node is pointing to the "new" literal node
+     *        ("LITERAL_NEW" node type).
+     * @return instanstiated class Name&Path for given "LITERAL_NEW" node.
      */
     private static String getText(final DetailAST ast)
     {
@@ -0,0 +1,772 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * Rules of forbidden imports of {@link ForbidCertainImportsCheck}, loaded
+ * from a rules file. Every rule has globs of packages it applies to, globs
+ * of forbidden imports and globs of imports which are allowed in spite of
+ * forbidden ones. In globs "*" matches any characters except dots and "**"
+ * matches any characters, so "com.example.ui.**" forbids the package
+ * "com.example.ui" with its subpackages. The file looks like:
+ * </p>
+ * <pre>
+ * # the data access layer
+ * package com.example.**.dao
+ * package com.example.**.dao.**
+ * forbid com.example.**.ui.**
+ * forbid javax.swing.**
+ * allow **Exception
+ * </pre>
+ * <p>
+ * Consecutive "package" lines start a rule, following "forbid" and "allow"
+ * lines belong to it. Empty lines and lines starting with "#" are skipped.
+ * </p>
+ * <p>
+ * Globs of packages of all rules are compiled into one automaton, and globs
+ * of imports of all rules are compiled into another one, both are shaped as
+ * tries of globs, so an import is matched against all rules in one pass over
+ * its characters. The rules are immutable and are shared by all checks which
+ * load the same unchanged file, each check scans by its own {@link Cursor}.
+ * The cursor is fed with pieces of the name, so a check matches the
+ * qualified name of an import without building its text.
+ * </p>
+ * <p>
+ * Loaded rules are kept by the canonical path of the file and its stamp, up
+ * to {@value #MAX_LOADED_FILES} files; the least recently loaded ones are
+ * dropped, like versions of a file which is edited while a daemon runs.
+ * </p>
+ */
+final class ImportRules
+{
+    /** Count of loaded files which are kept. */
+    static final int MAX_LOADED_FILES = 8;
+
+    /** Loaded rules by canonical path and stamp of the file. */
+    private static final Map<String, ImportRules> LOADED =
+            new LinkedHashMap<String, ImportRules>(MAX_LOADED_FILES, 1, true)
+            {
+                /** Serial version of the map. */
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, ImportRules> eldest)
+                {
+                    return size() > MAX_LOADED_FILES;
+                }
+            };
+
+    /** Keyword of the line with a glob of packages. */
+    private static final String PACKAGE_KEYWORD = "package";
+
+    /** Keyword of the line with a glob of forbidden imports. */
+    private static final String FORBID_KEYWORD = "forbid";
+
+    /** Keyword of the line with a glob of allowed imports. */
+    private static final String ALLOW_KEYWORD = "allow";
+
+    /** Automaton of globs of packages, labels are indexes of rules. */
+    private final GlobAutomaton packages;
+
+    /** Automaton of globs of imports, labels are indexes of globs. */
+    private final GlobAutomaton imports;
+
+    /** Count of rules. */
+    private final int ruleCount;
+
+    /** Globs of imports by index. */
+    private final String[] importGlobs;
+
+    /** Indexes of rules of globs of imports. */
+    private final int[] importGlobRules;
+
+    /** Whether globs of imports allow imports, by index. */
+    private final boolean[] importGlobAllows;
+
+    /**
+     * Creates rules.
+     * @param packages
+     *        the automaton of globs of packages.
+     * @param imports
+     *        the automaton of globs of imports.
+     * @param ruleCount
+     *        the count of rules.
+     * @param importGlobs
+     *        globs of imports.
+     * @param importGlobRules
+     *        indexes of rules of globs of imports.
+     * @param importGlobAllows
+     *        whether globs of imports allow imports.
+     */
+    private ImportRules(GlobAutomaton packages, GlobAutomaton imports,
+            int ruleCount, String[] importGlobs, int[] importGlobRules,
+            boolean[] importGlobAllows)
+    {
+        this.packages = packages;
+        this.imports = imports;
+        this.ruleCount = ruleCount;
+        this.importGlobs = importGlobs;
+        this.importGlobRules = importGlobRules;
+        this.importGlobAllows = importGlobAllows;
+    }
+
+    /**
+     * Loads rules from the file. Rules of the file are compiled once and are
+     * reused until the file is changed.
+     * @param file
+     *        the rules file.
+     * @return the rules.
+     * @throws IOException
+     *         if the file can not be read.
+     */
+    static ImportRules load(File file)
+        throws IOException
+    {
+        final String key = file.getCanonicalPath() + ":" + file.lastModified()
+                + ":" + file.length();
+        synchronized (LOADED) {
+            ImportRules result = LOADED.get(key);
+            if (result == null) {
+                final BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(new FileInputStream(file), "UTF-8"));
+                try {
+                    result = parse(reader);
+                }
+                finally {
+                    reader.close();
+                }
+                LOADED.put(key, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Parses and compiles rules.
+     * @param reader
+     *        the reader of rules.
+     * @return the rules.
+     * @throws IOException
+     *         if rules can not be read.
+     */
+    static ImportRules parse(BufferedReader reader)
+        throws IOException
+    {
+        final GlobAutomaton.Builder packages = new GlobAutomaton.Builder();
+        final GlobAutomaton.Builder imports = new GlobAutomaton.Builder();
+        final List<String> importGlobs = new ArrayList<String>();
+        final List<Integer> importGlobRules = new ArrayList<Integer>();
+        final List<Boolean> importGlobAllows = new ArrayList<Boolean>();
+        int ruleCount = 0;
+        boolean isRuleStarted = false;
+        int lineNo = 0;
+        String line = reader.readLine();
+        while (line != null) {
+            lineNo++;
+            line = line.trim();
+            if (!line.isEmpty() && line.charAt(0) != '#') {
+                final String[] parts = line.split("\\s+");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Line " + lineNo
+                            + " should contain a keyword and a glob: " + line);
+                }
+                final String keyword = parts[0];
+                final String glob = parts[1];
+                if (PACKAGE_KEYWORD.equals(keyword)) {
+                    if (!isRuleStarted) {
+                        ruleCount++;
+                        isRuleStarted = true;
+                    }
+                    packages.add(glob, ruleCount - 1);
+                }
+                else if (FORBID_KEYWORD.equals(keyword)
+                        || ALLOW_KEYWORD.equals(keyword))
+                {
+                    if (ruleCount == 0) {
+                        throw new IllegalArgumentException("Line " + lineNo
+                                + " should follow a line with a package: " + line);
+                    }
+                    isRuleStarted = false;
+                    imports.add(glob, importGlobs.size());
+                    importGlobs.add(glob);
+                    importGlobRules.add(ruleCount - 1);
+                    importGlobAllows.add(ALLOW_KEYWORD.equals(keyword));
+                }
+                else {
+                    throw new IllegalArgumentException("Line " + lineNo
+                            + " has unknown keyword: " + line);
+                }
+            }
+            line = reader.readLine();
+        }
+
+        final int[] rules = new int[importGlobRules.size()];
+        final boolean[] allows = new boolean[importGlobAllows.size()];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = importGlobRules.get(i);
+            allows[i] = importGlobAllows.get(i);
+        }
+        return new ImportRules(packages.build(), imports.build(),
+                ruleCount, importGlobs.toArray(new String[importGlobs.size()]),
+                rules, allows);
+    }
+
+    /**
+     * Creates the cursor to match packages and imports against rules.
+     * @return the new cursor.
+     */
+    Cursor newCursor()
+    {
+        return new Cursor();
+    }
+
+    /**
+     * Matching state of one check: rules of the current package and scratch
+     * state of automatons. The cursor is not thread-safe.
+     */
+    final class Cursor
+    {
+        /** Scanner of packages. */
+        private final GlobAutomaton.Scanner packageScanner = packages.newScanner();
+
+        /** Scanner of imports. */
+        private final GlobAutomaton.Scanner importScanner = imports.newScanner();
+
+        /** Whether rules apply to the current package, by index of the rule. */
+        private final boolean[] activeRules = new boolean[ruleCount];
+
+        /** Whether any rule applies to the current package. */
+        private boolean hasActiveRules;
+
+        /** The first forbidding glob of the current import, by rule. */
+        private final int[] forbiddingGlobs = new int[ruleCount];
+
+        /** Whether the current import is allowed, by rule. */
+        private final boolean[] allowedRules = new boolean[ruleCount];
+
+        /**
+         * Selects rules which apply to the package.
+         * @param packageName
+         *        the package name, empty for the default package.
+         */
+        void selectPackage(String packageName)
+        {
+            hasActiveRules = false;
+            for (int i = 0; i < ruleCount; i++) {
+                activeRules[i] = false;
+            }
+            final int[] labels = packageScanner.scan(packageName);
+            for (int i = 0; i < packageScanner.getLabelCount(); i++) {
+                activeRules[labels[i]] = true;
+                hasActiveRules = true;
+            }
+        }
+
+        /**
+         * Checks whether any rule applies to the selected package, so
+         * imports may be forbidden.
+         * @return true if imports are to be matched.
+         */
+        boolean hasActiveRules()
+        {
+            return hasActiveRules;
+        }
+
+        /**
+         * Starts matching of the import, its qualified name is fed by
+         * {@link #feedImport(String)} and {@link #feedImport(char)}.
+         */
+        void startImport()
+        {
+            importScanner.start();
+        }
+
+        /**
+         * Feeds the next piece of the qualified name of the import.
+         * @param piece
+         *        the piece, like a name or a dot.
+         */
+        void feedImport(String piece)
+        {
+            importScanner.feed(piece);
+        }
+
+        /**
+         * Feeds the next character of the qualified name of the import.
+         * @param character
+         *        the character.
+         */
+        void feedImport(char character)
+        {
+            importScanner.feed(character);
+        }
+
+        /**
+         * Finds the glob which forbids the fed import in the selected
+         * package. Imports are fed only if {@link #hasActiveRules()}.
+         * @return the forbidding glob of the first rule which forbids the
+         *         import and does not allow it, or null if the import is not
+         *         forbidden.
+         */
+        String getForbiddingGlob()
+        {
+            String result = null;
+            final int[] labels = importScanner.finish();
+            final int labelCount = importScanner.getLabelCount();
+            for (int i = 0; i < labelCount; i++) {
+                final int rule = importGlobRules[labels[i]];
+                forbiddingGlobs[rule] = -1;
+                allowedRules[rule] = false;
+            }
+            for (int i = 0; i < labelCount; i++) {
+                final int glob = labels[i];
+                final int rule = importGlobRules[glob];
+                if (importGlobAllows[glob]) {
+                    allowedRules[rule] = true;
+                }
+                else if (forbiddingGlobs[rule] == -1
+                        || forbiddingGlobs[rule] > glob)
+                {
+                    forbiddingGlobs[rule] = glob;
+                }
+            }
+            int firstGlob = -1;
+            for (int i = 0; i < labelCount; i++) {
+                final int rule = importGlobRules[labels[i]];
+                final int glob = forbiddingGlobs[rule];
+                if (activeRules[rule] && glob != -1 && !allowedRules[rule]
+                        && (firstGlob == -1 || glob < firstGlob))
+                {
+                    firstGlob = glob;
+                }
+            }
+            if (firstGlob != -1) {
+                result = importGlobs[firstGlob];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * <p>
+     * Automaton which matches a string against many globs in one pass. Globs
+     * are kept in a trie, where "*" and "**" are nodes with loops, so
+     * common prefixes of globs are shared and the scan keeps only nodes of
+     * globs which still may match.
+     * </p>
+     */
+    static final class GlobAutomaton
+    {
+        /** Node has no loop. */
+        private static final int NO_LOOP = 0;
+
+        /** Node loops on characters except dots, it is "*". */
+        private static final int NAME_LOOP = 1;
+
+        /** Node loops on all characters, it is "**". */
+        private static final int ANY_LOOP = 2;
+
+        /** Sorted characters of edges to children, by node. */
+        private final char[][] edgeChars;
+
+        /** Children by node, in the order of characters of edges. */
+        private final int[][] edgeTargets;
+
+        /** Loop children ("*" and "**") which are entered without a character. */
+        private final int[][] loopChildren;
+
+        /** Kinds of loops by node. */
+        private final int[] loops;
+
+        /** Labels of globs which end at the node, by node. */
+        private final int[][] labels;
+
+        /**
+         * Creates the automaton.
+         * @param edgeChars
+         *        sorted characters of edges, by node.
+         * @param edgeTargets
+         *        children by node.
+         * @param loopChildren
+         *        loop children by node.
+         * @param loops
+         *        kinds of loops by node.
+         * @param labels
+         *        labels of globs by node.
+         */
+        private GlobAutomaton(char[][] edgeChars, int[][] edgeTargets,
+                int[][] loopChildren, int[] loops, int[][] labels)
+        {
+            this.edgeChars = edgeChars;
+            this.edgeTargets = edgeTargets;
+            this.loopChildren = loopChildren;
+            this.loops = loops;
+            this.labels = labels;
+        }
+
+        /**
+         * Creates the scanner with own scratch state.
+         * @return the new scanner.
+         */
+        Scanner newScanner()
+        {
+            return new Scanner();
+        }
+
+        /**
+         * Finds the child of the node by the character.
+         * @param node
+         *        the node.
+         * @param character
+         *        the character of the edge.
+         * @return the child, or -1 if there is no edge.
+         */
+        private int getChild(int node, char character)
+        {
+            final char[] chars = edgeChars[node];
+            int low = 0;
+            int high = chars.length - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                if (chars[middle] < character) {
+                    low = middle + 1;
+                }
+                else if (chars[middle] > character) {
+                    high = middle - 1;
+                }
+                else {
+                    return edgeTargets[node][middle];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Scratch state of scans of the automaton, reused by all scans.
+         */
+        final class Scanner
+        {
+            /** Active nodes. */
+            private int[] active = new int[loops.length];
+
+            /** Active nodes after the next character. */
+            private int[] next = new int[loops.length];
+
+            /** Count of active nodes. */
+            private int activeCount;
+
+            /** Generation of the step, which the node was activated at. */
+            private final int[] activatedAt = new int[loops.length];
+
+            /** Generation of the current step. */
+            private int generation;
+
+            /** Labels of matched globs. */
+            private int[] matched = new int[0];
+
+            /** Count of labels of matched globs. */
+            private int matchedCount;
+
+            /**
+             * Matches the string against all globs.
+             * @param text
+             *        the string.
+             * @return labels of matched globs, the count of them is
+             *         {@link #getLabelCount()}. The array is reused by the
+             *         next scan.
+             */
+            int[] scan(String text)
+            {
+                start();
+                feed(text);
+                return finish();
+            }
+
+            /**
+             * Starts the scan of a string which is fed by pieces.
+             */
+            void start()
+            {
+                nextGeneration();
+                activeCount = activate(active, 0, 0);
+            }
+
+            /**
+             * Feeds the next piece of the scanned string.
+             * @param piece
+             *        the piece.
+             */
+            void feed(String piece)
+            {
+                for (int i = 0; i < piece.length() && activeCount > 0; i++) {
+                    feed(piece.charAt(i));
+                }
+            }
+
+            /**
+             * Feeds the next character of the scanned string.
+             * @param character
+             *        the character.
+             */
+            void feed(char character)
+            {
+                nextGeneration();
+                int nextCount = 0;
+                for (int j = 0; j < activeCount; j++) {
+                    final int node = active[j];
+                    if (loops[node] == ANY_LOOP
+                            || loops[node] == NAME_LOOP && character != '.')
+                    {
+                        nextCount = activate(next, nextCount, node);
+                    }
+                    final int child = getChild(node, character);
+                    if (child != -1) {
+                        nextCount = activate(next, nextCount, child);
+                    }
+                }
+                final int[] swap = active;
+                active = next;
+                next = swap;
+                activeCount = nextCount;
+            }
+
+            /**
+             * Finishes the scan of the fed string.
+             * @return labels of matched globs, the count of them is
+             *         {@link #getLabelCount()}. The array is reused by the
+             *         next scan.
+             */
+            int[] finish()
+            {
+                matchedCount = 0;
+                for (int i = 0; i < activeCount; i++) {
+                    for (int label : labels[active[i]]) {
+                        if (matchedCount == matched.length) {
+                            final int[] grown = new int[matched.length * 2 + 1];
+                            System.arraycopy(matched, 0, grown, 0, matchedCount);
+                            matched = grown;
+                        }
+                        matched[matchedCount++] = label;
+                    }
+                }
+                return matched;
+            }
+
+            /**
+             * Gets the count of labels of the last scan.
+             * @return the count of labels.
+             */
+            int getLabelCount()
+            {
+                return matchedCount;
+            }
+
+            /**
+             * Activates the node and loop nodes which follow it.
+             * @param nodes
+             *        active nodes of the step.
+             * @param count
+             *        count of active nodes of the step.
+             * @param node
+             *        the node.
+             * @return new count of active nodes of the step.
+             */
+            private int activate(int[] nodes, int count, int node)
+            {
+                int result = count;
+                if (activatedAt[node] != generation) {
+                    activatedAt[node] = generation;
+                    nodes[result++] = node;
+                    for (int loopChild : loopChildren[node]) {
+                        result = activate(nodes, result, loopChild);
+                    }
+                }
+                return result;
+            }
+
+            /**
+             * Starts the next step, nodes are activated once per step.
+             */
+            private void nextGeneration()
+            {
+                if (generation == Integer.MAX_VALUE) {
+                    generation = 0;
+                    for (int i = 0; i < activatedAt.length; i++) {
+                        activatedAt[i] = 0;
+                    }
+                }
+                generation++;
+            }
+        }
+
+        /**
+         * Builder of the automaton.
+         */
+        static final class Builder
+        {
+            /** Key of the edge to the "*" node. */
+            private static final char NAME_LOOP_KEY = '\uFFFE';
+
+            /** Key of the edge to the "**" node. */
+            private static final char ANY_LOOP_KEY = '\uFFFF';
+
+            /** Edges by node. */
+            private final List<TreeMap<Character, Integer>> edges =
+                    new ArrayList<TreeMap<Character, Integer>>();
+
+            /** Kinds of loops by node. */
+            private final List<Integer> loops = new ArrayList<Integer>();
+
+            /** Labels by node. */
+            private final List<List<Integer>> labels = new ArrayList<List<Integer>>();
+
+            /**
+             * Creates the builder with the root node.
+             */
+            Builder()
+            {
+                addNode(NO_LOOP);
+            }
+
+            /**
+             * Adds the glob.
+             * @param glob
+             *        the glob.
+             * @param label
+             *        the label which is returned when the glob matches.
+             */
+            void add(String glob, int label)
+            {
+                int node = 0;
+                int i = 0;
+                while (i < glob.length()) {
+                    final char character = glob.charAt(i);
+                    if (character == '*') {
+                        int end = i + 1;
+                        while (end < glob.length() && glob.charAt(end) == '*') {
+                            end++;
+                        }
+                        if (end - i == 1) {
+                            node = getChild(node, NAME_LOOP_KEY, NAME_LOOP);
+                        }
+                        else {
+                            node = getChild(node, ANY_LOOP_KEY, ANY_LOOP);
+                        }
+                        i = end;
+                    }
+                    else {
+                        node = getChild(node, character, NO_LOOP);
+                        i++;
+                    }
+                }
+                labels.get(node).add(label);
+            }
+
+            /**
+             * Builds the automaton.
+             * @return the automaton.
+             */
+            GlobAutomaton build()
+            {
+                final int size = loops.size();
+                final char[][] edgeChars = new char[size][];
+                final int[][] edgeTargets = new int[size][];
+                final int[][] loopChildren = new int[size][];
+                final int[] nodeLoops = new int[size];
+                final int[][] nodeLabels = new int[size][];
+                for (int node = 0; node < size; node++) {
+                    final TreeMap<Character, Integer> nodeEdges = edges.get(node);
+                    final Map<Character, Integer> loopEdges =
+                            nodeEdges.tailMap(NAME_LOOP_KEY);
+                    final int edgeCount = nodeEdges.size() - loopEdges.size();
+                    edgeChars[node] = new char[edgeCount];
+                    edgeTargets[node] = new int[edgeCount];
+                    int i = 0;
+                    for (Map.Entry<Character, Integer> edge
+                            : nodeEdges.headMap(NAME_LOOP_KEY).entrySet())
+                    {
+                        edgeChars[node][i] = edge.getKey();
+                        edgeTargets[node][i] = edge.getValue();
+                        i++;
+                    }
+                    loopChildren[node] = new int[loopEdges.size()];
+                    i = 0;
+                    for (int loopChild : loopEdges.values()) {
+                        loopChildren[node][i++] = loopChild;
+                    }
+                    nodeLoops[node] = loops.get(node);
+                    final List<Integer> labelList = labels.get(node);
+                    nodeLabels[node] = new int[labelList.size()];
+                    for (i = 0; i < nodeLabels[node].length; i++) {
+                        nodeLabels[node][i] = labelList.get(i);
+                    }
+                }
+                return new GlobAutomaton(edgeChars, edgeTargets, loopChildren,
+                        nodeLoops, nodeLabels);
+            }
+
+            /**
+             * Gets the child of the node, the child is created if needed.
+             * @param node
+             *        the node.
+             * @param key
+             *        the character of the edge, or the key of the loop.
+             * @param loop
+             *        the kind of loop of the child.
+             * @return the child.
+             */
+            private int getChild(int node, char key, int loop)
+            {
+                Integer child = edges.get(node).get(key);
+                if (child == null) {
+                    child = addNode(loop);
+                    edges.get(node).put(key, child);
+                }
+                return child;
+            }
+
+            /**
+             * Adds the node.
+             * @param loop
+             *        the kind of loop of the node.
+             * @return the index of the node.
+             */
+            private int addNode(int loop)
+            {
+                edges.add(new TreeMap<Character, Integer>());
+                loops.add(loop);
+                labels.add(new ArrayList<Integer>());
+                return loops.size() - 1;
+            }
+        }
+    }
+}
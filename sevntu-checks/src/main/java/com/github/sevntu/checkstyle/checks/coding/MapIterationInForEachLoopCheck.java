@@ -27,10 +27,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
+import com.github.sevntu.checkstyle.FlatAst;
+import com.github.sevntu.checkstyle.ImportTable;
 import com.github.sevntu.checkstyle.Utils;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
-import com.puppycrawl.tools.checkstyle.api.FullIdent;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 
 /**
@@ -188,9 +189,26 @@ public class MapIterationInForEachLoopCheck extends Check
     private List<String> mapNamesList = new ArrayList<String>();
 
     /**
-     * This list contains all qualified imports.
+     * Table of the package and imports of the current file.
      */
-    private List<String> qualifiedImportList = new ArrayList<String>();
+    private ImportTable importTable;
+
+    /**
+     * Whether the current file imports a supported map implementation or
+     * its package.
+     */
+    private boolean hasMapImport;
+
+    /**
+     * The root of the syntax tree of the current file.
+     */
+    private DetailAST rootAST;
+
+    /**
+     * The flat view of the syntax tree of the current file, or null if it is
+     * not requested yet.
+     */
+    private FlatAst flatAst;
 
     /**
      * Set of allowable map implementations. You can set your own map
@@ -268,14 +286,34 @@ public class MapIterationInForEachLoopCheck extends Check
     @Override
     public int[] getDefaultTokens()
     {
-        return new int[] {TokenTypes.LITERAL_FOR, TokenTypes.IMPORT, TokenTypes.VARIABLE_DEF, };
+        return new int[] {TokenTypes.LITERAL_FOR, TokenTypes.VARIABLE_DEF, };
     }
 
     @Override
     public void beginTree(DetailAST ast)
     {
-        qualifiedImportList.clear();
         mapNamesList.clear();
+        rootAST = ast;
+        importTable = ImportTable.getInstance(ast);
+        hasMapImport = false;
+        for (String qualifiedName : supportedMapImplQualifiedNames) {
+            if (importTable.isImported(qualifiedName)) {
+                hasMapImport = true;
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void finishTree(DetailAST ast)
+    {
+        if (flatAst != null) {
+            FlatAst.release(ast);
+        }
+        ImportTable.release(ast);
+        rootAST = null;
+        flatAst = null;
+        importTable = null;
     }
 
     @Override
@@ -283,15 +321,8 @@ public class MapIterationInForEachLoopCheck extends Check
     {
         switch (ast.getType()) {
 
-            case TokenTypes.IMPORT:
-                String qualifiedMapImportText = getMapImportQualifiedName(ast);
-                if (qualifiedMapImportText != null) {
-                    qualifiedImportList.add(qualifiedMapImportText);
-                }
-                break;
-
             case TokenTypes.VARIABLE_DEF:
-                if (!qualifiedImportList.isEmpty() && isMapVariable(ast)) {
+                if (hasMapImport && isMapVariable(ast)) {
                     DetailAST mapIdentNode = ast.findFirstToken(TokenTypes.TYPE).getNextSibling();
                     String mapName = mapIdentNode.getText();
                     //If Map name is contains into mMapNamesList, it doesn't need second inclusion
@@ -302,7 +333,7 @@ public class MapIterationInForEachLoopCheck extends Check
                 break;
 
             case TokenTypes.LITERAL_FOR:
-                if (!qualifiedImportList.isEmpty() && isForEach(ast)) {
+                if (hasMapImport && isForEach(ast)) {
                     final String warningMessageKey = validate(ast);
                     if (warningMessageKey != null) {
                         log(ast, warningMessageKey);
@@ -382,25 +413,25 @@ public class MapIterationInForEachLoopCheck extends Check
      */
     private DetailAST getKeySetOrEntrySetNode(DetailAST forEachNode)
     {
-        final List<DetailAST> identAndThisNodesList = getSubTreeNodesOfType(forEachNode,
-                TokenTypes.IDENT, TokenTypes.LITERAL_THIS);
-        boolean isMapClassField = false;
-        for (DetailAST thisNode : identAndThisNodesList) {
-            if(thisNode.getType() == TokenTypes.LITERAL_THIS) {
-                isMapClassField = true;
-                break;
-            }
-        }
+        final FlatAst flat = getFlatAst();
+        final int from = flat.getNode(forEachNode);
+        final int to = getSearchEnd(from);
+        final boolean isMapClassField =
+                flat.findFirst(from, to, TokenTypes.LITERAL_THIS) != FlatAst.NONE;
+        final int keySetId = flat.findTextId(KEY_SET_METHOD_NAME);
+        final int entrySetId = flat.findTextId(ENTRY_SET_METHOD_NAME);
         DetailAST keySetOrEntrySetNode = null;
-        for (DetailAST identNode : identAndThisNodesList) {
-            if (KEY_SET_METHOD_NAME.equals(identNode.getText())
-                    || ENTRY_SET_METHOD_NAME.equals(identNode.getText()))
+        for (int identNode = from; identNode < to; identNode++) {
+            if (flat.getType(identNode) == TokenTypes.IDENT
+                    && (flat.getTextId(identNode) == keySetId
+                    || flat.getTextId(identNode) == entrySetId))
             {
+                final DetailAST identAST = flat.getAST(identNode);
                 String mapClassName = isMapClassField
-                        ? identNode.getPreviousSibling().getLastChild().getText()
-                                : identNode.getPreviousSibling().getText();
+                        ? identAST.getPreviousSibling().getLastChild().getText()
+                                : identAST.getPreviousSibling().getText();
                 if (mapNamesList.contains(mapClassName)) {
-                    keySetOrEntrySetNode = identNode;
+                    keySetOrEntrySetNode = identAST;
                     break;
                 }
             }
@@ -417,10 +448,13 @@ public class MapIterationInForEachLoopCheck extends Check
      */
     private boolean isMapPassedIntoAnyMethod(DetailAST forEachOpeningBraceNode)
     {
-        final List<DetailAST> methodCallNodeList = getSubTreeNodesOfType(
-                forEachOpeningBraceNode, TokenTypes.METHOD_CALL);
-        for (DetailAST methodCallNode : methodCallNodeList) {
-            if (hasMapAsParameter(methodCallNode)) {
+        final FlatAst flat = getFlatAst();
+        final int from = flat.getNode(forEachOpeningBraceNode);
+        final int to = getSearchEnd(from);
+        for (int methodCallNode = from; methodCallNode < to; methodCallNode++) {
+            if (flat.getType(methodCallNode) == TokenTypes.METHOD_CALL
+                    && hasMapAsParameter(methodCallNode))
+            {
                 return true;
             }
         }
@@ -430,24 +464,22 @@ public class MapIterationInForEachLoopCheck extends Check
     /**
      * Checks is map instance passed into method call, or not.
      * @param methodCallNode
-     *        DetailAST node of Method Call.
+     *        The position of Method Call node in the flat view.
      * @return return true, if method call contain map as parameter.
      */
-    private boolean hasMapAsParameter(DetailAST methodCallNode)
+    private boolean hasMapAsParameter(int methodCallNode)
     {
-        boolean result = false;
-        final List<DetailAST> identNodesList = getSubTreeNodesOfType(methodCallNode,
-                TokenTypes.IDENT);
-        for (String mapName : mapNamesList) {
-            for (DetailAST identNode : identNodesList) {
-                if (mapName.equals(identNode.getText())
-                        && identNode.getParent().getType() == TokenTypes.EXPR)
-                {
-                    result =  true;
-                }
+        final FlatAst flat = getFlatAst();
+        final int to = getSearchEnd(methodCallNode);
+        for (int identNode = methodCallNode; identNode < to; identNode++) {
+            if (flat.getType(identNode) == TokenTypes.IDENT
+                    && flat.getType(flat.getParent(identNode)) == TokenTypes.EXPR
+                    && mapNamesList.contains(flat.getText(identNode)))
+            {
+                return true;
             }
         }
-        return result;
+        return false;
     }
 
     /**
@@ -466,42 +498,35 @@ public class MapIterationInForEachLoopCheck extends Check
     {
         String result = null;
 
-        final List<DetailAST> identAndLiteralIfNodesList =
-                getSubTreeNodesOfType(forEachOpeningBraceNode,
-                        TokenTypes.IDENT, TokenTypes.LITERAL_IF);
+        final FlatAst flat = getFlatAst();
+        final int from = flat.getNode(forEachOpeningBraceNode);
+        final int to = getSearchEnd(from);
+        final int keyNameId = flat.findTextId(keyName);
         int methodGetCallCount = 0;
         int keyIdentCount = 0;
-        for (DetailAST identOrLiteralIfNode : identAndLiteralIfNodesList) {
-            DetailAST mapIdentNode = identOrLiteralIfNode.getPreviousSibling();
-            if (isMapClassField && mapIdentNode != null) {
-                mapIdentNode = mapIdentNode.getLastChild();
-            }
-            if (mapIdentNode != null && GET_NODE_NAME.equals(identOrLiteralIfNode.getText())
-                    && mapName.equals(mapIdentNode.getText()))
-            {        
-
-                methodGetCallCount++;
+        int literalIfNode = FlatAst.NONE;
+        for (int node = from; node < to; node++) {
+            if (flat.getType(node) == TokenTypes.IDENT) {
+                if (isMapGetCall(node, mapName, isMapClassField)) {
+                    methodGetCallCount++;
+                }
+                if (flat.getTextId(node) == keyNameId) {
+                    keyIdentCount++;
+                }
             }
-
-            if (keyName.equals(identOrLiteralIfNode.getText())) {
-                keyIdentCount++;
+            else if (flat.getType(node) == TokenTypes.LITERAL_IF
+                    && literalIfNode == FlatAst.NONE)
+            {
+                literalIfNode = node;
             }
         }
 
-        final DetailAST literalIfNode =
-                getFirstNodeOfType(identAndLiteralIfNodesList,
-                        TokenTypes.LITERAL_IF);
         int methodGetCallInsideIfCount = 0;
-        if (literalIfNode != null) {
-            for (DetailAST node : getSubTreeNodesOfType(literalIfNode, TokenTypes.IDENT))
-            {
-                DetailAST mapIdentNode = node.getPreviousSibling();
-                if (isMapClassField && mapIdentNode != null) {
-                    mapIdentNode = mapIdentNode.getLastChild();
-                }
-
-                if (mapIdentNode != null && GET_NODE_NAME.equals(node.getText())
-                        && mapName.equals(mapIdentNode.getText()))
+        if (literalIfNode != FlatAst.NONE) {
+            final int ifEnd = getSearchEnd(literalIfNode);
+            for (int node = literalIfNode; node < ifEnd; node++) {
+                if (flat.getType(node) == TokenTypes.IDENT
+                        && isMapGetCall(node, mapName, isMapClassField))
                 {
                     methodGetCallInsideIfCount++;
                 }
@@ -523,6 +548,30 @@ public class MapIterationInForEachLoopCheck extends Check
         return result;
     }
 
+    /**
+     * Checks whether the IDENT node is the name of get() method which is
+     * called on the map.
+     * @param identNode
+     *        The position of IDENT node in the flat view.
+     * @param mapName
+     *        Current map name.
+     * @param isMapClassField
+     *        Whether the map is referenced as a field of this.
+     * @return true, if the node is the name of get() method of the map.
+     */
+    private boolean isMapGetCall(int identNode, String mapName,
+            boolean isMapClassField)
+    {
+        final FlatAst flat = getFlatAst();
+        int mapIdentNode = flat.getPreviousSibling(identNode);
+        if (isMapClassField && mapIdentNode != FlatAst.NONE) {
+            mapIdentNode = flat.getLastChild(mapIdentNode);
+        }
+        return mapIdentNode != FlatAst.NONE
+                && GET_NODE_NAME.equals(flat.getText(identNode))
+                && mapName.equals(flat.getText(mapIdentNode));
+    }
+
     /**
      * Searches for wrong entrySet() usage inside for cycles.
      * @param forEachOpeningBraceNode
@@ -536,24 +585,29 @@ public class MapIterationInForEachLoopCheck extends Check
     {
         String result = null;
 
-        final List<DetailAST> identNodesList = getSubTreeNodesOfType(
-                forEachOpeningBraceNode, TokenTypes.IDENT);
+        final FlatAst flat = getFlatAst();
+        final int from = flat.getNode(forEachOpeningBraceNode);
+        final int to = getSearchEnd(from);
+        final int entryNameId = flat.findTextId(entryName);
+        final int getKeyId = flat.findTextId(GET_KEY_NODE_NAME);
+        final int getValueId = flat.findTextId(GET_VALUE_NODE_NAME);
         int methodGetKeyCallCount = 0;
         int methodGetValueCallCount = 0;
-        for (DetailAST identNode : identNodesList) {
-
-            final DetailAST entryNode = identNode.getPreviousSibling();
+        for (int identNode = from; identNode < to; identNode++) {
 
-            if (entryNode != null && GET_KEY_NODE_NAME.equals(identNode.getText()) 
-                    && entryName.equals(entryNode.getText()))
-            {
-                methodGetKeyCallCount++;
-            }
+            if (flat.getType(identNode) == TokenTypes.IDENT) {
+                final int entryNode = flat.getPreviousSibling(identNode);
 
-            if (entryNode != null && GET_VALUE_NODE_NAME.equals(identNode.getText())
-                    && entryName.equals(entryNode.getText()))
-            {
-                methodGetValueCallCount++;
+                if (entryNode != FlatAst.NONE
+                        && flat.getTextId(entryNode) == entryNameId)
+                {
+                    if (flat.getTextId(identNode) == getKeyId) {
+                        methodGetKeyCallCount++;
+                    }
+                    if (flat.getTextId(identNode) == getValueId) {
+                        methodGetValueCallCount++;
+                    }
+                }
             }
         }
 
@@ -578,12 +632,12 @@ public class MapIterationInForEachLoopCheck extends Check
     private boolean isMapVariable(DetailAST variableDefNode)
     {
         boolean result = false;
-        final List<DetailAST> literaNewNodeslList =
-                getSubTreeNodesOfType(variableDefNode,
-                        TokenTypes.LITERAL_NEW, TokenTypes.ASSIGN);
-        final String className = getClassName(literaNewNodeslList);
-        if (getFirstNodeOfType(literaNewNodeslList, TokenTypes.ASSIGN)
-                != null && className != null) {
+        final FlatAst flat = getFlatAst();
+        final int from = flat.getNode(variableDefNode);
+        final int to = getSearchEnd(from);
+        final String className = getClassName(from, to);
+        if (flat.findFirst(from, to, TokenTypes.ASSIGN) != FlatAst.NONE
+                && className != null) {
             result = isMapImplementation(className);
         }
         return result;
@@ -593,49 +647,14 @@ public class MapIterationInForEachLoopCheck extends Check
      * Checks, is current class a Map implementation or not.
      * @param className
      *        Current class's name.
-     * @return true, if current class is contained inside mQualifiedImportList.
+     * @return true, if current class is resolved by imports to one of
+     *         mSupportedMapImplQualifiedNames.
      */
     private boolean isMapImplementation(String className)
-    {
-        return isClassContainsInsideQualifiedImportList(className)
-                || containsInSupportedMapImplQualifiedNames(className);
-    }
-
-    /**
-     * Checks, is mSupportedMapImplQualifiedNames List contains
-     * current class.
-     * @param className
-     *        current class name.
-     * @return true, if List contains current class.
-     */
-    private boolean containsInSupportedMapImplQualifiedNames(String className)
-    {
-        boolean result = false;
-        for (String supportedMapName : supportedMapImplQualifiedNames) {
-            if (supportedMapName.endsWith(className)) {
-                final int lastDotIndex = supportedMapName.lastIndexOf(".") + 1;
-                final String packageName = supportedMapName.substring(0, lastDotIndex) + "*";
-                if (qualifiedImportList.contains(packageName)) {
-                    result = true;
-                    break;
-                }
-            }
-        }
-        return result;
-    }
-
-    /**
-     * Checks, is mQualifiedImportList contains
-     * current class.
-     * @param className
-     *        current class name.
-     * @return true, if List contains current class.
-     */
-    private boolean isClassContainsInsideQualifiedImportList(String className)
     {
         boolean result = false;
-        for (String mapImplementationQualifiedName : qualifiedImportList) {
-            if (mapImplementationQualifiedName.endsWith(className)) {
+        for (String qualifiedName : importTable.getCandidates(className)) {
+            if (supportedMapImplQualifiedNames.contains(qualifiedName)) {
                 result = true;
                 break;
             }
@@ -645,96 +664,60 @@ public class MapIterationInForEachLoopCheck extends Check
 
     /**
      * Returns the instance's class name.
-     * @param literaNewNodesList
-     *        This list contains "new" literals.
+     * @param from
+     *        The first position of the range with "new" literals.
+     * @param to
+     *        The position after the last position of the range.
      * @return object's class name,
      *        if class name is missed, returns null.
      */
-    private static String getClassName(final List<DetailAST> literaNewNodesList)
+    private String getClassName(int from, int to)
     {
-        for (DetailAST literalNewNode : literaNewNodesList) {
-            DetailAST exprNode = literalNewNode.getParent();
-            if (exprNode.getParent().getType() == TokenTypes.ASSIGN) {
-                return literalNewNode.getFirstChild().getText();
+        final FlatAst flat = getFlatAst();
+        for (int literalNewNode = from; literalNewNode < to; literalNewNode++) {
+            if (flat.getType(literalNewNode) == TokenTypes.LITERAL_NEW) {
+                final int exprNode = flat.getParent(literalNewNode);
+                if (flat.getType(flat.getParent(exprNode)) == TokenTypes.ASSIGN) {
+                    return flat.getText(flat.getFirstChild(literalNewNode));
+                }
             }
         }
         return null;
     }
 
     /**
-     * Searches the first specific
-     * DetailAST node inside List.
-     * @param nodesList
-     *        DetailAST List witch maybe contains specific token.
-     * @param aSpecificType
-     *        A specific type of token.
-     * @return specific token or null.
+     * Gets the end of the search over subtree. The search ends at the next
+     * sibling of the root, or at the last child of the root if the root has
+     * no next sibling.
+     * @param rootNode
+     *        The position of the root of subtree in the flat view.
+     * @return the position after the last searched position.
      */
-    private static DetailAST getFirstNodeOfType(List<DetailAST> nodesList,
-            int aSpecificType)
+    private int getSearchEnd(int rootNode)
     {
-        for (DetailAST node : nodesList) {
-            if (node.getType() == aSpecificType) {
-                return node;
-            }
+        final FlatAst flat = getFlatAst();
+        final int finishPosition;
+        if (flat.getNextSibling(rootNode) != FlatAst.NONE) {
+            finishPosition = flat.getNextSibling(rootNode);
         }
-        return null;
-    }
-
-    /**
-     * Returns full path of map implementation. If path doesn't
-     * contain full map implementation path, null will be returned.
-     * @param importNode
-     *        Import node.
-     * @return full path of map implementation or null.
-     */
-    private String getMapImportQualifiedName(DetailAST importNode)
-    {
-        final String mapClassQualifiedName = FullIdent.createFullIdent(
-                importNode.getFirstChild()).getText();
-        for (String qualifiedName : supportedMapImplQualifiedNames) {
-            if (mapClassQualifiedName.equals(qualifiedName)) {
-                return mapClassQualifiedName;
-            }
+        else if (flat.getLastChild(rootNode) != FlatAst.NONE) {
+            finishPosition = flat.getLastChild(rootNode);
         }
-        return null;
+        else {
+            finishPosition = flat.size();
+        }
+        return finishPosition;
     }
 
     /**
-     * Searches over subtree for all tokens of necessary types.
-     * @param rootNode
-     *        The root of subtree.
-     * @param tokenTypes
-     *        Token's necessary types into If condition.
-     * @return DetailAST List with necessary tokens.
+     * Gets the flat view of the syntax tree of the current file.
+     * @return the flat view.
      */
-    private static List<DetailAST> getSubTreeNodesOfType(DetailAST rootNode,
-            int... tokenTypes)
+    private FlatAst getFlatAst()
     {
-        final List<DetailAST> result = new ArrayList<DetailAST>();
-        final DetailAST finishNode;
-        if (rootNode.getNextSibling() == null) {
-            finishNode = rootNode.getLastChild();
-        }
-        else {
-            finishNode = rootNode.getNextSibling();
+        if (flatAst == null) {
+            flatAst = FlatAst.getInstance(rootAST);
         }
-        DetailAST curNode = rootNode;
-        while (curNode != null && curNode != finishNode) {
-            for (int tokenType : tokenTypes) {
-                if (curNode.getType() == tokenType) {
-                    result.add(curNode);
-                }
-            }
-            DetailAST toVisit = curNode.getFirstChild();
-            while ((curNode != null) && (toVisit == null)) {
-                toVisit = curNode.getNextSibling();
-                if (toVisit == null) {
-                    curNode = curNode.getParent();
-                }
-            }
-            curNode = toVisit;
-        }
-        return result;
+        return flatAst;
     }
 }
@@ -0,0 +1,325 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2011  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.sevntu.checkstyle.checks.coding.StringLiteralTable.Literal;
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.Utils;
+
+/**
+ * <p>
+ * Checks for multiple occurrences of the same string literal in different
+ * files of the project. This is the cross-file mode of
+ * {@link MultipleStringLiteralsExtendedCheck}, which checks occurrences
+ * within a single file only: literals of all files are collected into one
+ * table by {@link StringLiteralsCollectorCheck} while TreeWalker processes
+ * files, and duplicates are reported when the audit finishes, at the first
+ * occurrence of the literal in each file, or at all occurrences if
+ * highlightAllDuplicates is set.
+ * </p>
+ * <p>
+ * The check is a FileSetCheck, so it is configured as a child of Checker,
+ * not TreeWalker, together with the collecting check, which is a child of
+ * TreeWalker and decides which literals are checked:
+ * </p>
+ * <pre>
+ * &lt;module name="TreeWalker"&gt;
+ *    &lt;module name="StringLiteralsCollectorCheck"/&gt;
+ * &lt;/module&gt;
+ * &lt;module name="MultipleStringLiteralsAcrossFilesCheck"&gt;
+ *    &lt;property name="allowedDuplicates" value="2"/&gt;
+ * &lt;/module&gt;
+ * </pre>
+ * <p>
+ * Violations are found only when all files are processed, so they are
+ * reported after events of the last file, as errors of their files without
+ * events of the start and the end of files, which were fired already.
+ * </p>
+ * <p>
+ * The check creates the table of literals of each audit when the audit
+ * begins, and is the running check of the class until the audit finishes;
+ * collecting checks add literals to the table of the running check, as
+ * checks of TreeWalker have no reference to other modules of Checker. So
+ * the check should be run by one audit at a time: when another audit with
+ * the check begins, literals are collected for it instead.
+ * </p>
+ * <p>
+ * To keep memory usage bounded on big projects, count of distinct literals
+ * is limited by maxTrackedLiterals, literals which are found after the
+ * limit is reached are not checked. Count of positions of a literal is
+ * limited by maxTrackedOccurrences, further occurrences are counted but not
+ * reported.
+ * </p>
+ */
+public class MultipleStringLiteralsAcrossFilesCheck extends AbstractFileSetCheck
+{
+    /** Warning message key. */
+    public static final String MSG_KEY = "multiple.string.literal.across.files";
+
+    /** Default maximum count of distinct literals. */
+    private static final int DEFAULT_MAX_TRACKED_LITERALS = 1000000;
+
+    /** Default maximum count of positions of a literal. */
+    private static final int DEFAULT_MAX_TRACKED_OCCURRENCES = 100;
+
+    /** The check of the running audit, or null. */
+    private static final AtomicReference<MultipleStringLiteralsAcrossFilesCheck>
+        RUNNING_CHECK =
+            new AtomicReference<MultipleStringLiteralsAcrossFilesCheck>();
+
+    /** The allowed number of string duplicates in the project. */
+    private int allowedDuplicates = 1;
+
+    /** Highlight all duplicates if set true. */
+    private boolean highlightAllDuplicates;
+
+    /** Maximum count of distinct literals. */
+    private int maxTrackedLiterals = DEFAULT_MAX_TRACKED_LITERALS;
+
+    /** Maximum count of positions of a literal. */
+    private int maxTrackedOccurrences = DEFAULT_MAX_TRACKED_OCCURRENCES;
+
+    /** Literals of the running audit, or null. */
+    private volatile StringLiteralTable table;
+
+    /**
+     * Sets the maximum allowed duplicates of a string.
+     * @param allowedDuplicates
+     *        The maximum number of duplicates.
+     */
+    public void setAllowedDuplicates(int allowedDuplicates)
+    {
+        this.allowedDuplicates = allowedDuplicates;
+    }
+
+    /**
+     * Sets highlight for all duplicates or only first in each file.
+     * @param highlightAllDuplicates
+     *        if true show all duplicates
+     */
+    public void setHighlightAllDuplicates(boolean highlightAllDuplicates)
+    {
+        this.highlightAllDuplicates = highlightAllDuplicates;
+    }
+
+    /**
+     * Sets the maximum count of distinct literals to track.
+     * @param maxTrackedLiterals
+     *        the maximum count of distinct literals.
+     */
+    public void setMaxTrackedLiterals(int maxTrackedLiterals)
+    {
+        this.maxTrackedLiterals = maxTrackedLiterals;
+    }
+
+    /**
+     * Sets the maximum count of reported occurrences of a literal.
+     * @param maxTrackedOccurrences
+     *        the maximum count of occurrences.
+     */
+    public void setMaxTrackedOccurrences(int maxTrackedOccurrences)
+    {
+        this.maxTrackedOccurrences = maxTrackedOccurrences;
+    }
+
+    /**
+     * Gets the table of literals of the running audit.
+     * @return the table, or null if no audit with the check is running.
+     */
+    static StringLiteralTable getRunningTable()
+    {
+        final MultipleStringLiteralsAcrossFilesCheck check = RUNNING_CHECK.get();
+        if (check == null) {
+            return null;
+        }
+        return check.table;
+    }
+
+    @Override
+    public void beginProcessing(String charset)
+    {
+        table = new StringLiteralTable(maxTrackedLiterals,
+                maxTrackedOccurrences, allowedDuplicates);
+        RUNNING_CHECK.set(this);
+    }
+
+    @Override
+    protected void processFiltered(File file, List<String> lines)
+    {
+        // literals are collected by StringLiteralsCollectorCheck
+    }
+
+    @Override
+    public void finishProcessing()
+    {
+        RUNNING_CHECK.compareAndSet(this, null);
+        final StringLiteralTable auditTable = table;
+        table = null;
+        if (auditTable == null) {
+            return;
+        }
+        report(auditTable);
+    }
+
+    @Override
+    public void destroy()
+    {
+        // the audit may be broken off by an exception
+        RUNNING_CHECK.compareAndSet(this, null);
+        table = null;
+        super.destroy();
+    }
+
+    /**
+     * Reports literals of the finished audit which occur in several files.
+     * @param table
+     *        literals of the audit.
+     */
+    private void report(StringLiteralTable table)
+    {
+        if (table.isOverflowed()) {
+            Utils.getExceptionLogger().warn("Only " + table.getMaxLiterals()
+                    + " distinct string literals are checked for duplicates"
+                    + " across files.");
+        }
+
+        final SortedMap<String, List<Violation>> violationsByFile =
+                new TreeMap<String, List<Violation>>();
+        for (Literal literal : table.getLiterals().values()) {
+            if (literal.getCount() > allowedDuplicates
+                    && literal.getFilesCount() > 1)
+            {
+                collectViolations(table, literal.getText(), literal,
+                        violationsByFile);
+            }
+        }
+
+        for (Map.Entry<String, List<Violation>> entry
+                : violationsByFile.entrySet())
+        {
+            for (Violation violation : entry.getValue()) {
+                log(violation.line, violation.column, MSG_KEY,
+                        violation.literal, violation.occurrencesCount,
+                        violation.filesCount);
+            }
+            fireErrors(entry.getKey());
+        }
+    }
+
+    /**
+     * Collects violations of the literal which occurs in several files:
+     * the first occurrence in each file, or all occurrences.
+     * @param table
+     *        literals of the audit.
+     * @param literal
+     *        text of the literal.
+     * @param occurrences
+     *        occurrences of the literal.
+     * @param violationsByFile
+     *        violations by name of the file to add to.
+     */
+    private void collectViolations(StringLiteralTable table, String literal,
+            Literal occurrences, Map<String, List<Violation>> violationsByFile)
+    {
+        final Map<Integer, List<Violation>> violationsByFileId =
+                new HashMap<Integer, List<Violation>>();
+        final Occurrences positions = occurrences.getPositions();
+        final int size = positions.size();
+        for (int i = 0; i < size; i++) {
+            final int fileId = positions.getFileId(i);
+            List<Violation> fileViolations = violationsByFileId.get(fileId);
+            if (fileViolations == null) {
+                fileViolations = new ArrayList<Violation>();
+                violationsByFileId.put(fileId, fileViolations);
+            }
+            // positions of a file are added in the order of the walk of
+            // its tree, which is the order of the source
+            if (highlightAllDuplicates || fileViolations.isEmpty()) {
+                fileViolations.add(new Violation(positions.getLine(i),
+                        positions.getColumn(i), literal, occurrences.getCount(),
+                        occurrences.getFilesCount()));
+            }
+        }
+
+        for (Map.Entry<Integer, List<Violation>> entry
+                : violationsByFileId.entrySet())
+        {
+            final String fileName = table.getFileName(entry.getKey());
+            List<Violation> fileViolations = violationsByFile.get(fileName);
+            if (fileViolations == null) {
+                fileViolations = new ArrayList<Violation>();
+                violationsByFile.put(fileName, fileViolations);
+            }
+            fileViolations.addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Duplicate of a string literal to report.
+     */
+    private static final class Violation
+    {
+        /** Line of the literal. */
+        private final int line;
+
+        /** Column of the literal. */
+        private final int column;
+
+        /** Text of the literal. */
+        private final String literal;
+
+        /** Count of occurrences of the literal in all files. */
+        private final int occurrencesCount;
+
+        /** Count of files the literal occurs in. */
+        private final int filesCount;
+
+        /**
+         * Creates the violation.
+         * @param line
+         *        line of the literal.
+         * @param column
+         *        column of the literal.
+         * @param literal
+         *        text of the literal.
+         * @param occurrencesCount
+         *        count of occurrences of the literal in all files.
+         * @param filesCount
+         *        count of files the literal occurs in.
+         */
+        private Violation(int line, int column, String literal,
+                int occurrencesCount, int filesCount)
+        {
+            this.line = line;
+            this.column = column;
+            this.literal = literal;
+            this.occurrencesCount = occurrencesCount;
+            this.filesCount = filesCount;
+        }
+    }
+}
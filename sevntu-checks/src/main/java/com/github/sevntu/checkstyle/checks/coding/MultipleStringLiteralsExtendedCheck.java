@@ -50,6 +50,12 @@ public class MultipleStringLiteralsExtendedCheck extends Check
 	 */
 	private final BitSet ignoreOccurrenceContext = new BitSet();
 
+	/**
+	 * Count of currently visited tokens of {@link #ignoreOccurrenceContext} types, which
+	 * are ancestors of the visited token.
+	 */
+	private int ignoreOccurrenceContextDepth;
+
 	/**
 	 * The allowed number of string duplicates in a file before an error is generated.
 	 */
@@ -133,49 +139,61 @@ public class MultipleStringLiteralsExtendedCheck extends Check
 	@Override
 	public int[] getDefaultTokens()
 	{
-		return new int[] { TokenTypes.STRING_LITERAL };
+		final int[] contextTokens = getRequiredTokens();
+		final int[] tokens = new int[contextTokens.length + 1];
+		tokens[0] = TokenTypes.STRING_LITERAL;
+		System.arraycopy(contextTokens, 0, tokens, 1, contextTokens.length);
+		return tokens;
 	}
 
+	/**
+	 * Gets types of {@link #ignoreOccurrenceContext}, which are visited even
+	 * if the tokens property is set, so the ignored context is always known.
+	 * 
+	 * @return types of the ignored context.
+	 */
 	@Override
-	public void visitToken(DetailAST ast)
+	public int[] getRequiredTokens()
 	{
-		if (isInIgnoreOccurrenceContext(ast)) {
-			return;
-		}
-		final String currentString = ast.getText();
-		if ((pattern == null) || !pattern.matcher(currentString).find()) {
-			List<StringInfo> hitList = stringMap.get(currentString);
-			if (hitList == null) {
-				hitList = Lists.newArrayList();
-				stringMap.put(currentString, hitList);
-			}
-			final int line = ast.getLineNo();
-			final int col = ast.getColumnNo();
-			hitList.add(new StringInfo(line, col));
+		final int[] tokens = new int[ignoreOccurrenceContext.cardinality()];
+		int index = 0;
+		for (int type = ignoreOccurrenceContext.nextSetBit(0); type >= 0;
+				type = ignoreOccurrenceContext.nextSetBit(type + 1))
+		{
+			tokens[index++] = type;
 		}
+		return tokens;
 	}
 
-	/**
-	 * Analyses the path from the AST root to a given AST for occurrences of the token types in
-	 * {@link #ignoreOccurrenceContext}.
-	 * 
-	 * @param ast
-	 *            the node from where to start searching towards the root node
-	 * @return whether the path from the root node to aAST contains one of the token type in
-	 *         {@link #ignoreOccurrenceContext}.
-	 */
-	private boolean isInIgnoreOccurrenceContext(DetailAST ast)
+	@Override
+	public void visitToken(DetailAST ast)
 	{
-		DetailAST token = ast.getParent();
-		while (token != null)
+		if (ast.getType() == TokenTypes.STRING_LITERAL
+				&& ignoreOccurrenceContextDepth == 0)
 		{
-			final int type = token.getType();
-			if (ignoreOccurrenceContext.get(type)) {
-				return true;
+			final String currentString = ast.getText();
+			if ((pattern == null) || !pattern.matcher(currentString).find()) {
+				List<StringInfo> hitList = stringMap.get(currentString);
+				if (hitList == null) {
+					hitList = Lists.newArrayList();
+					stringMap.put(currentString, hitList);
+				}
+				final int line = ast.getLineNo();
+				final int col = ast.getColumnNo();
+				hitList.add(new StringInfo(line, col));
 			}
-			token = token.getParent();
 		}
-		return false;
+		if (ignoreOccurrenceContext.get(ast.getType())) {
+			ignoreOccurrenceContextDepth++;
+		}
+	}
+
+	@Override
+	public void leaveToken(DetailAST ast)
+	{
+		if (ignoreOccurrenceContext.get(ast.getType())) {
+			ignoreOccurrenceContextDepth--;
+		}
 	}
 
 	@Override
@@ -183,6 +201,7 @@ public class MultipleStringLiteralsExtendedCheck extends Check
 	{
 		super.beginTree(rootAST);
 		stringMap.clear();
+		ignoreOccurrenceContextDepth = 0;
 	}
 
 	@Override
@@ -19,6 +19,7 @@
 
 package com.github.sevntu.checkstyle.checks.coding;
 
+import com.github.sevntu.checkstyle.ChangedLines;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -39,6 +40,10 @@ import com.puppycrawl.tools.checkstyle.checks.CheckUtils;
  * <pre>
  * &lt;module name="MultipleVariableDeclarations"/&gt;
  * </pre>
+ * <p>
+ * If the audit is scoped to changed lines, see {@link ChangedLines}, declarations are looked for only in
+ * classes, methods and statements which have changed lines.
+ * </p>
  * 
  * *
  * 
@@ -63,6 +68,9 @@ public class MultipleVariableDeclarationsExtendedCheck extends Check
 	/** check declaration in methods. */
 	private boolean ignoreMethods;
 
+	/** changed lines of the file, or null if all lines are checked. */
+	private ChangedLines.Ranges changedLines;
+
 	/**
 	 * Enable|Disable declaration checking in cycles.
 	 * 
@@ -96,6 +104,21 @@ public class MultipleVariableDeclarationsExtendedCheck extends Check
 		return new int[] { TokenTypes.VARIABLE_DEF };
 	}
 
+	@Override
+	public void beginTree(DetailAST rootAST)
+	{
+		changedLines = ChangedLines.getCurrentRanges(
+				getFileContents().getFilename());
+		if (changedLines != null) {
+			// declarations are looked for only in subtrees with changed lines
+			for (DetailAST ast : changedLines.findNodes(rootAST,
+					TokenTypes.VARIABLE_DEF))
+			{
+				checkDeclaration(ast);
+			}
+		}
+	}
+
 	/**
 	 * Searches for wrong declarations and checks the their type.
 	 * 
@@ -124,6 +147,12 @@ public class MultipleVariableDeclarationsExtendedCheck extends Check
 				&& (nextNode.getType() == TokenTypes.VARIABLE_DEF))
 		{
 			final DetailAST firstNode = CheckUtils.getFirstNode(ast);
+			if (changedLines != null
+					&& !changedLines.contains(firstNode.getLineNo()))
+			{
+				// the declaration is reported on its first line only
+				return;
+			}
 			if (isCommaSeparated) {
 				log(firstNode, MSG_VAR_DECLARATIONS_COMMA);
 				return;
@@ -142,7 +171,19 @@ public class MultipleVariableDeclarationsExtendedCheck extends Check
 	@Override
 	public void visitToken(DetailAST ast)
 	{
+		if (changedLines == null) {
+			checkDeclaration(ast);
+		}
+	}
 
+	/**
+	 * Checks the declaration unless it is in an ignored statement.
+	 * 
+	 * @param ast
+	 *            the declaration.
+	 */
+	private void checkDeclaration(DetailAST ast)
+	{
 		final DetailAST token = ast;
 		final boolean inFor = ast.getParent().getType() == TokenTypes.FOR_INIT;
 		final boolean inClass = ast.getParent().getParent().getType() == TokenTypes.CLASS_DEF;
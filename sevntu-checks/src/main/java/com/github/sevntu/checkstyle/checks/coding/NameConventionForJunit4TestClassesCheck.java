@@ -20,6 +20,7 @@ package com.github.sevntu.checkstyle.checks.coding;
 
 import java.util.regex.Pattern;
 
+import com.github.sevntu.checkstyle.ImportTable;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -84,13 +85,13 @@ import com.puppycrawl.tools.checkstyle.api.TokenTypes;
  * 
  * </p>
  * <p>
- * Annotation names must be specified exactly the same way it specified in code,
- * thus if Check must match annotation with fully qualified name, corresponding
- * options must contain qualified annotation name and vice versa. For example,
- * if annotation regex is "org.junit.Test" Check will recognize "{@literal @}
- * org.junit.Test" annotation and will skip "{@literal @}Test" annotation and
- * vice versa if annotation regex is "Test" Check will recognize "{@literal @}
- * Test" annotation and skip "{@literal @}org.junit.Test" annotation.
+ * Annotation names are matched the same way they are specified in code, and
+ * also by fully qualified names which imports or the package of the file
+ * resolve them to. For example, if annotation regex is "org.junit.Test" Check
+ * will recognize "{@literal @}org.junit.Test" annotation and "{@literal @}Test"
+ * annotation of the file which imports "org.junit.Test" or "org.junit.*",
+ * but if annotation regex is "Test" Check will recognize "{@literal @}Test"
+ * annotation and skip "{@literal @}org.junit.Test" annotation.
  * </p>
  * <p>
  * Following configuration will adjust Check to look for classes annotated with
@@ -148,6 +149,11 @@ public class NameConventionForJunit4TestClassesCheck extends Check
     private Pattern methodAnnotationNameRegex =
             Pattern.compile("Test|org.junit.Test");
 
+    /**
+     * Table of the package and imports of the current file.
+     */
+    private ImportTable importTable;
+
     /**
      * Sets regexp to match 'expected' class names for JUnit tests.
      * @param expectedClassNameRegex
@@ -199,6 +205,19 @@ public class NameConventionForJunit4TestClassesCheck extends Check
         return new int[] { TokenTypes.CLASS_DEF };
     }
 
+    @Override
+    public void beginTree(DetailAST rootAST)
+    {
+        importTable = ImportTable.getInstance(rootAST);
+    }
+
+    @Override
+    public void finishTree(DetailAST rootAST)
+    {
+        ImportTable.release(rootAST);
+        importTable = null;
+    }
+
     @Override
     public void visitToken(DetailAST classDefNode)
     {
@@ -278,7 +297,9 @@ public class NameConventionForJunit4TestClassesCheck extends Check
             if (modifierNode.getType() == TokenTypes.ANNOTATION) {
                 String annotationName = getIdentifierName(modifierNode);
 
-                if (isMatchesRegex(annotationNamesRegexp, annotationName)) {
+                if (isMatchesRegex(annotationNamesRegexp, annotationName)
+                        || isAnyCandidateMatchesRegex(annotationNamesRegexp, annotationName))
+                {
                     result = true;
                     break;
                 }
@@ -350,4 +371,25 @@ public class NameConventionForJunit4TestClassesCheck extends Check
             return false;
         }
     }
+
+    /**
+     * Matches fully qualified names, which imports resolve the name to,
+     * against regexp.
+     * @param regexPattern
+     *        regex to match names with. May be null.
+     * @param name
+     *        a name as it is specified in code.
+     * @return true if any of fully qualified names matches regex.
+     */
+    private boolean isAnyCandidateMatchesRegex(Pattern regexPattern, String name)
+    {
+        if (regexPattern != null) {
+            for (String candidate : importTable.getCandidates(name)) {
+                if (regexPattern.matcher(candidate).matches()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 }
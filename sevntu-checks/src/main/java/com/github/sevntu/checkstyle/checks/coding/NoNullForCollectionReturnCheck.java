@@ -18,9 +18,13 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.coding;
 
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.github.sevntu.checkstyle.Utils;
 import com.puppycrawl.tools.checkstyle.api.Check;
@@ -83,10 +87,19 @@ public class NoNullForCollectionReturnCheck extends Check
 
     /**
      * <p>
-     * List of the method definition tokens, that returns collection.
+     * Stack of the method definitions, which contain the visited token.
      * </p>
      */
-    private LinkedList<DetailAST> methodDefs = new LinkedList<DetailAST>();
+    private final Deque<DetailAST> methodDefs = new LinkedList<DetailAST>();
+
+    /**
+     * <p>
+     * Return statements of the visited methods, which return a variable that
+     * may hold null. They are found by one pass through the body of the method
+     * on its visit, when search through the method body is on.
+     * </p>
+     */
+    private final Set<DetailAST> nullableReturns = new HashSet<DetailAST>();
 
     public NoNullForCollectionReturnCheck()
     {
@@ -127,11 +140,12 @@ public class NoNullForCollectionReturnCheck extends Check
     {
         return new int[] { TokenTypes.METHOD_DEF, TokenTypes.LITERAL_RETURN };
     }
-    
+
     @Override
     public void beginTree(DetailAST rootAST)
     {
         methodDefs.clear();
+        nullableReturns.clear();
     }
 
     @Override
@@ -140,23 +154,22 @@ public class NoNullForCollectionReturnCheck extends Check
         switch (detailAST.getType())
         {
             case TokenTypes.METHOD_DEF:
-                if (isReturnCollection(detailAST))
+                methodDefs.push(detailAST);
+                final DetailAST methodBody = detailAST.findFirstToken(TokenTypes.SLIST);
+                if (searchThroughMethodBody && methodBody != null
+                        && isReturnCollection(detailAST))
                 {
-                    methodDefs.push(detailAST);
+                    new NullableReturnsPass(nullableReturns).run(methodBody);
                 }
                 break;
 
             case TokenTypes.LITERAL_RETURN:
-                if (!methodDefs.isEmpty())
-                {
-                    DetailAST currentMethodDef = getMethodDef(detailAST);
-                    if (methodDefs.contains(currentMethodDef)
+                if (!methodDefs.isEmpty()
+                        && isReturnCollection(methodDefs.peek())
                         && (hasNullLiteralInReturn(detailAST)
-                            || (searchThroughMethodBody
-                                && isReturnedValueBeNull(detailAST))))
-                    {
-                        log(detailAST.getLineNo(), MSG_KEY);
-                    }
+                            || nullableReturns.contains(detailAST)))
+                {
+                    log(detailAST.getLineNo(), MSG_KEY);
                 }
                 break;
 
@@ -166,6 +179,15 @@ public class NoNullForCollectionReturnCheck extends Check
         }
     }
 
+    @Override
+    public void leaveToken(DetailAST detailAST)
+    {
+        if (detailAST.getType() == TokenTypes.METHOD_DEF)
+        {
+            methodDefs.pop();
+        }
+    }
+
     /**
      * <p>
      * Returns true, when method type is a collection or an array.
@@ -208,207 +230,791 @@ public class NoNullForCollectionReturnCheck extends Check
 
     /**
      * <p>
-     * Returns true, when variable in return may be null.
+     * Returns all children of that have the specified type.
      * </p>
-     * @param returnLit
-     *        - DetailAST contains LITERAL_RETURN
-     * @return true, when variable may be null.
+     * @param root
+     *        - root token of a block
+     * @param type
+     *        - type of children
+     * @return all children of that have the specified type.
      */
-    private static boolean isReturnedValueBeNull(DetailAST returnLit)
+    private static List<DetailAST> getChildren(DetailAST root, int type)
     {
-        boolean result = false;
-        DetailAST returnedExpression = returnLit.getFirstChild();
-        if (returnedExpression.getType() != TokenTypes.SEMI)
+        List<DetailAST> children = new LinkedList<DetailAST>();
+        DetailAST currentChild = root.findFirstToken(type);
+        if (currentChild != null)
+        {
+            children.add(currentChild);
+        }
+        while (children.size() < root.getChildCount(type))
+        {
+            currentChild = currentChild.getNextSibling();
+            if (currentChild.getType() == type)
+            {
+                children.add(currentChild);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * <p>
+     * One forward pass over the body of a method, which tracks local variables
+     * that may hold null and finds return statements that return such a
+     * variable. A variable may hold null after its definition without a value
+     * or with null value, and after an assignment of null, of a ternary
+     * operator with null alternative or of other variable that may hold null.
+     * States of both branches of conditions are joined, loops are passed until
+     * their states do not change, and comparisons of a variable with null in
+     * conditions are taken into account. Nested classes and lambdas are not
+     * passed, their methods are passed on their own.
+     * </p>
+     */
+    private static final class NullableReturnsPass
+    {
+        /**
+         * <p>
+         * Found return statements, which return a variable that may hold null.
+         * </p>
+         */
+        private final Set<DetailAST> nullableReturns;
+
+        /**
+         * <p>
+         * Enclosing statements which are targets of break and continue
+         * statements, the innermost first.
+         * </p>
+         */
+        private final Deque<JumpTarget> jumpTargets = new LinkedList<JumpTarget>();
+
+        /**
+         * <p>
+         * Creates the pass.
+         * </p>
+         * @param nullableReturns
+         *        - the set of found return statements.
+         */
+        NullableReturnsPass(Set<DetailAST> nullableReturns)
+        {
+            this.nullableReturns = nullableReturns;
+        }
+
+        /**
+         * <p>
+         * Passes the body of the method.
+         * </p>
+         * @param methodBody
+         *        - SLIST of the method.
+         */
+        void run(DetailAST methodBody)
+        {
+            passStatement(methodBody, new HashMap<String, Boolean>());
+        }
+
+        /**
+         * <p>
+         * Passes the statement.
+         * </p>
+         * @param statement
+         *        - the statement.
+         * @param state
+         *        - whether variables may hold null before the statement, or
+         *        null if the statement is not reachable.
+         * @return the state after the statement, or null if the next statement
+         *         is not reachable from it.
+         */
+        private Map<String, Boolean> passStatement(DetailAST statement,
+                Map<String, Boolean> state)
         {
-            DetailAST variable = returnedExpression.findFirstToken(TokenTypes.IDENT);
-            if (variable != null)
+            Map<String, Boolean> result = state;
+            if (state != null)
             {
-                String variableName = variable.getText();
-                DetailAST methodDef = getMethodDef(returnLit);
-                LinkedList<DetailAST> subblocks = getAllSubblocks(methodDef);
-                subblocks.addFirst(methodDef);
+                switch (statement.getType())
+                {
+                    case TokenTypes.SLIST:
+                        result = passBlock(statement.getFirstChild(), state);
+                        break;
+                    case TokenTypes.VARIABLE_DEF:
+                        passVariableDef(statement, state);
+                        break;
+                    case TokenTypes.LITERAL_RETURN:
+                        passReturn(statement, state);
+                        result = null;
+                        break;
+                    case TokenTypes.LITERAL_THROW:
+                        result = null;
+                        break;
+                    case TokenTypes.LITERAL_BREAK:
+                    case TokenTypes.LITERAL_CONTINUE:
+                        passJump(statement, state);
+                        result = null;
+                        break;
+                    case TokenTypes.LITERAL_IF:
+                        result = passIf(statement, state);
+                        break;
+                    case TokenTypes.LITERAL_WHILE:
+                    case TokenTypes.LITERAL_DO:
+                    case TokenTypes.LITERAL_FOR:
+                        result = passLoop(statement, state, null);
+                        break;
+                    case TokenTypes.LITERAL_SWITCH:
+                        result = passSwitch(statement, state);
+                        break;
+                    case TokenTypes.LITERAL_TRY:
+                        result = passTry(statement, state);
+                        break;
+                    case TokenTypes.LABELED_STAT:
+                        result = passLabeledStatement(statement, state);
+                        break;
+                    case TokenTypes.LITERAL_SYNCHRONIZED:
+                        applyAssignments(statement.findFirstToken(TokenTypes.EXPR), state);
+                        result = passStatement(statement.findFirstToken(TokenTypes.SLIST),
+                                state);
+                        break;
+                    case TokenTypes.CLASS_DEF:
+                        break;
+                    default:
+                        // expressions and other statements
+                        applyAssignments(statement, state);
+                        break;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * <p>
+         * Passes statements of the block, up to its closing brace. Variables
+         * defined in the block are forgotten at its end.
+         * </p>
+         * @param firstStatement
+         *        - the first statement of the block, or null.
+         * @param state
+         *        - the state before the block.
+         * @return the state after the block.
+         */
+        private Map<String, Boolean> passBlock(DetailAST firstStatement,
+                Map<String, Boolean> state)
+        {
+            Map<String, Boolean> result = state;
+            final List<String> definedVariables = new LinkedList<String>();
+            DetailAST statement = firstStatement;
+            while (statement != null && statement.getType() != TokenTypes.RCURLY)
+            {
+                if (statement.getType() == TokenTypes.VARIABLE_DEF)
+                {
+                    definedVariables.add(getName(statement));
+                }
+                result = passStatement(statement, result);
+                statement = statement.getNextSibling();
+            }
+            if (result != null)
+            {
+                for (String variable : definedVariables)
+                {
+                    result.remove(variable);
+                }
+            }
+            return result;
+        }
 
-                result = hasNullInDefinition(subblocks, variableName);
+        /**
+         * <p>
+         * Passes the definition of local variable.
+         * </p>
+         * @param variableDef
+         *        - VARIABLE_DEF node.
+         * @param state
+         *        - the state before the definition.
+         */
+        private void passVariableDef(DetailAST variableDef, Map<String, Boolean> state)
+        {
+            final DetailAST assign = variableDef.findFirstToken(TokenTypes.ASSIGN);
+            boolean nullable = true;
+            if (assign != null)
+            {
+                applyAssignments(assign.getFirstChild(), state);
+                nullable = mayBeNull(assign.getFirstChild(), state);
+            }
+            state.put(getName(variableDef), nullable);
+        }
+
+        /**
+         * <p>
+         * Passes the return statement and remembers it, if it returns a
+         * variable that may hold null.
+         * </p>
+         * @param returnLit
+         *        - LITERAL_RETURN node.
+         * @param state
+         *        - the state before the statement.
+         */
+        private void passReturn(DetailAST returnLit, Map<String, Boolean> state)
+        {
+            final DetailAST returnedExpression = returnLit.getFirstChild();
+            if (returnedExpression.getType() != TokenTypes.SEMI)
+            {
+                applyAssignments(returnedExpression, state);
+                final DetailAST variable =
+                        returnedExpression.findFirstToken(TokenTypes.IDENT);
+                if (variable != null
+                        && Boolean.TRUE.equals(state.get(variable.getText())))
+                {
+                    nullableReturns.add(returnLit);
+                }
+            }
+        }
 
-                //searching for not a null value into variable assignment
-                if (result)
+        /**
+         * <p>
+         * Passes the break or continue statement, its state goes to the end or
+         * to the next iteration of the target statement.
+         * </p>
+         * @param jump
+         *        - LITERAL_BREAK or LITERAL_CONTINUE node.
+         * @param state
+         *        - the state before the statement.
+         */
+        private void passJump(DetailAST jump, Map<String, Boolean> state)
+        {
+            final DetailAST label = jump.findFirstToken(TokenTypes.IDENT);
+            final boolean isBreak = jump.getType() == TokenTypes.LITERAL_BREAK;
+            JumpTarget loop = null;
+            for (JumpTarget target : jumpTargets)
+            {
+                if (label == null ? target.isLoop || isBreak && target.isSwitch
+                        : label.getText().equals(target.label))
                 {
-                    for (DetailAST subblock : subblocks)
+                    if (isBreak)
                     {
-                        List<DetailAST> expressions =
-                                getChildren(getBlockBody(subblock), TokenTypes.EXPR);
-                        for (DetailAST expression : expressions)
-                        {
-                            DetailAST assign = expression.findFirstToken(TokenTypes.ASSIGN);
-                            if (assign != null
-                                    && variableName.equals(assign.findFirstToken(TokenTypes.IDENT).getText()) 
-                                        && !assign.branchContains(TokenTypes.LITERAL_NULL))
-                            {
-                                result = false;
-                                break;
-                            }
-                        }
-                        if (!result)
+                        target.breakState = join(target.breakState, state);
+                    }
+                    else
+                    {
+                        // "continue label" goes to the loop after the label
+                        final JumpTarget continued = label == null ? target : loop;
+                        if (continued != null)
                         {
-                            break;
+                            continued.continueState =
+                                    join(continued.continueState, state);
                         }
                     }
+                    break;
                 }
+                loop = target;
             }
         }
-        return result;
-    }
 
-    /**
-     * <p>
-     * Return all the nested subblocks in block.
-     * </p>
-     * @param blockDef
-     *        - node of the block.
-     * @return all the nested subblocks in block.
-     */
-    private static LinkedList<DetailAST> getAllSubblocks(DetailAST blockDef)
-    {
-        DetailAST blockBody = getBlockBody(blockDef);
-        LinkedList<DetailAST> subblocks = new LinkedList<DetailAST>();
-        subblocks.addAll(getChildren(blockBody, TokenTypes.LITERAL_IF));
-        List<DetailAST> elseBlocks = new LinkedList<DetailAST>();
-        for (DetailAST currentIf : subblocks)
+        /**
+         * <p>
+         * Passes the if statement.
+         * </p>
+         * @param ifLit
+         *        - LITERAL_IF node.
+         * @param state
+         *        - the state before the statement.
+         * @return the state after the statement.
+         */
+        private Map<String, Boolean> passIf(DetailAST ifLit, Map<String, Boolean> state)
         {
-            if (currentIf.getChildCount(TokenTypes.LITERAL_ELSE) > 0)
+            final DetailAST condition = ifLit.findFirstToken(TokenTypes.EXPR);
+            applyAssignments(condition, state);
+            final Map<String, Boolean> thenState =
+                    passStatements(condition.getNextSibling(),
+                            refine(condition, copy(state), true));
+            final DetailAST elseLit = ifLit.findFirstToken(TokenTypes.LITERAL_ELSE);
+            Map<String, Boolean> elseState = refine(condition, copy(state), false);
+            if (elseLit != null)
+            {
+                elseState = passStatements(elseLit.getFirstChild(), elseState);
+            }
+            return join(thenState, elseState);
+        }
+
+        /**
+         * <p>
+         * Passes the while, do-while or for loop, until states of the loop do
+         * not change.
+         * </p>
+         * @param loopLit
+         *        - LITERAL_WHILE, LITERAL_DO or LITERAL_FOR node.
+         * @param state
+         *        - the state before the loop.
+         * @param label
+         *        - the label of the loop, or null.
+         * @return the state after the loop.
+         */
+        private Map<String, Boolean> passLoop(DetailAST loopLit,
+                Map<String, Boolean> state, String label)
+        {
+            final int type = loopLit.getType();
+            Map<String, Boolean> entryState = copy(state);
+            DetailAST condition = null;
+            DetailAST iterator = null;
+            DetailAST body = null;
+            final List<String> definedVariables = new LinkedList<String>();
+            if (type == TokenTypes.LITERAL_FOR)
+            {
+                final DetailAST eachClause =
+                        loopLit.findFirstToken(TokenTypes.FOR_EACH_CLAUSE);
+                if (eachClause == null)
+                {
+                    final DetailAST init = loopLit.findFirstToken(TokenTypes.FOR_INIT);
+                    for (DetailAST def : getChildren(init, TokenTypes.VARIABLE_DEF))
+                    {
+                        passVariableDef(def, entryState);
+                        definedVariables.add(getName(def));
+                    }
+                    applyAssignments(init.findFirstToken(TokenTypes.ELIST), entryState);
+                    condition = loopLit.findFirstToken(TokenTypes.FOR_CONDITION)
+                            .findFirstToken(TokenTypes.EXPR);
+                    iterator = loopLit.findFirstToken(TokenTypes.FOR_ITERATOR);
+                }
+                else
+                {
+                    final DetailAST element =
+                            eachClause.findFirstToken(TokenTypes.VARIABLE_DEF);
+                    // the iterated expression is the condition which does not
+                    // compare a variable with null, so the loop may end
+                    condition = eachClause.findFirstToken(TokenTypes.EXPR);
+                    entryState.put(getName(element), false);
+                    definedVariables.add(getName(element));
+                }
+                body = loopLit.findFirstToken(TokenTypes.RPAREN).getNextSibling();
+            }
+            else if (type == TokenTypes.LITERAL_WHILE)
+            {
+                condition = loopLit.findFirstToken(TokenTypes.EXPR);
+                body = loopLit.findFirstToken(TokenTypes.RPAREN).getNextSibling();
+            }
+            else
+            {
+                // the body of do-while loop may be an expression too
+                condition = loopLit.findFirstToken(TokenTypes.DO_WHILE)
+                        .getNextSibling().getNextSibling();
+                body = loopLit.getFirstChild();
+            }
+
+            Map<String, Boolean> exitState;
+            while (true)
+            {
+                final JumpTarget target = new JumpTarget(label, true, false);
+                jumpTargets.push(target);
+                Map<String, Boolean> nextState;
+                if (type == TokenTypes.LITERAL_DO)
+                {
+                    Map<String, Boolean> bodyState = passStatements(body,
+                            copy(entryState));
+                    bodyState = join(bodyState, target.continueState);
+                    applyAssignments(condition, bodyState);
+                    exitState = refine(condition, copy(bodyState), false);
+                    nextState = refine(condition, bodyState, true);
+                }
+                else
+                {
+                    final Map<String, Boolean> conditionState = copy(entryState);
+                    applyAssignments(condition, conditionState);
+                    exitState = refine(condition, copy(conditionState), false);
+                    final Map<String, Boolean> bodyState = join(
+                            passStatements(body,
+                                    refine(condition, conditionState, true)),
+                            target.continueState);
+                    applyAssignments(iterator, bodyState);
+                    nextState = bodyState;
+                }
+                jumpTargets.pop();
+                exitState = join(exitState, target.breakState);
+                nextState = join(copy(entryState), nextState);
+                if (nextState.equals(entryState))
+                {
+                    break;
+                }
+                entryState = nextState;
+            }
+            if (exitState != null)
             {
-                elseBlocks.add(currentIf.findFirstToken(TokenTypes.LITERAL_ELSE));
+                for (String variable : definedVariables)
+                {
+                    exitState.remove(variable);
+                }
             }
+            return exitState;
         }
-        if (!elseBlocks.isEmpty())
+
+        /**
+         * <p>
+         * Passes the switch statement, with fall through case groups.
+         * </p>
+         * @param switchLit
+         *        - LITERAL_SWITCH node.
+         * @param state
+         *        - the state before the statement.
+         * @return the state after the statement.
+         */
+        private Map<String, Boolean> passSwitch(DetailAST switchLit,
+                Map<String, Boolean> state)
         {
-            subblocks.addAll(elseBlocks);
+            applyAssignments(switchLit.findFirstToken(TokenTypes.EXPR), state);
+            final JumpTarget target = new JumpTarget(null, false, true);
+            jumpTargets.push(target);
+            Map<String, Boolean> result = null;
+            boolean hasDefault = false;
+            for (DetailAST caseGroup : getChildren(switchLit, TokenTypes.CASE_GROUP))
+            {
+                hasDefault |= caseGroup.branchContains(TokenTypes.LITERAL_DEFAULT);
+                result = passStatement(caseGroup.findFirstToken(TokenTypes.SLIST),
+                        join(copy(state), result));
+            }
+            jumpTargets.pop();
+            result = join(result, target.breakState);
+            if (!hasDefault)
+            {
+                result = join(result, state);
+            }
+            return result;
         }
-        subblocks.addAll(getChildren(blockBody, TokenTypes.LITERAL_WHILE));
-        subblocks.addAll(getChildren(blockBody, TokenTypes.LITERAL_DO));
-        subblocks.addAll(getChildren(blockBody, TokenTypes.LITERAL_FOR));
-        subblocks.addAll(getChildren(blockBody, TokenTypes.LITERAL_TRY));
-        List<DetailAST> nestedSubblocks = new LinkedList<DetailAST>();
-        for (DetailAST currentSubblock : subblocks)
+
+        /**
+         * <p>
+         * Passes the try statement. Catch blocks start from the join of the
+         * states before and after the try block, the finally block is passed
+         * after an exception and after the normal completion.
+         * </p>
+         * @param tryLit
+         *        - LITERAL_TRY node.
+         * @param state
+         *        - the state before the statement.
+         * @return the state after the statement.
+         */
+        private Map<String, Boolean> passTry(DetailAST tryLit, Map<String, Boolean> state)
         {
-            if (currentSubblock.branchContains(TokenTypes.SLIST))
+            applyAssignments(tryLit.findFirstToken(TokenTypes.RESOURCE_SPECIFICATION),
+                    state);
+            Map<String, Boolean> result = passStatement(
+                    tryLit.findFirstToken(TokenTypes.SLIST), copy(state));
+            final Map<String, Boolean> catchState = join(copy(state), result);
+            for (DetailAST catchLit : getChildren(tryLit, TokenTypes.LITERAL_CATCH))
             {
-                nestedSubblocks.addAll(getAllSubblocks(currentSubblock));
+                result = join(result, passStatement(
+                        catchLit.findFirstToken(TokenTypes.SLIST), copy(catchState)));
             }
+            final DetailAST finallyLit = tryLit.findFirstToken(TokenTypes.LITERAL_FINALLY);
+            if (finallyLit != null)
+            {
+                final DetailAST finallyBlock = finallyLit.findFirstToken(TokenTypes.SLIST);
+                // finally block after an exception, its returns are found here
+                passStatement(finallyBlock, join(copy(catchState), result));
+                result = passStatement(finallyBlock, result);
+            }
+            return result;
         }
-        subblocks.addAll(nestedSubblocks);
-        return subblocks;
-    }
 
-    /**
-     * <p>
-     * Return true when variable is null into the variable definition.
-     * </p>
-     * @param subBlocks
-     *        - list contains subblocks.
-     * @param variableName
-     *        - name of returned variable.
-     * @return true when variable is null into the variable definition.
-     */
-    private static boolean hasNullInDefinition(List<DetailAST> subBlocks, String variableName)
-    {
-        boolean result = false;
-        for (DetailAST subblock : subBlocks)
+        /**
+         * <p>
+         * Passes the labeled statement, "break label" goes to its end.
+         * </p>
+         * @param labeledStat
+         *        - LABELED_STAT node.
+         * @param state
+         *        - the state before the statement.
+         * @return the state after the statement.
+         */
+        private Map<String, Boolean> passLabeledStatement(DetailAST labeledStat,
+                Map<String, Boolean> state)
+        {
+            final String label = labeledStat.getFirstChild().getText();
+            final DetailAST statement = labeledStat.getFirstChild().getNextSibling();
+            final JumpTarget target = new JumpTarget(label, false, false);
+            jumpTargets.push(target);
+            final Map<String, Boolean> result = passStatement(statement, state);
+            jumpTargets.pop();
+            return join(result, target.breakState);
+        }
+
+        /**
+         * <p>
+         * Passes the statement which is not enclosed in braces and its
+         * semicolon, or the block in braces.
+         * </p>
+         * @param statement
+         *        - the first node of the statement.
+         * @param state
+         *        - the state before the statement.
+         * @return the state after the statement.
+         */
+        private Map<String, Boolean> passStatements(DetailAST statement,
+                Map<String, Boolean> state)
         {
-            List<DetailAST> variableDefs =
-                    getChildren(getBlockBody(subblock), TokenTypes.VARIABLE_DEF);
-            boolean isFinded = false;
-            for (DetailAST currentDef : variableDefs)
+            Map<String, Boolean> result = state;
+            DetailAST current = statement;
+            while (current != null && current.getType() != TokenTypes.LITERAL_ELSE
+                    && current.getType() != TokenTypes.DO_WHILE)
             {
-                DetailAST variable = currentDef.findFirstToken(TokenTypes.IDENT);
+                result = passStatement(current, result);
+                current = current.getNextSibling();
+            }
+            return result;
+        }
 
-                if (variableName.equals(variable.getText()))
+        /**
+         * <p>
+         * Applies assignments of local variables in the subtree, in the order
+         * of evaluation.
+         * </p>
+         * @param node
+         *        - the root of the subtree, or null.
+         * @param state
+         *        - the state which is changed, or null.
+         */
+        private static void applyAssignments(DetailAST node, Map<String, Boolean> state)
+        {
+            if (node != null && state != null
+                    && node.getType() != TokenTypes.OBJBLOCK
+                    && node.getType() != TokenTypes.LAMBDA)
+            {
+                for (DetailAST child = node.getFirstChild(); child != null;
+                        child = child.getNextSibling())
+                {
+                    applyAssignments(child, state);
+                }
+                if (node.getType() == TokenTypes.ASSIGN
+                        && node.getParent().getType() != TokenTypes.VARIABLE_DEF)
                 {
-                    DetailAST variableDef = currentDef;
-                    DetailAST variableValue = variableDef.findFirstToken(TokenTypes.ASSIGN);
-                    if (variableValue != null)
+                    final DetailAST variable = node.getFirstChild();
+                    if (variable.getType() == TokenTypes.IDENT
+                            && state.containsKey(variable.getText()))
                     {
-                        variableValue = variableValue.findFirstToken(TokenTypes.EXPR);
-                        result = variableValue.getFirstChild().getType() == TokenTypes.LITERAL_NULL;
+                        state.put(variable.getText(),
+                                mayBeNull(variable.getNextSibling(), state));
                     }
-                    else
+                }
+            }
+        }
+
+        /**
+         * <p>
+         * Returns true, when the value of the expression may be null.
+         * </p>
+         * @param expression
+         *        - the expression, EXPR node or its child.
+         * @param state
+         *        - the state of variables.
+         * @return true, when the value may be null.
+         */
+        private static boolean mayBeNull(DetailAST expression, Map<String, Boolean> state)
+        {
+            DetailAST value = expression;
+            if (value.getType() == TokenTypes.EXPR)
+            {
+                value = value.getFirstChild();
+            }
+            while (value.getType() == TokenTypes.LPAREN)
+            {
+                value = value.getNextSibling();
+            }
+            boolean result;
+            switch (value.getType())
+            {
+                case TokenTypes.LITERAL_NULL:
+                    result = true;
+                    break;
+                case TokenTypes.IDENT:
+                    result = Boolean.TRUE.equals(state.get(value.getText()));
+                    break;
+                case TokenTypes.QUESTION:
+                    final DetailAST colon = value.findFirstToken(TokenTypes.COLON);
+                    DetailAST alternative = colon.getPreviousSibling();
+                    while (alternative.getType() == TokenTypes.RPAREN)
                     {
-                        result = true;
+                        alternative = alternative.getPreviousSibling();
                     }
-                    isFinded = true;
+                    result = mayBeNull(alternative, state)
+                            || mayBeNull(colon.getNextSibling(), state);
+                    break;
+                case TokenTypes.TYPECAST:
+                    result = mayBeNull(value.getLastChild(), state);
                     break;
+                default:
+                    result = false;
+                    break;
+            }
+            return result;
+        }
+
+        /**
+         * <p>
+         * Refines the state by the condition, which compares a variable with
+         * null.
+         * </p>
+         * @param condition
+         *        - EXPR of the condition, or null if there is no condition.
+         * @param state
+         *        - the state which is changed, or null.
+         * @param conditionValue
+         *        - the value of the condition.
+         * @return the refined state, or null if the branch is not reachable.
+         */
+        private static Map<String, Boolean> refine(DetailAST condition,
+                Map<String, Boolean> state, boolean conditionValue)
+        {
+            Map<String, Boolean> result = state;
+            if (condition == null)
+            {
+                // the loop without condition is left by break statements only
+                if (!conditionValue)
+                {
+                    result = null;
                 }
             }
-            if (isFinded)
+            else if (state != null)
             {
-                break;
+                final DetailAST comparison = condition.getFirstChild();
+                final int type = comparison.getType();
+                if ((type == TokenTypes.EQUAL || type == TokenTypes.NOT_EQUAL)
+                        && comparison.getChildCount() == 2)
+                {
+                    DetailAST variable = comparison.getFirstChild();
+                    DetailAST other = variable.getNextSibling();
+                    if (variable.getType() == TokenTypes.LITERAL_NULL)
+                    {
+                        other = variable;
+                        variable = variable.getNextSibling();
+                    }
+                    if (variable.getType() == TokenTypes.IDENT
+                            && other.getType() == TokenTypes.LITERAL_NULL
+                            && state.containsKey(variable.getText()))
+                    {
+                        // the variable is null when "==" is true or "!=" is false
+                        state.put(variable.getText(),
+                                (type == TokenTypes.EQUAL) == conditionValue);
+                    }
+                }
             }
+            return result;
         }
-        return result;
-    }
 
-    /**
-     * <p>
-     * Returns all children of that have the specified type.
-     * </p>
-     * @param root
-     *        - root token of a block
-     * @param type
-     *        - type of children
-     * @return all children of that have the specified type.
-     */
-    private static List<DetailAST> getChildren(DetailAST root, int type)
-    {
-        List<DetailAST> children = new LinkedList<DetailAST>();
-        DetailAST currentChild = root.findFirstToken(type);
-        if (currentChild != null)
+        /**
+         * <p>
+         * Joins states of two paths: a variable may hold null, if it may hold
+         * null on any path.
+         * </p>
+         * @param state
+         *        - the state which is changed, or null.
+         * @param other
+         *        - the other state, or null.
+         * @return the joined state, or null if both paths are not reachable.
+         */
+        private static Map<String, Boolean> join(Map<String, Boolean> state,
+                Map<String, Boolean> other)
         {
-            children.add(currentChild);
+            Map<String, Boolean> result = state;
+            if (result == null)
+            {
+                result = copy(other);
+            }
+            else if (other != null)
+            {
+                for (Map.Entry<String, Boolean> entry : other.entrySet())
+                {
+                    if (entry.getValue() || !result.containsKey(entry.getKey()))
+                    {
+                        result.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            return result;
         }
-        while (children.size() < root.getChildCount(type))
+
+        /**
+         * <p>
+         * Copies the state.
+         * </p>
+         * @param state
+         *        - the state, or null.
+         * @return the copy of the state, or null.
+         */
+        private static Map<String, Boolean> copy(Map<String, Boolean> state)
         {
-            currentChild = currentChild.getNextSibling();
-            if (currentChild.getType() == type)
+            Map<String, Boolean> result = null;
+            if (state != null)
             {
-                children.add(currentChild);
+                result = new HashMap<String, Boolean>(state);
             }
+            return result;
         }
-        return children;
-    }
 
-    /**
-     * <p>
-     * Return DetailAST that contained method definition.
-     * </p>
-     * @param returnLit
-     *        - DetailAST contains LITERAL_RETURN.
-     * @return DetailAST contains METHOD_DEF
-     */
-    private static DetailAST getMethodDef(DetailAST returnLit)
-    {
-        DetailAST methodDef = returnLit;
-        while (methodDef.getType() != TokenTypes.METHOD_DEF)
+        /**
+         * <p>
+         * Returns the name of the variable.
+         * </p>
+         * @param variableDef
+         *        - VARIABLE_DEF node.
+         * @return the name of the variable.
+         */
+        private static String getName(DetailAST variableDef)
         {
-            methodDef = methodDef.getParent();
+            return variableDef.findFirstToken(TokenTypes.IDENT).getText();
         }
-        return methodDef;
     }
 
     /**
      * <p>
-     * Return body of the block.
+     * The statement which is the target of break and continue statements.
      * </p>
-     * @param blockDef
-     *        - block definition node
-     * @return body of the block.
      */
-    private static DetailAST getBlockBody(DetailAST blockDef)
+    private static final class JumpTarget
     {
-        DetailAST blockBody = blockDef.findFirstToken(TokenTypes.SLIST);
-        if (blockBody == null)
+        /**
+         * <p>
+         * The label of the statement, or null.
+         * </p>
+         */
+        private final String label;
+
+        /**
+         * <p>
+         * Whether the statement is a loop.
+         * </p>
+         */
+        private final boolean isLoop;
+
+        /**
+         * <p>
+         * Whether the statement is a switch.
+         * </p>
+         */
+        private final boolean isSwitch;
+
+        /**
+         * <p>
+         * Joined states of break statements, or null.
+         * </p>
+         */
+        private Map<String, Boolean> breakState;
+
+        /**
+         * <p>
+         * Joined states of continue statements, or null.
+         * </p>
+         */
+        private Map<String, Boolean> continueState;
+
+        /**
+         * <p>
+         * Creates the target.
+         * </p>
+         * @param label
+         *        - the label, or null.
+         * @param isLoop
+         *        - whether the statement is a loop.
+         * @param isSwitch
+         *        - whether the statement is a switch.
+         */
+        JumpTarget(String label, boolean isLoop, boolean isSwitch)
         {
-            blockBody = blockDef;
+            this.label = label;
+            this.isLoop = isLoop;
+            this.isSwitch = isSwitch;
         }
-        return blockBody;
     }
 }
@@ -0,0 +1,133 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2011  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+/**
+ * <p>
+ * Packed positions of occurrences of an item in files of an audit, like a
+ * string literal or imports of a dependency. A position is a triple of
+ * integers: id of the file, line and column; ids of files are kept by the
+ * owner of the occurrences.
+ * </p>
+ * <p>
+ * The count of kept positions may be limited, further occurrences are
+ * dropped. Occurrences may be added by several threads concurrently.
+ * </p>
+ */
+final class Occurrences
+{
+    /** Count of integers per occurrence. */
+    private static final int OCCURRENCE_SIZE = 3;
+
+    /** Maximum count of kept occurrences. */
+    private final int maxSize;
+
+    /** Triples of file id, line and column. */
+    private int[] data = new int[OCCURRENCE_SIZE];
+
+    /** Count of kept occurrences. */
+    private int size;
+
+    /**
+     * Creates occurrences without a limit.
+     */
+    Occurrences()
+    {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates occurrences.
+     * @param maxSize
+     *        maximum count of kept occurrences, further ones are
+     *        dropped.
+     */
+    Occurrences(int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Adds an occurrence.
+     * @param fileId
+     *        id of the file.
+     * @param line
+     *        line of the occurrence.
+     * @param column
+     *        column of the occurrence.
+     */
+    synchronized void add(int fileId, int line, int column)
+    {
+        if (size == maxSize) {
+            return;
+        }
+        final int offset = size * OCCURRENCE_SIZE;
+        if (offset == data.length) {
+            final int[] newData = new int[data.length * 2];
+            System.arraycopy(data, 0, newData, 0, data.length);
+            data = newData;
+        }
+        data[offset] = fileId;
+        data[offset + 1] = line;
+        data[offset + 2] = column;
+        size++;
+    }
+
+    /**
+     * Gets count of kept occurrences.
+     * @return count of occurrences.
+     */
+    synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets id of the file of the occurrence.
+     * @param index
+     *        index of the occurrence.
+     * @return id of the file.
+     */
+    synchronized int getFileId(int index)
+    {
+        return data[index * OCCURRENCE_SIZE];
+    }
+
+    /**
+     * Gets line of the occurrence.
+     * @param index
+     *        index of the occurrence.
+     * @return line of the occurrence.
+     */
+    synchronized int getLine(int index)
+    {
+        return data[index * OCCURRENCE_SIZE + 1];
+    }
+
+    /**
+     * Gets column of the occurrence.
+     * @param index
+     *        index of the occurrence.
+     * @return column of the occurrence.
+     */
+    synchronized int getColumn(int index)
+    {
+        return data[index * OCCURRENCE_SIZE + 2];
+    }
+}
@@ -19,10 +19,16 @@
 
 package com.github.sevntu.checkstyle.checks.coding;
 
+import java.io.File;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
+import com.github.sevntu.checkstyle.FlatAst;
+import com.github.sevntu.checkstyle.FileDependencies;
+import com.github.sevntu.checkstyle.TypeHierarchyIndex;
 import com.github.sevntu.checkstyle.Utils;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
@@ -120,12 +126,22 @@ import com.puppycrawl.tools.checkstyle.api.TokenTypes;
  * <li>and so on, using a similar hierarchy</li>
  * </p>
  *<br>
+ * <p>
+ * By default only the base classes which are declared in the same file are
+ * checked for Cloneable and Serializable interfaces. With
+ * useProjectTypeHierarchy option the check looks for the interfaces in the
+ * base classes of all files of the source directory, see
+ * {@link TypeHierarchyIndex}. The source directory is derived from the
+ * package of the checked file, unless source directories of the project are
+ * set by sourceDirectories option.
+ * </p>
  *
  * @author <a href="mailto:Daniil.Yaroslavtsev@gmail.com"> Daniil
  *         Yaroslavtsev</a>
  * @author <a href="mailto:IliaDubinin91@gmail.com">Ilja Dubinin</a>
  */
 public class OverridableMethodInConstructorCheck extends Check
+    implements FileDependencies
 {
 
     /**
@@ -160,20 +176,66 @@ public class OverridableMethodInConstructorCheck extends Check
     private static final String KEY_READ_OBJECT = "'readObject()' method";
 
     /**
-     * A list contains all METHOD_CALL DetailAST nodes that have been already
-     * visited by check.
+     * The state of the analysis of a private or final method which is not
+     * analyzed yet.
+     */
+    private static final int NOT_ANALYZED = 0;
+
+    /**
+     * The state of the analysis of a private or final method whose result is
+     * memoized.
+     */
+    private static final int ANALYZED = -1;
+
+    /** Initial capacity of arrays of positions. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * States of the analysis of private and final methods by positions of
+     * their METHOD_DEF nodes: NOT_ANALYZED, ANALYZED, or the depth in the
+     * chain of calls plus one for methods are currently being analyzed, which
+     * is used to detect cycles in calls. Null until such a method is analyzed
+     * in the file.
+     * */
+    private int[] methodStates;
+
+    /**
+     * Memoized results of the analysis of private and final methods by
+     * positions of their METHOD_DEF nodes: the name of the overridable method
+     * which is called from the method directly or indirectly, or null if there
+     * is no such method.
+     * */
+    private String[] reachedOverridables;
+
+    /**
+     * The count of methods are currently being analyzed, which is the depth
+     * of the next method in the chain of calls.
+     * */
+    private int methodsInProgressCount;
+
+    /**
+     * Positions of METHOD_DEF nodes which don't lead to calls of overridable
+     * methods, but this result can't be memoized until the analysis of the
+     * cycle in calls they participate in is finished.
      * */
-    private final List<DetailAST> visitedMethodCalls = new LinkedList<DetailAST>();
+    private int[] pendingMethods = new int[INITIAL_CAPACITY];
 
     /**
-     * A current MethodDef AST is being processed by check.
+     * The count of pending methods.
      * */
-    private DetailAST curMethodDef;
+    private int pendingMethodsCount;
 
     /**
-     * A current root of the synthax tree is being processed.
+     * The lowest depth of the method in progress which was reached by the
+     * analysis of the current method.
      * */
-    private DetailAST treeRootAST;
+    private int lowestReachedDepth;
+
+    /**
+     * An index of class and method definitions of the file is currently being
+     * processed.
+     * */
+    private SymbolIndex symbolIndex;
 
     /**
      * A boolean check box that enables the searching of calls to overridable
@@ -196,14 +258,38 @@ public class OverridableMethodInConstructorCheck extends Check
     private boolean matchMethodsByArgCount;
 
     /**
-     * The name of current overridable method is being processed.
+     * A boolean check box that enables the searching of Cloneable and
+     * Serializable interfaces in the base classes of other files.
+     */
+    private boolean useProjectTypeHierarchy;
+
+    /**
+     * Source directories of the project, or empty array to derive the source
+     * directory from the package of the file.
+     */
+    private String[] sourceDirectories = new String[0];
+
+    /**
+     * Whether the check is registered as a user of type hierarchy indexes.
      */
-    private String curOverridableMetName;
+    private boolean typeHierarchyAcquired;
 
     /**
-     * Method definitions counter for class is currently being processed.
+     * The root of the syntax tree of the file is currently being processed.
      */
-    private int curMethodDefCount;
+    private DetailAST rootAST;
+
+    /**
+     * The flat view of the syntax tree of the file is currently being
+     * processed. Nodes are kept by their positions in this view.
+     */
+    private FlatAst flatAst;
+
+    /**
+     * An index of the type hierarchy of the project of the file is currently
+     * being processed, or null if it is not requested yet.
+     */
+    private TypeHierarchyIndex typeHierarchyIndex;
 
     /**
      * Enable|Disable searching of calls to overridable methods from body of any
@@ -245,6 +331,44 @@ public class OverridableMethodInConstructorCheck extends Check
         checkReadObjectMethod = value;
     }
 
+    /**
+     * Enable|Disable searching of Cloneable and Serializable interfaces in
+     * the base classes of other files of the project.
+     *
+     * @param value
+     *            The state of a boolean check box that enables the searching
+     *            of interfaces in the base classes of other files.
+     */
+    public void setUseProjectTypeHierarchy(final boolean value)
+    {
+        useProjectTypeHierarchy = value;
+    }
+
+    /**
+     * Sets source directories of the project, whose files are searched for
+     * Cloneable and Serializable interfaces if useProjectTypeHierarchy is
+     * set.
+     *
+     * @param value
+     *            The list of directories separated by a comma.
+     */
+    public void setSourceDirectories(final String[] value)
+    {
+        sourceDirectories = value.clone();
+    }
+
+    @Override
+    public boolean dependsOnSourceFiles()
+    {
+        return useProjectTypeHierarchy;
+    }
+
+    @Override
+    public List<File> getDependencyFiles()
+    {
+        return Collections.emptyList();
+    }
+
     @Override
     public int[] getDefaultTokens()
     {
@@ -254,38 +378,67 @@ public class OverridableMethodInConstructorCheck extends Check
     @Override
     public void beginTree(DetailAST rootAST)
     {
-        treeRootAST = rootAST;
+        flatAst = FlatAst.getInstance(rootAST);
+        symbolIndex = new SymbolIndex(flatAst);
+        this.rootAST = rootAST;
+        if (useProjectTypeHierarchy && !typeHierarchyAcquired) {
+            TypeHierarchyIndex.acquire();
+            typeHierarchyAcquired = true;
+        }
+    }
+
+    @Override
+    public void finishTree(DetailAST rootAST)
+    {
+        FlatAst.release(rootAST);
+        flatAst = null;
+        symbolIndex = null;
+        methodStates = null;
+        reachedOverridables = null;
+        this.rootAST = null;
+        typeHierarchyIndex = null;
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (typeHierarchyAcquired) {
+            TypeHierarchyIndex.release();
+            typeHierarchyAcquired = false;
+        }
+        super.destroy();
     }
 
     @Override
     public void visitToken(final DetailAST detailAST)
     {
 
-        final DetailAST classDef = getClassDef(detailAST);
+        final int node = flatAst.getNode(detailAST);
+        final int classDef = getClassDef(node);
 
-        if (classDef != null && !hasModifier(classDef, TokenTypes.FINAL)) {
+        if (classDef != FlatAst.NONE && !hasModifier(classDef, TokenTypes.FINAL)) {
 
             switch (detailAST.getType()) {
 
                 case TokenTypes.CTOR_DEF:
-                logWarnings(detailAST, KEY_CTOR);
+                logWarnings(node, KEY_CTOR);
                     break;
 
                 case TokenTypes.METHOD_DEF:
 
-                    final String methodName = detailAST.findFirstToken(
-                        TokenTypes.IDENT).getText();
+                    final String methodName = flatAst.getText(
+                        flatAst.findFirstChild(node, TokenTypes.IDENT));
 
                     if (checkCloneMethod && "clone".equals(methodName)
                         && realizesAnInterface(classDef, Cloneable.class.getSimpleName()))
                     {
-                    logWarnings(detailAST, KEY_CLONE);
+                    logWarnings(node, KEY_CLONE);
                     }
                     else if (checkReadObjectMethod
                         && "readObject".equals(methodName)
                         && realizesAnInterface(classDef, Serializable.class.getSimpleName()))
                     {
-                    logWarnings(detailAST, KEY_READ_OBJECT);
+                    logWarnings(node, KEY_READ_OBJECT);
                     }
                     break;
 
@@ -297,191 +450,288 @@ public class OverridableMethodInConstructorCheck extends Check
     }
 
     /**
-     * Gets all METHOD_CALL DetailASTs that are pointing to overridable methods
+     * Gets all METHOD_CALL nodes that are pointing to overridable methods
      * calls from current method or c-tor body and logs them.
      *
-     * @param detailAST
-     *            A DetailAST node which is pointing to current method or c-tor
-     *            body is being processed to retrieve overridable method calls
-     *            list.
+     * @param methodOrCtorDef
+     *            The position of a node which is pointing to current method
+     *            or c-tor body is being processed to retrieve overridable
+     *            method calls list.
      * @param key
      *            A string is using to retrieve the warning message text from
      *            "messages.properties" file.
      */
-    private void logWarnings(final DetailAST detailAST, final String key)
+    private void logWarnings(final int methodOrCtorDef, final String key)
     {
 
         final List<OverridableMetCall> methodCallsToWarnList =
-            getOverridables(detailAST);
+            getOverridables(methodOrCtorDef);
 
         for (OverridableMetCall om : methodCallsToWarnList) {
-            final DetailAST methodDef = getMethodDef(om.metCallAST);
+            final int methodDef = getMethodDef(om.metCall);
+            final DetailAST metCallAST = flatAst.getAST(om.metCall);
             if (hasModifier(methodDef, TokenTypes.LITERAL_PRIVATE)
                     || hasModifier(methodDef, TokenTypes.FINAL))
             {
-                log(om.metCallAST, MSG_KEY_LEADS, getMethodName(om.metCallAST),
+                log(metCallAST, MSG_KEY_LEADS, getMethodName(om.metCall),
                         key, om.overridableMetName);
             } else {
-                log(om.metCallAST, MSG_KEY, getMethodName(om.metCallAST),
+                log(metCallAST, MSG_KEY, getMethodName(om.metCall),
                     key, om.overridableMetName);
                }
         }
     }
 
     /**
-     * Searches for all METHOD_CALL DetailASTs that are pointing to overridable
+     * Searches for all METHOD_CALL nodes that are pointing to overridable
      * methods calls in current method or c-tor body and generates a list of
      * them.
      *
-     * @param parentAST
-     *            A DetailAST METHOD_DEF of CTOR_DEF node which is pointing to
-     *            the current method or c-tor body is being processed to
+     * @param parent
+     *            The position of METHOD_DEF of CTOR_DEF node which is pointing
+     *            to the current method or c-tor body is being processed to
      *            retrieve overridable method calls.
      * @return A list of overridable methods calls for current method or
      *         constructor body.
      */
-    private List<OverridableMetCall> getOverridables(final DetailAST parentAST)
+    private List<OverridableMetCall> getOverridables(final int parent)
     {
 
         final List<OverridableMetCall> result =
             new LinkedList<OverridableMetCall>();
-        final List<DetailAST> methodCallsList = getMethodCallsList(parentAST);
-
-        for (DetailAST curNode : methodCallsList) {
-            visitedMethodCalls.clear();
-            final DetailAST methodDef = getMethodDef(curNode);
-            if (methodDef != null
-                    && getMethodParamsCount(curNode)
-                        == getMethodParamsCount(methodDef)
-                    && isOverridableMethodCall(curNode))
+
+        for (int curNode : getMethodCallsList(parent)) {
+            final int methodDef = getMethodDef(curNode);
+            if (methodDef != FlatAst.NONE
+                    && getMethodParamsCount(flatAst, curNode)
+                        == getMethodParamsCount(flatAst, methodDef))
             {
-                result.add(new OverridableMetCall(curNode,
-                        curOverridableMetName));
+                final String overridableMetName =
+                        getCalledOverridableName(curNode, methodDef);
+                if (overridableMetName != null) {
+                    result.add(new OverridableMetCall(curNode,
+                            overridableMetName));
+                }
             }
         }
         return result;
     }
 
     /**
-     * Checks that current processed METHOD_CALL DetailAST is pointing to
-     * overridable method call.
+     * Gets the name of the overridable method which is called by the current
+     * METHOD_CALL node directly or through the chain of private and final
+     * methods.
      *
-     * @param methodCallAST
-     *            A METHOD_CALL DetailAST is currently being processed.
-     * @return true if current processed METHOD_CALL node is pointing to the
-     *         overridable method call and false otherwise.
+     * @param methodCall
+     *            The position of METHOD_CALL node is currently being
+     *            processed.
+     * @param methodDef
+     *            The position of METHOD_DEF node of the called method.
+     * @return the name of the overridable method or null if current processed
+     *         METHOD_CALL node doesn't lead to the overridable method call.
      */
-    private boolean isOverridableMethodCall(final DetailAST methodCallAST)
+    private String getCalledOverridableName(final int methodCall,
+            final int methodDef)
     {
 
-        boolean result = false;
-        visitedMethodCalls.add(methodCallAST);
+        String result = null;
+
+        if (hasModifier(methodDef, TokenTypes.LITERAL_STATIC)) {
+            // do nothing
+        }
+        else if (hasModifier(methodDef, TokenTypes.LITERAL_PRIVATE)
+                || hasModifier(methodDef, TokenTypes.FINAL))
+        {
+            result = getReachedOverridableName(methodDef);
+        }
+        else {
+            result = getMethodName(methodCall);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the name of the first overridable method which is called from the
+     * body of the private or final method directly or indirectly. Each method
+     * is analyzed only once per file, cycles in calls are cut off.
+     * <p>
+     * A call leads to an overridable method in the same cases as when every
+     * call chain is walked anew, but the name of the overridable method is
+     * the one found when the method was analyzed first. In recursive chains
+     * a walk which stops at the first call it has already visited may name
+     * another overridable method of the same cycle.
+     * </p>
+     *
+     * @param methodDef
+     *            The position of METHOD_DEF node of the private or final
+     *            method.
+     * @return the name of the overridable method or null if there is no
+     *         overridable method calls from this method.
+     */
+    private String getReachedOverridableName(final int methodDef)
+    {
 
-        final String methodName = getMethodName(methodCallAST);
+        String result = null;
 
-        if (methodName != null) {
-            final DetailAST methodDef = getMethodDef(methodCallAST);
-            if (methodDef != null) {
+        if (methodStates == null) {
+            methodStates = new int[flatAst.size()];
+            reachedOverridables = new String[flatAst.size()];
+        }
+        final int state = methodStates[methodDef];
 
-                if (hasModifier(methodDef, TokenTypes.LITERAL_STATIC)) {
-                    // do nothing
-                }
-                else if (hasModifier(methodDef, TokenTypes.LITERAL_PRIVATE)
-                        || hasModifier(methodDef, TokenTypes.FINAL))
-                {
-                    final List<DetailAST> methodCallsList = getMethodCallsList(
-                            methodDef);
-                    for (DetailAST curNode : methodCallsList) {
-                        if (visitedMethodCalls.contains(curNode)) {
-                            result = false;
-                            break;
-                        }
-                        else if (isOverridableMethodCall(curNode)) {
-                            result = true;
-                            break;
-                        }
+        if (state == ANALYZED) {
+            result = reachedOverridables[methodDef];
+        }
+        else if (state != NOT_ANALYZED) {
+            lowestReachedDepth = Math.min(lowestReachedDepth, state - 1);
+        }
+        else {
+            final int depth = methodsInProgressCount;
+            final int outerLowestReachedDepth = lowestReachedDepth;
+            final int firstPendingIndex = pendingMethodsCount;
+
+            methodStates[methodDef] = depth + 1;
+            methodsInProgressCount++;
+            lowestReachedDepth = depth;
+
+            for (int curNode : getMethodCallsList(methodDef)) {
+                final int calledMethodDef = getMethodDef(curNode);
+                if (calledMethodDef != FlatAst.NONE) {
+                    result = getCalledOverridableName(curNode,
+                            calledMethodDef);
+                    if (result != null) {
+                        break;
                     }
                 }
-                else {
-                    curOverridableMetName = methodName;
-                    result = true;
+            }
+
+            methodsInProgressCount--;
+            methodStates[methodDef] = NOT_ANALYZED;
+
+            if (result != null) {
+                memoize(methodDef, result);
+            }
+            else if (lowestReachedDepth < depth) {
+                // the method is a part of the cycle which is not analyzed yet
+                if (pendingMethodsCount == pendingMethods.length) {
+                    pendingMethods = Arrays.copyOf(pendingMethods,
+                            pendingMethodsCount * 2);
                 }
+                pendingMethods[pendingMethodsCount++] = methodDef;
             }
-        }
-        else
-        {
-            result = false;
+            else {
+                // the whole cycle is analyzed, no method in it leads to
+                // overridable method calls
+                memoize(methodDef, null);
+                for (int i = firstPendingIndex; i < pendingMethodsCount; i++) {
+                    memoize(pendingMethods[i], null);
+                }
+            }
+
+            if (lowestReachedDepth >= depth) {
+                pendingMethodsCount = firstPendingIndex;
+            }
+            lowestReachedDepth = Math.min(outerLowestReachedDepth,
+                    lowestReachedDepth);
         }
         return result;
     }
 
+    /**
+     * Memoizes the result of the analysis of the private or final method.
+     *
+     * @param methodDef
+     *            The position of METHOD_DEF node of the method.
+     * @param overridableName
+     *            The name of the overridable method which is called from the
+     *            method directly or indirectly, or null.
+     */
+    private void memoize(final int methodDef, final String overridableName)
+    {
+        methodStates[methodDef] = ANALYZED;
+        reachedOverridables[methodDef] = overridableName;
+    }
+
    /**
      * Gets all METHOD_CALL nodes which are below on the current parent
-     * METHOD_DEF or CTOR_DEF node.
+     * METHOD_DEF or CTOR_DEF node. Calls in arguments of the found calls are
+     * not included.
      *
-     * @param parentAST
-     *            The current parent METHOD_DEF or CTOR_DEF node.
-     * @return List contains all METHOD_CALL nodes which are below on the
-     *         current parent node.
+     * @param parent
+     *            The position of the current parent METHOD_DEF or CTOR_DEF
+     *            node.
+     * @return positions of all METHOD_CALL nodes which are below on the
+     *         current parent node, in document order.
      */
-    private List<DetailAST> getMethodCallsList(final DetailAST parentAST)
+    private int[] getMethodCallsList(final int parent)
     {
 
-        final List<DetailAST> result = new LinkedList<DetailAST>();
+        int[] result = new int[4];
+        int count = 0;
+        final int end = flatAst.getSubtreeEnd(parent);
 
-        for (DetailAST curNode : getChildren(parentAST)) {
-            if (curNode.getNumberOfChildren() > 0) {
-                if (curNode.getType() == TokenTypes.METHOD_CALL) {
-                    result.add(curNode);
-                }
-                else {
-                    result.addAll(getMethodCallsList(curNode));
+        int curNode = parent + 1;
+        while (curNode < end) {
+            if (flatAst.getType(curNode) == TokenTypes.METHOD_CALL
+                    && flatAst.getFirstChild(curNode) != FlatAst.NONE)
+            {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
                 }
+                result[count++] = curNode;
+                curNode = flatAst.getSubtreeEnd(curNode);
+            }
+            else {
+                curNode++;
             }
         }
-        return result;
+        return Arrays.copyOf(result, count);
     }
 
     /**
-     * Gets the method name is related to the current METHOD_CALL DetailAST.
+     * Gets the method name is related to the current METHOD_CALL node.
      *
-     * @param methodCallAST
-     *            A METHOD_CALL DetailAST node is currently being processed.
-     * @return The method name is related to the current METHOD_CALL DetailAST.
+     * @param methodCall
+     *            The position of METHOD_CALL node is currently being
+     *            processed.
+     * @return The method name is related to the current METHOD_CALL node.
      */
-    private String getMethodName(final DetailAST methodCallAST)
+    private String getMethodName(final int methodCall)
     {
 
         String result = null;
 
-        final DetailAST ident = methodCallAST.findFirstToken(TokenTypes.IDENT);
+        final int ident = flatAst.findFirstChild(methodCall, TokenTypes.IDENT);
 
-        if (ident != null) {
-            result = ident.getText();
+        if (ident != FlatAst.NONE) {
+            result = flatAst.getText(ident);
         }
         else {
-            final DetailAST childAST = methodCallAST.getFirstChild();
+            final int child = flatAst.getFirstChild(methodCall);
 
-            if (childAST != null && childAST.getType() == TokenTypes.DOT) {
+            if (child != FlatAst.NONE
+                    && flatAst.getType(child) == TokenTypes.DOT)
+            {
 
-                final DetailAST firstChild = childAST.getFirstChild();
-                final DetailAST lastChild = childAST.getLastChild();
+                final int firstChild = flatAst.getFirstChild(child);
+                final int lastChild = flatAst.getLastChild(child);
 
-                if (firstChild.getType() == TokenTypes.LITERAL_THIS
-                        || firstChild.getType() == TokenTypes.LPAREN)
+                if (flatAst.getType(firstChild) == TokenTypes.LITERAL_THIS
+                        || flatAst.getType(firstChild) == TokenTypes.LPAREN)
                 {
-                    result = lastChild.getText();
+                    result = flatAst.getText(lastChild);
                 }
-                else if (firstChild.getType() == TokenTypes.IDENT
-                        && lastChild.getType() == TokenTypes.IDENT)
+                else if (flatAst.getType(firstChild) == TokenTypes.IDENT
+                        && flatAst.getType(lastChild) == TokenTypes.IDENT)
                 {
-                    final String curClassName = getClassDef(methodCallAST)
-                            .findFirstToken(TokenTypes.IDENT).getText();
-                    if (firstChild.getText().equals(curClassName)
-                            || getClassDef(treeRootAST,
-                                    firstChild.getText()) != null)
+                    final String curClassName = flatAst.getText(
+                            flatAst.findFirstChild(getClassDef(methodCall),
+                                    TokenTypes.IDENT));
+                    if (flatAst.getText(firstChild).equals(curClassName)
+                            || symbolIndex.getClassDef(
+                                    flatAst.getText(firstChild)) != FlatAst.NONE)
                     {
-                        result = lastChild.getText();
+                        result = flatAst.getText(lastChild);
                     }
                 }
             }
@@ -491,76 +741,62 @@ public class OverridableMethodInConstructorCheck extends Check
 
     /**
      * Gets the method definition is related to the current METHOD_CALL
-     * DetailAST node. If method definition doesn't find, will returned null.
-     * @param methodCallAST
-     *            A METHOD_CALL DetailAST node is currently being processed.
-     * @return the METHOD_DEF DetailAST node is pointing to the method
-     *         definition which is related to the current METHOD_CALL DetailAST
-     *         node.
+     * node. If method definition doesn't find, will returned NONE.
+     * @param methodCall
+     *            The position of METHOD_CALL node is currently being
+     *            processed.
+     * @return the position of METHOD_DEF node is pointing to the method
+     *         definition which is related to the current METHOD_CALL node.
      */
-    private DetailAST getMethodDef(final DetailAST methodCallAST)
+    private int getMethodDef(final int methodCall)
     {
 
-        DetailAST result = null;
+        int result = FlatAst.NONE;
 
-        curMethodDef = null;
-        curMethodDefCount = 0;
-
-        final String methodName = getMethodName(methodCallAST);
+        final String methodName = getMethodName(methodCall);
         if (methodName != null) {
 
-            final DetailAST curClassAST = getClassDef(methodCallAST);
-            final DetailAST callsChild = methodCallAST.getFirstChild();
+            final int curClass = getClassDef(methodCall);
+            final int callsChild = flatAst.getFirstChild(methodCall);
             String variableTypeName;
+            int definition = FlatAst.NONE;
 
-            if (callsChild.getType() != TokenTypes.DOT ||
-                    (variableTypeName = getVariableType(methodCallAST)) == null
-                    || (isItTypeOfCurrentClass(variableTypeName, curClassAST) ||
+            if (flatAst.getType(callsChild) != TokenTypes.DOT ||
+                    (variableTypeName = getVariableType(methodCall)) == null
+                    || (isItTypeOfCurrentClass(variableTypeName, curClass) ||
                     "this".equals(variableTypeName)))
             {
-                getMethodDef(curClassAST, methodName);
+                definition = symbolIndex.getMethodDef(curClass, methodName,
+                        SymbolIndex.ANY_PARAMS_COUNT);
             }
 
-            if (curMethodDefCount == 0) {
+            if (definition == FlatAst.NONE) {
 
-                final List<DetailAST> baseClasses = getBaseClasses(curClassAST);
+                final int[] baseClasses = getBaseClasses(curClass);
 
-                for (DetailAST curBaseClass : baseClasses) {
-                    curMethodDef = null;
-                    curMethodDefCount = 0;
-                    getMethodDef(curBaseClass, methodName);
-                    if (curMethodDefCount == 1) {
-                        result = curMethodDef;
+                for (int curBaseClass : baseClasses) {
+                    final int baseDefinition = symbolIndex.getMethodDef(
+                            curBaseClass, methodName,
+                            SymbolIndex.ANY_PARAMS_COUNT);
+                    if (baseDefinition != FlatAst.NONE
+                            && baseDefinition != SymbolIndex.AMBIGUOUS)
+                    {
+                        result = baseDefinition;
                         break;
                     }
                 }
             }
-            else if (curMethodDefCount == 1) {
-                result = curMethodDef;
+            else if (definition != SymbolIndex.AMBIGUOUS) {
+                result = definition;
             }
-            else
-            {
-                if(matchMethodsByArgCount)
-                {
-                    int sameDefinitionCounter = 0;
-                    int curMethodParamCount = 
-                            getMethodParamsCount(methodCallAST);
-                    for(DetailAST currentDefinition :
-                        getMethodDef(curClassAST, methodName))
-                    {
-                        if(getMethodParamsCount(currentDefinition) ==
-                                curMethodParamCount )
-                        {
-                            result = currentDefinition;
-                            sameDefinitionCounter++;
-                        }
-                    }
-                    //you have a lot same method definitions and you can't 
-                    //select one of them and be sure that you are right
-                    if(sameDefinitionCounter > 1)
-                    {
-                        result = null;
-                    }
+            else if (matchMethodsByArgCount) {
+                final int sameArityDefinition =
+                        symbolIndex.getMethodDef(curClass, methodName,
+                                getMethodParamsCount(flatAst, methodCall));
+                //you have a lot same method definitions and you can't
+                //select one of them and be sure that you are right
+                if (sameArityDefinition != SymbolIndex.AMBIGUOUS) {
+                    result = sameArityDefinition;
                 }
             }
         }
@@ -572,23 +808,24 @@ public class OverridableMethodInConstructorCheck extends Check
      * @param methodCall
      * @return variables type name
      */
-    private static String getVariableType(DetailAST methodCall)
+    private String getVariableType(int methodCall)
     {
-        DetailAST callsChild = methodCall.getFirstChild();
+        final int callsChild = flatAst.getFirstChild(methodCall);
         String typeName = new String();
-        if (callsChild.getType() == TokenTypes.DOT)
+        if (flatAst.getType(callsChild) == TokenTypes.DOT)
         {
-            DetailAST dotChild = callsChild.getFirstChild();
-            if (dotChild.getType() == TokenTypes.LITERAL_THIS)
+            final int dotChild = flatAst.getFirstChild(callsChild);
+            final int typeCast =
+                    flatAst.findFirstChild(callsChild, TokenTypes.TYPECAST);
+            if (flatAst.getType(dotChild) == TokenTypes.LITERAL_THIS)
             {
                 typeName = "this";
             }
-            else if (callsChild.getChildCount(TokenTypes.TYPECAST) > 0)
+            else if (typeCast != FlatAst.NONE)
             {
-                DetailAST typeCast = callsChild
-                        .findFirstToken(TokenTypes.TYPECAST);
-                DetailAST type = typeCast.getFirstChild().getFirstChild();
-                typeName = type.getText();
+                final int type = flatAst.getFirstChild(
+                        flatAst.getFirstChild(typeCast));
+                typeName = flatAst.getText(type);
             }
 
         }
@@ -599,27 +836,27 @@ public class OverridableMethodInConstructorCheck extends Check
      * Return true when usedIbjectName contains current class name or base class
      * name.
      * @param usedObjectName
-     * @param classDefNode
+     * @param classDef
      * @return
      */
-    private static boolean
-            isItTypeOfCurrentClass(String objectTypeName, DetailAST classDefNode)
+    private boolean
+            isItTypeOfCurrentClass(String objectTypeName, int classDef)
     {
-        DetailAST className = classDefNode.findFirstToken(TokenTypes.IDENT);
+        final int className = flatAst.findFirstChild(classDef, TokenTypes.IDENT);
         boolean result = false;
-        if (objectTypeName.equals(className.getText()))
+        if (objectTypeName.equals(flatAst.getText(className)))
         {
             result = true;
         }
         else
         {
-            DetailAST baseClass = classDefNode.findFirstToken(
+            int baseClass = flatAst.findFirstChild(classDef,
                     TokenTypes.EXTENDS_CLAUSE);
-            if (baseClass != null)
+            if (baseClass != FlatAst.NONE)
             {
-                baseClass = baseClass.getFirstChild();
+                baseClass = flatAst.getFirstChild(baseClass);
 
-                if (objectTypeName.equals(baseClass.getText()))
+                if (objectTypeName.equals(flatAst.getText(baseClass)))
                 {
                     result = true;
                 }
@@ -628,76 +865,39 @@ public class OverridableMethodInConstructorCheck extends Check
         return result;
     }
 
-    /**
-     * Gets the method definition is related to the current METHOD_CALL
-     * DetailAST using the name of method to be searched. Ignores overloaded
-     * methods (retrieves only one METHOD_DEF node).
-     *
-     * @param parentAST
-     *            A parent CLASS_DEF DetailAST node which uses as a start point
-     *            when searching.
-     * @param methodName
-     *            String containing the name of method is currently being
-     *            searched.
-     * @return a List of method definition
-     */
-    private List<DetailAST> getMethodDef(final DetailAST parentAST,
-            final String methodName)
-    {
-        List<DetailAST> definitionsList = new LinkedList<DetailAST>();
-        
-        for (DetailAST curNode : getChildren(parentAST)) {
-
-            if (curNode.getNumberOfChildren() > 0) {
-                if (curNode.getType() == TokenTypes.METHOD_DEF) {
-                    final String curMethodName = curNode.findFirstToken(
-                            TokenTypes.IDENT).getText();
-                    if (methodName.equals(curMethodName)) {
-                        curMethodDef = curNode;
-                        definitionsList.add(0,curNode);
-                        curMethodDefCount++;
-                    }
-                }
-
-                final int type = curNode.getType();
-
-                if (type != TokenTypes.CLASS_DEF && type != TokenTypes.CTOR_DEF
-                        && type != TokenTypes.MODIFIERS
-                        && type != TokenTypes.IMPLEMENTS_CLAUSE
-                        && type != TokenTypes.METHOD_DEF)
-                {
-                    definitionsList = getMethodDef(curNode, methodName);
-                }
-            }
-        }
-        return definitionsList;
-    }
-
     /**
      * Gets the count of parameters for current method definitioin or
      * method call.
-     * @param methodDefOrCallAST METHOD_DEF or METHOD_CALL
-     *     DetailAST node
+     * @param flatAst
+     *     the flat view of the syntax tree.
+     * @param methodDefOrCall
+     *     the position of METHOD_DEF or METHOD_CALL node.
      * @return the count of parameters for current method.
      */
-    private static int getMethodParamsCount(DetailAST methodDefOrCallAST)
+    private static int getMethodParamsCount(FlatAst flatAst,
+            int methodDefOrCall)
     {
 
         int result = 0;
-        DetailAST paramsParentAST = null;
+        int paramsParent = FlatAst.NONE;
 
-        if (methodDefOrCallAST.getType() == TokenTypes.METHOD_CALL) {
-            paramsParentAST = methodDefOrCallAST
-                    .findFirstToken(TokenTypes.ELIST);
+        if (flatAst.getType(methodDefOrCall) == TokenTypes.METHOD_CALL) {
+            paramsParent = flatAst.findFirstChild(methodDefOrCall,
+                    TokenTypes.ELIST);
         }
-        else if (methodDefOrCallAST.getType() == TokenTypes.METHOD_DEF) {
-            paramsParentAST = methodDefOrCallAST
-                    .findFirstToken(TokenTypes.PARAMETERS);
+        else if (flatAst.getType(methodDefOrCall) == TokenTypes.METHOD_DEF) {
+            paramsParent = flatAst.findFirstChild(methodDefOrCall,
+                    TokenTypes.PARAMETERS);
         }
 
-        if (paramsParentAST != null && paramsParentAST.getChildCount() != 0) {
-            for (DetailAST curNode : getChildren(paramsParentAST)) {
-                if (curNode.getType() == TokenTypes.COMMA) {
+        if (paramsParent != FlatAst.NONE
+                && flatAst.getFirstChild(paramsParent) != FlatAst.NONE)
+        {
+            for (int curNode = flatAst.getFirstChild(paramsParent);
+                    curNode != FlatAst.NONE;
+                    curNode = flatAst.getNextSibling(curNode))
+            {
+                if (flatAst.getType(curNode) == TokenTypes.COMMA) {
                     result++;
                 }
             }
@@ -708,110 +908,114 @@ public class OverridableMethodInConstructorCheck extends Check
 
     /**
      * Checks that method or class is related to the current METHOD_DEF or
-     * CLASS_DEF DetailAST node has a specified modifier (private, final etc).
+     * CLASS_DEF node has a specified modifier (private, final etc).
      *
-     * @param methodOrClassDefAST
-     *            A METHOD_DEF or CLASS_DEF DetailAST node is currently being
-     *            processed.
+     * @param methodOrClassDef
+     *            The position of METHOD_DEF or CLASS_DEF node is currently
+     *            being processed.
      * @param modifierType
      *            desired modifier type.
-     * @return true if method is related to current aMethodDefAST METHOD_DEF
-     *         node has "private" or "final" modifier and false otherwise.
+     * @return true if method is related to current METHOD_DEF node has
+     *         "private" or "final" modifier and false otherwise.
      */
-    private static boolean hasModifier(final DetailAST methodOrClassDefAST,
-        int modifierType)
+    private boolean hasModifier(final int methodOrClassDef, int modifierType)
     {
+        final int modifiers = flatAst.findFirstChild(methodOrClassDef,
+                TokenTypes.MODIFIERS);
 
-        boolean result = false;
-        final DetailAST modifiers = methodOrClassDefAST
-                .findFirstToken(TokenTypes.MODIFIERS);
-
-        if (modifiers != null && modifiers.getChildCount() != 0) {
-            for (DetailAST curNode : getChildren(modifiers)) {
-                if (curNode.getType() == modifierType) {
-                    result = true;
-                    break;
-                }
-            }
-        }
-        return result;
+        return modifiers != FlatAst.NONE
+                && flatAst.hasChild(modifiers, modifierType);
     }
 
 
     /**
-     * Gets a parent CLASS_DEF DetailAST node for current METHOD_CALL DetailAST
-     * node.
+     * Gets a parent CLASS_DEF node for current METHOD_CALL node.
      *
      * @param methodNode
-     *            A METHOD_DEF or METHOD_CALL DetailAST node for current method.
-     * @return The parent CLASS_DEF node for the class that owns a METHOD_CALL
-     *         node named aMethodNode.
+     *            The position of METHOD_DEF or METHOD_CALL node for current
+     *            method.
+     * @return The position of the parent CLASS_DEF node for the class that
+     *         owns a METHOD_CALL node or NONE.
      * */
-    private static DetailAST getClassDef(final DetailAST methodNode)
+    private int getClassDef(final int methodNode)
     {
-
-        DetailAST curNode = methodNode;
-
-        while (curNode != null && curNode.getType() != TokenTypes.CLASS_DEF) {
-            curNode = curNode.getParent();
+        int curNode = methodNode;
+        while (curNode != FlatAst.NONE
+                && flatAst.getType(curNode) != TokenTypes.CLASS_DEF)
+        {
+            curNode = flatAst.getParent(curNode);
         }
-
         return curNode;
     }
 
     /**
      * Checks that class realizes "anInterfaceName" interface (checks that class
      * implements this interface or has at least one parent class which
-     * implements this interface).
+     * implements this interface). Parent classes of other files are checked
+     * if useProjectTypeHierarchy option is on.
      *
-     * @param classDefNode
-     *            A CLASS_DEF DetailAST for class is currently being checked.
+     * @param classDef
+     *            The position of CLASS_DEF node for class is currently being
+     *            checked.
      * @param interfaceName
      *            The name of the interface to check.
      * @return true if class realizes "anInterfaceName" interface and false
      *         otherwise.
      */
-    private boolean realizesAnInterface(final DetailAST classDefNode,
+    private boolean realizesAnInterface(final int classDef,
             final String interfaceName)
     {
 
-        boolean result = false;
-        final List<DetailAST> classWithBaseClasses =
-                getBaseClasses(classDefNode);
-
-        classWithBaseClasses.add(classDefNode);
+        boolean result = implementsAnInterface(classDef, interfaceName);
 
-        for (DetailAST classAST : classWithBaseClasses) {
-            if (implementsAnInterface(classAST, interfaceName)) {
-                result = true;
-                break;
+        if (!result) {
+            for (int classNode : getBaseClasses(classDef)) {
+                if (implementsAnInterface(classNode, interfaceName)) {
+                    result = true;
+                    break;
+                }
             }
         }
+        if (!result && useProjectTypeHierarchy) {
+            if (typeHierarchyIndex == null) {
+                typeHierarchyIndex = TypeHierarchyIndex.getInstance(sourceDirectories,
+                        getFileContents().getFilename(), rootAST,
+                        getFileContents().getText().getCharset());
+            }
+            result = typeHierarchyIndex.hasSupertype(
+                    TypeHierarchyIndex.getQualifiedName(
+                            flatAst.getAST(classDef)),
+                    interfaceName);
+        }
         return result;
     }
 
     /**
      * Checks that class implements "anInterfaceName" interface.
      *
-     * @param classDefAST
-     *            A CLASS_DEF DetailAST for class is currently being checked.
+     * @param classDef
+     *            The position of CLASS_DEF node for class is currently being
+     *            checked.
      * @param interfaceName
      *            The name of the interface to check.
-     * @return true if class is related to the current CLASS_DEF DetailAST is
+     * @return true if class is related to the current CLASS_DEF node is
      *         being processed implements "anInterfaceName" interface and false
      *         otherwise.
      */
-    private static boolean implementsAnInterface(final DetailAST classDefAST,
+    private boolean implementsAnInterface(final int classDef,
             final String interfaceName)
     {
 
         boolean result = false;
-        final DetailAST implClause = classDefAST
-                .findFirstToken(TokenTypes.IMPLEMENTS_CLAUSE);
+        final int implClause = flatAst.findFirstChild(classDef,
+                TokenTypes.IMPLEMENTS_CLAUSE);
 
-        if (implClause != null) {
-            for (DetailAST ident : getChildren(implClause)) {
-                if (ident.getText().equals(interfaceName)) {
+        if (implClause != FlatAst.NONE) {
+            for (int ident = flatAst.getFirstChild(implClause);
+                    ident != FlatAst.NONE;
+                    ident = flatAst.getNextSibling(ident))
+            {
+                if (flatAst.getText(ident).equals(interfaceName)) {
                     result = true;
                     break;
                 }
@@ -821,136 +1025,394 @@ public class OverridableMethodInConstructorCheck extends Check
     }
 
     /**
-     * Gets the list of CLASS_DEF DetailAST nodes that are associated with class
-     * is currently being processed and all it`s base classes.
+     * Gets CLASS_DEF nodes of the chain of base classes of the class is
+     * currently being processed, as far as they are declared in the file. A
+     * cycle in the chain, which is possible in sources which don't compile,
+     * is walked only once.
      *
-     * @param classDefNode
-     *            A CLASS_DEF DetailAST is related to the class is currently
-     *            being processed.
-     * @return a list of CLASS_DEF DetailAST nodes for class is currently being
-     *         processed and all it`s base classes.
+     * @param classDef
+     *            The position of CLASS_DEF node is related to the class is
+     *            currently being processed.
+     * @return positions of CLASS_DEF nodes of all base classes of the class
+     *         is currently being processed which are declared in the file.
      */
-    private List<DetailAST> getBaseClasses(final DetailAST classDefNode)
+    private int[] getBaseClasses(final int classDef)
     {
 
-        final List<DetailAST> result = new LinkedList<DetailAST>();
-        String baseClassName = getBaseClassName(classDefNode);
+        // a chain without cycles is not longer than the count of classes
+        final int[] result = new int[symbolIndex.getClassDefsCount()];
+        int count = 0;
+        String baseClassName = getBaseClassName(classDef);
 
         if (baseClassName != null) {
-            DetailAST curClass = getClassDef(treeRootAST, baseClassName);
-            while (curClass != null) {
-                result.add(curClass);
+            int curClass = symbolIndex.getClassDef(baseClassName);
+            while (curClass != FlatAst.NONE && count < result.length) {
+                result[count++] = curClass;
                 baseClassName = getBaseClassName(curClass);
                 if (baseClassName != null) {
-                    curClass = getClassDef(treeRootAST, baseClassName);
+                    curClass = symbolIndex.getClassDef(baseClassName);
                 }
                 else {
                     break;
                 }
             }
         }
-        return result;
+        return Arrays.copyOf(result, count);
     }
 
     /**
-     * Gets the CLASS_DEF DetailAST node for the class is named "aClassName".
+     * Gets the the base class name for current class.
      *
-     * @param rootNode
-     *            A root node of synthax tree is being processed.
-     * @param className
-     *            The name of class to search.
-     * @return The CLASS_DEF DetailAST node which is related to the class is
-     *         named "aClassName".
+     * @param classDef
+     *            The position of CLASS_DEF node.
+     * @return The name of a base class for current class.
      */
-    private static DetailAST getClassDef(DetailAST rootNode, String className)
+    private String getBaseClassName(final int classDef)
     {
 
-        DetailAST curNode = rootNode;
-
-        while (curNode != null) {
-            DetailAST toVisit = curNode.getFirstChild();
-            while ((curNode != null) && (toVisit == null)) {
-                toVisit = curNode.getNextSibling();
-                if (toVisit == null) {
-                    curNode = curNode.getParent();
-                }
+        String result = null;
+        final int extendsClause = flatAst.findFirstChild(classDef,
+                TokenTypes.EXTENDS_CLAUSE);
+
+        if (extendsClause != FlatAst.NONE) {
+            final int dot = flatAst.findFirstChild(extendsClause,
+                    TokenTypes.DOT);
+            if (dot != FlatAst.NONE) {
+                result = flatAst.getText(
+                        flatAst.findFirstChild(dot, TokenTypes.IDENT));
             }
+            else {
+                result = flatAst.getText(flatAst.findFirstChild(
+                        extendsClause, TokenTypes.IDENT));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Index of the class and method definitions of a single file. It is built
+     * with one pass over the flat view of the syntax tree, so that resolving
+     * of a method call doesn't require to rescan the whole tree. Nodes are
+     * kept by their positions in the flat view.
+     */
+    private static final class SymbolIndex
+    {
+        /** The count of parameters which matches any count. */
+        static final int ANY_PARAMS_COUNT = -1;
+
+        /** The result of a lookup which matches several definitions. */
+        static final int AMBIGUOUS = -2;
+
+        /** The flat view of the syntax tree. */
+        private final FlatAst flatAst;
+
+        /** CLASS_DEF nodes by class name, owned by no node. */
+        private final NodeTable classDefs = new NodeTable();
+
+        /** METHOD_DEF nodes by CLASS_DEF node and method name. */
+        private final NodeTable methodDefs = new NodeTable();
 
-            curNode = toVisit;
+        /**
+         * Creates an index for the syntax tree.
+         * @param flatAst
+         *            The flat view of the syntax tree is being processed.
+         */
+        SymbolIndex(FlatAst flatAst)
+        {
+            this.flatAst = flatAst;
+            // owners of the method definitions found below each node
+            final int[] childOwners = new int[flatAst.size()];
+            for (int node = 0; node < flatAst.size(); node++) {
+                final int parent = flatAst.getParent(node);
+                final int owner = parent == FlatAst.NONE
+                        ? FlatAst.NONE : childOwners[parent];
+                childOwners[node] = index(node, owner);
+            }
+            classDefs.build();
+            methodDefs.build();
+        }
 
-            if (curNode == null) {
-                break;
+        /**
+         * Gets the CLASS_DEF node for the class is named "className". The
+         * first class in the document order wins when there are several
+         * classes with the same name.
+         * @param className
+         *            The name of class to search.
+         * @return The position of CLASS_DEF node or NONE if there is no such
+         *         class in the file.
+         */
+        public int getClassDef(String className)
+        {
+            final int entry = classDefs.find(FlatAst.NONE, className);
+            if (entry == FlatAst.NONE) {
+                return FlatAst.NONE;
             }
+            return classDefs.getNode(entry);
+        }
 
-            if (curNode.getType() == TokenTypes.CLASS_DEF
-                    && curNode.findFirstToken(TokenTypes.IDENT).getText()
-                            .equals(className))
+        /**
+         * Gets the count of classes in the file.
+         * @return the count of CLASS_DEF nodes.
+         */
+        public int getClassDefsCount()
+        {
+            return classDefs.size();
+        }
+
+        /**
+         * Gets the definition of the method with the given name and count of
+         * parameters in the class.
+         * @param classDef
+         *            The position of CLASS_DEF node.
+         * @param methodName
+         *            The name of the method.
+         * @param paramsCount
+         *            The count of parameters of the method or
+         *            ANY_PARAMS_COUNT.
+         * @return the position of the only matching METHOD_DEF node, NONE if
+         *         there is no such method, or AMBIGUOUS if there are several.
+         */
+        public int getMethodDef(int classDef, String methodName,
+                int paramsCount)
+        {
+            int result = FlatAst.NONE;
+            for (int entry = methodDefs.find(classDef, methodName);
+                    entry != FlatAst.NONE;
+                    entry = methodDefs.findNext(entry, classDef, methodName))
             {
-                break;
+                final int methodDef = methodDefs.getNode(entry);
+                if (paramsCount == ANY_PARAMS_COUNT
+                        || getMethodParamsCount(flatAst, methodDef)
+                            == paramsCount)
+                {
+                    if (result != FlatAst.NONE) {
+                        result = AMBIGUOUS;
+                        break;
+                    }
+                    result = methodDef;
+                }
             }
+            return result;
+        }
+
+        /**
+         * Indexes the node.
+         * @param node
+         *            The position of the node to index.
+         * @param ownerClassDef
+         *            The position of CLASS_DEF node which owns the method
+         *            definitions found on this level or NONE if they don't
+         *            belong to any class (e.g. methods of anonymous classes
+         *            inside of method bodies).
+         * @return the owner of the method definitions found below the node.
+         */
+        private int index(int node, int ownerClassDef)
+        {
+            int owner = ownerClassDef;
+            switch (flatAst.getType(node)) {
+                case TokenTypes.CLASS_DEF:
+                    classDefs.add(FlatAst.NONE, getName(node), node);
+                    owner = node;
+                    break;
+                case TokenTypes.METHOD_DEF:
+                    if (owner != FlatAst.NONE) {
+                        methodDefs.add(owner, getName(node), node);
+                    }
+                    owner = FlatAst.NONE;
+                    break;
+                case TokenTypes.CTOR_DEF:
+                case TokenTypes.MODIFIERS:
+                case TokenTypes.IMPLEMENTS_CLAUSE:
+                    owner = FlatAst.NONE;
+                    break;
+                default:
+                    break;
+            }
+            return owner;
+        }
+
+        /**
+         * Gets the name of the class or method definition.
+         * @param definition
+         *            The position of CLASS_DEF or METHOD_DEF node.
+         * @return the name.
+         */
+        private String getName(int definition)
+        {
+            return flatAst.getText(
+                    flatAst.findFirstChild(definition, TokenTypes.IDENT));
         }
-        return curNode;
     }
 
     /**
-     * Gets the the base class name for current class.
-     *
-     * @param classDefNode
-     *            A CLASS_DEF DetailAST.
-     * @return The name of a base class for current class.
+     * Hash table of nodes by an owner node and a name, kept in arrays. Nodes
+     * with the same owner and name are found in the order they were added.
      */
-    private static String getBaseClassName(final DetailAST classDefNode)
+    private static final class NodeTable
     {
+        /** Multiplier of hash codes of names. */
+        private static final int NAME_HASH_MULTIPLIER = 31;
 
-        String result = null;
-        final DetailAST extendsClause = classDefNode
-                .findFirstToken(TokenTypes.EXTENDS_CLAUSE);
+        /** Shift which mixes high bits of hash codes into low ones. */
+        private static final int HASH_SHIFT = 16;
 
-        if (extendsClause != null) {
-            final DetailAST dot = extendsClause.findFirstToken(TokenTypes.DOT);
-            if (dot != null) {
-                result = dot.findFirstToken(TokenTypes.IDENT).getText();
+        /** Ratio of the count of buckets to the count of entries. */
+        private static final int BUCKETS_RATIO = 4;
+
+        /** Owners of entries. */
+        private int[] owners = new int[INITIAL_CAPACITY];
+
+        /** Names of entries. */
+        private String[] names = new String[INITIAL_CAPACITY];
+
+        /** Nodes of entries. */
+        private int[] nodes = new int[INITIAL_CAPACITY];
+
+        /** The count of entries. */
+        private int size;
+
+        /** The first entry of each bucket. */
+        private int[] buckets;
+
+        /** The next entry of the same bucket of each entry. */
+        private int[] nextEntries;
+
+        /**
+         * Adds an entry. The table should be built after all entries are
+         * added.
+         * @param owner
+         *            The position of the owner node.
+         * @param name
+         *            The name.
+         * @param node
+         *            The position of the node.
+         */
+        void add(int owner, String name, int node)
+        {
+            if (size == nodes.length) {
+                owners = Arrays.copyOf(owners, size * 2);
+                names = Arrays.copyOf(names, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
             }
-            else {
-                result = extendsClause.findFirstToken(TokenTypes.IDENT)
-                        .getText();
+            owners[size] = owner;
+            names[size] = name;
+            nodes[size] = node;
+            size++;
+        }
+
+        /**
+         * Builds buckets of the added entries. The table has at least twice
+         * more buckets than entries.
+         */
+        void build()
+        {
+            buckets = new int[Integer.highestOneBit(Math.max(size, 1)) * BUCKETS_RATIO];
+            Arrays.fill(buckets, FlatAst.NONE);
+            nextEntries = new int[size];
+            // entries are prepended, so they are added in reverse order
+            for (int entry = size - 1; entry >= 0; entry--) {
+                final int bucket = getBucket(owners[entry], names[entry]);
+                nextEntries[entry] = buckets[bucket];
+                buckets[bucket] = entry;
             }
         }
-        return result;
-    }
 
-    /**
-     * Gets all the children one level below on the current DetailAST parent
-     * node.
-     *
-     * @param node
-     *            Current parent node.
-     * @return An array of children one level below on the current parent node
-     *         aNode.
-     */
-    private static List<DetailAST> getChildren(final DetailAST node)
-    {
-        final List<DetailAST> result = new LinkedList<DetailAST>();
-        DetailAST curNode = node.getFirstChild();
-        while (curNode != null) {
-            result.add(curNode);
-            curNode = curNode.getNextSibling();
+        /**
+         * Gets the count of entries.
+         * @return the count of entries.
+         */
+        int size()
+        {
+            return size;
+        }
+
+        /**
+         * Finds the first entry with the owner and name.
+         * @param owner
+         *            The position of the owner node.
+         * @param name
+         *            The name.
+         * @return the entry or NONE.
+         */
+        int find(int owner, String name)
+        {
+            return skipOthers(buckets[getBucket(owner, name)], owner, name);
+        }
+
+        /**
+         * Finds the next entry with the same owner and name.
+         * @param entry
+         *            The entry which was found last.
+         * @param owner
+         *            The position of the owner node.
+         * @param name
+         *            The name.
+         * @return the entry or NONE.
+         */
+        int findNext(int entry, int owner, String name)
+        {
+            return skipOthers(nextEntries[entry], owner, name);
+        }
+
+        /**
+         * Gets the node of the entry.
+         * @param entry
+         *            The entry.
+         * @return the position of the node.
+         */
+        int getNode(int entry)
+        {
+            return nodes[entry];
+        }
+
+        /**
+         * Skips entries of the bucket with another owner or name.
+         * @param firstEntry
+         *            The entry to start from.
+         * @param owner
+         *            The position of the owner node.
+         * @param name
+         *            The name.
+         * @return the first entry with the owner and name or NONE.
+         */
+        private int skipOthers(int firstEntry, int owner, String name)
+        {
+            int entry = firstEntry;
+            while (entry != FlatAst.NONE
+                    && (owners[entry] != owner || !names[entry].equals(name)))
+            {
+                entry = nextEntries[entry];
+            }
+            return entry;
+        }
+
+        /**
+         * Gets the bucket of the owner and name.
+         * @param owner
+         *            The position of the owner node.
+         * @param name
+         *            The name.
+         * @return the bucket.
+         */
+        private int getBucket(int owner, String name)
+        {
+            final int hash = name.hashCode() * NAME_HASH_MULTIPLIER + owner;
+            return (hash ^ (hash >>> HASH_SHIFT)) & (buckets.length - 1);
         }
-        return result;
     }
 
     /**
-     * Class that incapsulates the DetailAST node related to the method call
+     * Class that incapsulates the METHOD_CALL node related to the method call
      * that leads to call of the overridable method and the name of
      * overridable method.
      */
     private class OverridableMetCall
     {
         /**
-         * DetailAST node is related to the method call that leads to
-         *           call of the overridable method.
+         * The position of METHOD_CALL node is related to the method call that
+         * leads to call of the overridable method.
          */
-        private DetailAST metCallAST;
+        private int metCall;
         /**
          * The name of an overridable method.
          */
@@ -958,17 +1420,17 @@ public class OverridableMethodInConstructorCheck extends Check
 
         /**
          * Creates an instance of OverridableMetCall and initializes fields.
-         * @param methodCallAST
-         *            DetailAST node related to the method call that leads
-         *            to call of the overridable method.
+         * @param methodCall
+         *            The position of METHOD_CALL node related to the method
+         *            call that leads to call of the overridable method.
          * @param overridableMetName
          *            The name of an overridable method.
          */
-        public OverridableMetCall(DetailAST methodCallAST,
+        public OverridableMetCall(int methodCall,
                 String overridableMetName)
         {
             super();
-            this.metCallAST = methodCallAST;
+            this.metCall = methodCall;
             this.overridableMetName = overridableMetName;
         }
     }
@@ -0,0 +1,485 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+
+/**
+ * <p>
+ * Checks dependencies between packages of the whole project, which are made
+ * by imports. This is the cross-file mode of {@link ForbidCertainImportsCheck},
+ * which checks imports of a single file only: packages, types and imports of
+ * all files are collected into one graph of packages by
+ * {@link PackageImportsCollectorCheck} while TreeWalker processes files, and
+ * the graph is checked when the audit finishes.
+ * </p>
+ * <p>
+ * The check supports two rules. Layers are globs of packages, the upper
+ * layer first, where "*" matches any characters except dots and "**"
+ * matches any characters, the same as globs of rules of
+ * {@link ForbidCertainImportsCheck}. A package belongs to the first layer
+ * which matches it, and it should not depend on packages of upper layers;
+ * such a dependency is reported at each import which makes it. Cycles of
+ * packages, where packages depend on each other directly or through other
+ * packages, are reported if checkCycles is set: the shortest cycle of each
+ * dependency is found, and each distinct cycle is reported once, at the
+ * first import of the dependency of its first package by name.
+ * </p>
+ * <p>
+ * The check is a FileSetCheck, so it is configured as a child of Checker,
+ * not TreeWalker, together with the collecting check, which is a child of
+ * TreeWalker:
+ * </p>
+ * <pre>
+ * &lt;module name="TreeWalker"&gt;
+ *    &lt;module name="PackageImportsCollectorCheck"/&gt;
+ * &lt;/module&gt;
+ * &lt;module name="PackageDependencyGraphCheck"&gt;
+ *    &lt;property name="layers" value="com.example.ui.**, com.example.service.**, com.example.dao.**"/&gt;
+ * &lt;/module&gt;
+ * </pre>
+ * <p>
+ * Dependencies are known only at the end of the audit, so violations are
+ * fired after the last file as errors of their files, without firing the
+ * start and the end of the files again.
+ * </p>
+ * <p>
+ * The check creates the graph of each audit when the audit begins, and is
+ * the running check of the class until the audit finishes; collecting
+ * checks add imports to the graph of the running check. So the check should
+ * be run by one audit at a time: when another audit with the check begins,
+ * imports are collected for it instead.
+ * </p>
+ */
+public class PackageDependencyGraphCheck extends AbstractFileSetCheck
+{
+    /** Warning message key of a dependency on an upper layer. */
+    public static final String MSG_KEY_LAYER = "package.dependency.layer";
+
+    /** Warning message key of a dependency in a cycle. */
+    public static final String MSG_KEY_CYCLE = "package.dependency.cycle";
+
+    /** Separator of packages of the reported cycle. */
+    private static final String CYCLE_SEPARATOR = " -> ";
+
+    /** Orders violations of a file by their positions and message keys. */
+    private static final Comparator<Violation> VIOLATION_ORDER =
+            new Comparator<Violation>()
+            {
+                @Override
+                public int compare(Violation violation1, Violation violation2)
+                {
+                    int result = violation1.line - violation2.line;
+                    if (result == 0) {
+                        result = violation1.column - violation2.column;
+                    }
+                    if (result == 0) {
+                        result = violation1.key.compareTo(violation2.key);
+                    }
+                    return result;
+                }
+            };
+
+    /** The check of the running audit, or null. */
+    private static final AtomicReference<PackageDependencyGraphCheck>
+        RUNNING_CHECK = new AtomicReference<PackageDependencyGraphCheck>();
+
+    /** Globs of layers, the upper layer first. */
+    private String[] layers = {};
+
+    /** Automaton of globs of layers, labels are indexes of layers. */
+    private ImportRules.GlobAutomaton layersAutomaton =
+            new ImportRules.GlobAutomaton.Builder().build();
+
+    /** Whether cycles of packages are reported. */
+    private boolean checkCycles = true;
+
+    /** Dependencies of the running audit, or null. */
+    private volatile PackageGraph graph;
+
+    /**
+     * Construct an instance with default values.
+     */
+    public PackageDependencyGraphCheck()
+    {
+        setFileExtensions(new String[] {"java"});
+    }
+
+    /**
+     * Sets globs of layers.
+     * @param layers
+     *        globs of packages of layers, the upper layer first.
+     */
+    public void setLayers(String[] layers)
+    {
+        final ImportRules.GlobAutomaton.Builder builder =
+                new ImportRules.GlobAutomaton.Builder();
+        for (int i = 0; i < layers.length; i++) {
+            builder.add(layers[i], i);
+        }
+        this.layers = layers.clone();
+        layersAutomaton = builder.build();
+    }
+
+    /**
+     * Sets whether cycles of packages are reported.
+     * @param checkCycles
+     *        true to report cycles.
+     */
+    public void setCheckCycles(boolean checkCycles)
+    {
+        this.checkCycles = checkCycles;
+    }
+
+    /**
+     * Gets the graph of the running audit.
+     * @return the graph, or null if no audit with the check is running.
+     */
+    static PackageGraph getRunningGraph()
+    {
+        final PackageDependencyGraphCheck check = RUNNING_CHECK.get();
+        if (check == null) {
+            return null;
+        }
+        return check.graph;
+    }
+
+    @Override
+    public void beginProcessing(String charset)
+    {
+        super.beginProcessing(charset);
+        graph = new PackageGraph();
+        RUNNING_CHECK.set(this);
+    }
+
+    @Override
+    protected void processFiltered(File file, List<String> lines)
+    {
+        // imports are collected by PackageImportsCollectorCheck
+    }
+
+    @Override
+    public void finishProcessing()
+    {
+        RUNNING_CHECK.compareAndSet(this, null);
+        final PackageGraph auditGraph = graph;
+        graph = null;
+        if (auditGraph == null) {
+            return;
+        }
+        auditGraph.resolveImports();
+        report(auditGraph);
+    }
+
+    @Override
+    public void destroy()
+    {
+        // the audit may be broken off by an exception
+        RUNNING_CHECK.compareAndSet(this, null);
+        graph = null;
+        super.destroy();
+    }
+
+    /**
+     * Reports violating dependencies of the finished audit.
+     * @param graph
+     *        dependencies of the audit.
+     */
+    private void report(PackageGraph graph)
+    {
+        final int packageCount = graph.getPackageCount();
+        final int[] packageLayers = new int[packageCount];
+        final ImportRules.GlobAutomaton.Scanner scanner = layersAutomaton.newScanner();
+        for (int i = 0; i < packageCount; i++) {
+            final int[] labels = scanner.scan(graph.getPackageName(i));
+            int layer = -1;
+            for (int j = 0; j < scanner.getLabelCount(); j++) {
+                if (layer == -1 || labels[j] < layer) {
+                    layer = labels[j];
+                }
+            }
+            packageLayers[i] = layer;
+        }
+        final int[] components;
+        if (checkCycles) {
+            components = graph.getComponents();
+        }
+        else {
+            components = null;
+        }
+
+        final SortedMap<String, List<Violation>> violationsByFile =
+                new TreeMap<String, List<Violation>>();
+        final Set<String> reportedCycles = new HashSet<String>();
+        final int[] pathParents = new int[packageCount];
+        int pathTarget = -1;
+        final long[] edges = graph.getEdges();
+        final int[] rowStarts = PackageGraph.getRowStarts(edges, packageCount);
+        // edges sorted by the package they depend on share paths of cycles
+        final long[] reversedEdges = new long[edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            reversedEdges[i] = PackageGraph.getEdge(PackageGraph.getTo(edges[i]),
+                    PackageGraph.getFrom(edges[i]));
+        }
+        Arrays.sort(reversedEdges);
+        for (long reversedEdge : reversedEdges) {
+            final int from = PackageGraph.getTo(reversedEdge);
+            final int to = PackageGraph.getFrom(reversedEdge);
+            final int fromLayer = packageLayers[from];
+            final int toLayer = packageLayers[to];
+            if (fromLayer != -1 && toLayer != -1 && toLayer < fromLayer) {
+                final Occurrences imports =
+                        graph.getImports(PackageGraph.getEdge(from, to));
+                for (int i = 0; i < imports.size(); i++) {
+                    addViolation(violationsByFile, graph, imports, i,
+                            MSG_KEY_LAYER, graph.getPackageName(from),
+                            layers[fromLayer], graph.getPackageName(to),
+                            layers[toLayer]);
+                }
+            }
+            if (components != null && components[from] == components[to]) {
+                if (pathTarget != to) {
+                    findPaths(to, edges, rowStarts, components, pathParents);
+                    pathTarget = to;
+                }
+                final List<String> cycle =
+                        getCycle(graph, from, to, pathParents);
+                final String cycleText = getCycleText(cycle);
+                if (reportedCycles.add(cycleText)) {
+                    final int first = graph.getPackageId(cycle.get(0));
+                    final int second = graph.getPackageId(cycle.get(1));
+                    final Occurrences imports =
+                            graph.getImports(PackageGraph.getEdge(first, second));
+                    addViolation(violationsByFile, graph, imports,
+                            getFirstImport(graph, imports), MSG_KEY_CYCLE,
+                            cycle.get(0), cycle.get(1), cycleText);
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<Violation>> entry
+                : violationsByFile.entrySet())
+        {
+            // imports are resolved in no particular order
+            Collections.sort(entry.getValue(), VIOLATION_ORDER);
+            for (Violation violation : entry.getValue()) {
+                log(violation.line, violation.column, violation.key,
+                        violation.arguments);
+            }
+            fireErrors(entry.getKey());
+        }
+    }
+
+    /**
+     * Adds the violation at the import.
+     * @param violationsByFile
+     *        violations by name of the file to add to.
+     * @param graph
+     *        dependencies of the audit.
+     * @param imports
+     *        positions of imports of the dependency.
+     * @param index
+     *        index of the import.
+     * @param key
+     *        the message key.
+     * @param arguments
+     *        arguments of the message.
+     */
+    private static void addViolation(
+            Map<String, List<Violation>> violationsByFile, PackageGraph graph,
+            Occurrences imports, int index, String key, Object... arguments)
+    {
+        final String fileName = graph.getFileName(imports.getFileId(index));
+        List<Violation> fileViolations = violationsByFile.get(fileName);
+        if (fileViolations == null) {
+            fileViolations = new ArrayList<Violation>();
+            violationsByFile.put(fileName, fileViolations);
+        }
+        fileViolations.add(new Violation(imports.getLine(index),
+                imports.getColumn(index), key, arguments));
+    }
+
+    /**
+     * Finds the first import of the dependency by name of the file and by
+     * position in the file, as files may be processed concurrently.
+     * @param graph
+     *        dependencies of the audit.
+     * @param imports
+     *        positions of imports of the dependency.
+     * @return index of the first import.
+     */
+    private static int getFirstImport(PackageGraph graph, Occurrences imports)
+    {
+        int result = 0;
+        for (int i = 1; i < imports.size(); i++) {
+            int order = graph.getFileName(imports.getFileId(i))
+                    .compareTo(graph.getFileName(imports.getFileId(result)));
+            if (order == 0) {
+                order = imports.getLine(i) - imports.getLine(result);
+            }
+            if (order == 0) {
+                order = imports.getColumn(i) - imports.getColumn(result);
+            }
+            if (order < 0) {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds shortest paths from the package to all packages of its
+     * component, by the breadth-first search.
+     * @param start
+     *        id of the package.
+     * @param edges
+     *        edges of the graph, sorted by the dependent package.
+     * @param rowStarts
+     *        indexes of the first edges by id of the package.
+     * @param components
+     *        ids of components by id of the package.
+     * @param parents
+     *        previous packages of paths by id of the package, to fill.
+     */
+    private static void findPaths(int start, long[] edges, int[] rowStarts,
+            int[] components, int[] parents)
+    {
+        Arrays.fill(parents, -1);
+        parents[start] = start;
+        final int[] queue = new int[parents.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            final int node = queue[head++];
+            for (int i = rowStarts[node]; i < rowStarts[node + 1]; i++) {
+                final int target = PackageGraph.getTo(edges[i]);
+                if (parents[target] == -1
+                        && components[target] == components[start])
+                {
+                    parents[target] = node;
+                    queue[tail++] = target;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the shortest cycle of the dependency, starting from the first
+     * package of the cycle by name, so each cycle has one form whichever of
+     * its dependencies it is found by.
+     * @param graph
+     *        dependencies of the audit.
+     * @param from
+     *        id of the dependent package.
+     * @param to
+     *        id of the package it depends on.
+     * @param parents
+     *        previous packages of shortest paths from the package it depends
+     *        on.
+     * @return names of packages of the cycle, each package once.
+     */
+    private static List<String> getCycle(PackageGraph graph, int from, int to,
+            int[] parents)
+    {
+        final List<String> path = new ArrayList<String>();
+        for (int node = from; node != to; node = parents[node]) {
+            path.add(graph.getPackageName(parents[node]));
+        }
+        path.add(graph.getPackageName(from));
+        // the path is reversed: from the package before the dependent one
+        // back to the package the dependency is on
+        int start = 0;
+        for (int i = 1; i < path.size(); i++) {
+            if (path.get(i).compareTo(path.get(start)) < 0) {
+                start = i;
+            }
+        }
+        final List<String> result = new ArrayList<String>(path.size());
+        for (int i = 0; i < path.size(); i++) {
+            result.add(path.get((start - i + path.size()) % path.size()));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the text of the cycle.
+     * @param cycle
+     *        names of packages of the cycle.
+     * @return the cycle, like "a -> b -> c -> a".
+     */
+    private static String getCycleText(List<String> cycle)
+    {
+        final StringBuilder result = new StringBuilder();
+        for (String packageName : cycle) {
+            result.append(packageName).append(CYCLE_SEPARATOR);
+        }
+        return result.append(cycle.get(0)).toString();
+    }
+
+    /**
+     * Violation of a dependency at an import to report.
+     */
+    private static final class Violation
+    {
+        /** Line of the import. */
+        private final int line;
+
+        /** Column of the import. */
+        private final int column;
+
+        /** The message key. */
+        private final String key;
+
+        /** Arguments of the message. */
+        private final Object[] arguments;
+
+        /**
+         * Creates the violation.
+         * @param line
+         *        line of the import.
+         * @param column
+         *        column of the import.
+         * @param key
+         *        the message key.
+         * @param arguments
+         *        arguments of the message.
+         */
+        private Violation(int line, int column, String key, Object[] arguments)
+        {
+            this.line = line;
+            this.column = column;
+            this.key = key;
+            this.arguments = arguments;
+        }
+    }
+}
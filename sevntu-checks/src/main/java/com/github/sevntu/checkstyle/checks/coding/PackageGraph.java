@@ -0,0 +1,477 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Graph of dependencies between packages of all files of an audit. Packages
+ * and files are kept once and are referred to by integer ids. The graph is
+ * a sparse adjacency matrix: only pairs of packages which depend on each
+ * other are kept, every pair with packed positions of the imports which
+ * make the dependency, where a position is a triple of integers: id of the
+ * file, line and column.
+ * </p>
+ * <p>
+ * Files add their top-level types and their imports as they are written;
+ * imports are resolved to packages by {@link #resolveImports()} when all
+ * files are processed, so all types of the project are known. A name which
+ * starts with a type of the project belongs to the package of that type.
+ * Other names, like ones of libraries, are taken by the form of the import:
+ * without the type of a single-type import, the type and the member of a
+ * static import, and the type of a static on-demand import; nested types of
+ * such names can not be told from packages.
+ * </p>
+ * <p>
+ * The graph may be filled by several threads concurrently. Its analysis,
+ * {@link #getEdges()} and {@link #getComponents()}, is done when imports
+ * are resolved.
+ * </p>
+ */
+final class PackageGraph
+{
+    /** Suffix of on-demand imports. */
+    private static final String ON_DEMAND_SUFFIX = ".*";
+
+    /** Names of packages by id. */
+    private final List<String> packageNames = new ArrayList<String>();
+
+    /** Ids of packages by name. */
+    private final Map<String, Integer> packageIds = new HashMap<String, Integer>();
+
+    /** Names of files by id. */
+    private final List<String> fileNames = new ArrayList<String>();
+
+    /** Ids of files by name. */
+    private final Map<String, Integer> fileIds = new HashMap<String, Integer>();
+
+    /** Ids of packages by qualified name of their top-level types. */
+    private final Map<String, Integer> typePackages = new HashMap<String, Integer>();
+
+    /** Imported names by id, like "java.util.List" or "java.util.*". */
+    private final List<String> importNames = new ArrayList<String>();
+
+    /** Whether imports are static by id of the imported name. */
+    private final List<Boolean> staticImports = new ArrayList<Boolean>();
+
+    /** Ids of imported names of non-static imports by name. */
+    private final Map<String, Integer> importIds = new HashMap<String, Integer>();
+
+    /** Ids of imported names of static imports by name. */
+    private final Map<String, Integer> staticImportIds = new HashMap<String, Integer>();
+
+    /**
+     * Imports which are not resolved yet, keyed like edges by id of the
+     * package of the file and id of the imported name.
+     */
+    private final ConcurrentMap<Long, Occurrences> imports =
+            new ConcurrentHashMap<Long, Occurrences>();
+
+    /** Imports by edge, the key of the edge is {@link #getEdge(int, int)}. */
+    private final ConcurrentMap<Long, Occurrences> edges =
+            new ConcurrentHashMap<Long, Occurrences>();
+
+    /**
+     * Gets id of the package, registering it on the first call.
+     * @param packageName
+     *        name of the package.
+     * @return id of the package.
+     */
+    synchronized int getPackageId(String packageName)
+    {
+        Integer result = packageIds.get(packageName);
+        if (result == null) {
+            result = packageNames.size();
+            packageNames.add(packageName);
+            packageIds.put(packageName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets name of the package.
+     * @param packageId
+     *        id of the package.
+     * @return name of the package.
+     */
+    synchronized String getPackageName(int packageId)
+    {
+        return packageNames.get(packageId);
+    }
+
+    /**
+     * Gets count of packages.
+     * @return count of packages.
+     */
+    synchronized int getPackageCount()
+    {
+        return packageNames.size();
+    }
+
+    /**
+     * Gets id of the file, registering it on the first call.
+     * @param fileName
+     *        name of the file.
+     * @return id of the file.
+     */
+    synchronized int getFileId(String fileName)
+    {
+        Integer result = fileIds.get(fileName);
+        if (result == null) {
+            result = fileNames.size();
+            fileNames.add(fileName);
+            fileIds.put(fileName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets name of the file.
+     * @param fileId
+     *        id of the file.
+     * @return name of the file.
+     */
+    synchronized String getFileName(int fileId)
+    {
+        return fileNames.get(fileId);
+    }
+
+    /**
+     * Adds the top-level type of a file of the project.
+     * @param packageId
+     *        id of the package of the file.
+     * @param qualifiedName
+     *        qualified name of the type.
+     */
+    synchronized void addType(int packageId, String qualifiedName)
+    {
+        typePackages.put(qualifiedName, packageId);
+    }
+
+    /**
+     * Adds the import of a file, it is resolved to the imported package by
+     * {@link #resolveImports()}.
+     * @param fromPackageId
+     *        id of the package of the file.
+     * @param importName
+     *        the imported name, ending with ".*" for on-demand imports.
+     * @param staticImport
+     *        whether the import is static.
+     * @param fileId
+     *        id of the file.
+     * @param line
+     *        line of the import.
+     * @param column
+     *        column of the import.
+     */
+    void addImport(int fromPackageId, String importName, boolean staticImport,
+            int fileId, int line, int column)
+    {
+        add(imports, getEdge(fromPackageId, getImportId(importName, staticImport)),
+                fileId, line, column);
+    }
+
+    /**
+     * Gets id of the imported name, registering it on the first call.
+     * @param importName
+     *        the imported name.
+     * @param staticImport
+     *        whether the import is static.
+     * @return id of the imported name.
+     */
+    private synchronized int getImportId(String importName, boolean staticImport)
+    {
+        final Map<String, Integer> ids;
+        if (staticImport) {
+            ids = staticImportIds;
+        }
+        else {
+            ids = importIds;
+        }
+        Integer result = ids.get(importName);
+        if (result == null) {
+            result = importNames.size();
+            importNames.add(importName);
+            staticImports.add(staticImport);
+            ids.put(importName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Resolves added imports to dependencies between packages, when all
+     * files are processed. Imports of the own package make no dependency.
+     */
+    synchronized void resolveImports()
+    {
+        final int[] importedPackages = new int[importNames.size()];
+        for (int i = 0; i < importedPackages.length; i++) {
+            importedPackages[i] = getImportedPackageId(importNames.get(i),
+                    staticImports.get(i));
+        }
+        for (Map.Entry<Long, Occurrences> entry : imports.entrySet()) {
+            final int fromPackageId = getFrom(entry.getKey());
+            final int toPackageId = importedPackages[getTo(entry.getKey())];
+            if (fromPackageId != toPackageId) {
+                final Occurrences positions = entry.getValue();
+                for (int i = 0; i < positions.size(); i++) {
+                    add(edges, getEdge(fromPackageId, toPackageId),
+                            positions.getFileId(i), positions.getLine(i),
+                            positions.getColumn(i));
+                }
+            }
+        }
+        imports.clear();
+    }
+
+    /**
+     * Gets id of the package of the imported name.
+     * @param importName
+     *        the imported name, ending with ".*" for on-demand imports.
+     * @param staticImport
+     *        whether the import is static.
+     * @return id of the imported package.
+     */
+    private int getImportedPackageId(String importName, boolean staticImport)
+    {
+        String name = importName;
+        int partsToRemove = 1;
+        if (staticImport) {
+            partsToRemove++;
+        }
+        if (name.endsWith(ON_DEMAND_SUFFIX)) {
+            name = name.substring(0, name.length() - ON_DEMAND_SUFFIX.length());
+            partsToRemove--;
+        }
+        String prefix = name;
+        while (prefix != null) {
+            final Integer typePackageId = typePackages.get(prefix);
+            if (typePackageId != null) {
+                return typePackageId;
+            }
+            final int dotIndex = prefix.lastIndexOf('.');
+            prefix = dotIndex == -1 ? null : prefix.substring(0, dotIndex);
+        }
+        for (int i = 0; i < partsToRemove; i++) {
+            name = name.substring(0, Math.max(0, name.lastIndexOf('.')));
+        }
+        return getPackageId(name);
+    }
+
+    /**
+     * Adds the position to occurrences of the key, creating them on the
+     * first call.
+     * @param occurrencesByKey
+     *        occurrences by key.
+     * @param key
+     *        the key.
+     * @param fileId
+     *        id of the file.
+     * @param line
+     *        line of the occurrence.
+     * @param column
+     *        column of the occurrence.
+     */
+    private static void add(ConcurrentMap<Long, Occurrences> occurrencesByKey,
+            Long key, int fileId, int line, int column)
+    {
+        Occurrences occurrences = occurrencesByKey.get(key);
+        if (occurrences == null) {
+            final Occurrences newOccurrences = new Occurrences();
+            occurrences = occurrencesByKey.putIfAbsent(key, newOccurrences);
+            if (occurrences == null) {
+                occurrences = newOccurrences;
+            }
+        }
+        occurrences.add(fileId, line, column);
+    }
+
+    /**
+     * Gets dependencies between packages, sorted by the dependent package
+     * and then by the package it depends on.
+     * @return keys of edges, see {@link #getFrom(long)} and
+     *         {@link #getTo(long)}.
+     */
+    long[] getEdges()
+    {
+        final long[] result = new long[edges.size()];
+        int i = 0;
+        for (Long edge : edges.keySet()) {
+            result[i++] = edge;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Gets imports which make the dependency.
+     * @param edge
+     *        key of the edge.
+     * @return positions of imports.
+     */
+    Occurrences getImports(long edge)
+    {
+        return edges.get(edge);
+    }
+
+    /**
+     * Gets the key of the edge between packages.
+     * @param fromPackageId
+     *        id of the dependent package.
+     * @param toPackageId
+     *        id of the package it depends on.
+     * @return the key of the edge.
+     */
+    static long getEdge(int fromPackageId, int toPackageId)
+    {
+        return (long) fromPackageId << Integer.SIZE | toPackageId;
+    }
+
+    /**
+     * Gets the dependent package of the edge.
+     * @param edge
+     *        key of the edge.
+     * @return id of the package.
+     */
+    static int getFrom(long edge)
+    {
+        return (int) (edge >>> Integer.SIZE);
+    }
+
+    /**
+     * Gets the package which the edge depends on.
+     * @param edge
+     *        key of the edge.
+     * @return id of the package.
+     */
+    static int getTo(long edge)
+    {
+        return (int) edge;
+    }
+
+    /**
+     * Gets rows of the adjacency matrix in the compressed form: edges of the
+     * package take indexes from its row start up to the row start of the
+     * next package.
+     * @param sortedEdges
+     *        edges of the graph, sorted by the dependent package.
+     * @param packageCount
+     *        count of packages.
+     * @return indexes of the first edges by id of the package, and the count
+     *         of edges at the end.
+     */
+    static int[] getRowStarts(long[] sortedEdges, int packageCount)
+    {
+        final int[] result = new int[packageCount + 1];
+        for (long edge : sortedEdges) {
+            result[getFrom(edge) + 1]++;
+        }
+        for (int i = 0; i < packageCount; i++) {
+            result[i + 1] += result[i];
+        }
+        return result;
+    }
+
+    /**
+     * Finds strongly connected components of the graph by the algorithm of
+     * Tarjan, without recursion, so deep chains of packages do not overflow
+     * the stack. Packages of one component depend on each other, directly
+     * or through other packages of the component.
+     * @return ids of components by id of the package.
+     */
+    int[] getComponents()
+    {
+        final int packageCount = getPackageCount();
+        final long[] sortedEdges = getEdges();
+        final int[] rowStarts = getRowStarts(sortedEdges, packageCount);
+        final int[] targets = new int[sortedEdges.length];
+        for (int i = 0; i < sortedEdges.length; i++) {
+            targets[i] = getTo(sortedEdges[i]);
+        }
+
+        final int[] components = new int[packageCount];
+        final int[] indexes = new int[packageCount];
+        final int[] lowLinks = new int[packageCount];
+        final boolean[] onStack = new boolean[packageCount];
+        final int[] stack = new int[packageCount];
+        final int[] callNodes = new int[packageCount];
+        final int[] callEdges = new int[packageCount];
+        Arrays.fill(indexes, -1);
+        int stackSize = 0;
+        int index = 0;
+        int componentCount = 0;
+        for (int start = 0; start < packageCount; start++) {
+            if (indexes[start] != -1) {
+                continue;
+            }
+            int callDepth = 0;
+            callNodes[0] = start;
+            callEdges[0] = rowStarts[start];
+            indexes[start] = index;
+            lowLinks[start] = index;
+            index++;
+            stack[stackSize++] = start;
+            onStack[start] = true;
+            while (callDepth >= 0) {
+                final int node = callNodes[callDepth];
+                if (callEdges[callDepth] < rowStarts[node + 1]) {
+                    final int target = targets[callEdges[callDepth]++];
+                    if (indexes[target] == -1) {
+                        indexes[target] = index;
+                        lowLinks[target] = index;
+                        index++;
+                        stack[stackSize++] = target;
+                        onStack[target] = true;
+                        callDepth++;
+                        callNodes[callDepth] = target;
+                        callEdges[callDepth] = rowStarts[target];
+                    }
+                    else if (onStack[target]) {
+                        lowLinks[node] = Math.min(lowLinks[node], indexes[target]);
+                    }
+                }
+                else {
+                    if (lowLinks[node] == indexes[node]) {
+                        int member;
+                        do {
+                            member = stack[--stackSize];
+                            onStack[member] = false;
+                            components[member] = componentCount;
+                        }
+                        while (member != node);
+                        componentCount++;
+                    }
+                    callDepth--;
+                    if (callDepth >= 0) {
+                        final int caller = callNodes[callDepth];
+                        lowLinks[caller] = Math.min(lowLinks[caller], lowLinks[node]);
+                    }
+                }
+            }
+        }
+        return components;
+    }
+}
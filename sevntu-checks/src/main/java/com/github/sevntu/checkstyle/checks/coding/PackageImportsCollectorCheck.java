@@ -0,0 +1,141 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.sevntu.checkstyle.FileDependencies;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FullIdent;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import com.puppycrawl.tools.checkstyle.api.Utils;
+
+/**
+ * <p>
+ * Collects packages, top-level types and imports of files for
+ * {@link PackageDependencyGraphCheck}, which checks dependencies between
+ * packages when the audit finishes. They are taken from the syntax tree,
+ * which TreeWalker builds anyway, into the graph of the audit, which the
+ * reporting check creates when the audit begins. Without the reporting
+ * check nothing is collected. The check reports nothing itself.
+ * </p>
+ * <p>
+ * The check is configured as a child of TreeWalker, and the reporting check
+ * as a child of Checker:
+ * </p>
+ * <pre>
+ * &lt;module name="TreeWalker"&gt;
+ *    &lt;module name="PackageImportsCollectorCheck"/&gt;
+ * &lt;/module&gt;
+ * &lt;module name="PackageDependencyGraphCheck"/&gt;
+ * </pre>
+ * <p>
+ * Imports are collected only from files which TreeWalker processes, so the
+ * cacheFile property of TreeWalker should not be used with the check: files
+ * without violations in a previous audit are skipped by TreeWalker.
+ * </p>
+ */
+public class PackageImportsCollectorCheck extends Check
+    implements FileDependencies
+{
+    /**
+     * Imports of all files have to be collected, so results of files can
+     * not be reused by runners of audits without processing the files.
+     * @return true.
+     */
+    @Override
+    public boolean dependsOnSourceFiles()
+    {
+        return true;
+    }
+
+    @Override
+    public List<File> getDependencyFiles()
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public int[] getDefaultTokens()
+    {
+        // only top-level nodes are read, from the root of the tree
+        return new int[0];
+    }
+
+    @Override
+    public void beginTree(DetailAST rootAST)
+    {
+        final PackageGraph graph = PackageDependencyGraphCheck.getRunningGraph();
+        if (graph == null) {
+            return;
+        }
+        final int fileId = graph.getFileId(getFileContents().getFilename());
+        String packageName = "";
+        int packageId = graph.getPackageId(packageName);
+        for (DetailAST node = rootAST; node != null; node = node.getNextSibling()) {
+            switch (node.getType()) {
+                case TokenTypes.PACKAGE_DEF:
+                    packageName = FullIdent.createFullIdent(
+                            node.getLastChild().getPreviousSibling()).getText();
+                    packageId = graph.getPackageId(packageName);
+                    break;
+                case TokenTypes.IMPORT:
+                    graph.addImport(packageId,
+                            FullIdent.createFullIdent(node.getFirstChild()).getText(),
+                            false, fileId, node.getLineNo(), getColumn(node));
+                    break;
+                case TokenTypes.STATIC_IMPORT:
+                    graph.addImport(packageId, FullIdent.createFullIdent(
+                            node.getFirstChild().getNextSibling()).getText(),
+                            true, fileId, node.getLineNo(), getColumn(node));
+                    break;
+                case TokenTypes.CLASS_DEF:
+                case TokenTypes.INTERFACE_DEF:
+                case TokenTypes.ENUM_DEF:
+                case TokenTypes.ANNOTATION_DEF:
+                    final String typeName =
+                            node.findFirstToken(TokenTypes.IDENT).getText();
+                    if (packageName.length() > 0) {
+                        graph.addType(packageId, packageName + "." + typeName);
+                    }
+                    else {
+                        graph.addType(packageId, typeName);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Gets the column of the node, the same as Check.log() reports.
+     * @param node
+     *        the node.
+     * @return the column, starting from 1.
+     */
+    private int getColumn(DetailAST node)
+    {
+        return 1 + Utils.lengthExpandedTabs(getLines()[node.getLineNo() - 1],
+                node.getColumnNo(), getTabWidth());
+    }
+}
@@ -18,11 +18,7 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.coding;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.regex.Pattern;
 
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
@@ -101,9 +97,17 @@ public class ReturnCountExtendedCheck extends Check
     private static final int DEFAULT_TOP_LINES_TO_IGNORE_COUNT = 5;
 
     /**
-     * List contains RegExp patterns for methods' names which would be ignored by check.
+     * Default RegExp pattern for methods' names which would be ignored by check.
      */
-    private Set<String> ignoreMethodsNames = new HashSet<String>();
+    private static final String DEFAULT_IGNORE_METHODS_NAMES = "equals";
+
+    /**
+     * Combined RegExp pattern for methods' names which would be ignored by
+     * check, compiled once when the property is set. Null if no methods are
+     * ignored.
+     */
+    private Pattern ignoreMethodsNames =
+            Pattern.compile(DEFAULT_IGNORE_METHODS_NAMES);
 
     /**
      * Maximum allowed "return" literals count per method/ctor (1 by default).
@@ -141,11 +145,17 @@ public class ReturnCountExtendedCheck extends Check
      */
     public void setIgnoreMethodsNames(String [] ignoreMethodNames)
     {
-        ignoreMethodsNames.clear();
-        if (ignoreMethodNames != null) {
+        ignoreMethodsNames = null;
+        if (ignoreMethodNames != null && ignoreMethodNames.length > 0) {
+            // a name is ignored if any of the patterns matches it fully
+            final StringBuilder combined = new StringBuilder();
             for (String name : ignoreMethodNames) {
-                ignoreMethodsNames.add(name);
+                if (combined.length() > 0) {
+                    combined.append('|');
+                }
+                combined.append("(?:").append(name).append(')');
             }
+            ignoreMethodsNames = Pattern.compile(combined.toString());
         }
     }
 
@@ -207,14 +217,6 @@ public class ReturnCountExtendedCheck extends Check
         this.topLinesToIgnoreCount = topLinesToIgnoreCount;
     }
 
-    /**
-     * Creates the new check instance.
-     */
-    public ReturnCountExtendedCheck()
-    {
-        ignoreMethodsNames.add("equals");
-    }
-
     @Override
     public int[] getDefaultTokens()
     {
@@ -226,10 +228,7 @@ public class ReturnCountExtendedCheck extends Check
     {
         final DetailAST openingBrace = methodDefNode
                 .findFirstToken(TokenTypes.SLIST);
-        String methodName = getMethodName(methodDefNode);
-        if (openingBrace != null && (methodName == null 
-                || !matches(methodName, ignoreMethodsNames)))
-        {
+        if (openingBrace != null) {
             final DetailAST closingBrace = openingBrace.getLastChild();
 
             int curMethodLinesCount = getLinesCount(openingBrace,
@@ -241,17 +240,19 @@ public class ReturnCountExtendedCheck extends Check
 
             if (curMethodLinesCount >= ignoreMethodLinesCount) {
 
-                final int mCurReturnCount = getReturnCount(methodDefNode,
-                        openingBrace);
+                final int mCurReturnCount = getReturnCount(openingBrace);
+
+                final DetailAST methodNameToken = methodDefNode
+                        .findFirstToken(TokenTypes.IDENT);
+                final String methodName = methodNameToken.getText();
 
-                if (mCurReturnCount > maxReturnCount) {
+                if (mCurReturnCount > maxReturnCount
+                        && !isIgnoredMethodName(methodName))
+                {
                     final String mKey = (methodDefNode.getType()
                             == TokenTypes.METHOD_DEF)
                             ? WARNING_MSG_KEY_METHOD : WARNING_MSG_KEY_CTOR;
 
-                    final DetailAST methodNameToken = methodDefNode
-                            .findFirstToken(TokenTypes.IDENT);
-
                     log(methodNameToken, mKey,
                             methodName, mCurReturnCount,
                             maxReturnCount);
@@ -261,60 +262,59 @@ public class ReturnCountExtendedCheck extends Check
     }
 
     /**
-     * Gets the "return" statements count for given method/ctor and saves the
-     * last "return" statement DetailAST node for given method/ctor body. Uses
-     * an iterative algorithm.
+     * Gets the "return" statements count for given method/ctor body. Uses an
+     * iterative algorithm, which tracks the depth of "return" statements and
+     * the ignored top lines of the body in the same traversal.
      * @param methodOpeningBrace
      *        a DetailAST node that points to the current method`s opening
      *        brace.
-     * @param methodDefNode
-     *        DetailAST node is pointing to current method definition is being
-     *        processed.
      * @return "return" literals count for given method.
      */
-    private int getReturnCount(final DetailAST methodDefNode,
-            final DetailAST methodOpeningBrace)
+    private int getReturnCount(final DetailAST methodOpeningBrace)
     {
         int result = 0;
+        int depth = 0;
+        final int lastIgnoredLineNo = methodOpeningBrace.getLineNo()
+                + topLinesToIgnoreCount;
 
-        DetailAST curNode = methodOpeningBrace;
+        DetailAST curNode = methodOpeningBrace.getFirstChild();
 
         while (curNode != null) {
 
             // before node visiting
-            if (curNode.getType() == TokenTypes.RCURLY
-                    && curNode.getParent() == methodOpeningBrace)
+            final int type = curNode.getType();
+            if (type == TokenTypes.LITERAL_RETURN
+                    && depth < minIgnoreReturnDepth
+                    && shouldEmptyReturnStatementBeCounted(curNode)
+                    && curNode.getLineNo() > lastIgnoredLineNo)
             {
-                break; // stop at closing brace
-            }
-            else {
-                if (curNode.getType() == TokenTypes.LITERAL_RETURN
-                        && getDepth(methodDefNode
-                                , curNode) < minIgnoreReturnDepth
-                        && shouldEmptyReturnStatementBeCounted(curNode)
-                        && getLinesCount(methodOpeningBrace,
-                                curNode) > topLinesToIgnoreCount)
-                {
-                    result++;
-                }
+                result++;
             }
 
-            // before node leaving
-            DetailAST nextNode = curNode.getFirstChild();
-
-            final int type = curNode.getType();
             // skip nested methods (UI listeners, Runnable.run(), etc.)
-            if (type == TokenTypes.METHOD_DEF
-                  || type == TokenTypes.CLASS_DEF) // skip anonimous classes
+            // and anonimous classes
+            DetailAST nextNode = null;
+            if (type != TokenTypes.METHOD_DEF
+                    && type != TokenTypes.CLASS_DEF)
             {
-                nextNode = curNode.getNextSibling();
+                nextNode = curNode.getFirstChild();
             }
 
-            while ((curNode != null) && (nextNode == null)) {
-                // leave the visited Node
-                nextNode = curNode.getNextSibling();
-                if (nextNode == null) {
-                    curNode = curNode.getParent();
+            if (nextNode != null) {
+                if (isDepthBlock(type)) {
+                    depth++;
+                }
+            }
+            else {
+                while (curNode != methodOpeningBrace && nextNode == null) {
+                    // leave the visited Node
+                    nextNode = curNode.getNextSibling();
+                    if (nextNode == null) {
+                        curNode = curNode.getParent();
+                        if (isDepthBlock(curNode.getType())) {
+                            depth--;
+                        }
+                    }
                 }
             }
             curNode = nextNode;
@@ -339,55 +339,21 @@ public class ReturnCountExtendedCheck extends Check
     }
 
     /**
-     * Gets the depth level of given "return" statement. There are few supported
-     * coding blocks when depth counting: "if-else", "for", "while"/"do-while"
-     * and "switch".
-     * @param methodDefNode
-     *        a DetailAST node that points to the current method`s definition.
-     * @param returnStmtNode
-     *        given "return" statement node.
-     * @return the depth of given
+     * Checks whether the coding block increases the depth level of "return"
+     * statements inside it. There are few supported coding blocks when depth
+     * counting: "if-else", "for", "while"/"do-while", "switch" and "try".
+     * @param type
+     *        the type of the node.
+     * @return true, if the node is one of the counted coding blocks.
      */
-    private static int getDepth(DetailAST methodDefNode,
-            DetailAST returnStmtNode)
+    private static boolean isDepthBlock(int type)
     {
-        int result = 0;
-
-        DetailAST curNode = returnStmtNode;
-
-        while (!curNode.equals(methodDefNode)) {
-            curNode = curNode.getParent();
-            final int type = curNode.getType();
-            if (type == TokenTypes.LITERAL_IF
-                    || type == TokenTypes.LITERAL_SWITCH
-                    || type == TokenTypes.LITERAL_FOR
-                    || type == TokenTypes.LITERAL_DO
-                    || type == TokenTypes.LITERAL_WHILE
-                    || type == TokenTypes.LITERAL_TRY)
-            {
-                result++;
-            }
-        }
-        return result;
-    }
-
-    /**
-     * Gets the name of given method by DetailAST node is pointing to desired
-     * method definition.
-     * @param methodDefNode
-     *        a DetailAST node that points to the current method`s definition.
-     * @return the method name.
-     */
-    private static String getMethodName(DetailAST methodDefNode)
-    {
-        String result = null;
-        for (DetailAST curNode : getChildren(methodDefNode)) {
-            if (curNode.getType() == TokenTypes.IDENT) {
-                result = curNode.getText();
-                break;
-            }
-        }
-        return result;
+        return type == TokenTypes.LITERAL_IF
+                || type == TokenTypes.LITERAL_SWITCH
+                || type == TokenTypes.LITERAL_FOR
+                || type == TokenTypes.LITERAL_DO
+                || type == TokenTypes.LITERAL_WHILE
+                || type == TokenTypes.LITERAL_TRY;
     }
 
     /**
@@ -405,43 +371,16 @@ public class ReturnCountExtendedCheck extends Check
     }
 
     /**
-     * Gets all the children which are one level below on the current DetailAST
-     * parent node.
-     * @param node
-     *        Current parent node.
-     * @return The list of children one level below on the current parent node.
+     * Checks whether the method name is fully matched by one of the RegExp
+     * patterns of ignored methods.
+     * @param methodName
+     *        the name of the method.
+     * @return true if the method should be ignored by check.
      */
-    private static List<DetailAST> getChildren(final DetailAST node)
+    private boolean isIgnoredMethodName(String methodName)
     {
-        final List<DetailAST> result = new LinkedList<DetailAST>();
-        DetailAST curNode = node.getFirstChild();
-        while (curNode != null) {
-            result.add(curNode);
-            curNode = curNode.getNextSibling();
-        }
-        return result;
-    }
-    
-    /**
-     * Matches string to given list of RegExp patterns.
-     * 
-     * @param string
-     *            String to be matched.
-     * @param patterns
-     *            Collection of RegExp patterns to match with.
-     * @return true if given string could be fully matched by one of given patterns, false otherwise
-     */
-    private static boolean matches(String string, Collection<String> patterns) {
-        boolean result = false;
-        if (string != null && patterns != null && !patterns.isEmpty()) {
-            for (String pattern : patterns) {
-                if (string.matches(pattern)) {
-                    result = true;
-                    break;
-                }
-            }
-        }
-        return result;
+        return ignoreMethodsNames != null
+                && ignoreMethodsNames.matcher(methodName).matches();
     }
 
 }
@@ -0,0 +1,341 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2011  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Table of string literals found in all files of an audit. Literals are
+ * kept by a 64-bit hash of their text, with counts of their occurrences and
+ * files. The text of a literal is kept only when the literal occurs more
+ * often than duplicates are allowed, so it may be reported; the position of
+ * the first occurrence is kept in the literal itself, and a packed array of
+ * positions, where a position is a triple of integers: id of the file, line
+ * and column, is created only when the literal occurs again. Files are kept
+ * once and are referred to by id.
+ * </p>
+ * <p>
+ * Distinct literals with the same hash are counted as one literal; with a
+ * million of distinct literals the chance of that is about 3 in 100
+ * millions.
+ * </p>
+ * <p>
+ * The table of an audit is created by
+ * {@link MultipleStringLiteralsAcrossFilesCheck} when the audit begins and
+ * is filled by {@link StringLiteralsCollectorCheck} while TreeWalker
+ * processes files, possibly by several threads concurrently.
+ * </p>
+ * <p>
+ * The table is bounded: when the limit of distinct literals is reached, new
+ * literals are not added, while occurrences of already known literals are
+ * still counted; positions of a literal are kept up to the limit of
+ * positions, further occurrences are only counted.
+ * </p>
+ */
+final class StringLiteralTable
+{
+    /** Offset basis of the FNV-1a hash. */
+    private static final long HASH_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /** Prime of the FNV-1a hash. */
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    /** Count of bits of a byte. */
+    private static final int BYTE_SIZE = 8;
+
+    /** Mask of a byte. */
+    private static final int BYTE_MASK = 0xff;
+
+    /** Maximum count of distinct literals. */
+    private final int maxLiterals;
+
+    /** Maximum count of positions kept per literal. */
+    private final int maxPositions;
+
+    /** Count of occurrences of a literal which are allowed without a violation. */
+    private final int allowedDuplicates;
+
+    /** Occurrences of literals by hash of the literal. */
+    private final ConcurrentMap<Long, Literal> literals =
+            new ConcurrentHashMap<Long, Literal>();
+
+    /** Count of distinct literals, guarded by the lock of the literals. */
+    private int literalsCount;
+
+    /** Names of files by id. */
+    private final List<String> fileNames = new ArrayList<String>();
+
+    /** Ids of files by name. */
+    private final Map<String, Integer> fileIds = new HashMap<String, Integer>();
+
+    /** Whether some literals were not added because of the limit. */
+    private volatile boolean overflowed;
+
+    /**
+     * Creates the table.
+     * @param maxLiterals
+     *        maximum count of distinct literals.
+     * @param maxPositions
+     *        maximum count of positions kept per literal.
+     * @param allowedDuplicates
+     *        count of occurrences of a literal which are allowed without a
+     *        violation, texts of literals which occur more often are kept.
+     */
+    StringLiteralTable(int maxLiterals, int maxPositions, int allowedDuplicates)
+    {
+        this.maxLiterals = maxLiterals;
+        this.maxPositions = maxPositions;
+        this.allowedDuplicates = allowedDuplicates;
+    }
+
+    /**
+     * Gets id of the file, registering it on the first call.
+     * @param fileName
+     *        name of the file.
+     * @return id of the file.
+     */
+    synchronized int getFileId(String fileName)
+    {
+        Integer result = fileIds.get(fileName);
+        if (result == null) {
+            result = fileNames.size();
+            fileNames.add(fileName);
+            fileIds.put(fileName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets name of the file.
+     * @param fileId
+     *        id of the file.
+     * @return name of the file.
+     */
+    synchronized String getFileName(int fileId)
+    {
+        return fileNames.get(fileId);
+    }
+
+    /**
+     * Adds an occurrence of the literal.
+     * @param literal
+     *        text of the literal.
+     * @param fileId
+     *        id of the file.
+     * @param line
+     *        line of the literal.
+     * @param column
+     *        column of the literal.
+     * @param firstInFile
+     *        whether it is the first occurrence of the literal in the file.
+     */
+    void add(String literal, int fileId, int line, int column,
+            boolean firstInFile)
+    {
+        final Long key = hash(literal);
+        Literal occurrences = literals.get(key);
+        if (occurrences == null) {
+            // only new literals are added under the lock, so the limit is
+            // exact and occurrences of known literals are added without it
+            synchronized (literals) {
+                occurrences = literals.get(key);
+                if (occurrences == null) {
+                    if (literalsCount == maxLiterals) {
+                        overflowed = true;
+                    }
+                    else {
+                        literals.put(key, new Literal(fileId, line, column));
+                        literalsCount++;
+                    }
+                    return;
+                }
+            }
+        }
+        occurrences.add(literal, fileId, line, column, firstInFile,
+                allowedDuplicates, maxPositions);
+    }
+
+    /**
+     * Gets occurrences of the literals.
+     * @return occurrences by hash of the literal.
+     */
+    Map<Long, Literal> getLiterals()
+    {
+        return Collections.unmodifiableMap(literals);
+    }
+
+    /**
+     * Gets the maximum count of distinct literals.
+     * @return the maximum count of distinct literals.
+     */
+    int getMaxLiterals()
+    {
+        return maxLiterals;
+    }
+
+    /**
+     * Checks whether some literals were not added because of the limit.
+     * @return true if the limit of distinct literals was reached.
+     */
+    boolean isOverflowed()
+    {
+        return overflowed;
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash of the literal.
+     * @param literal
+     *        text of the literal.
+     * @return the hash.
+     */
+    static long hash(String literal)
+    {
+        long result = HASH_OFFSET_BASIS;
+        final int length = literal.length();
+        for (int i = 0; i < length; i++) {
+            final char character = literal.charAt(i);
+            result = (result ^ (character & BYTE_MASK)) * HASH_PRIME;
+            result = (result ^ (character >>> BYTE_SIZE)) * HASH_PRIME;
+        }
+        return result;
+    }
+
+    /**
+     * Occurrences of a literal: counts of occurrences and files, the first
+     * position, and the text and further positions once they are needed.
+     */
+    static final class Literal
+    {
+        /** Id of the file of the first occurrence. */
+        private final int firstFileId;
+
+        /** Line of the first occurrence. */
+        private final int firstLine;
+
+        /** Column of the first occurrence. */
+        private final int firstColumn;
+
+        /** Positions of occurrences, or null if the literal occurs once. */
+        private Occurrences positions;
+
+        /** Text of the literal, or null if it occurs as often as allowed. */
+        private String text;
+
+        /** Count of occurrences. */
+        private int count = 1;
+
+        /** Count of files the literal occurs in. */
+        private int filesCount = 1;
+
+        /**
+         * Creates occurrences of a literal by its first occurrence.
+         * @param fileId
+         *        id of the file.
+         * @param line
+         *        line of the literal.
+         * @param column
+         *        column of the literal.
+         */
+        Literal(int fileId, int line, int column)
+        {
+            firstFileId = fileId;
+            firstLine = line;
+            firstColumn = column;
+        }
+
+        /**
+         * Adds a further occurrence.
+         * @param literal
+         *        text of the literal.
+         * @param fileId
+         *        id of the file.
+         * @param line
+         *        line of the literal.
+         * @param column
+         *        column of the literal.
+         * @param firstInFile
+         *        whether it is the first occurrence in the file.
+         * @param allowedDuplicates
+         *        count of occurrences which are allowed without a violation.
+         * @param maxPositions
+         *        maximum count of kept positions.
+         */
+        synchronized void add(String literal, int fileId, int line,
+                int column, boolean firstInFile, int allowedDuplicates,
+                int maxPositions)
+        {
+            count++;
+            if (firstInFile) {
+                filesCount++;
+            }
+            if (text == null && count > allowedDuplicates) {
+                text = literal;
+            }
+            if (positions == null) {
+                positions = new Occurrences(maxPositions);
+                positions.add(firstFileId, firstLine, firstColumn);
+            }
+            positions.add(fileId, line, column);
+        }
+
+        /**
+         * Gets text of the literal.
+         * @return text of the literal, or null if the literal occurs not
+         *         more often than allowed.
+         */
+        synchronized String getText()
+        {
+            return text;
+        }
+
+        /**
+         * Gets count of occurrences.
+         * @return count of occurrences.
+         */
+        synchronized int getCount()
+        {
+            return count;
+        }
+
+        /**
+         * Gets count of files the literal occurs in.
+         * @return count of files.
+         */
+        synchronized int getFilesCount()
+        {
+            return filesCount;
+        }
+
+        /**
+         * Gets kept positions of occurrences.
+         * @return positions, or null if the literal occurs once.
+         */
+        synchronized Occurrences getPositions()
+        {
+            return positions;
+        }
+    }
+}
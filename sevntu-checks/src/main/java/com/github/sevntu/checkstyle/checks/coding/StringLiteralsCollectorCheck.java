@@ -0,0 +1,217 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.github.sevntu.checkstyle.FileDependencies;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import com.puppycrawl.tools.checkstyle.api.Utils;
+
+/**
+ * <p>
+ * Collects string literals of files for
+ * {@link MultipleStringLiteralsAcrossFilesCheck}, which reports literals
+ * duplicated in different files when the audit finishes. Literals are
+ * collected while TreeWalker walks the tree of the file, so files are not
+ * parsed again, into the table of the audit, which the reporting check
+ * creates when the audit begins. Without the reporting check nothing is
+ * collected. The check reports nothing itself.
+ * </p>
+ * <p>
+ * The check is not a mode of {@link MultipleStringLiteralsExtendedCheck}:
+ * that check reports duplicates of the file when its tree is finished,
+ * while duplicates across files can only be reported by a module of
+ * Checker after the last file, so the collector shares only the settings of
+ * ignored literals with it.
+ * </p>
+ * <p>
+ * The check is configured as a child of TreeWalker, and the reporting check
+ * as a child of Checker:
+ * </p>
+ * <pre>
+ * &lt;module name="TreeWalker"&gt;
+ *    &lt;module name="StringLiteralsCollectorCheck"&gt;
+ *       &lt;property name="ignoreStringsRegexp" value="^&quot;.{0,30}&quot;$"/&gt;
+ *    &lt;/module&gt;
+ * &lt;/module&gt;
+ * &lt;module name="MultipleStringLiteralsAcrossFilesCheck"/&gt;
+ * </pre>
+ * <p>
+ * Literals are collected only from files which TreeWalker processes, so the
+ * cacheFile property of TreeWalker should not be used with the check: files
+ * without violations in a previous audit are skipped by TreeWalker.
+ * </p>
+ */
+public class StringLiteralsCollectorCheck extends Check
+    implements FileDependencies
+{
+    /** Marks the TokenTypes where duplicate strings should be ignored. */
+    private final BitSet ignoreOccurrenceContext = new BitSet();
+
+    /**
+     * Count of currently visited tokens of {@link #ignoreOccurrenceContext}
+     * types, which are ancestors of the visited token.
+     */
+    private int ignoreOccurrenceContextDepth;
+
+    /** Pattern for matching ignored strings. */
+    private Pattern pattern;
+
+    /** Literals of the audit, or null if they are not collected. */
+    private StringLiteralTable table;
+
+    /** Id of the processed file in the table. */
+    private int fileId;
+
+    /** Literals which are already found in the processed file. */
+    private final Set<String> fileLiterals = new HashSet<String>();
+
+    /**
+     * Construct an instance with default values.
+     */
+    public StringLiteralsCollectorCheck()
+    {
+        setIgnoreStringsRegexp("^\"\"$");
+        ignoreOccurrenceContext.set(TokenTypes.ANNOTATION);
+    }
+
+    /**
+     * Sets regexp pattern for ignored strings.
+     * @param ignoreStringsRegexp
+     *        regexp pattern for ignored strings
+     */
+    public void setIgnoreStringsRegexp(String ignoreStringsRegexp)
+    {
+        if ((ignoreStringsRegexp != null)
+                && (ignoreStringsRegexp.length() > 0))
+        {
+            pattern = Utils.getPattern(ignoreStringsRegexp);
+        }
+        else {
+            pattern = null;
+        }
+    }
+
+    /**
+     * Sets the token types where duplicate strings are ignored.
+     * @param strRep
+     *        the string representation of the tokens
+     */
+    public void setIgnoreOccurrenceContext(String[] strRep)
+    {
+        ignoreOccurrenceContext.clear();
+        for (final String s : strRep) {
+            ignoreOccurrenceContext.set(TokenTypes.getTokenId(s));
+        }
+    }
+
+    /**
+     * Literals of all files have to be collected, so results of files can
+     * not be reused by runners of audits without processing the files.
+     * @return true.
+     */
+    @Override
+    public boolean dependsOnSourceFiles()
+    {
+        return true;
+    }
+
+    @Override
+    public List<File> getDependencyFiles()
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public int[] getDefaultTokens()
+    {
+        final int[] contextTokens = getRequiredTokens();
+        final int[] tokens = new int[contextTokens.length + 1];
+        tokens[0] = TokenTypes.STRING_LITERAL;
+        System.arraycopy(contextTokens, 0, tokens, 1, contextTokens.length);
+        return tokens;
+    }
+
+    @Override
+    public int[] getRequiredTokens()
+    {
+        final int[] tokens = new int[ignoreOccurrenceContext.cardinality()];
+        int index = 0;
+        for (int type = ignoreOccurrenceContext.nextSetBit(0); type >= 0;
+                type = ignoreOccurrenceContext.nextSetBit(type + 1))
+        {
+            tokens[index++] = type;
+        }
+        return tokens;
+    }
+
+    @Override
+    public void beginTree(DetailAST rootAST)
+    {
+        table = MultipleStringLiteralsAcrossFilesCheck.getRunningTable();
+        if (table != null) {
+            fileId = table.getFileId(getFileContents().getFilename());
+        }
+        fileLiterals.clear();
+        ignoreOccurrenceContextDepth = 0;
+    }
+
+    @Override
+    public void visitToken(DetailAST ast)
+    {
+        if (ast.getType() == TokenTypes.STRING_LITERAL && table != null
+                && ignoreOccurrenceContextDepth == 0
+                && (pattern == null || !pattern.matcher(ast.getText()).find()))
+        {
+            // columns are reported the same way as by Check.log()
+            final int column = 1 + Utils.lengthExpandedTabs(
+                    getLines()[ast.getLineNo() - 1], ast.getColumnNo(),
+                    getTabWidth());
+            table.add(ast.getText(), fileId, ast.getLineNo(), column,
+                    fileLiterals.add(ast.getText()));
+        }
+        if (ignoreOccurrenceContext.get(ast.getType())) {
+            ignoreOccurrenceContextDepth++;
+        }
+    }
+
+    @Override
+    public void leaveToken(DetailAST ast)
+    {
+        if (ignoreOccurrenceContext.get(ast.getType())) {
+            ignoreOccurrenceContextDepth--;
+        }
+    }
+
+    @Override
+    public void finishTree(DetailAST rootAST)
+    {
+        fileLiterals.clear();
+        table = null;
+    }
+}
@@ -18,9 +18,11 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.coding;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 
+import com.github.sevntu.checkstyle.FlatAst;
+import com.github.sevntu.checkstyle.TokenTypeIndex;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -100,11 +102,43 @@ public class TernaryPerExpressionCountCheck extends Check {
     
     private boolean ignoreIsolatedTernaryOnLine = true;
 
+    private DetailAST rootAST;
+
+    /**
+     * Sorted positions of counted ternary operators of the current file, collected
+     * once per file when the first expression is visited.
+     */
+    private int[] ternaryPositions;
+
+    /**
+     * Line number of the last line checked for isolated ternary operator.
+     */
+    private int lastCheckedLineNo;
+
+    /**
+     * Whether the last checked line contains only one ternary operator.
+     */
+    private boolean lastCheckedLineIsolated;
+
     @Override
     public int[] getDefaultTokens() {
         return new int[] { TokenTypes.EXPR };
     }
 
+    @Override
+    public void beginTree(DetailAST rootAST) {
+        this.rootAST = rootAST;
+    }
+
+    @Override
+    public void finishTree(DetailAST rootAST) {
+        if (ternaryPositions != null) {
+            TokenTypeIndex.release(rootAST);
+        }
+        this.rootAST = null;
+        ternaryPositions = null;
+    }
+
     /**
      * Sets the maximum number of ternary operators, default value = 1
      * 
@@ -140,38 +174,70 @@ public class TernaryPerExpressionCountCheck extends Check {
     @Override
     public void visitToken(DetailAST expressionNode) {
 
-        List<DetailAST> questionNodes = getQuestionNodes(expressionNode);
+        if (ternaryPositions == null) {
+            ternaryPositions = getTernaryPositions();
+        }
+
+        if (ternaryPositions.length > maxTernaryPerExpressionCount) {
+            final FlatAst flatAst = FlatAst.getInstance(rootAST);
+            final int position = flatAst.getNode(expressionNode);
+            final int first = indexOf(ternaryPositions, position);
+            final int last = indexOf(ternaryPositions, flatAst.getSubtreeEnd(position));
 
-        if (questionNodes.size() > maxTernaryPerExpressionCount) {
-            DetailAST firstQuestionNode = questionNodes.get(0);
-            log(firstQuestionNode, MSG_KEY, maxTernaryPerExpressionCount);
+            if (last - first > maxTernaryPerExpressionCount) {
+                DetailAST firstQuestionNode = flatAst.getAST(ternaryPositions[first]);
+                log(firstQuestionNode, MSG_KEY, maxTernaryPerExpressionCount);
+            }
         }
     }
 
     /**
-     * Puts question nodes from current expression node into the list
-     * @param expressionNode
-     *          Globally considering expression node
+     * Collects positions of question nodes of the file which are counted, so the
+     * ternary operators of any expression are the ones in the range of its subtree
      * @return
-     *          List of question nodes
+     *          Sorted positions of counted question nodes
      */
-    private List<DetailAST> getQuestionNodes(DetailAST expressionNode) {
-
-        List<DetailAST> questionNodes = new LinkedList<DetailAST>();
+    private int[] getTernaryPositions() {
 
-        DetailAST currentNode = expressionNode;
+        final TokenTypeIndex index = TokenTypeIndex.getInstance(rootAST);
+        final List<DetailAST> questionNodes = index.getNodes(0, index.size(),
+                new int[] {TokenTypes.QUESTION}, new int[0]);
 
-        do {
-            currentNode = getNextNode(expressionNode, currentNode);
-            if (currentNode != null
-                    && currentNode.getType() == TokenTypes.QUESTION
-                    && !isSkipTernaryOperator(currentNode)) {
-                questionNodes.add(currentNode);
+        int[] result = new int[questionNodes.size()];
+        int count = 0;
+        lastCheckedLineNo = 0;
+        for (DetailAST questionNode : questionNodes) {
+            if (!isSkipTernaryOperator(questionNode)) {
+                result[count] = index.getPosition(questionNode);
+                count++;
             }
+        }
 
-        } while (currentNode != null);
-        
-        return questionNodes;
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Finds the index of the first position which is not less than the given one
+     * @param positions
+     *          Sorted positions
+     * @param position
+     *          Position to search
+     * @return
+     *          Index in positions
+     */
+    private static int indexOf(int[] positions, int position) {
+        int low = 0;
+        int high = positions.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (positions[middle] < position) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
     }
 
     /**
@@ -202,9 +268,13 @@ public class TernaryPerExpressionCountCheck extends Check {
      */
     private boolean isIsolatedTernaryOnLine(DetailAST questionAST) {
         int lineNo = questionAST.getLineNo() - 1;
-        String line = getFileContents().getText().get(lineNo);
-        
-        return isSingleTernaryLine(line, lineNo); 
+        if (lineNo + 1 != lastCheckedLineNo) {
+            String line = getFileContents().getText().get(lineNo);
+            lastCheckedLineIsolated = isSingleTernaryLine(line, lineNo);
+            lastCheckedLineNo = lineNo + 1;
+        }
+
+        return lastCheckedLineIsolated;
     }
 
     /**
@@ -227,27 +297,4 @@ public class TernaryPerExpressionCountCheck extends Check {
         
         return questionsPerLine == 1;
     }
-
-    /**
-     * Gets the next node of a syntactical tree (child of a current node or
-     * sibling of a current node, or sibling of a parent of a current node)
-     * 
-     * @param expressionNode
-     *            Globally considering expression node
-     * @param currentNode
-     *            Current node of syntactical tree
-     * @return Next node after bypassing
-     */
-    private static DetailAST getNextNode(DetailAST expressionNode,
-            DetailAST currentNode) {
-        DetailAST toVisit = currentNode.getFirstChild();
-        while (toVisit == null && currentNode != expressionNode) {
-            toVisit = currentNode.getNextSibling();
-            if (toVisit == null) {
-                currentNode = currentNode.getParent();
-            }
-        }
-        
-        return toVisit;
-    }
 }
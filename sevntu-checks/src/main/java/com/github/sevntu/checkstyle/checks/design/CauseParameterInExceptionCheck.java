@@ -18,12 +18,16 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.design;
 
+import java.io.File;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
+import com.github.sevntu.checkstyle.FileDependencies;
+import com.github.sevntu.checkstyle.TypeHierarchyIndex;
 import com.github.sevntu.checkstyle.Utils;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
@@ -43,11 +47,21 @@ import com.puppycrawl.tools.checkstyle.api.TokenTypes;
  * <li>Exception classNames regexp. ("classNamesRegexp" option).</li>
  * <li>regexp to ignore classes by names ("ignoredClassNamesRegexp" option).
  * </li><li>The names of classes which would be considered as Exception cause
- * ("allowedCauseTypes" option).</li></ol><br>
+ * ("allowedCauseTypes" option).</li>
+ * <li>Whether classes which extend an Exception class of the project
+ * are checked too, even if their names don't match the className regexp
+ * ("useProjectTypeHierarchy" option). A class is considered as an
+ * Exception class if any of its superclasses, also from other files of
+ * the source directory, matches the className regexp or is Throwable.
+ * </li><li>Source directories of the project, separated by comma, whose
+ * files are searched for the superclasses ("sourceDirectories" option).
+ * By default the source directory is derived from the package of the
+ * checked file.</li></ol><br>
  * @author <a href="mailto:Daniil.Yaroslavtsev@gmail.com"> Daniil
  *         Yaroslavtsev</a>
  */
 public class CauseParameterInExceptionCheck extends Check
+    implements FileDependencies
 {
     /**
      * A key is pointing to the warning message text in "messages.properties"
@@ -80,6 +94,34 @@ public class CauseParameterInExceptionCheck extends Check
     private List<DetailAST> exceptionClassesToWarn =
             new LinkedList<DetailAST>();
 
+    /**
+     * Whether subclasses of Exception classes are checked regardless of
+     * their names.
+     */
+    private boolean useProjectTypeHierarchy;
+
+    /**
+     * Source directories of the project, or empty array to derive the source
+     * directory from the package of the file.
+     */
+    private String[] sourceDirectories = new String[0];
+
+    /**
+     * Whether the check is registered as a user of type hierarchy indexes.
+     */
+    private boolean typeHierarchyAcquired;
+
+    /**
+     * The root of the syntax tree of the file is currently being processed.
+     */
+    private DetailAST rootAST;
+
+    /**
+     * An index of the type hierarchy of the project of the file is currently
+     * being processed, or null if it is not requested yet.
+     */
+    private TypeHierarchyIndex typeHierarchyIndex;
+
     /**
      * Creates the new check instance.
      */
@@ -133,19 +175,74 @@ public class CauseParameterInExceptionCheck extends Check
         }
     }
 
+    /**
+     * Sets whether subclasses of Exception classes of the project are checked
+     * regardless of their names.
+     * @param useProjectTypeHierarchy
+     *        true to check subclasses of Exception classes.
+     */
+    public void setUseProjectTypeHierarchy(boolean useProjectTypeHierarchy)
+    {
+        this.useProjectTypeHierarchy = useProjectTypeHierarchy;
+    }
+
+    /**
+     * Sets source directories of the project, whose files are searched for
+     * superclasses if useProjectTypeHierarchy is set.
+     * @param sourceDirectories
+     *        - the list of directories separated by a comma.
+     */
+    public void setSourceDirectories(final String[] sourceDirectories)
+    {
+        this.sourceDirectories = sourceDirectories.clone();
+    }
+
+    @Override
+    public boolean dependsOnSourceFiles()
+    {
+        return useProjectTypeHierarchy;
+    }
+
+    @Override
+    public List<File> getDependencyFiles()
+    {
+        return Collections.emptyList();
+    }
+
     @Override
     public int[] getDefaultTokens()
     {
         return new int []{TokenTypes.CLASS_DEF, TokenTypes.CTOR_DEF, };
     }
 
+    @Override
+    public void beginTree(DetailAST rootAST)
+    {
+        this.rootAST = rootAST;
+        if (useProjectTypeHierarchy && !typeHierarchyAcquired) {
+            TypeHierarchyIndex.acquire();
+            typeHierarchyAcquired = true;
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (typeHierarchyAcquired) {
+            TypeHierarchyIndex.release();
+            typeHierarchyAcquired = false;
+        }
+        super.destroy();
+    }
+
     @Override
     public void visitToken(DetailAST ast)
     {
         switch (ast.getType()) {
             case TokenTypes.CLASS_DEF:
                 final String exceptionClassName = getName(ast);
-                if (classNamesRegexp.matcher(exceptionClassName).matches()
+                if ((classNamesRegexp.matcher(exceptionClassName).matches()
+                        || useProjectTypeHierarchy && extendsException(ast))
                     && !ignoredClassNamesRegexp.matcher(exceptionClassName)
                         .matches())
                 {
@@ -173,6 +270,37 @@ public class CauseParameterInExceptionCheck extends Check
             log(classDefNode, MSG_KEY, getName(classDefNode));
         }
         exceptionClassesToWarn.clear();
+        rootAST = null;
+        typeHierarchyIndex = null;
+    }
+
+    /**
+     * Checks whether any superclass of the given class is an Exception class:
+     * its name matches the className regexp or it is Throwable.
+     * @param classDefNode
+     *        The CLASS_DEF DetailAST node.
+     * @return true if the class extends an Exception class.
+     */
+    private boolean extendsException(DetailAST classDefNode)
+    {
+        if (typeHierarchyIndex == null) {
+            typeHierarchyIndex = TypeHierarchyIndex.getInstance(sourceDirectories,
+                    getFileContents().getFilename(), rootAST,
+                    getFileContents().getText().getCharset());
+        }
+        boolean result = false;
+        for (String supertype : typeHierarchyIndex.getSupertypes(
+                TypeHierarchyIndex.getQualifiedName(classDefNode)))
+        {
+            final String simpleName = TypeHierarchyIndex.getSimpleName(supertype);
+            if (classNamesRegexp.matcher(simpleName).matches()
+                    || "Throwable".equals(simpleName))
+            {
+                result = true;
+                break;
+            }
+        }
+        return result;
     }
 
     /**
@@ -18,10 +18,13 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.design;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
-import com.google.common.collect.Lists;
+import com.github.sevntu.checkstyle.FlatAst;
+import com.github.sevntu.checkstyle.TokenTypeIndex;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -71,6 +74,15 @@ public class ChildBlockLengthCheck extends Check
      */
     private static final int DEFAULT_IGNORE_BLOCK_LINESCOUNT = 50;
 
+    /**
+     * Types of nodes whose subtrees are not searched for child blocks:
+     * anonymous classes and nested methods.
+     */
+    private static final int[] SKIPPED_TYPES = {
+        TokenTypes.METHOD_DEF,
+        TokenTypes.CLASS_DEF,
+    };
+
     /**
      * Array contains all allowed block types to be checked. Supported block
      * types: LITERAL_IF, LITERAL_SWITCH, LITERAL_FOR, LITERAL_DO,
@@ -90,6 +102,36 @@ public class ChildBlockLengthCheck extends Check
      */
     private int ignoreBlockLinesCount = DEFAULT_IGNORE_BLOCK_LINESCOUNT;
 
+    /**
+     * The root of the syntax tree of the current file.
+     */
+    private DetailAST rootAST;
+
+    /**
+     * The view of the syntax tree of the current file.
+     */
+    private FlatAst flatAst;
+
+    /**
+     * Sizes of blocks with braces by position of the node, NONE for other
+     * nodes. Computed once per file, when the first block which is not
+     * ignored is visited.
+     */
+    private int[] blockSizes;
+
+    /**
+     * Maximum size of blocks in the subtree of the node, excluding subtrees
+     * of skipped types below the node, by position of the node.
+     */
+    private int[] maxSubtreeBlockSizes;
+
+    /**
+     * Whether all types of blocks are visited by TreeWalker, so the child
+     * blocks of a block without violations do not have to be checked from
+     * the parent block.
+     */
+    private boolean everyBlockVisited;
+
     /**
      * Sets allowed types of blocks to be checked. Supported block types:
      * LITERAL_IF, LITERAL_SWITCH, LITERAL_FOR, LITERAL_DO, LITERAL_WHILE,
@@ -133,6 +175,24 @@ public class ChildBlockLengthCheck extends Check
         return blockTypes;
     }
 
+    @Override
+    public void beginTree(DetailAST rootAST)
+    {
+        this.rootAST = rootAST;
+        flatAst = FlatAst.getInstance(rootAST);
+        everyBlockVisited = isEveryBlockVisited();
+    }
+
+    @Override
+    public void finishTree(DetailAST rootAST)
+    {
+        TokenTypeIndex.release(rootAST);
+        this.rootAST = null;
+        flatAst = null;
+        blockSizes = null;
+        maxSubtreeBlockSizes = null;
+    }
+
     @Override
     public void visitToken(DetailAST ast)
     {
@@ -146,26 +206,37 @@ public class ChildBlockLengthCheck extends Check
 
             if (parentBlockSize > ignoreBlockLinesCount) {
 
-                final List<DetailAST> childBlocks = getChildBlocks(
-                        aOpeningBrace, aClosingBrace);
+                if (blockSizes == null) {
+                    computeBlockSizes();
+                }
 
-                final List<DetailAST> badChildBlocks = getBadChildBlocks(
-                        childBlocks, parentBlockSize);
+                final List<Integer> badChildBlocks = new ArrayList<Integer>();
+                final int openingBrace = flatAst.getNode(aOpeningBrace);
+                final int firstNode = ast.getType() == TokenTypes.LITERAL_SWITCH
+                        ? flatAst.getNextSibling(openingBrace)
+                        : flatAst.getFirstChild(openingBrace);
+                collectBadChildBlocks(firstNode, parentBlockSize,
+                        badChildBlocks);
 
                 if (badChildBlocks.isEmpty()) {
-                    for (DetailAST childBlock : childBlocks) {
-                        visitToken(childBlock);
+                    if (!everyBlockVisited) {
+                        for (DetailAST childBlock : getChildBlocks(
+                                aOpeningBrace, aClosingBrace))
+                        {
+                            visitToken(childBlock);
+                        }
                     }
                 }
                 else {
-                    for (DetailAST badBlock : badChildBlocks) {
+                    for (int badBlock : badChildBlocks) {
 
-                        final int blockSize = linesCount(badBlock);
+                        final int blockSize = blockSizes[badBlock];
 
                         final double allowedBlockSize = (int) (parentBlockSize
                                 * maxChildBlockPercentage / PERCENTS_FACTOR);
 
-                        log(badBlock, MSG_KEY, blockSize, allowedBlockSize);
+                        log(flatAst.getAST(badBlock), MSG_KEY, blockSize,
+                                allowedBlockSize);
                     }
                 }
             }
@@ -173,112 +244,139 @@ public class ChildBlockLengthCheck extends Check
     }
 
     /**
-     * Gets all the child blocks for given parent block. Uses an iterative
-     * algorithm.
-     * @param blockOpeningBrace
-     *        a DetailAST node that points to the current method`s opening
-     *        brace.
-     * @param blockClosingBrace
-     *        the a block closing brace
-     * @return all child blocks that have braces.
+     * Checks whether TreeWalker visits blocks of all checked types, that is
+     * the check is not restricted to a part of them by the tokens property.
+     * @return true, if every block is visited.
      */
-    private List<DetailAST> getChildBlocks(DetailAST blockOpeningBrace,
-            DetailAST blockClosingBrace)
+    private boolean isEveryBlockVisited()
     {
-        final List<DetailAST> childBlocks = Lists.newLinkedList();
-
-        DetailAST curNode = blockOpeningBrace;
-
-        while (curNode != null) {
-            // before node visiting
-            if (curNode == blockClosingBrace) {
-                break; // stop at closing brace
-            }
-            else {
-                if (isAllowedBlockType(curNode.getType())) {
-                    childBlocks.add(curNode);
+        final Set<String> tokenNames = getTokenNames();
+        boolean result = true;
+        if (!tokenNames.isEmpty()) {
+            for (int blockType : blockTypes) {
+                if (!tokenNames.contains(TokenTypes.getTokenName(blockType))) {
+                    result = false;
+                    break;
                 }
             }
-            // before node leaving
-            DetailAST nextNode = curNode.getFirstChild();
+        }
+        return result;
+    }
 
-            final int type = curNode.getType();
-            // skip anonimous classes and nested methods
-            if (type == TokenTypes.METHOD_DEF
-                    || type == TokenTypes.CLASS_DEF)
-            {
-                nextNode = curNode.getNextSibling();
+    /**
+     * Computes sizes of all blocks of the file and maximum sizes of blocks in
+     * subtrees in one pass, visiting children before their parents.
+     */
+    private void computeBlockSizes()
+    {
+        int maxBlockType = 0;
+        for (int blockType : blockTypes) {
+            maxBlockType = Math.max(maxBlockType, blockType);
+        }
+        final boolean[] checkedTypes = new boolean[maxBlockType + 1];
+        for (int blockType : blockTypes) {
+            checkedTypes[blockType] = true;
+        }
+        final int size = flatAst.size();
+        blockSizes = new int[size];
+        maxSubtreeBlockSizes = new int[size];
+        Arrays.fill(maxSubtreeBlockSizes, FlatAst.NONE);
+        for (int node = size - 1; node >= 0; node--) {
+            final int type = flatAst.getType(node);
+            int blockSize = FlatAst.NONE;
+            if (type < checkedTypes.length && checkedTypes[type]) {
+                blockSize = linesCount(node);
             }
-
-            while ((curNode != null) && (nextNode == null)) {
-                // leave the visited node
-                nextNode = curNode.getNextSibling();
-                if (nextNode == null) {
-                    curNode = curNode.getParent();
-                }
+            blockSizes[node] = blockSize;
+            final int maxSize = Math.max(maxSubtreeBlockSizes[node], blockSize);
+            maxSubtreeBlockSizes[node] = maxSize;
+            final int parent = flatAst.getParent(node);
+            if (parent != FlatAst.NONE && !isSkipped(type)
+                    && maxSubtreeBlockSizes[parent] < maxSize)
+            {
+                maxSubtreeBlockSizes[parent] = maxSize;
             }
-            curNode = nextNode;
         }
-        return childBlocks;
     }
 
     /**
-     * Checks that given child block type is allowed.
-     * @param blockType
-     *        the token type ID for the given block.
-     * @return true, if the given child block type is allowed.
+     * Gets all the child blocks for given parent block. Uses the token type
+     * index of the file instead of the traversal of the block.
+     * @param blockOpeningBrace
+     *        a DetailAST node that points to the current method`s opening
+     *        brace.
+     * @param blockClosingBrace
+     *        the a block closing brace
+     * @return all child blocks that have braces.
      */
-    private boolean isAllowedBlockType(int blockType)
+    private List<DetailAST> getChildBlocks(DetailAST blockOpeningBrace,
+            DetailAST blockClosingBrace)
     {
-        boolean result = false;
-        for (int type : blockTypes) {
-            if (type == blockType) {
-                result = true;
-                break;
-            }
-        }
-        return result;
+        final TokenTypeIndex index = TokenTypeIndex.getInstance(rootAST);
+        return index.getNodes(index.getPosition(blockOpeningBrace),
+                index.getPosition(blockClosingBrace), blockTypes,
+                SKIPPED_TYPES);
     }
 
     /**
-     * Gets the child blocks which occupies too much size (in percentage) of
-     * given parent block size.
-     * @param blocksList
-     *        the blocks
+     * Collects the child blocks which occupies too much size (in percentage)
+     * of given parent block size, in the order of the document. Subtrees
+     * without such blocks are skipped by their maximum block size.
+     * @param firstNode
+     *        the first of sibling nodes to search, or NONE.
      * @param parentBlockSize
      *        the a parent block size
-     * @return the wrong child blocks
+     * @param result
+     *        the wrong child blocks
      */
-    private List<DetailAST> getBadChildBlocks(List<DetailAST> blocksList,
-            int parentBlockSize)
+    private void collectBadChildBlocks(int firstNode, int parentBlockSize,
+            List<Integer> result)
     {
-        final List<DetailAST> result = new LinkedList<DetailAST>();
-        for (DetailAST block : blocksList) {
-            if (isChildBlockBad(block, parentBlockSize)) {
-                result.add(block);
+        for (int node = firstNode; node != FlatAst.NONE;
+                node = flatAst.getNextSibling(node))
+        {
+            if (!isSkipped(flatAst.getType(node))
+                    && isChildBlockBad(maxSubtreeBlockSizes[node],
+                            parentBlockSize))
+            {
+                if (isChildBlockBad(blockSizes[node], parentBlockSize)) {
+                    result.add(node);
+                }
+                collectBadChildBlocks(flatAst.getFirstChild(node),
+                        parentBlockSize, result);
             }
         }
-        return result;
     }
 
     /**
      * Checks if the child block size percentage from parent block is greater
      * than.
-     * @param childBlock
-     *        the a child block node
+     * @param childBlockSize
+     *        the child block size in lines, or NONE if there is no block
      * @param parentBlockSize
      *        the a parent block size
      * @return true, if is child block wrong
      */
-    private boolean isChildBlockBad(DetailAST childBlock,
-            int parentBlockSize)
+    private boolean isChildBlockBad(int childBlockSize, int parentBlockSize)
+    {
+        return childBlockSize != FlatAst.NONE
+                && getPercentage(parentBlockSize, childBlockSize);
+    }
+
+    /**
+     * Checks whether subtrees of the node are not searched for child blocks.
+     * @param type
+     *        the type of the node.
+     * @return true, if the node is an anonymous class or a nested method.
+     */
+    private static boolean isSkipped(int type)
     {
         boolean result = false;
-        final DetailAST openingBrace = openingBrace(childBlock);
-        if (openingBrace != null) {
-            final DetailAST closingBrace = closingBrace(childBlock);
-            final int childBlockSize = linesCount(openingBrace, closingBrace);
-            result = getPercentage(parentBlockSize, childBlockSize);
+        for (int skippedType : SKIPPED_TYPES) {
+            if (type == skippedType) {
+                result = true;
+                break;
+            }
         }
         return result;
     }
@@ -329,14 +427,28 @@ public class ChildBlockLengthCheck extends Check
 
     /**
      * Gets the lines count between braces of the given block.
-     * @param blockAst
-     *        - the DetailAST node is related to the given block (the block
-     *        should have braces!).
-     * @return the lines count between the given block braces.
+     * @param block
+     *        the position of the block node.
+     * @return the lines count between the given block braces, or NONE if
+     *         the block has no braces.
      */
-    private static int linesCount(DetailAST blockAst)
+    private int linesCount(int block)
     {
-        return linesCount(openingBrace(blockAst), closingBrace(blockAst));
+        final boolean isSwitch =
+                flatAst.getType(block) == TokenTypes.LITERAL_SWITCH;
+        final int openingBrace = flatAst.findFirstChild(block,
+                isSwitch ? TokenTypes.LCURLY : TokenTypes.SLIST);
+        int result = FlatAst.NONE;
+        if (openingBrace != FlatAst.NONE) {
+            final int closingBrace = flatAst.getLastChild(
+                    isSwitch ? block : openingBrace);
+            result = flatAst.getLineNo(closingBrace)
+                    - flatAst.getLineNo(openingBrace);
+            if (result != 0) {
+                result--;
+            }
+        }
+        return result;
     }
 
     /**
@@ -83,12 +83,13 @@ public class PublicReferenceToPrivateTypeCheck extends Check
     /**
      * List containing names of private types (classes, interfaces or enums).
      */
-    private final Set<DetailAST> privateTypes = new HashSet<DetailAST>();
+    private final List<DetailAST> privateTypes = new ArrayList<DetailAST>();
 
     /**
-     * List containing the names of types returned by public methods or fields.
+     * List containing the names of types returned by public methods or fields,
+     * in the order of their definitions.
      */
-    private final Set<DetailAST> externallyReferencedTypes = new HashSet<DetailAST>();
+    private final List<DetailAST> externallyReferencedTypes = new ArrayList<DetailAST>();
 
     @Override
     public int[] getDefaultTokens()
@@ -137,17 +138,30 @@ public class PublicReferenceToPrivateTypeCheck extends Check
     @Override
     public void finishTree(DetailAST rootAst)
     {
+        final Set<String> privateTypeNames = new HashSet<String>();
         for (DetailAST privateType : privateTypes) {
+            privateTypeNames.add(privateType.getText());
+        }
+        // names of private types which are not accessible through
+        // a non-private supertype, each type is inspected once
+        final Set<String> inaccessibleTypeNames = new HashSet<String>();
+        for (DetailAST privateType : privateTypes) {
+            if (!inaccessibleTypeNames.contains(privateType.getText())
+                    && !isExtendsOrImplementsSmth(privateType.getParent(),
+                            privateTypeNames)) {
+                inaccessibleTypeNames.add(privateType.getText());
+            }
+        }
+        if (!inaccessibleTypeNames.isEmpty()) {
             for (DetailAST outReturnedType : externallyReferencedTypes) {
-                if (privateType.getText().equals(
-                        outReturnedType.getText())
-                        && !isExtendsOrImplementsSmth(privateType
-                                .getParent())) {
+                if (inaccessibleTypeNames.contains(outReturnedType.getText())) {
                     log(outReturnedType.getLineNo(), MSG_KEY,
                             outReturnedType.getText());
                 }
             }
         }
+        privateTypes.clear();
+        externallyReferencedTypes.clear();
     }
 
     /**
@@ -251,26 +265,32 @@ public class PublicReferenceToPrivateTypeCheck extends Check
      * Checks if defined type or interface extends or implements any
      * <u>non-private type</u>.
      * @param classOrInterfaceDefAst
+     * @param privateTypeNames
+     *        names of all private types of the file.
      * @return Method returns true if class extends or implements something.
      */
-    private boolean isExtendsOrImplementsSmth(DetailAST classOrInterfaceDefAst)
+    private static boolean isExtendsOrImplementsSmth(
+            DetailAST classOrInterfaceDefAst, Set<String> privateTypeNames)
     {
         return (classOrInterfaceDefAst
                 .branchContains(TokenTypes.EXTENDS_CLAUSE)
                 || classOrInterfaceDefAst
                 .branchContains(TokenTypes.IMPLEMENTS_CLAUSE))
-                && !isExtendsOrImplementsPrivate(classOrInterfaceDefAst);
+                && !isExtendsOrImplementsPrivate(classOrInterfaceDefAst,
+                        privateTypeNames);
     }
 
     /**
      * Checks if inner class or interface extends or implements <u>inner private
      * type</u>
      * @param classOrInterfaceDefAst
+     * @param privateTypeNames
+     *        names of all private types of the file.
      * @return true if extending or implementing type is in collection of inner
      *         private types
      */
-    private boolean
-            isExtendsOrImplementsPrivate(DetailAST classOrInterfaceDefAst)
+    private static boolean isExtendsOrImplementsPrivate(
+            DetailAST classOrInterfaceDefAst, Set<String> privateTypeNames)
     {
         boolean result = false;
 
@@ -296,11 +316,7 @@ public class PublicReferenceToPrivateTypeCheck extends Check
             currentNode = Utils.getNextSubTreeNode(currentNode, classOrInterfaceDefAst);
         }
 
-        Set<String> existingPrivateTypes = new HashSet<String>();
-        for (DetailAST privateType : privateTypes) {
-            existingPrivateTypes.add(privateType.getText());
-        }
-        if (existingPrivateTypes.containsAll(inheritedTypesNamesSet)) {
+        if (privateTypeNames.containsAll(inheritedTypesNamesSet)) {
             result = true;
         }
 
@@ -20,14 +20,18 @@
 package com.github.sevntu.checkstyle.checks.sizes;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.beanutils.ConversionException;
 
+import com.github.sevntu.checkstyle.ChangedLines;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileText;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 import com.puppycrawl.tools.checkstyle.api.Utils;
 
@@ -81,6 +85,9 @@ import com.puppycrawl.tools.checkstyle.api.Utils;
  * declarations. To ignore to check such lines there are enable|disable options.
  * By default they have "false" values.
  * </pre>
+ * <p>
+ * If the audit is scoped to changed lines, see {@link ChangedLines}, only changed lines are checked.
+ * </p>
  * 
  * @author Lars Kühne
  * @author <a href="mailto:ryly@mail.ru">Ruslan Dyachenko</a>
@@ -99,8 +106,28 @@ public class LineLengthExtendedCheck extends Check
 	/** the regexp when long lines are ignored */
 	private Pattern ignorePattern;
 
-	/** array of strings in source file */
-	private String[] lines;
+	/** orders intervals of lines by their first line */
+	private static final Comparator<int[]> INTERVAL_START_ORDER =
+			new Comparator<int[]>()
+			{
+				@Override
+				public int compare(int[] first, int[] second)
+				{
+					// line numbers are positive, so there is no overflow
+					return first[0] - second[0];
+				}
+			};
+
+	/**
+	 * intervals of ignored lines in source file, pairs of the first and
+	 * the last line number
+	 */
+	private final List<int[]> ignoredIntervals = new ArrayList<int[]>();
+
+	/**
+	 * changed lines of the file, or null if all lines are checked
+	 */
+	private ChangedLines.Ranges changedLines;
 
 	/** check field declaration length */
 	private boolean ignoreField;
@@ -208,14 +235,11 @@ public class LineLengthExtendedCheck extends Check
 		{
 			final int mNumberOfLine = ast.getLineNo();
 			if (null == endOfIgnoreLine) {
-				lines[mNumberOfLine - 1] = null;
+				ignoredIntervals.add(new int[] {mNumberOfLine, mNumberOfLine});
 			}
 			else {
-				int mEndNumberOfLine = endOfIgnoreLine.getLineNo();
-				while (mEndNumberOfLine >= mNumberOfLine) {
-					lines[mEndNumberOfLine - 1] = null;
-					mEndNumberOfLine--;
-				}
+				ignoredIntervals.add(new int[] {mNumberOfLine,
+					endOfIgnoreLine.getLineNo()});
 			}
 		}
 	}
@@ -223,26 +247,95 @@ public class LineLengthExtendedCheck extends Check
 	@Override
 	public void beginTree(DetailAST rootAST)
 	{
-		lines = getLines();
+		ignoredIntervals.clear();
+		changedLines = ChangedLines.getCurrentRanges(
+				getFileContents().getFilename());
 	}
 
 	@Override
 	public void finishTree(DetailAST rootAST)
 	{
-		for (int i = 0; i < lines.length; i++) {
-
-			if (null == lines[i]) {
-				continue;
+		final FileText text = getFileContents().getText();
+		final List<int[]> intervals = mergeIgnoredIntervals();
+		int intervalIndex = 0;
+		int lineNo = nextLineToCheck(1);
+		while (lineNo <= text.size()) {
+			while (intervalIndex < intervals.size()
+					&& intervals.get(intervalIndex)[1] < lineNo)
+			{
+				intervalIndex++;
+			}
+			if (intervalIndex < intervals.size()
+					&& intervals.get(intervalIndex)[0] <= lineNo)
+			{
+				lineNo = intervals.get(intervalIndex)[1] + 1;
+				intervalIndex++;
+			}
+			else {
+				checkLine(lineNo, text.get(lineNo - 1));
+				lineNo++;
 			}
+			lineNo = nextLineToCheck(lineNo);
+		}
+		ignoredIntervals.clear();
+		changedLines = null;
+	}
+
+	/**
+	 * Finds the first line to check starting from the given one: the line
+	 * itself, or the next changed line if only changed lines are checked.
+	 * @param lineNo
+	 *            number of the line to start from.
+	 * @return number of the line to check.
+	 */
+	private int nextLineToCheck(int lineNo)
+	{
+		if (changedLines == null) {
+			return lineNo;
+		}
+		return changedLines.nextLine(lineNo);
+	}
 
-			final String line = lines[i];
+	/**
+	 * Checks length of the line.
+	 * @param lineNo
+	 *            number of the line.
+	 * @param line
+	 *            the line.
+	 */
+	private void checkLine(int lineNo, String line)
+	{
+		// without tabs the length can not exceed count of characters,
+		// so most lines are accepted without expansion of tabs and regexp
+		if (line.length() > max || line.indexOf('\t') >= 0) {
 			final int realLength = Utils.lengthExpandedTabs(line,
 					line.length(), getTabWidth());
 
 			if ((realLength > max) && !ignorePattern.matcher(line).find()) {
-				log(i + 1, MSG_KEY, max, realLength);
+				log(lineNo, MSG_KEY, max, realLength);
+			}
+		}
+	}
+
+	/**
+	 * Sorts ignored intervals and merges the overlapping and adjacent ones.
+	 * @return sorted disjoint intervals of ignored lines.
+	 */
+	private List<int[]> mergeIgnoredIntervals()
+	{
+		Collections.sort(ignoredIntervals, INTERVAL_START_ORDER);
+		final List<int[]> result = new ArrayList<int[]>();
+		int[] last = null;
+		for (int[] interval : ignoredIntervals) {
+			if (last != null && interval[0] <= last[1] + 1) {
+				last[1] = Math.max(last[1], interval[1]);
+			}
+			else {
+				last = new int[] {interval[0], interval[1]};
+				result.add(last);
 			}
 		}
+		return result;
 	}
 
 	/**
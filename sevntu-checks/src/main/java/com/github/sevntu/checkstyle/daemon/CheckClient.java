@@ -0,0 +1,270 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.daemon;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+/**
+ * <p>
+ * Client of {@link CheckDaemon}, to be called by pre-commit hooks. It prints
+ * violations of files as the daemon reports them and exits with the count
+ * of errors, like Checkstyle does. Requests are authorized by the token
+ * which the daemon has written to its token file:
+ * </p>
+ * <pre>
+ * java -cp sevntu-checks.jar:checkstyle-all.jar
+ *     com.github.sevntu.checkstyle.daemon.CheckClient [-p port] [-t tokenFile]
+ *     [-diff file] file...
+ * java -cp sevntu-checks.jar:checkstyle-all.jar
+ *     com.github.sevntu.checkstyle.daemon.CheckClient [-p port] [-t tokenFile]
+ *     -stop
+ * </pre>
+ */
+public final class CheckClient
+{
+    /** Prevents instantiation. */
+    private CheckClient()
+    {
+    }
+
+    /**
+     * Sends files to the daemon for the audit and copies its response.
+     * @param port
+     *        the port of the daemon.
+     * @param tokenFile
+     *        the token file of the daemon.
+     * @param files
+     *        files to audit, relative paths are resolved against the
+     *        current directory of the client.
+     * @param output
+     *        the writer of violations.
+     * @return the count of errors.
+     * @throws IOException
+     *         if the daemon can not be reached or its token can not be read.
+     * @throws CheckstyleException
+     *         if the daemon could not run the audit.
+     */
+    public static int check(int port, File tokenFile, List<File> files,
+            Writer output)
+        throws IOException, CheckstyleException
+    {
+        return check(port, tokenFile, null, files, output);
+    }
+
+    /**
+     * Sends files to the daemon for the audit scoped to changed lines of the
+     * diff, and copies its response.
+     * @param port
+     *        the port of the daemon.
+     * @param tokenFile
+     *        the token file of the daemon.
+     * @param diffFile
+     *        the unified diff, with paths relative to the current directory
+     *        of the client, or null to audit whole files.
+     * @param files
+     *        files to audit, changed files of the diff if there are none.
+     * @param output
+     *        the writer of violations.
+     * @return the count of errors.
+     * @throws IOException
+     *         if the daemon can not be reached or its token can not be read.
+     * @throws CheckstyleException
+     *         if the daemon could not run the audit.
+     */
+    public static int check(int port, File tokenFile, File diffFile,
+            List<File> files, Writer output)
+        throws IOException, CheckstyleException
+    {
+        final List<String> request = new ArrayList<String>();
+        request.add(CheckDaemon.readToken(tokenFile));
+        if (diffFile == null) {
+            request.add(CheckDaemon.CHECK_COMMAND);
+        }
+        else {
+            request.add(CheckDaemon.CHECK_DIFF_COMMAND);
+            request.add(diffFile.getAbsolutePath());
+            request.add(new File("").getAbsolutePath());
+        }
+        for (File file : files) {
+            request.add(file.getAbsolutePath());
+        }
+        request.add("");
+        return send(port, request, output);
+    }
+
+    /**
+     * Stops the daemon.
+     * @param port
+     *        the port of the daemon.
+     * @param tokenFile
+     *        the token file of the daemon.
+     * @throws IOException
+     *         if the daemon can not be reached or its token can not be read.
+     * @throws CheckstyleException
+     *         if the daemon did not accept the request.
+     */
+    public static void stop(int port, File tokenFile)
+        throws IOException, CheckstyleException
+    {
+        final List<String> request = new ArrayList<String>();
+        request.add(CheckDaemon.readToken(tokenFile));
+        request.add(CheckDaemon.STOP_COMMAND);
+        send(port, request, new PrintWriter(System.out));
+    }
+
+    /**
+     * Sends the request to the daemon and copies the response up to its
+     * last line.
+     * @param port
+     *        the port of the daemon.
+     * @param request
+     *        lines of the request.
+     * @param output
+     *        the writer of the response.
+     * @return the result of the request.
+     * @throws IOException
+     *         if the daemon can not be reached.
+     * @throws CheckstyleException
+     *         if the daemon reported the failure of the request.
+     */
+    private static int send(int port, List<String> request, Writer output)
+        throws IOException, CheckstyleException
+    {
+        final Socket socket = new Socket(InetAddress.getByName(null), port);
+        try {
+            final PrintWriter writer = new PrintWriter(new BufferedWriter(
+                    new OutputStreamWriter(socket.getOutputStream(),
+                            CheckDaemon.CHARSET)));
+            for (String line : request) {
+                writer.println(line);
+            }
+            writer.flush();
+
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), CheckDaemon.CHARSET));
+            String line = reader.readLine();
+            while (line != null) {
+                if (line.startsWith(CheckDaemon.RESULT_PREFIX)) {
+                    return Integer.parseInt(
+                            line.substring(CheckDaemon.RESULT_PREFIX.length()));
+                }
+                if (line.startsWith(CheckDaemon.FAILURE_PREFIX)) {
+                    throw new CheckstyleException(
+                            line.substring(CheckDaemon.FAILURE_PREFIX.length()));
+                }
+                output.write(line);
+                output.write(System.getProperty("line.separator"));
+                output.flush();
+                line = reader.readLine();
+            }
+            throw new IOException("Daemon has closed the connection");
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Sends files to the daemon, prints violations to the standard output
+     * and exits with the count of errors.
+     * @param args
+     *        optional "-p" port, "-t" token file, "-stop" or optional "-diff"
+     *        file of changed lines and files to audit.
+     */
+    public static void main(String[] args)
+    {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Sends files to the daemon or stops it.
+     * @param args
+     *        optional "-p" port, "-t" token file, "-stop" or optional "-diff"
+     *        file of changed lines and files to audit.
+     * @param out
+     *        the stream of violations.
+     * @param err
+     *        the stream of failures.
+     * @return the count of errors, or 1 if the request has failed.
+     */
+    static int run(String[] args, PrintStream out, PrintStream err)
+    {
+        int port = CheckDaemon.DEFAULT_PORT;
+        File tokenFile = null;
+        boolean stop = false;
+        File diffFile = null;
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-p".equals(args[i]) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            }
+            else if ("-t".equals(args[i]) && i + 1 < args.length) {
+                tokenFile = new File(args[++i]);
+            }
+            else if ("-stop".equals(args[i])) {
+                stop = true;
+            }
+            else if ("-diff".equals(args[i]) && i + 1 < args.length) {
+                diffFile = new File(args[++i]);
+            }
+            else {
+                files.add(new File(args[i]));
+            }
+        }
+
+        if (tokenFile == null) {
+            tokenFile = CheckDaemon.getDefaultTokenFile(port);
+        }
+
+        int status = 0;
+        try {
+            if (stop) {
+                stop(port, tokenFile);
+            }
+            else {
+                status = check(port, tokenFile, diffFile, files,
+                        new PrintWriter(out));
+            }
+        }
+        catch (IOException e) {
+            err.println("Daemon is not available on port " + port
+                    + ": " + e.getMessage());
+            status = 1;
+        }
+        catch (CheckstyleException e) {
+            err.println(e.getMessage());
+            status = 1;
+        }
+        return status;
+    }
+}
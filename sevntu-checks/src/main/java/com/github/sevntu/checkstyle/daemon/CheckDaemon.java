@@ -0,0 +1,847 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.daemon;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.sevntu.checkstyle.ChangedLines;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * <p>
+ * Long-lived process which keeps a configured Checker loaded, so audits of a
+ * few files, as run by pre-commit hooks, do not pay for the start of the
+ * JVM, the loading of the configuration and the compilation of patterns of
+ * checks, and run code which is already compiled by the JIT.
+ * </p>
+ * <p>
+ * The daemon listens on a port of the loopback interface and audits one
+ * request at a time. Other users of the machine can connect to the port
+ * too, so the daemon generates a random token when it starts and writes it
+ * to a file which only the user can read, by default
+ * {@code ~/.sevntu-checks-daemon-<port>}; requests without the token are
+ * refused. The file is deleted when the daemon stops. Where the platform
+ * does not support permissions of other users, like Windows, the file is
+ * protected only by the home directory of the user.
+ * </p>
+ * <p>
+ * A client has {@value #DEFAULT_READ_TIMEOUT} milliseconds to send its
+ * request, so a client which connects and stays silent does not block the
+ * daemon; its connection is closed when the time is out. The response is
+ * written while files are audited, so the client has to read it.
+ * </p>
+ * <p>
+ * The configuration is loaded again before a request if the time of
+ * modification or the length of its file, or of a file named by a property
+ * of its modules, like the file of suppressions or of the header, is
+ * changed since the previous load. Files which are given by URLs or
+ * resources of the class path are not tracked.
+ * </p>
+ * <p>
+ * The protocol is plain UTF-8 text, so a hook may also talk to the daemon
+ * with tools like netcat instead of {@link CheckClient}. Each request starts
+ * with the line of the token. A request to audit is then the
+ * line {@value #CHECK_COMMAND} followed by absolute paths of files, one per
+ * line, up to an empty line or the end of the input; the line
+ * {@value #CHECK_DIFF_COMMAND} followed by the absolute path of a unified
+ * diff and the absolute path of the directory which paths of the diff are
+ * relative to, then paths of files as above, audits files in the scope of
+ * changed lines of the diff, see {@link ChangedLines}, or changed files of
+ * the diff if no files are given; the line
+ * {@value #STOP_COMMAND} stops the daemon. Violations are written back as
+ * soon as each file is processed, in the format of DefaultLogger, and the
+ * response ends with the line {@value #RESULT_PREFIX} and the count of
+ * errors, or {@value #FAILURE_PREFIX} and a message if the audit could not
+ * be run.
+ * </p>
+ * <pre>
+ * java -cp checkstyle-all.jar:sevntu-checks.jar
+ *     com.github.sevntu.checkstyle.daemon.CheckDaemon
+ *     -c config.xml [-p port] [-t tokenFile]
+ * </pre>
+ */
+public class CheckDaemon
+{
+    /** Default port of the daemon. */
+    public static final int DEFAULT_PORT = 17570;
+
+    /** The command to audit files. */
+    static final String CHECK_COMMAND = "check";
+
+    /** The command to audit files in the scope of changed lines. */
+    static final String CHECK_DIFF_COMMAND = "check-diff";
+
+    /** The command to stop the daemon. */
+    static final String STOP_COMMAND = "stop";
+
+    /** Prefix of the last line of the response of the finished audit. */
+    static final String RESULT_PREFIX = "#result ";
+
+    /** Prefix of the last line of the response of the failed request. */
+    static final String FAILURE_PREFIX = "#failed ";
+
+    /** Charset of the protocol. */
+    static final String CHARSET = "UTF-8";
+
+    /** Message of the refused request. */
+    static final String UNAUTHORIZED_MESSAGE = "Request is not authorized";
+
+    /** Default time in milliseconds which the client has to send the request in. */
+    static final int DEFAULT_READ_TIMEOUT = 10000;
+
+    /** The greatest port number. */
+    private static final int MAX_PORT = 65535;
+
+    /** Count of random bytes of the token. */
+    private static final int TOKEN_LENGTH = 16;
+
+    /** The configuration file of Checker. */
+    private final File configFile;
+
+    /** The class loader of modules. */
+    private final ClassLoader moduleClassLoader;
+
+    /** The socket which accepts requests. */
+    private final ServerSocket serverSocket;
+
+    /** The token which requests have to start with. */
+    private final String token;
+
+    /** The file of the token. */
+    private final File tokenFile;
+
+    /** Whether the daemon is stopped. */
+    private volatile boolean stopped;
+
+    /** Checker of the loaded configuration, or null. */
+    private Checker checker;
+
+    /**
+     * Files of the loaded configuration: the configuration file and files
+     * named by properties of its modules.
+     */
+    private final List<File> trackedFiles = new ArrayList<File>();
+
+    /** Times of modification and lengths of tracked files when they were loaded. */
+    private long[] trackedStamps;
+
+    /** Time in milliseconds which the client has to send the request in. */
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+
+    /** Count of loads of the configuration. */
+    private int loadCount;
+
+    /**
+     * Creates the daemon listening on the port of the loopback interface
+     * and writes its token. The configuration is loaded by the first
+     * request.
+     * @param configFile
+     *        the configuration file of Checker.
+     * @param moduleClassLoader
+     *        the class loader of modules.
+     * @param port
+     *        the port, or 0 to use any free port.
+     * @param tokenFile
+     *        the file of the token, or null to use the default file of the
+     *        port.
+     * @throws IOException
+     *         if the port can not be listened on, or the token can not be
+     *         written to the file which only the user can read.
+     */
+    public CheckDaemon(File configFile, ClassLoader moduleClassLoader, int port,
+            File tokenFile)
+        throws IOException
+    {
+        this.configFile = configFile;
+        this.moduleClassLoader = moduleClassLoader;
+        serverSocket = new ServerSocket(port, 0, InetAddress.getByName(null));
+        token = generateToken();
+        if (tokenFile == null) {
+            this.tokenFile = getDefaultTokenFile(serverSocket.getLocalPort());
+        }
+        else {
+            this.tokenFile = tokenFile;
+        }
+        try {
+            writeToken(this.tokenFile, token);
+        }
+        catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the file of the token of the daemon which listens on the port,
+     * when no file is given to the daemon.
+     * @param port
+     *        the port of the daemon.
+     * @return the file in the home directory of the user.
+     */
+    public static File getDefaultTokenFile(int port)
+    {
+        return new File(System.getProperty("user.home"),
+                ".sevntu-checks-daemon-" + port);
+    }
+
+    /**
+     * Gets the port which the daemon listens on.
+     * @return the port.
+     */
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the count of loads of the configuration.
+     * @return the count of loads.
+     */
+    int getLoadCount()
+    {
+        return loadCount;
+    }
+
+    /**
+     * Sets the time which the client has to send the request in.
+     * @param readTimeout
+     *        the time in milliseconds.
+     */
+    void setReadTimeout(int readTimeout)
+    {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Gets the file of the token of the daemon.
+     * @return the file of the token.
+     */
+    public File getTokenFile()
+    {
+        return tokenFile;
+    }
+
+    /**
+     * Serves requests until the daemon is stopped by the request or by
+     * {@link #stop()}, then destroys Checker and deletes the file of the
+     * token.
+     * @param err
+     *        the stream of failed and refused requests.
+     */
+    public void run(PrintStream err)
+    {
+        try {
+            while (!stopped) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                }
+                catch (IOException e) {
+                    if (stopped) {
+                        break;
+                    }
+                    throw new IllegalStateException("Request can not be accepted", e);
+                }
+                try {
+                    serve(socket, err);
+                }
+                catch (IOException e) {
+                    // the client went away or is silent, the next request
+                    // is served
+                    err.println("Request has failed: " + e.getMessage());
+                }
+                finally {
+                    close(socket);
+                }
+            }
+        }
+        finally {
+            stop();
+            if (checker != null) {
+                checker.destroy();
+                checker = null;
+            }
+            if (!tokenFile.delete()) {
+                err.println("Token file can not be deleted: " + tokenFile);
+            }
+        }
+    }
+
+    /**
+     * Stops the daemon. The request which is being served is finished
+     * first.
+     */
+    public void stop()
+    {
+        stopped = true;
+        try {
+            serverSocket.close();
+        }
+        catch (IOException e) {
+            // the socket is not used anymore
+            stopped = true;
+        }
+    }
+
+    /**
+     * Serves the request of the client.
+     * @param socket
+     *        the connection to the client.
+     * @param err
+     *        the stream of refused requests.
+     * @throws IOException
+     *         if the request can not be read, or is not read in time.
+     */
+    private void serve(Socket socket, PrintStream err) throws IOException
+    {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new RequestInputStream(socket, readTimeout), CHARSET));
+        final PrintWriter writer = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(socket.getOutputStream(), CHARSET)));
+        if (!isAuthorized(reader.readLine())) {
+            err.println(UNAUTHORIZED_MESSAGE + " from port " + socket.getPort());
+            writer.println(FAILURE_PREFIX + UNAUTHORIZED_MESSAGE);
+            writer.flush();
+            return;
+        }
+        final String command = reader.readLine();
+        if (STOP_COMMAND.equals(command)) {
+            stopped = true;
+            writer.println(RESULT_PREFIX + 0);
+        }
+        else if (CHECK_COMMAND.equals(command)) {
+            check(readFiles(reader), null, writer);
+        }
+        else if (CHECK_DIFF_COMMAND.equals(command)) {
+            final String diffFile = reader.readLine();
+            final String baseDirectory = reader.readLine();
+            final List<File> files = readFiles(reader);
+            if (baseDirectory == null) {
+                writer.println(FAILURE_PREFIX + "Diff is not given");
+                writer.flush();
+                return;
+            }
+            final ChangedLines changedLines;
+            try {
+                changedLines = ChangedLines.parse(new File(diffFile),
+                        new File(baseDirectory));
+            }
+            catch (IOException e) {
+                writer.println(FAILURE_PREFIX + "Diff can not be read: "
+                        + e.getMessage());
+                writer.flush();
+                return;
+            }
+            if (files.isEmpty()) {
+                for (File file : changedLines.getFiles()) {
+                    if (file.isFile()) {
+                        files.add(file);
+                    }
+                }
+            }
+            check(files, changedLines, writer);
+        }
+        else {
+            writer.println(FAILURE_PREFIX + "Unknown command: " + command);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Reads paths of files of the request, up to an empty line or the end
+     * of the request.
+     * @param reader
+     *        the reader of the request.
+     * @return files of the request.
+     * @throws IOException
+     *         if the request can not be read.
+     */
+    private static List<File> readFiles(BufferedReader reader)
+        throws IOException
+    {
+        final List<File> files = new ArrayList<File>();
+        String line = reader.readLine();
+        while (line != null && line.length() > 0) {
+            files.add(new File(line));
+            line = reader.readLine();
+        }
+        return files;
+    }
+
+    /**
+     * Audits files and writes violations to the client.
+     * @param files
+     *        files to audit.
+     * @param changedLines
+     *        changed lines which the audit is scoped to, or null.
+     * @param writer
+     *        the writer of the response.
+     */
+    private void check(List<File> files, ChangedLines changedLines,
+            PrintWriter writer)
+    {
+        final Checker currentChecker;
+        try {
+            currentChecker = getChecker();
+        }
+        catch (CheckstyleException e) {
+            writer.println(FAILURE_PREFIX + e.getMessage());
+            return;
+        }
+        final AuditListener logger = new StreamingLogger(writer);
+        currentChecker.addListener(logger);
+        try {
+            final int errors;
+            if (changedLines == null) {
+                errors = currentChecker.process(files);
+            }
+            else {
+                errors = changedLines.process(currentChecker, files);
+            }
+            writer.println(RESULT_PREFIX + errors);
+        }
+        finally {
+            currentChecker.removeListener(logger);
+        }
+    }
+
+    /**
+     * Gets Checker of the current configuration, loading the configuration
+     * again if its file or a file named by its modules is changed.
+     * @return the configured Checker.
+     * @throws CheckstyleException
+     *         if the configuration is not valid.
+     */
+    private Checker getChecker() throws CheckstyleException
+    {
+        if (checker == null
+                || !Arrays.equals(trackedStamps, getStamps(trackedFiles)))
+        {
+            if (checker != null) {
+                checker.destroy();
+                checker = null;
+            }
+            final List<File> files = new ArrayList<File>();
+            files.add(configFile);
+            // stamps are taken before the load, so a change during the load
+            // is noticed by the next request
+            final long[] configStamps = getStamps(files);
+            final Configuration config = ConfigurationLoader.loadConfiguration(
+                    configFile.getPath(),
+                    new PropertiesExpander(System.getProperties()));
+            final List<File> namedFiles = new ArrayList<File>();
+            collectNamedFiles(config, namedFiles);
+            final long[] namedStamps = getStamps(namedFiles);
+            final Checker newChecker = new Checker();
+            newChecker.setModuleClassLoader(moduleClassLoader);
+            newChecker.configure(config);
+            checker = newChecker;
+            files.addAll(namedFiles);
+            trackedFiles.clear();
+            trackedFiles.addAll(files);
+            trackedStamps = new long[configStamps.length + namedStamps.length];
+            System.arraycopy(configStamps, 0, trackedStamps, 0,
+                    configStamps.length);
+            System.arraycopy(namedStamps, 0, trackedStamps,
+                    configStamps.length, namedStamps.length);
+            loadCount++;
+        }
+        return checker;
+    }
+
+    /**
+     * Collects existing files which are named by properties of modules of
+     * the configuration, like files of suppressions or headers.
+     * @param config
+     *        the configuration of the module.
+     * @param files
+     *        the list to add files to.
+     * @throws CheckstyleException
+     *         if a property can not be read.
+     */
+    private static void collectNamedFiles(Configuration config,
+            List<File> files)
+        throws CheckstyleException
+    {
+        for (String name : config.getAttributeNames()) {
+            final File file = new File(config.getAttribute(name));
+            if (file.isFile()) {
+                files.add(file);
+            }
+        }
+        for (Configuration child : config.getChildren()) {
+            collectNamedFiles(child, files);
+        }
+    }
+
+    /**
+     * Gets times of modification and lengths of files.
+     * @param files
+     *        files.
+     * @return the time of modification and the length of each file.
+     */
+    private static long[] getStamps(List<File> files)
+    {
+        final long[] result = new long[files.size() * 2];
+        for (int i = 0; i < files.size(); i++) {
+            result[i * 2] = files.get(i).lastModified();
+            result[i * 2 + 1] = files.get(i).length();
+        }
+        return result;
+    }
+
+    /**
+     * Checks the token of the request. Tokens are compared in constant time,
+     * so the time of the refusal does not tell how much of the token is
+     * guessed.
+     * @param requestToken
+     *        the first line of the request, or null.
+     * @return true if the request has the token of the daemon.
+     * @throws IOException
+     *         if the token can not be encoded.
+     */
+    private boolean isAuthorized(String requestToken) throws IOException
+    {
+        return requestToken != null && MessageDigest.isEqual(
+                token.getBytes(CHARSET), requestToken.getBytes(CHARSET));
+    }
+
+    /**
+     * Generates the random token of the daemon.
+     * @return the token in hexadecimal digits.
+     */
+    private static String generateToken()
+    {
+        final byte[] bytes = new byte[TOKEN_LENGTH];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder builder = new StringBuilder();
+        for (byte value : bytes) {
+            builder.append(String.format("%02x", value));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the token to the new file, which is restricted to the user
+     * before the token is written. Access of other users is taken away
+     * where the platform supports it; on platforms without permissions of
+     * other users, like Windows, the file relies on the protection of its
+     * directory.
+     * @param tokenFile
+     *        the file of the token.
+     * @param token
+     *        the token.
+     * @throws IOException
+     *         if the file can not be created or written by the user.
+     */
+    private static void writeToken(File tokenFile, String token)
+        throws IOException
+    {
+        // a file left by another user is not reused
+        if (tokenFile.exists() && !tokenFile.delete()
+                || !tokenFile.createNewFile())
+        {
+            throw new IOException("Token file can not be created: " + tokenFile);
+        }
+        // the results are not checked, as Windows can not take away
+        // the permission to read
+        tokenFile.setReadable(false, false);
+        tokenFile.setWritable(false, false);
+        if (!tokenFile.setReadable(true, true)
+                || !tokenFile.setWritable(true, true))
+        {
+            tokenFile.delete();
+            throw new IOException("Token file can not be given to the user: "
+                    + tokenFile);
+        }
+        final FileOutputStream output = new FileOutputStream(tokenFile);
+        try {
+            output.write(token.getBytes(CHARSET));
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Reads the token of the daemon.
+     * @param tokenFile
+     *        the file of the token.
+     * @return the token.
+     * @throws IOException
+     *         if the file can not be read.
+     */
+    static String readToken(File tokenFile) throws IOException
+    {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(tokenFile), CHARSET));
+        try {
+            final String token = reader.readLine();
+            if (token == null) {
+                throw new IOException("Token file is empty: " + tokenFile);
+            }
+            return token;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Closes the connection to the client.
+     * @param socket
+     *        the connection.
+     */
+    private static void close(Socket socket)
+    {
+        try {
+            socket.close();
+        }
+        catch (IOException e) {
+            // the response is already written
+            return;
+        }
+    }
+
+    /**
+     * Runs the daemon until it is stopped by the client.
+     * @param args
+     *        "-c" configuration, optional "-p" port and "-t" token file.
+     * @throws IOException
+     *         if the port can not be listened on.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the daemon until it is stopped by the client.
+     * @param args
+     *        "-c" configuration, optional "-p" port and "-t" token file.
+     * @param out
+     *        the stream of the port which is listened on.
+     * @param err
+     *        the stream of the usage message and failed requests.
+     * @return 0 when the daemon is stopped, or 1 if arguments are not valid,
+     *         like a port which is not a number from 0 to 65535.
+     * @throws IOException
+     *         if the port can not be listened on.
+     */
+    static int run(String[] args, PrintStream out, PrintStream err)
+        throws IOException
+    {
+        String config = null;
+        int port = DEFAULT_PORT;
+        File tokenFile = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("-c".equals(args[i])) {
+                config = args[i + 1];
+            }
+            else if ("-p".equals(args[i])) {
+                try {
+                    port = Integer.parseInt(args[i + 1]);
+                }
+                catch (NumberFormatException e) {
+                    // reported by the usage message
+                    port = -1;
+                }
+            }
+            else if ("-t".equals(args[i])) {
+                tokenFile = new File(args[i + 1]);
+            }
+        }
+        if (config == null || port < 0 || port > MAX_PORT) {
+            err.println("Usage: CheckDaemon -c <configuration> [-p <port>]"
+                    + " [-t <token file>]");
+            err.println("<port> is a number from 0 to " + MAX_PORT
+                    + ", 0 to use any free port.");
+            return 1;
+        }
+
+        final CheckDaemon daemon = new CheckDaemon(new File(config),
+                CheckDaemon.class.getClassLoader(), port, tokenFile);
+        out.println("Listening on port " + daemon.getPort());
+        out.println("Token is written to " + daemon.getTokenFile());
+        out.flush();
+        daemon.run(err);
+        return 0;
+    }
+
+    /**
+     * Writes violations in the format of DefaultLogger and sends them to
+     * the client at the end of each file.
+     */
+    static final class StreamingLogger implements AuditListener
+    {
+        /** The writer of the response. */
+        private final PrintWriter writer;
+
+        /**
+         * Creates the logger.
+         * @param writer
+         *        the writer of the response.
+         */
+        StreamingLogger(PrintWriter writer)
+        {
+            this.writer = writer;
+        }
+
+        @Override
+        public void auditStarted(AuditEvent event)
+        {
+            // only violations are sent
+        }
+
+        @Override
+        public void auditFinished(AuditEvent event)
+        {
+            writer.flush();
+        }
+
+        @Override
+        public void fileStarted(AuditEvent event)
+        {
+            // only violations are sent
+        }
+
+        @Override
+        public void fileFinished(AuditEvent event)
+        {
+            writer.flush();
+        }
+
+        @Override
+        public void addError(AuditEvent event)
+        {
+            if (SeverityLevel.IGNORE.equals(event.getSeverityLevel())) {
+                return;
+            }
+            final StringBuilder line = new StringBuilder();
+            line.append(event.getFileName()).append(':').append(event.getLine());
+            if (event.getColumn() > 0) {
+                line.append(':').append(event.getColumn());
+            }
+            if (SeverityLevel.WARNING.equals(event.getSeverityLevel())) {
+                line.append(": warning");
+            }
+            line.append(": ").append(event.getMessage());
+            writer.println(line);
+        }
+
+        @Override
+        public void addException(AuditEvent event, Throwable throwable)
+        {
+            // the stack trace is not a part of the protocol, and is
+            // not useful to the client
+            String message = throwable.getMessage();
+            if (message == null) {
+                message = throwable.getClass().getName();
+            }
+            writer.println("Error auditing " + event.getFileName() + ": "
+                    + message);
+        }
+    }
+
+    /**
+     * Stream of the request which fails if the request is not read in the
+     * given time since the connection, even if the client sends it slowly.
+     */
+    static final class RequestInputStream extends FilterInputStream
+    {
+        /** The connection to the client. */
+        private final Socket socket;
+
+        /** The time when the request has to be read. */
+        private final long deadline;
+
+        /**
+         * Creates the stream of the request.
+         * @param socket
+         *        the connection to the client.
+         * @param timeout
+         *        the time in milliseconds to read the request in.
+         * @throws IOException
+         *         if the stream of the connection can not be opened.
+         */
+        RequestInputStream(Socket socket, int timeout) throws IOException
+        {
+            super(socket.getInputStream());
+            this.socket = socket;
+            deadline = System.currentTimeMillis() + timeout;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            setTimeout();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length)
+            throws IOException
+        {
+            setTimeout();
+            return super.read(buffer, offset, length);
+        }
+
+        /**
+         * Limits the next read of the connection to the rest of the time.
+         * @throws SocketTimeoutException
+         *         if the time is out.
+         * @throws IOException
+         *         if the timeout can not be set.
+         */
+        private void setTimeout() throws IOException
+        {
+            final long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("Request is not read in time");
+            }
+            socket.setSoTimeout((int) remaining);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.parallel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+/**
+ * <p>
+ * Listener of the audit of one {@link PartialChecker}, which records the
+ * events of the audit to replay them later in the order of files.
+ * </p>
+ * <p>
+ * Files are handed out to the Checker by the list of {@link #getFiles()}:
+ * its iterator claims the next file of the audit from the cursor which is
+ * shared by all recorders of the audit, so several Checkers may process
+ * files of the same list concurrently. Events which are fired while a
+ * claimed file is processed are recorded by the index of the file, events
+ * which are fired after the last file, e.g. by checks which report
+ * violations of several files at the end of the audit, are recorded in
+ * their order.
+ * </p>
+ * <p>
+ * When the recorder uses {@link ResultCache}, files whose results are cached
+ * are not handed out to the Checker: cached events are recorded for them
+ * instead, and results of the processed files are stored to the cache.
+ * </p>
+ */
+final class AuditRecorder implements AuditListener
+{
+    /** Index of the file which is not claimed. */
+    private static final int NO_FILE = -1;
+
+    /** All files of the audit. */
+    private final List<File> files;
+
+    /** Index of the next file to claim, shared by recorders of the audit. */
+    private final AtomicInteger nextFile;
+
+    /** Recorded events by the index of the file. */
+    private final Map<Integer, List<Event>> fileEvents =
+            new HashMap<Integer, List<Event>>();
+
+    /** Events which are fired after the last file. */
+    private final List<Event> trailingEvents = new ArrayList<Event>();
+
+    /** Index of the file which is processed now. */
+    private int currentFile = NO_FILE;
+
+    /** The cache of results of files, or null. */
+    private ResultCache resultCache;
+
+    /** Digests of the content of files, shared by recorders of the audit. */
+    private byte[][] digests;
+
+    /** The class loader of modules which reported cached errors. */
+    private ClassLoader moduleClassLoader;
+
+    /**
+     * Creates the recorder.
+     * @param files
+     *        all files of the audit.
+     * @param nextFile
+     *        index of the next file to claim, shared by recorders of the
+     *        audit.
+     */
+    AuditRecorder(List<File> files, AtomicInteger nextFile)
+    {
+        this.files = files;
+        this.nextFile = nextFile;
+    }
+
+    /**
+     * Enables reuse and storing of cached results of files.
+     * @param cache
+     *        the cache of results.
+     * @param fileDigests
+     *        digests of the content of files, shared by recorders of the
+     *        audit, which are filled for claimed files.
+     * @param classLoader
+     *        the class loader of modules which reported cached errors.
+     */
+    void setResultCache(ResultCache cache, byte[][] fileDigests,
+            ClassLoader classLoader)
+    {
+        resultCache = cache;
+        digests = fileDigests;
+        moduleClassLoader = classLoader;
+    }
+
+    /**
+     * Gets the list of files to process by the Checker: each file is
+     * returned by its iterator only once for all recorders of the audit.
+     * @return the list of files.
+     */
+    List<File> getFiles()
+    {
+        return new ClaimedFiles();
+    }
+
+    /**
+     * Gets the recorded events of the file.
+     * @param fileIndex
+     *        the index of the file.
+     * @return events of the file in the order they were fired.
+     */
+    List<Event> getFileEvents(int fileIndex)
+    {
+        final List<Event> result = fileEvents.get(fileIndex);
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return result;
+    }
+
+    /**
+     * Adds events of the file which were not fired to the recorder, e.g.
+     * cached ones.
+     * @param fileIndex
+     *        the index of the file.
+     * @param events
+     *        events of the file.
+     */
+    void addFileEvents(int fileIndex, List<Event> events)
+    {
+        fileEvents.put(fileIndex, new ArrayList<Event>(events));
+    }
+
+    /**
+     * Adds events after the last file which were not fired to the recorder,
+     * e.g. cached ones.
+     * @param events
+     *        the events.
+     */
+    void addTrailingEvents(List<Event> events)
+    {
+        trailingEvents.addAll(events);
+    }
+
+    /**
+     * Gets events which were fired after the last file.
+     * @return the events in the order they were fired.
+     */
+    List<Event> getTrailingEvents()
+    {
+        return trailingEvents;
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event)
+    {
+        // the replay starts the audit
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event)
+    {
+        // the replay finishes the audit
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event)
+    {
+        record(new Event(Event.Kind.FILE_STARTED, event, null));
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event)
+    {
+        record(new Event(Event.Kind.FILE_FINISHED, event, null));
+        if (resultCache != null && currentFile != NO_FILE) {
+            resultCache.putFileEvents(files.get(currentFile).getAbsolutePath(),
+                    digests[currentFile], getFileEvents(currentFile));
+        }
+    }
+
+    @Override
+    public void addError(AuditEvent event)
+    {
+        record(new Event(Event.Kind.ERROR, event, null));
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable)
+    {
+        record(new Event(Event.Kind.EXCEPTION, event, throwable));
+    }
+
+    /**
+     * Records the event for the current file, or as a trailing event.
+     * @param event
+     *        the event.
+     */
+    private void record(Event event)
+    {
+        if (currentFile == NO_FILE) {
+            trailingEvents.add(event);
+        }
+        else {
+            List<Event> events = fileEvents.get(currentFile);
+            if (events == null) {
+                events = new ArrayList<Event>();
+                fileEvents.put(currentFile, events);
+            }
+            events.add(event);
+        }
+    }
+
+    /**
+     * Records cached events of the file, if its results are cached.
+     * @param fileIndex
+     *        the index of the file.
+     * @return true if cached events are recorded.
+     */
+    private boolean restoreFromCache(int fileIndex)
+    {
+        if (resultCache == null) {
+            return false;
+        }
+        final File file = files.get(fileIndex);
+        try {
+            digests[fileIndex] = ResultCache.digest(file);
+        }
+        catch (IOException e) {
+            // Checker reports the file which can not be read
+            return false;
+        }
+        final List<Event> events = resultCache.getFileEvents(
+                file.getAbsolutePath(), digests[fileIndex], moduleClassLoader);
+        if (events == null) {
+            return false;
+        }
+        addFileEvents(fileIndex, events);
+        return true;
+    }
+
+    /**
+     * Recorded event of the audit.
+     */
+    static final class Event
+    {
+        /**
+         * Kinds of events.
+         */
+        enum Kind
+        {
+            /** Start of a file. */
+            FILE_STARTED,
+            /** End of a file. */
+            FILE_FINISHED,
+            /** Error. */
+            ERROR,
+            /** Exception. */
+            EXCEPTION,
+        }
+
+        /** The kind of the event. */
+        private final Kind kind;
+
+        /** The event. */
+        private final AuditEvent auditEvent;
+
+        /** The exception, for exception events. */
+        private final Throwable throwable;
+
+        /**
+         * Creates the event.
+         * @param kind
+         *        the kind of the event.
+         * @param auditEvent
+         *        the event.
+         * @param throwable
+         *        the exception, for exception events.
+         */
+        Event(Kind kind, AuditEvent auditEvent, Throwable throwable)
+        {
+            this.kind = kind;
+            this.auditEvent = auditEvent;
+            this.throwable = throwable;
+        }
+
+        /**
+         * Gets the kind of the event.
+         * @return the kind.
+         */
+        Kind getKind()
+        {
+            return kind;
+        }
+
+        /**
+         * Gets the event.
+         * @return the event.
+         */
+        AuditEvent getAuditEvent()
+        {
+            return auditEvent;
+        }
+
+        /**
+         * Fires the event to the listener.
+         * @param listener
+         *        the listener.
+         */
+        void fireTo(AuditListener listener)
+        {
+            switch (kind) {
+            case FILE_STARTED:
+                listener.fileStarted(auditEvent);
+                break;
+            case FILE_FINISHED:
+                listener.fileFinished(auditEvent);
+                break;
+            case ERROR:
+                listener.addError(auditEvent);
+                break;
+            default:
+                listener.addException(auditEvent, throwable);
+                break;
+            }
+        }
+    }
+
+    /**
+     * List of files of the audit whose iterator claims files from the shared
+     * cursor and makes them current for the recorder. Files whose results
+     * are restored from the cache are skipped.
+     */
+    private final class ClaimedFiles extends AbstractList<File>
+    {
+        @Override
+        public File get(int index)
+        {
+            return files.get(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return files.size();
+        }
+
+        @Override
+        public Iterator<File> iterator()
+        {
+            return new Iterator<File>()
+            {
+                /** Index of the claimed file which is not returned yet. */
+                private int claimed = NO_FILE;
+
+                @Override
+                public boolean hasNext()
+                {
+                    if (claimed == NO_FILE) {
+                        int index = nextFile.getAndIncrement();
+                        while (index < files.size() && restoreFromCache(index)) {
+                            index = nextFile.getAndIncrement();
+                        }
+                        if (index < files.size()) {
+                            claimed = index;
+                        }
+                        else {
+                            currentFile = NO_FILE;
+                        }
+                    }
+                    return claimed != NO_FILE;
+                }
+
+                @Override
+                public File next()
+                {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    currentFile = claimed;
+                    claimed = NO_FILE;
+                    return files.get(currentFile);
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,891 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.parallel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.sevntu.checkstyle.ChangedLines;
+import com.github.sevntu.checkstyle.FileDependencies;
+import com.github.sevntu.checkstyle.PackageModuleFactory;
+import com.github.sevntu.checkstyle.parallel.AuditRecorder.Event;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.DefaultLogger;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevelCounter;
+
+/**
+ * <p>
+ * Runs an audit of a Checker configuration on several threads. Checks are
+ * not designed for concurrent use, as they keep the state of the processed
+ * file in their fields, so each worker thread has its own Checker with its
+ * own instances of TreeWalker modules. Workers take the next unprocessed
+ * file of the audit as soon as they finish the previous one, so large files
+ * do not hold back the rest of the audit.
+ * </p>
+ * <p>
+ * FileSetChecks which are not TreeWalker modules may report violations of
+ * several files at the end of the audit, so they are run by one more
+ * Checker on all files, on the calling thread. They may report data which
+ * checks of TreeWalker modules collect, like
+ * {@link com.github.sevntu.checkstyle.checks.coding.StringLiteralsCollectorCheck},
+ * so workers are run when these FileSetChecks have begun the audit, before
+ * its first file, and the audit is finished when the workers are done.
+ * </p>
+ * <p>
+ * Events of the audit are recorded by the workers and fired to listeners
+ * when all files are processed, in the order of the files: the output is
+ * the same as the output of the audit by one Checker, so only the time of
+ * the audit depends on the count of threads. The result of the audit is
+ * only available at its end.
+ * </p>
+ * <p>
+ * Results may be kept in a cache file, see {@link #setCacheFile(File)}:
+ * files whose content is not changed since the previous audit with the same
+ * configuration are not processed again. Results of FileSetChecks which are
+ * not TreeWalker modules are reused only if no file of the audit is
+ * changed. The cache is not used if a configured check declares that its
+ * results depend on other source files, see {@link FileDependencies}; then
+ * all files are processed by TreeWalker on each audit, even the ones
+ * without violations in the previous audit.
+ * </p>
+ * <p>
+ * The audit may be scoped to changed lines of files, see
+ * {@link #setChangedLines(ChangedLines)}: only violations on changed lines
+ * are reported, and checks which support the scope skip parts of files
+ * without changed lines.
+ * </p>
+ * <p>
+ * It may be used instead of Checker by the code which runs audits, or from
+ * the command line:
+ * </p>
+ * <pre>
+ * java -cp checkstyle-all.jar:sevntu-checks.jar
+ *     com.github.sevntu.checkstyle.parallel.ParallelChecker
+ *     -c config.xml [-j threads] [-cache file] [-diff file] file|directory...
+ * </pre>
+ */
+public class ParallelChecker
+{
+    /** Default maximum count of files whose results are kept in the cache. */
+    public static final int DEFAULT_MAX_CACHE_ENTRIES = 100000;
+
+    /** Orders errors of a file like Checker does. */
+    private static final Comparator<Event> ERROR_ORDER = new Comparator<Event>()
+    {
+        @Override
+        public int compare(Event first, Event second)
+        {
+            return first.getAuditEvent().getLocalizedMessage().compareTo(
+                    second.getAuditEvent().getLocalizedMessage());
+        }
+    };
+
+    /** Checkers of TreeWalker modules, one per worker. */
+    private final List<PartialChecker> workers = new ArrayList<PartialChecker>();
+
+    /**
+     * TreeWalkers of workers whose files have to be processed on each
+     * audit, empty if TreeWalker may skip files without violations.
+     */
+    private final List<TreeWalker> uncachedTreeWalkers =
+            new ArrayList<TreeWalker>();
+
+    /** Checker of the other FileSetChecks. */
+    private final PartialChecker fileSetChecker;
+
+    /** Threads of workers. */
+    private final ExecutorService executor;
+
+    /** Listeners of the audit. */
+    private final List<AuditListener> listeners = new ArrayList<AuditListener>();
+
+    /** The class loader of modules. */
+    private final ClassLoader moduleClassLoader;
+
+    /**
+     * Fingerprint of the configuration for the cache, or null if results
+     * can not be cached.
+     */
+    private final String cacheFingerprint;
+
+    /** The cache file, or null. */
+    private File cacheFile;
+
+    /** Maximum count of files whose results are kept in the cache. */
+    private int maxCacheEntries = DEFAULT_MAX_CACHE_ENTRIES;
+
+    /** Loaded cache of results. */
+    private ResultCache resultCache;
+
+    /** Changed lines which the audit is scoped to, or null. */
+    private ChangedLines changedLines;
+
+    /**
+     * Creates and configures Checkers of workers.
+     * @param config
+     *        the configuration of Checker.
+     * @param moduleClassLoader
+     *        the class loader of modules.
+     * @param threads
+     *        the count of worker threads.
+     * @throws CheckstyleException
+     *         if the configuration is not valid.
+     */
+    public ParallelChecker(Configuration config, ClassLoader moduleClassLoader,
+            int threads) throws CheckstyleException
+    {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Count of threads should be"
+                    + " positive: " + threads);
+        }
+        final List<Object> workerModules = new ArrayList<Object>();
+        for (int i = 0; i < threads; i++) {
+            final ModuleCollector modules = new ModuleCollector(moduleClassLoader);
+            workers.add(createChecker(config, modules, true));
+            workerModules.addAll(modules.getModules());
+        }
+        final ModuleCollector modules = new ModuleCollector(moduleClassLoader);
+        fileSetChecker = createChecker(config, modules, false);
+        executor = Executors.newFixedThreadPool(threads);
+        this.moduleClassLoader = moduleClassLoader;
+        if (ResultCache.dependsOnSourceFiles(modules.getModules())) {
+            cacheFingerprint = null;
+            for (Object module : workerModules) {
+                if (module instanceof TreeWalker) {
+                    uncachedTreeWalkers.add((TreeWalker) module);
+                }
+            }
+        }
+        else {
+            cacheFingerprint =
+                    ResultCache.fingerprint(config, modules.getModules());
+        }
+    }
+
+    /**
+     * Sets the file to keep results of audits in.
+     * @param cacheFile
+     *        the cache file, or null to process all files.
+     */
+    public void setCacheFile(File cacheFile)
+    {
+        this.cacheFile = cacheFile;
+        resultCache = null;
+    }
+
+    /**
+     * Sets the maximum count of files whose results are kept in the cache.
+     * Results of the files which were not audited recently are evicted
+     * first.
+     * @param maxCacheEntries
+     *        the count of files.
+     */
+    public void setMaxCacheEntries(int maxCacheEntries)
+    {
+        this.maxCacheEntries = maxCacheEntries;
+        resultCache = null;
+    }
+
+    /**
+     * Scopes audits to changed lines of files: violations of other lines
+     * and of files without changed lines are not reported. Results of
+     * scoped audits are not cached, as checks skip parts of files.
+     * @param changedLines
+     *        changed lines of files, or null to report all violations.
+     */
+    public void setChangedLines(ChangedLines changedLines)
+    {
+        this.changedLines = changedLines;
+    }
+
+    /**
+     * Adds the listener of the audit.
+     * @param listener
+     *        the listener.
+     */
+    public void addListener(AuditListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes the listener of the audit.
+     * @param listener
+     *        the listener.
+     */
+    public void removeListener(AuditListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Runs the audit of files and fires its events to listeners in the
+     * order of files.
+     * @param files
+     *        files to audit.
+     * @return the count of errors.
+     */
+    public int process(List<File> files)
+    {
+        final ResultCache cache = getResultCache();
+        final byte[][] digests = new byte[files.size()][];
+        final AtomicInteger nextWorkerFile = new AtomicInteger();
+        final List<AuditRecorder> recorders = new ArrayList<AuditRecorder>();
+        final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (TreeWalker treeWalker : uncachedTreeWalkers) {
+            // TreeWalker skips files without violations of previous audits
+            treeWalker.setCacheFile(null);
+        }
+        if (workers.get(0).hasFileSetChecks()) {
+            for (final PartialChecker worker : workers) {
+                final AuditRecorder recorder =
+                        new AuditRecorder(files, nextWorkerFile);
+                if (cache != null) {
+                    recorder.setResultCache(cache, digests, moduleClassLoader);
+                }
+                recorders.add(recorder);
+                tasks.add(new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                    {
+                        return process(worker, recorder);
+                    }
+                });
+            }
+        }
+        final boolean fileSetChecksRun =
+                fileSetChecker.hasFileSetChecks() || recorders.isEmpty();
+        if (fileSetChecksRun && cache == null) {
+            final AuditRecorder recorder =
+                    new AuditRecorder(files, new AtomicInteger());
+            recorders.add(recorder);
+            final WorkerLauncher launcher = new WorkerLauncher(tasks);
+            fileSetChecker.addListener(launcher);
+            try {
+                process(fileSetChecker, recorder);
+            }
+            finally {
+                fileSetChecker.removeListener(launcher);
+            }
+            // the audit without files
+            launcher.launch();
+        }
+        else {
+            runWorkers(tasks);
+        }
+        if (cache != null) {
+            if (fileSetChecksRun) {
+                recorders.add(processFileSetChecks(files, digests, cache));
+            }
+            try {
+                cache.save();
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Cache file can not be written: "
+                        + cacheFile, e);
+            }
+        }
+        return replay(files.size(), recorders);
+    }
+
+    /**
+     * Gets the count of files whose results were reused by the last audit.
+     * @return the count of files.
+     */
+    int getCacheHits()
+    {
+        if (resultCache == null) {
+            return 0;
+        }
+        return resultCache.getHits();
+    }
+
+    /**
+     * Gets the cache of results for the next audit, loading it on the first
+     * audit.
+     * @return the cache, or null if results are not cached.
+     */
+    private ResultCache getResultCache()
+    {
+        if (cacheFile == null || cacheFingerprint == null
+                || changedLines != null)
+        {
+            return null;
+        }
+        if (resultCache == null) {
+            final ResultCache cache =
+                    new ResultCache(cacheFile, cacheFingerprint, maxCacheEntries);
+            try {
+                cache.load();
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Cache file can not be read: "
+                        + cacheFile, e);
+            }
+            resultCache = cache;
+        }
+        resultCache.startAudit();
+        return resultCache;
+    }
+
+    /**
+     * Runs FileSetChecks which are not TreeWalker modules, or restores their
+     * cached results if no file of the audit is changed.
+     * @param files
+     *        files of the audit.
+     * @param digests
+     *        digests of the content of files, which are computed for
+     *        files which were not handed out to workers.
+     * @param cache
+     *        the cache of results.
+     * @return the recorder of events of FileSetChecks.
+     */
+    private AuditRecorder processFileSetChecks(List<File> files,
+            byte[][] digests, ResultCache cache)
+    {
+        for (int i = 0; i < digests.length; i++) {
+            if (digests[i] == null) {
+                try {
+                    digests[i] = ResultCache.digest(files.get(i));
+                }
+                catch (IOException e) {
+                    // Checker reports the file which can not be read
+                    digests[i] = null;
+                }
+            }
+        }
+        final byte[] auditDigest = ResultCache.digestAudit(files, digests);
+        final AuditRecorder recorder = new AuditRecorder(files, new AtomicInteger());
+        if (auditDigest == null
+                || !cache.restoreAudit(auditDigest, recorder, moduleClassLoader))
+        {
+            process(fileSetChecker, recorder);
+            if (auditDigest != null) {
+                cache.storeAudit(auditDigest, recorder, files.size());
+            }
+        }
+        return recorder;
+    }
+
+    /**
+     * Destroys Checkers of workers and stops their threads.
+     */
+    public void destroy()
+    {
+        executor.shutdown();
+        for (PartialChecker worker : workers) {
+            worker.destroy();
+        }
+        fileSetChecker.destroy();
+        listeners.clear();
+    }
+
+    /**
+     * Runs the audit of files which are claimed by the recorder, in the
+     * scope of changed lines if the audit is scoped.
+     * @param checker
+     *        the Checker.
+     * @param recorder
+     *        the recorder of events of the audit.
+     * @return the count of errors of the claimed files.
+     */
+    private int process(PartialChecker checker, AuditRecorder recorder)
+    {
+        if (changedLines != null) {
+            changedLines.enterScope();
+        }
+        checker.addListener(recorder);
+        try {
+            return checker.process(recorder.getFiles());
+        }
+        finally {
+            checker.removeListener(recorder);
+            ChangedLines.exitScope();
+        }
+    }
+
+    /**
+     * Fires recorded events of the audit to listeners: events of each file
+     * in the order of files, then events which were fired after the last
+     * file.
+     * @param fileCount
+     *        the count of files of the audit.
+     * @param recorders
+     *        recorders of the audit.
+     * @return the count of errors.
+     */
+    private int replay(int fileCount, List<AuditRecorder> recorders)
+    {
+        final SeverityLevelCounter counter =
+                new SeverityLevelCounter(SeverityLevel.ERROR);
+        final List<AuditListener> auditListeners =
+                new ArrayList<AuditListener>(listeners);
+        auditListeners.add(counter);
+
+        final Map<String, ChangedLines.Ranges> fileRanges =
+                new HashMap<String, ChangedLines.Ranges>();
+        final AuditEvent auditEvent = new AuditEvent(this);
+        for (AuditListener listener : auditListeners) {
+            listener.auditStarted(auditEvent);
+        }
+        for (int i = 0; i < fileCount; i++) {
+            for (Event event : getFileEvents(i, recorders)) {
+                if (isInScope(event, fileRanges)) {
+                    fireEvent(event, auditListeners);
+                }
+            }
+        }
+        for (AuditRecorder recorder : recorders) {
+            for (Event event : recorder.getTrailingEvents()) {
+                if (isInScope(event, fileRanges)) {
+                    fireEvent(event, auditListeners);
+                }
+            }
+        }
+        for (AuditListener listener : auditListeners) {
+            listener.auditFinished(auditEvent);
+        }
+        return counter.getCount();
+    }
+
+    /**
+     * Checks whether the event is reported by the audit scoped to changed
+     * lines: errors are reported only on changed lines, or at the file
+     * level for changed files.
+     * @param event
+     *        the event.
+     * @param fileRanges
+     *        memoized changed lines by the name of the file.
+     * @return true if the event is reported.
+     */
+    private boolean isInScope(Event event,
+            Map<String, ChangedLines.Ranges> fileRanges)
+    {
+        if (changedLines == null || event.getKind() != Event.Kind.ERROR) {
+            return true;
+        }
+        final AuditEvent error = event.getAuditEvent();
+        ChangedLines.Ranges ranges = fileRanges.get(error.getFileName());
+        if (ranges == null) {
+            ranges = changedLines.getRanges(error.getFileName());
+            fileRanges.put(error.getFileName(), ranges);
+        }
+        return ranges.isInScope(error.getLine());
+    }
+
+    /**
+     * Collects events of the file recorded by all Checkers of the audit, as
+     * one Checker fires them: the start of the file, errors of all
+     * FileSetChecks in the order of their messages, exceptions and the end
+     * of the file.
+     * @param fileIndex
+     *        the index of the file.
+     * @param recorders
+     *        recorders of the audit.
+     * @return events of the file.
+     */
+    private static List<Event> getFileEvents(int fileIndex,
+            List<AuditRecorder> recorders)
+    {
+        Event started = null;
+        Event finished = null;
+        final List<Event> errors = new ArrayList<Event>();
+        final List<Event> exceptions = new ArrayList<Event>();
+        int sources = 0;
+        for (AuditRecorder recorder : recorders) {
+            final List<Event> events = recorder.getFileEvents(fileIndex);
+            if (!events.isEmpty()) {
+                sources++;
+            }
+            for (Event event : events) {
+                switch (event.getKind()) {
+                case FILE_STARTED:
+                    if (started == null) {
+                        started = event;
+                    }
+                    break;
+                case FILE_FINISHED:
+                    if (finished == null) {
+                        finished = event;
+                    }
+                    break;
+                case ERROR:
+                    errors.add(event);
+                    break;
+                default:
+                    exceptions.add(event);
+                    break;
+                }
+            }
+        }
+
+        final List<Event> result = new ArrayList<Event>();
+        if (started != null) {
+            result.add(started);
+        }
+        if (sources > 1) {
+            Collections.sort(errors, ERROR_ORDER);
+            Event previous = null;
+            for (Event error : errors) {
+                // one Checker keeps errors of a file in a set
+                if (previous == null || ERROR_ORDER.compare(previous, error) != 0) {
+                    result.add(error);
+                }
+                previous = error;
+            }
+        }
+        else {
+            result.addAll(errors);
+        }
+        result.addAll(exceptions);
+        if (finished != null) {
+            result.add(finished);
+        }
+        return result;
+    }
+
+    /**
+     * Fires the recorded event to listeners.
+     * @param event
+     *        the event.
+     * @param auditListeners
+     *        listeners of the audit.
+     */
+    private static void fireEvent(Event event, List<AuditListener> auditListeners)
+    {
+        for (AuditListener listener : auditListeners) {
+            event.fireTo(listener);
+        }
+    }
+
+    /**
+     * Runs workers and waits for them.
+     * @param tasks
+     *        tasks of workers.
+     */
+    private void runWorkers(List<Callable<Integer>> tasks)
+    {
+        final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (Callable<Integer> task : tasks) {
+            results.add(executor.submit(task));
+        }
+        for (Future<Integer> result : results) {
+            waitFor(result);
+        }
+    }
+
+    /**
+     * Waits for the end of the audit of a worker and rethrows its failure.
+     * @param result
+     *        the result of the worker.
+     */
+    private static void waitFor(Future<Integer> result)
+    {
+        try {
+            result.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Audit is interrupted", e);
+        }
+        catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Audit has failed", cause);
+        }
+    }
+
+    /**
+     * Creates the Checker of a part of modules of the configuration.
+     * @param config
+     *        the configuration of Checker.
+     * @param moduleFactory
+     *        the factory of modules.
+     * @param treeWalkers
+     *        whether TreeWalker modules are run, or the other FileSetChecks.
+     * @return the configured Checker.
+     * @throws CheckstyleException
+     *         if the configuration is not valid.
+     */
+    private static PartialChecker createChecker(Configuration config,
+            ModuleFactory moduleFactory, boolean treeWalkers)
+        throws CheckstyleException
+    {
+        final PartialChecker checker = new PartialChecker(treeWalkers);
+        checker.setModuleFactory(moduleFactory);
+        checker.configure(config);
+        return checker;
+    }
+
+    /**
+     * Runs the audit of files on several threads. Violations are printed to
+     * the standard output.
+     * @param args
+     *        "-c" configuration, optional "-j" count of threads, optional
+     *        "-cache" file, optional "-diff" file of changed lines, files
+     *        and directories to audit, changed files of the diff by default.
+     * @throws CheckstyleException
+     *         if the audit can not be run.
+     * @throws IOException
+     *         if the diff file can not be read.
+     */
+    public static void main(String[] args)
+        throws CheckstyleException, IOException
+    {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the audit of files on several threads.
+     * @param args
+     *        "-c" configuration, optional "-j" count of threads, optional
+     *        "-cache" file, optional "-diff" file of changed lines, files
+     *        and directories to audit, changed files of the diff by default.
+     * @param out
+     *        the stream of violations.
+     * @param err
+     *        the stream of the usage message.
+     * @return the count of errors, or 1 if arguments are not valid, like
+     *         a count of threads which is not a positive number.
+     * @throws CheckstyleException
+     *         if the audit can not be run.
+     * @throws IOException
+     *         if the diff file can not be read.
+     */
+    static int run(String[] args, PrintStream out, PrintStream err)
+        throws CheckstyleException, IOException
+    {
+        String config = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File cacheFile = null;
+        ChangedLines changedLines = null;
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-c".equals(args[i]) && i + 1 < args.length) {
+                config = args[++i];
+            }
+            else if ("-j".equals(args[i]) && i + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                }
+                catch (NumberFormatException e) {
+                    // reported by the usage message
+                    threads = 0;
+                }
+            }
+            else if ("-cache".equals(args[i]) && i + 1 < args.length) {
+                cacheFile = new File(args[++i]);
+            }
+            else if ("-diff".equals(args[i]) && i + 1 < args.length) {
+                changedLines = ChangedLines.parse(new File(args[++i]),
+                        new File("."));
+            }
+            else {
+                collectJavaFiles(new File(args[i]), files);
+            }
+        }
+        if (files.isEmpty() && changedLines != null) {
+            for (File file : changedLines.getFiles()) {
+                if (file.isFile()) {
+                    collectJavaFiles(file, files);
+                }
+            }
+        }
+        if (config == null || threads < 1
+                || files.isEmpty() && changedLines == null)
+        {
+            err.println("Usage: ParallelChecker -c <configuration>"
+                    + " [-j <threads>] [-cache <file>] [-diff <file>]"
+                    + " <file or directory>...");
+            err.println("<threads> is a positive number.");
+            return 1;
+        }
+
+        final ParallelChecker checker = new ParallelChecker(
+                ConfigurationLoader.loadConfiguration(config,
+                        new PropertiesExpander(System.getProperties())),
+                ParallelChecker.class.getClassLoader(), threads);
+        checker.setCacheFile(cacheFile);
+        checker.setChangedLines(changedLines);
+        checker.addListener(new DefaultLogger(out, false));
+        final int errors = checker.process(files);
+        checker.destroy();
+        return errors;
+    }
+
+    /**
+     * Collects Java files of the directory, or the file itself.
+     * @param file
+     *        the file or the directory.
+     * @param result
+     *        the list to add found files to.
+     */
+    private static void collectJavaFiles(File file, List<File> result)
+    {
+        if (file.isDirectory()) {
+            final File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    collectJavaFiles(child, result);
+                }
+            }
+        }
+        else if (file.getName().endsWith(".java")) {
+            result.add(file);
+        }
+    }
+
+    /**
+     * Runs workers once FileSetChecks of the calling thread have begun the
+     * audit, at the start of the first file, and waits for them there.
+     */
+    private final class WorkerLauncher implements AuditListener
+    {
+        /** Tasks of workers. */
+        private final List<Callable<Integer>> tasks;
+
+        /** Whether workers are run. */
+        private boolean launched;
+
+        /**
+         * Creates the launcher.
+         * @param tasks
+         *        tasks of workers.
+         */
+        WorkerLauncher(List<Callable<Integer>> tasks)
+        {
+            this.tasks = tasks;
+        }
+
+        /**
+         * Runs workers and waits for them, unless they are run already.
+         */
+        void launch()
+        {
+            if (!launched) {
+                launched = true;
+                runWorkers(tasks);
+            }
+        }
+
+        @Override
+        public void auditStarted(AuditEvent event)
+        {
+            // FileSetChecks begin the audit after this event
+        }
+
+        @Override
+        public void auditFinished(AuditEvent event)
+        {
+            // workers are run before
+        }
+
+        @Override
+        public void fileStarted(AuditEvent event)
+        {
+            launch();
+        }
+
+        @Override
+        public void fileFinished(AuditEvent event)
+        {
+            // workers are run before
+        }
+
+        @Override
+        public void addError(AuditEvent event)
+        {
+            // workers are run before
+        }
+
+        @Override
+        public void addException(AuditEvent event, Throwable throwable)
+        {
+            // workers are run before
+        }
+    }
+
+    /**
+     * Factory which keeps all created modules, so their declarations of
+     * {@link FileDependencies} are known.
+     */
+    private static final class ModuleCollector extends PackageModuleFactory
+    {
+        /** Created modules. */
+        private final List<Object> modules = new ArrayList<Object>();
+
+        /**
+         * Creates the factory.
+         * @param moduleClassLoader
+         *        the class loader of modules.
+         * @throws CheckstyleException
+         *         if packages of modules can not be read.
+         */
+        ModuleCollector(ClassLoader moduleClassLoader)
+            throws CheckstyleException
+        {
+            super(moduleClassLoader);
+        }
+
+        /**
+         * Gets created modules.
+         * @return modules.
+         */
+        List<Object> getModules()
+        {
+            return modules;
+        }
+
+        @Override
+        protected Object created(Object module)
+        {
+            modules.add(module);
+            return module;
+        }
+    }
+}
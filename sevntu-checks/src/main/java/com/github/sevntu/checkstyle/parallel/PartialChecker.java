@@ -0,0 +1,71 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.parallel;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+
+/**
+ * Checker which runs only a part of the modules of its configuration: either
+ * TreeWalker modules, whose checks see one file at a time and so may be run
+ * by several Checkers on different files, or the other FileSetChecks, which
+ * may report violations of several files and so have to see all files of
+ * the audit. Filters of the configuration are used by both parts.
+ */
+final class PartialChecker extends Checker
+{
+    /** Whether TreeWalker modules are run, or the other FileSetChecks. */
+    private final boolean treeWalkers;
+
+    /** Whether the Checker runs any FileSetCheck. */
+    private boolean hasFileSetChecks;
+
+    /**
+     * Creates the Checker.
+     * @param treeWalkers
+     *        whether TreeWalker modules are run, or the other FileSetChecks.
+     * @throws CheckstyleException
+     *         if Checker can not be created.
+     */
+    PartialChecker(boolean treeWalkers) throws CheckstyleException
+    {
+        this.treeWalkers = treeWalkers;
+    }
+
+    /**
+     * Checks whether the Checker runs any FileSetCheck, so it has to process
+     * files at all.
+     * @return true if the Checker runs any FileSetCheck.
+     */
+    boolean hasFileSetChecks()
+    {
+        return hasFileSetChecks;
+    }
+
+    @Override
+    public void addFileSetCheck(FileSetCheck fileSetCheck)
+    {
+        if (fileSetCheck instanceof TreeWalker == treeWalkers) {
+            hasFileSetChecks = true;
+            super.addFileSetCheck(fileSetCheck);
+        }
+    }
+}
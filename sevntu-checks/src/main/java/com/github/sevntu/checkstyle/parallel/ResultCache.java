@@ -0,0 +1,985 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.parallel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.github.sevntu.checkstyle.FileDependencies;
+import com.github.sevntu.checkstyle.parallel.AuditRecorder.Event;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * <p>
+ * Persistent cache of the results of audits by {@link ParallelChecker}.
+ * Results of TreeWalker modules are kept per file and are reused while the
+ * content of the file is the same. Results of the other FileSetChecks may
+ * depend on all files of the audit, so they are kept for the whole audit
+ * and are reused only while the list of files and the content of each of
+ * them are the same.
+ * </p>
+ * <p>
+ * All results of the cache are valid for one fingerprint of the
+ * configuration, which covers the modules, their properties and messages,
+ * the content of files which they declare as {@link FileDependencies},
+ * and versions of sevntu-checks and Checkstyle, or digests of their classes
+ * if they are not packaged. The cache is dropped when the fingerprint
+ * changes.
+ * </p>
+ * <p>
+ * The cache file starts with the fingerprint and is followed by records of
+ * results. Results of an audit are appended to the end of the file, so a
+ * later record of a file replaces the earlier ones when the cache is
+ * loaded. The file is rewritten with live records only when replaced
+ * records outnumber them, or when results of the files which were not
+ * audited recently are evicted to keep the count of files within the
+ * limit. A record which is cut off by a failed write is ignored.
+ * </p>
+ */
+final class ResultCache
+{
+    /** Magic number of the cache file. */
+    private static final int MAGIC = 0x53435243;
+
+    /** Version of the format of the cache file. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Kind of the record of results of a file. */
+    private static final byte FILE_RECORD = 1;
+
+    /** Kind of the record of results of the whole audit. */
+    private static final byte AUDIT_RECORD = 2;
+
+    /** Algorithm of digests of content. */
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+
+    /** The cache file. */
+    private final File file;
+
+    /** Fingerprint of the configuration. */
+    private final String fingerprint;
+
+    /** Maximum count of files whose results are kept. */
+    private final int maxEntries;
+
+    /** Results of files by path, from the least recently used. */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    /** Results of the whole audit. */
+    private Entry auditEntry;
+
+    /** Records which are not written to the file yet. */
+    private final List<byte[]> pendingRecords = new ArrayList<byte[]>();
+
+    /** Count of records in the file, including replaced ones. */
+    private int recordCount;
+
+    /**
+     * Whether the file should be rewritten instead of appended to, until
+     * the file is loaded.
+     */
+    private boolean rewriteNeeded = true;
+
+    /** Count of files whose results were reused by the last audit. */
+    private int hits;
+
+    /**
+     * Creates the cache.
+     * @param file
+     *        the cache file.
+     * @param fingerprint
+     *        fingerprint of the configuration.
+     * @param maxEntries
+     *        maximum count of files whose results are kept.
+     */
+    ResultCache(File file, String fingerprint, int maxEntries)
+    {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Loads results from the cache file. Results of another fingerprint, or
+     * of a file which is not a cache, are dropped.
+     * @throws IOException
+     *         if the cache file can not be read.
+     */
+    void load() throws IOException
+    {
+        entries.clear();
+        auditEntry = null;
+        recordCount = 0;
+        rewriteNeeded = true;
+        if (!file.exists()) {
+            return;
+        }
+        final DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (input.readInt() != MAGIC
+                    || input.readInt() != FORMAT_VERSION
+                    || !fingerprint.equals(input.readUTF()))
+            {
+                return;
+            }
+            rewriteNeeded = false;
+            while (readRecord(input)) {
+                recordCount++;
+            }
+        }
+        catch (EOFException e) {
+            // the header or the last record is cut off
+            rewriteNeeded = true;
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads the record of results.
+     * @param input
+     *        the stream of the cache file.
+     * @return false if there are no more records.
+     * @throws IOException
+     *         if the file can not be read, or the record is cut off.
+     */
+    private boolean readRecord(DataInputStream input) throws IOException
+    {
+        final int kind = input.read();
+        if (kind == -1) {
+            return false;
+        }
+        final String path = input.readUTF();
+        final byte[] digest = new byte[input.readUnsignedByte()];
+        input.readFully(digest);
+        final int payloadLength = input.readInt();
+        if (payloadLength < 0 || payloadLength > file.length()) {
+            throw new EOFException("Damaged record of " + path);
+        }
+        final byte[] payload = new byte[payloadLength];
+        input.readFully(payload);
+        final Entry entry = new Entry(digest, payload);
+        if (kind == AUDIT_RECORD) {
+            auditEntry = entry;
+        }
+        else {
+            entries.remove(path);
+            entries.put(path, entry);
+        }
+        return true;
+    }
+
+    /**
+     * Starts the next audit.
+     */
+    synchronized void startAudit()
+    {
+        hits = 0;
+    }
+
+    /**
+     * Gets the count of files whose results were reused by the last audit.
+     * @return the count of files.
+     */
+    synchronized int getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Gets cached results of the file, and marks them as recently used.
+     * @param path
+     *        the path of the file.
+     * @param digest
+     *        the digest of the content of the file.
+     * @param moduleClassLoader
+     *        the class loader of modules which reported errors.
+     * @return events of the file, or null if the content of the file
+     *         changed or its results can not be restored.
+     */
+    synchronized List<Event> getFileEvents(String path, byte[] digest,
+            ClassLoader moduleClassLoader)
+    {
+        final Entry entry = entries.get(path);
+        List<Event> result = null;
+        if (entry != null && Arrays.equals(entry.digest, digest)) {
+            try {
+                result = readEvents(new DataInputStream(
+                        new ByteArrayInputStream(entry.payload)),
+                        moduleClassLoader);
+                entries.remove(path);
+                entries.put(path, entry);
+                hits++;
+            }
+            catch (IOException e) {
+                result = null;
+            }
+            catch (ClassNotFoundException e) {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores results of the file.
+     * @param path
+     *        the path of the file.
+     * @param digest
+     *        the digest of the content of the file, or null if the file
+     *        could not be read.
+     * @param events
+     *        events of the file.
+     */
+    synchronized void putFileEvents(String path, byte[] digest, List<Event> events)
+    {
+        final byte[] payload = writeEvents(events);
+        if (digest != null && payload != null) {
+            entries.remove(path);
+            entries.put(path, new Entry(digest, payload));
+            pendingRecords.add(writeRecord(FILE_RECORD, path, digest, payload));
+        }
+    }
+
+    /**
+     * Restores cached results of the whole audit into the recorder.
+     * @param digest
+     *        the digest of the list of files and their content.
+     * @param recorder
+     *        the recorder to add events of the audit to.
+     * @param moduleClassLoader
+     *        the class loader of modules which reported errors.
+     * @return true if results are restored.
+     */
+    synchronized boolean restoreAudit(byte[] digest, AuditRecorder recorder,
+            ClassLoader moduleClassLoader)
+    {
+        boolean result = false;
+        if (auditEntry != null && Arrays.equals(auditEntry.digest, digest)) {
+            final DataInputStream input = new DataInputStream(
+                    new ByteArrayInputStream(auditEntry.payload));
+            try {
+                final int fileCount = input.readInt();
+                for (int i = 0; i < fileCount; i++) {
+                    final int fileIndex = input.readInt();
+                    recorder.addFileEvents(fileIndex,
+                            readEvents(input, moduleClassLoader));
+                }
+                recorder.addTrailingEvents(
+                        readEvents(input, moduleClassLoader));
+                result = true;
+            }
+            catch (IOException e) {
+                result = false;
+            }
+            catch (ClassNotFoundException e) {
+                result = false;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores results of the whole audit.
+     * @param digest
+     *        the digest of the list of files and their content.
+     * @param recorder
+     *        the recorder of events of the audit.
+     * @param fileCount
+     *        the count of files of the audit.
+     */
+    synchronized void storeAudit(byte[] digest, AuditRecorder recorder,
+            int fileCount)
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            final List<Integer> indexes = new ArrayList<Integer>();
+            for (int i = 0; i < fileCount; i++) {
+                if (!recorder.getFileEvents(i).isEmpty()) {
+                    indexes.add(i);
+                }
+            }
+            output.writeInt(indexes.size());
+            for (int index : indexes) {
+                output.writeInt(index);
+                if (!writeEvents(output, recorder.getFileEvents(index))) {
+                    return;
+                }
+            }
+            if (!writeEvents(output, recorder.getTrailingEvents())) {
+                return;
+            }
+            output.flush();
+        }
+        catch (IOException e) {
+            // results of the audit are not stored
+            return;
+        }
+        auditEntry = new Entry(digest, bytes.toByteArray());
+        pendingRecords.add(writeRecord(AUDIT_RECORD, "", digest,
+                auditEntry.payload));
+    }
+
+    /**
+     * Writes stored results to the cache file: appends them, or rewrites
+     * the file with live results only if it has too many replaced records
+     * or results of some files are evicted.
+     * @throws IOException
+     *         if the cache file can not be written.
+     */
+    synchronized void save() throws IOException
+    {
+        final Iterator<String> leastRecentlyUsed = entries.keySet().iterator();
+        while (entries.size() > maxEntries) {
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            rewriteNeeded = true;
+        }
+        int liveCount = entries.size();
+        if (auditEntry != null) {
+            liveCount++;
+        }
+        if (rewriteNeeded || recordCount + pendingRecords.size() > 2 * liveCount) {
+            rewrite();
+        }
+        else if (!pendingRecords.isEmpty()) {
+            final OutputStream output = new BufferedOutputStream(
+                    new FileOutputStream(file, true));
+            try {
+                for (byte[] record : pendingRecords) {
+                    output.write(record);
+                }
+            }
+            finally {
+                output.close();
+            }
+            recordCount += pendingRecords.size();
+        }
+        pendingRecords.clear();
+    }
+
+    /**
+     * Rewrites the cache file with live results only.
+     * @throws IOException
+     *         if the cache file can not be written.
+     */
+    private void rewrite() throws IOException
+    {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new FileNotFoundException("Directory of the cache file can"
+                    + " not be created: " + parent);
+        }
+        final File newFile = new File(parent, file.getName() + ".new");
+        final DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(newFile)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(fingerprint);
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                output.write(writeRecord(FILE_RECORD, entry.getKey(),
+                        entry.getValue().digest, entry.getValue().payload));
+            }
+            if (auditEntry != null) {
+                output.write(writeRecord(AUDIT_RECORD, "", auditEntry.digest,
+                        auditEntry.payload));
+            }
+        }
+        finally {
+            output.close();
+        }
+        if (file.exists() && !file.delete() || !newFile.renameTo(file)) {
+            throw new IOException("Cache file can not be replaced: " + file);
+        }
+        recordCount = entries.size();
+        if (auditEntry != null) {
+            recordCount++;
+        }
+        rewriteNeeded = false;
+    }
+
+    /**
+     * Encodes the record of results.
+     * @param kind
+     *        the kind of the record.
+     * @param path
+     *        the path of the file, or empty for results of the audit.
+     * @param digest
+     *        the digest of the content.
+     * @param payload
+     *        encoded events.
+     * @return the record.
+     */
+    private static byte[] writeRecord(byte kind, String path, byte[] digest,
+            byte[] payload)
+    {
+        final ByteArrayOutputStream bytes =
+                new ByteArrayOutputStream(payload.length + path.length() + 32);
+        final DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeByte(kind);
+            output.writeUTF(path);
+            output.writeByte(digest.length);
+            output.write(digest);
+            output.writeInt(payload.length);
+            output.write(payload);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes events.
+     * @param events
+     *        the events.
+     * @return encoded events, or null if they can not be cached.
+     */
+    private static byte[] writeEvents(List<Event> events)
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            if (!writeEvents(output, events)) {
+                return null;
+            }
+            output.flush();
+        }
+        catch (IOException e) {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes events to the stream.
+     * @param output
+     *        the stream.
+     * @param events
+     *        the events.
+     * @return false if events can not be cached, as they contain exceptions.
+     * @throws IOException
+     *         if events can not be encoded.
+     */
+    private static boolean writeEvents(DataOutputStream output,
+            List<Event> events) throws IOException
+    {
+        output.writeInt(events.size());
+        for (Event event : events) {
+            if (event.getKind() == Event.Kind.EXCEPTION) {
+                return false;
+            }
+            final AuditEvent auditEvent = event.getAuditEvent();
+            output.writeByte(event.getKind().ordinal());
+            writeString(output, auditEvent.getFileName());
+            if (event.getKind() == Event.Kind.ERROR) {
+                final LocalizedMessage message = auditEvent.getLocalizedMessage();
+                output.writeInt(message.getLineNo());
+                output.writeInt(message.getColumnNo());
+                writeString(output, message.getKey());
+                output.writeUTF(message.getSeverityLevel().name());
+                writeString(output, message.getModuleId());
+                output.writeUTF(message.getSourceName());
+                output.writeUTF(message.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes events from the stream. The cache is the source of decoded
+     * events.
+     * @param input
+     *        the stream.
+     * @param moduleClassLoader
+     *        the class loader of modules which reported errors.
+     * @return events.
+     * @throws IOException
+     *         if events can not be decoded, e.g. the payload is damaged.
+     * @throws ClassNotFoundException
+     *         if the module which reported an error does not exist.
+     */
+    private List<Event> readEvents(DataInputStream input,
+            ClassLoader moduleClassLoader)
+        throws IOException, ClassNotFoundException
+    {
+        final int count = input.readInt();
+        if (count < 0 || count > input.available()) {
+            throw new IOException("Damaged count of events: " + count);
+        }
+        final Event.Kind[] kinds = Event.Kind.values();
+        final List<Event> result = new ArrayList<Event>(count);
+        for (int i = 0; i < count; i++) {
+            final int kindIndex = input.readUnsignedByte();
+            if (kindIndex >= kinds.length) {
+                throw new IOException("Damaged kind of event: " + kindIndex);
+            }
+            final Event.Kind kind = kinds[kindIndex];
+            final String fileName = readString(input);
+            AuditEvent auditEvent;
+            if (kind == Event.Kind.ERROR) {
+                final int line = input.readInt();
+                final int column = input.readInt();
+                final String key = readString(input);
+                final SeverityLevel severity = readSeverity(input);
+                final String moduleId = readString(input);
+                final Class<?> sourceClass =
+                        Class.forName(input.readUTF(), false, moduleClassLoader);
+                final String message = input.readUTF();
+                auditEvent = new AuditEvent(this, fileName, new LocalizedMessage(
+                        line, column, getMessageBundle(sourceClass), key, new Object[0],
+                        severity, moduleId, sourceClass, quoteMessage(message)));
+            }
+            else {
+                auditEvent = new AuditEvent(this, fileName);
+            }
+            result.add(new Event(kind, auditEvent, null));
+        }
+        return result;
+    }
+
+    /**
+     * Reads the severity level of the error.
+     * @param input
+     *        the stream.
+     * @return the severity level.
+     * @throws IOException
+     *         if the level can not be read or is not known.
+     */
+    private static SeverityLevel readSeverity(DataInputStream input)
+        throws IOException
+    {
+        final String name = input.readUTF();
+        try {
+            return SeverityLevel.valueOf(name);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IOException("Damaged severity level: " + name, e);
+        }
+    }
+
+    /**
+     * Writes the string which may be null.
+     * @param output
+     *        the stream.
+     * @param value
+     *        the string, or null.
+     * @throws IOException
+     *         if the string can not be written.
+     */
+    private static void writeString(DataOutputStream output, String value)
+        throws IOException
+    {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    /**
+     * Reads the string which may be null.
+     * @param input
+     *        the stream.
+     * @return the string, or null.
+     * @throws IOException
+     *         if the string can not be read.
+     */
+    private static String readString(DataInputStream input) throws IOException
+    {
+        String result = null;
+        if (input.readBoolean()) {
+            result = input.readUTF();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the name of the message bundle of the module, like Checkstyle
+     * modules do.
+     * @param sourceClass
+     *        the class of the module.
+     * @return the name of the bundle.
+     */
+    private static String getMessageBundle(Class<?> sourceClass)
+    {
+        final String className = sourceClass.getName();
+        final int lastDot = className.lastIndexOf('.');
+        if (lastDot == -1) {
+            return "messages";
+        }
+        return className.substring(0, lastDot) + ".messages";
+    }
+
+    /**
+     * Quotes the formatted message, so MessageFormat formats it as is.
+     * @param message
+     *        the formatted message.
+     * @return the pattern of MessageFormat.
+     */
+    static String quoteMessage(String message)
+    {
+        if (message.isEmpty()) {
+            return message;
+        }
+        return "'" + message.replace("'", "''") + "'";
+    }
+
+    /**
+     * Computes the digest of the content of the file.
+     * @param file
+     *        the file.
+     * @return the digest.
+     * @throws IOException
+     *         if the file can not be read.
+     */
+    static byte[] digest(File file) throws IOException
+    {
+        final MessageDigest digest = createDigest();
+        final InputStream input = new FileInputStream(file);
+        try {
+            final byte[] buffer = new byte[8192];
+            int read = input.read(buffer);
+            while (read != -1) {
+                digest.update(buffer, 0, read);
+                read = input.read(buffer);
+            }
+        }
+        finally {
+            input.close();
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Computes the digest of the list of files and their content.
+     * @param files
+     *        files of the audit.
+     * @param digests
+     *        digests of the content of files.
+     * @return the digest, or null if some file could not be read.
+     */
+    static byte[] digestAudit(List<File> files, byte[][] digests)
+    {
+        final MessageDigest result = createDigest();
+        for (int i = 0; i < digests.length; i++) {
+            if (digests[i] == null) {
+                return null;
+            }
+            result.update(toBytes(files.get(i).getAbsolutePath()));
+            result.update((byte) 0);
+            result.update(digests[i]);
+        }
+        return result.digest();
+    }
+
+    /**
+     * Computes the fingerprint of the configuration: of its modules, their
+     * properties and messages, the content of files which modules depend on,
+     * and of versions of sevntu-checks and Checkstyle.
+     * @param config
+     *        the configuration of Checker.
+     * @param modules
+     *        configured modules of the configuration.
+     * @return the fingerprint, or null if a version is not known or a file
+     *         which modules depend on can not be read.
+     * @throws CheckstyleException
+     *         if the configuration can not be read.
+     */
+    static String fingerprint(Configuration config, List<?> modules)
+        throws CheckstyleException
+    {
+        final String sevntuVersion = getVersion(ResultCache.class,
+                "com.github.sevntu.checkstyle", "sevntu-checks");
+        final String checkstyleVersion = getVersion(Checker.class,
+                "com.puppycrawl.tools", "checkstyle");
+        if (sevntuVersion == null || checkstyleVersion == null) {
+            return null;
+        }
+        final StringBuilder description = new StringBuilder();
+        description.append(FORMAT_VERSION).append('\n')
+            .append(sevntuVersion).append('\n')
+            .append(checkstyleVersion).append('\n');
+        describe(config, description);
+        for (Object module : modules) {
+            if (module instanceof FileDependencies) {
+                for (File dependency
+                        : ((FileDependencies) module).getDependencyFiles())
+                {
+                    try {
+                        description.append('!').append(dependency.getPath())
+                            .append('=').append(toHex(digest(dependency)))
+                            .append('\n');
+                    }
+                    catch (IOException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return toHex(createDigest().digest(toBytes(description.toString())));
+    }
+
+    /**
+     * Checks whether results of files depend on other source files, which
+     * are not tracked by the cache, so results can not be cached.
+     * @param modules
+     *        configured modules of the configuration.
+     * @return true if results depend on other source files.
+     */
+    static boolean dependsOnSourceFiles(List<?> modules)
+    {
+        for (Object module : modules) {
+            if (module instanceof FileDependencies
+                    && ((FileDependencies) module).dependsOnSourceFiles())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends the description of the module and its children.
+     * @param config
+     *        the configuration of the module.
+     * @param description
+     *        the description to append to.
+     * @throws CheckstyleException
+     *         if the configuration can not be read.
+     */
+    private static void describe(Configuration config, StringBuilder description)
+        throws CheckstyleException
+    {
+        description.append('<').append(config.getName()).append('\n');
+        final String[] attributes = config.getAttributeNames().clone();
+        Arrays.sort(attributes);
+        for (String attribute : attributes) {
+            description.append('@').append(attribute).append('=')
+                .append(config.getAttribute(attribute)).append('\n');
+        }
+        for (Map.Entry<String, String> message : config.getMessages().entrySet()) {
+            description.append('#').append(message.getKey()).append('=')
+                .append(message.getValue()).append('\n');
+        }
+        for (Configuration child : config.getChildren()) {
+            describe(child, description);
+        }
+        description.append(">\n");
+    }
+
+    /**
+     * Gets the version of the artifact which contains the class, from its
+     * Maven properties, or the digest of the jar file or the directory of
+     * classes if the artifact has no properties, as it is not packaged yet.
+     * @param artifactClass
+     *        the class of the artifact.
+     * @param groupId
+     *        the group of the artifact.
+     * @param artifactId
+     *        the identifier of the artifact.
+     * @return the version, or null if it is not known.
+     */
+    static String getVersion(Class<?> artifactClass, String groupId,
+            String artifactId)
+    {
+        final InputStream input = artifactClass.getResourceAsStream(
+                "/META-INF/maven/" + groupId + "/" + artifactId + "/pom.properties");
+        String result = null;
+        if (input != null) {
+            try {
+                try {
+                    final Properties properties = new Properties();
+                    properties.load(input);
+                    result = properties.getProperty("version");
+                }
+                finally {
+                    input.close();
+                }
+            }
+            catch (IOException e) {
+                result = null;
+            }
+        }
+        if (result == null) {
+            result = digestLocation(artifactClass);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the digest of the jar file or the directory the class is
+     * loaded from.
+     * @param artifactClass
+     *        the class.
+     * @return the digest, or null if the location is not a local file.
+     */
+    private static String digestLocation(Class<?> artifactClass)
+    {
+        final CodeSource source =
+                artifactClass.getProtectionDomain().getCodeSource();
+        if (source == null) {
+            return null;
+        }
+        final MessageDigest result = createDigest();
+        try {
+            digestTree(new File(source.getLocation().toURI()), result);
+        }
+        catch (URISyntaxException e) {
+            return null;
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+        catch (IOException e) {
+            return null;
+        }
+        return toHex(result.digest());
+    }
+
+    /**
+     * Adds names and content of files of the directory, or the content of
+     * the file, to the digest.
+     * @param file
+     *        the file or the directory.
+     * @param result
+     *        the digest.
+     * @throws IOException
+     *         if a file can not be read.
+     */
+    private static void digestTree(File file, MessageDigest result)
+        throws IOException
+    {
+        final String[] names = file.list();
+        if (names == null) {
+            result.update(digest(file));
+        }
+        else {
+            Arrays.sort(names);
+            for (String name : names) {
+                result.update(toBytes(name));
+                result.update((byte) 0);
+                digestTree(new File(file, name), result);
+            }
+        }
+    }
+
+    /**
+     * Formats bytes as hexadecimal digits.
+     * @param bytes
+     *        the bytes.
+     * @return the digits.
+     */
+    private static String toHex(byte[] bytes)
+    {
+        final StringBuilder result = new StringBuilder();
+        for (byte value : bytes) {
+            result.append(String.format("%02x", value));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Creates the digest of content.
+     * @return the digest.
+     */
+    private static MessageDigest createDigest()
+    {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encodes the string as UTF-8.
+     * @param value
+     *        the string.
+     * @return bytes of the string.
+     */
+    private static byte[] toBytes(String value)
+    {
+        try {
+            return value.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Cached results.
+     */
+    private static final class Entry
+    {
+        /** The digest of the content the results are valid for. */
+        private final byte[] digest;
+
+        /** Encoded events. */
+        private final byte[] payload;
+
+        /**
+         * Creates the entry.
+         * @param digest
+         *        the digest of the content the results are valid for.
+         * @param payload
+         *        encoded events.
+         */
+        Entry(byte[] digest, byte[] payload)
+        {
+            this.digest = digest;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,605 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.profiling;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+/**
+ * <p>
+ * Records, per check class, the time spent by checks in beginTree,
+ * visitToken, leaveToken and finishTree, the count of visits and, when the
+ * JVM supports it, the memory allocated by the checks. Statistics of a file
+ * are added to the totals of the check when the file is finished, and only
+ * the {@link #SLOWEST_FILES} slowest files of each check are kept, so memory
+ * does not grow with the count of audited files. At the end of the audit the
+ * results are written as JSON and printed as a summary table.
+ * </p>
+ * <p>
+ * Checks are profiled by {@link ProfilingChecker}, which creates wrappers
+ * measuring the calls instead of the checks of TreeWalker when the
+ * configuration is loaded, and registers the profiler as an audit listener.
+ * Audits which are run by a plain Checker are not instrumented at all, so
+ * profiling costs nothing when it is not used.
+ * </p>
+ */
+public final class CheckProfiler implements AuditListener
+{
+    /**
+     * Phases of processing of a file by a check.
+     */
+    enum Phase
+    {
+        /** Call of beginTree. */
+        BEGIN_TREE("beginTree"),
+        /** Call of visitToken. */
+        VISIT_TOKEN("visitToken"),
+        /** Call of leaveToken. */
+        LEAVE_TOKEN("leaveToken"),
+        /** Call of finishTree. */
+        FINISH_TREE("finishTree");
+
+        /** Name of the method of the check. */
+        private final String methodName;
+
+        /**
+         * Creates the phase.
+         * @param methodName
+         *        name of the method of the check.
+         */
+        private Phase(String methodName)
+        {
+            this.methodName = methodName;
+        }
+    }
+
+    /** Count of the slowest files which are kept for each check. */
+    static final int SLOWEST_FILES = 10;
+
+    /**
+     * Order of statistics of files by time, the fastest first, files of the
+     * same time by name in the reverse order.
+     */
+    private static final Comparator<Map.Entry<String, Stats>> FILE_ORDER =
+        new Comparator<Map.Entry<String, Stats>>()
+        {
+            @Override
+            public int compare(Map.Entry<String, Stats> first,
+                    Map.Entry<String, Stats> second)
+            {
+                final long firstTime = first.getValue().getTotalNanos();
+                final long secondTime = second.getValue().getTotalNanos();
+                int result = firstTime < secondTime ? -1
+                        : firstTime == secondTime ? 0 : 1;
+                if (result == 0) {
+                    result = second.getKey().compareTo(first.getKey());
+                }
+                return result;
+            }
+        };
+
+    /** Nanoseconds in a millisecond. */
+    private static final double NANOS_IN_MILLI = 1000000.0;
+
+    /** Bytes in a kilobyte. */
+    private static final long BYTES_IN_KILOBYTE = 1024;
+
+    /** Statistics of checks by check class names. */
+    private final Map<String, CheckStats> statsByCheck =
+            new TreeMap<String, CheckStats>();
+
+    /** Stream to print the summary table to, may be null. */
+    private final PrintStream summaryStream;
+
+    /** File to write the JSON report to, may be null. */
+    private final File jsonReport;
+
+    /** Thread management bean which measures allocated memory. */
+    private final Object threadBean;
+
+    /**
+     * Method which gets allocated bytes of a thread, or null if the bean
+     * does not support it.
+     */
+    private final Method allocatedBytesMethod;
+
+    /**
+     * Creates the profiler.
+     * @param summaryStream
+     *        the stream to print the summary table to at the end of the
+     *        audit, or null.
+     * @param jsonReport
+     *        the file to write the JSON report to at the end of the audit,
+     *        or null.
+     */
+    public CheckProfiler(PrintStream summaryStream, File jsonReport)
+    {
+        this(summaryStream, jsonReport, ManagementFactory.getThreadMXBean());
+    }
+
+    /**
+     * Creates the profiler which measures allocated memory by the bean.
+     * @param summaryStream
+     *        the stream to print the summary table to, or null.
+     * @param jsonReport
+     *        the file to write the JSON report to, or null.
+     * @param threadBean
+     *        the thread management bean of the JVM.
+     */
+    CheckProfiler(PrintStream summaryStream, File jsonReport,
+            Object threadBean)
+    {
+        this.summaryStream = summaryStream;
+        this.jsonReport = jsonReport;
+        this.threadBean = threadBean;
+        allocatedBytesMethod = getAllocatedBytesMethod(threadBean);
+    }
+
+    /**
+     * Checks whether allocated memory is measured.
+     * @return true if the JVM supports measurement of allocated memory.
+     */
+    public boolean isAllocationMeasured()
+    {
+        return allocatedBytesMethod != null;
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event)
+    {
+        statsByCheck.clear();
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event)
+    {
+        if (jsonReport != null) {
+            try {
+                writeJson(jsonReport);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Profiling report can not be"
+                        + " written to " + jsonReport, e);
+            }
+        }
+        if (summaryStream != null) {
+            printSummary(summaryStream);
+        }
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event)
+    {
+        // no code
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event)
+    {
+        // no code
+    }
+
+    @Override
+    public void addError(AuditEvent event)
+    {
+        // no code
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable)
+    {
+        // no code
+    }
+
+    /**
+     * Adds statistics of the check on the finished file.
+     * @param checkName
+     *        the class name of the check.
+     * @param fileName
+     *        the name of the file.
+     * @param stats
+     *        statistics of the check on the file.
+     */
+    void addFileStats(String checkName, String fileName, Stats stats)
+    {
+        CheckStats checkStats = statsByCheck.get(checkName);
+        if (checkStats == null) {
+            checkStats = new CheckStats();
+            statsByCheck.put(checkName, checkStats);
+        }
+        checkStats.addFile(fileName, stats);
+    }
+
+    /**
+     * Gets statistics of the check on all files.
+     * @param checkName
+     *        the class name of the check.
+     * @return statistics of the check, or null if it has not finished any
+     *         file.
+     */
+    CheckStats getCheckStats(String checkName)
+    {
+        return statsByCheck.get(checkName);
+    }
+
+    /**
+     * Gets the count of bytes allocated by the current thread so far.
+     * @return allocated bytes, or 0 if the JVM does not support measurement
+     *         of allocated memory.
+     */
+    long getAllocatedBytes()
+    {
+        long result = 0;
+        if (allocatedBytesMethod != null) {
+            try {
+                result = (Long) allocatedBytesMethod.invoke(threadBean,
+                        Thread.currentThread().getId());
+            }
+            catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the JSON report.
+     * @param file
+     *        the file to write to.
+     * @throws IOException
+     *         if the file can not be written.
+     */
+    void writeJson(File file) throws IOException
+    {
+        final Writer writer =
+                new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(toJson());
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Makes the JSON report.
+     * @return the JSON report.
+     */
+    String toJson()
+    {
+        final boolean allocationMeasured = isAllocationMeasured();
+        final StringBuilder json = new StringBuilder();
+        json.append("{\n  \"allocationMeasured\": ")
+            .append(allocationMeasured).append(",\n  \"checks\": [");
+        boolean firstCheck = true;
+        for (Map.Entry<String, CheckStats> check : statsByCheck.entrySet()) {
+            json.append(firstCheck ? "\n" : ",\n");
+            firstCheck = false;
+            json.append("    {\n      \"check\": ");
+            appendJsonString(json, check.getKey());
+            json.append(",\n      \"files\": ")
+                .append(check.getValue().getFileCount());
+            json.append(",\n      \"total\": ");
+            check.getValue().getTotal().appendJson(json, allocationMeasured);
+            json.append(",\n      \"slowestFiles\": [");
+            boolean firstFile = true;
+            for (Map.Entry<String, Stats> file
+                    : check.getValue().getSlowestFiles())
+            {
+                json.append(firstFile ? "\n" : ",\n");
+                firstFile = false;
+                json.append("        {\"file\": ");
+                appendJsonString(json, file.getKey());
+                json.append(", \"stats\": ");
+                file.getValue().appendJson(json, allocationMeasured);
+                json.append('}');
+            }
+            json.append("\n      ]\n    }");
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * Prints the summary table, checks are sorted by total time, the slowest
+     * first.
+     * @param stream
+     *        the stream to print to.
+     */
+    void printSummary(PrintStream stream)
+    {
+        final List<String> checks = new ArrayList<String>(statsByCheck.keySet());
+        Collections.sort(checks, new Comparator<String>()
+        {
+            @Override
+            public int compare(String first, String second)
+            {
+                final long firstTime =
+                        statsByCheck.get(first).getTotal().getTotalNanos();
+                final long secondTime =
+                        statsByCheck.get(second).getTotal().getTotalNanos();
+                return firstTime < secondTime ? 1
+                        : firstTime == secondTime ? 0 : -1;
+            }
+        });
+
+        final String format = "%-45s %10s %10s %10s %10s %10s %10s %12s  %s%n";
+        stream.printf(format, "Check", "Total ms",
+                Phase.BEGIN_TREE.methodName, Phase.VISIT_TOKEN.methodName,
+                Phase.LEAVE_TOKEN.methodName, Phase.FINISH_TREE.methodName,
+                "Visits", "Alloc KB", "Slowest file");
+        for (String check : checks) {
+            final Stats total = statsByCheck.get(check).getTotal();
+            stream.printf(format,
+                    check.substring(check.lastIndexOf('.') + 1),
+                    toMillis(total.getTotalNanos()),
+                    toMillis(total.nanos[Phase.BEGIN_TREE.ordinal()]),
+                    toMillis(total.nanos[Phase.VISIT_TOKEN.ordinal()]),
+                    toMillis(total.nanos[Phase.LEAVE_TOKEN.ordinal()]),
+                    toMillis(total.nanos[Phase.FINISH_TREE.ordinal()]),
+                    total.calls[Phase.VISIT_TOKEN.ordinal()],
+                    isAllocationMeasured()
+                        ? String.valueOf(total.allocatedBytes / BYTES_IN_KILOBYTE)
+                        : "n/a",
+                    statsByCheck.get(check).getSlowestFiles().get(0).getKey());
+        }
+    }
+
+    /**
+     * Formats nanoseconds as milliseconds.
+     * @param nanos
+     *        nanoseconds.
+     * @return formatted milliseconds.
+     */
+    private static String toMillis(long nanos)
+    {
+        return String.format("%.3f", nanos / NANOS_IN_MILLI);
+    }
+
+    /**
+     * Appends the string to JSON, quoted and escaped.
+     * @param json
+     *        the JSON to append to.
+     * @param value
+     *        the string.
+     */
+    private static void appendJsonString(StringBuilder json, String value)
+    {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char symbol = value.charAt(i);
+            if (symbol == '"' || symbol == '\\') {
+                json.append('\\').append(symbol);
+            }
+            else if (symbol < ' ') {
+                json.append(String.format("\\u%04x", (int) symbol));
+            }
+            else {
+                json.append(symbol);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Gets the method of the bean which gets allocated bytes of a thread.
+     * @param threadBean
+     *        the thread management bean of the JVM.
+     * @return the method, or null if the JVM does not support measurement of
+     *         allocated memory.
+     */
+    private static Method getAllocatedBytesMethod(Object threadBean)
+    {
+        Method result = null;
+        try {
+            final Class<?> beanClass =
+                    Class.forName("com.sun.management.ThreadMXBean");
+            if (beanClass.isInstance(threadBean)) {
+                final Method supported = beanClass.getMethod(
+                        "isThreadAllocatedMemorySupported");
+                final Method enabled = beanClass.getMethod(
+                        "isThreadAllocatedMemoryEnabled");
+                if ((Boolean) supported.invoke(threadBean)
+                        && (Boolean) enabled.invoke(threadBean))
+                {
+                    result = beanClass.getMethod("getThreadAllocatedBytes",
+                            long.class);
+                }
+            }
+        }
+        catch (Exception e) {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Statistics of a check on all files: their sum and the slowest of them.
+     */
+    static final class CheckStats
+    {
+        /** Sum of statistics of all files. */
+        private final Stats total = new Stats();
+
+        /** The slowest files, the fastest of them at the head. */
+        private final PriorityQueue<Map.Entry<String, Stats>> slowestFiles =
+                new PriorityQueue<Map.Entry<String, Stats>>(SLOWEST_FILES + 1,
+                        FILE_ORDER);
+
+        /** Count of finished files. */
+        private int fileCount;
+
+        /**
+         * Adds statistics of the finished file.
+         * @param fileName
+         *        the name of the file.
+         * @param stats
+         *        statistics of the file.
+         */
+        void addFile(String fileName, Stats stats)
+        {
+            total.add(stats);
+            fileCount++;
+            slowestFiles.add(
+                    new AbstractMap.SimpleImmutableEntry<String, Stats>(
+                            fileName, stats));
+            if (slowestFiles.size() > SLOWEST_FILES) {
+                slowestFiles.poll();
+            }
+        }
+
+        /**
+         * Gets the sum of statistics of all files.
+         * @return the sum of statistics.
+         */
+        Stats getTotal()
+        {
+            return total;
+        }
+
+        /**
+         * Gets the count of finished files.
+         * @return the count of files.
+         */
+        int getFileCount()
+        {
+            return fileCount;
+        }
+
+        /**
+         * Gets the slowest files.
+         * @return statistics by names of files, the slowest first.
+         */
+        List<Map.Entry<String, Stats>> getSlowestFiles()
+        {
+            final List<Map.Entry<String, Stats>> result =
+                    new ArrayList<Map.Entry<String, Stats>>(slowestFiles);
+            Collections.sort(result, Collections.reverseOrder(FILE_ORDER));
+            return result;
+        }
+    }
+
+    /**
+     * Statistics of a check on a file, or on all files.
+     */
+    static final class Stats
+    {
+        /** Time spent in each phase. */
+        private final long[] nanos = new long[Phase.values().length];
+
+        /** Count of calls of each phase. */
+        private final long[] calls = new long[Phase.values().length];
+
+        /** Bytes allocated in all phases. */
+        private long allocatedBytes;
+
+        /**
+         * Records a call.
+         * @param phase
+         *        the phase of the call.
+         * @param time
+         *        the time spent by the call, in nanoseconds.
+         * @param allocated
+         *        bytes allocated by the call.
+         */
+        void record(Phase phase, long time, long allocated)
+        {
+            nanos[phase.ordinal()] += time;
+            calls[phase.ordinal()]++;
+            allocatedBytes += allocated;
+        }
+
+        /**
+         * Adds other statistics to these ones.
+         * @param other
+         *        other statistics.
+         */
+        void add(Stats other)
+        {
+            for (int i = 0; i < nanos.length; i++) {
+                nanos[i] += other.nanos[i];
+                calls[i] += other.calls[i];
+            }
+            allocatedBytes += other.allocatedBytes;
+        }
+
+        /**
+         * Gets the count of calls of the phase.
+         * @param phase
+         *        the phase.
+         * @return the count of calls.
+         */
+        long getCalls(Phase phase)
+        {
+            return calls[phase.ordinal()];
+        }
+
+        /**
+         * Gets time spent in all phases.
+         * @return time in nanoseconds.
+         */
+        long getTotalNanos()
+        {
+            long result = 0;
+            for (long time : nanos) {
+                result += time;
+            }
+            return result;
+        }
+
+        /**
+         * Appends statistics as a JSON object.
+         * @param json
+         *        the JSON to append to.
+         * @param allocationMeasured
+         *        whether allocated memory is measured, -1 is written instead
+         *        of allocated bytes if it is not.
+         */
+        void appendJson(StringBuilder json, boolean allocationMeasured)
+        {
+            json.append("{\"totalNanos\": ").append(getTotalNanos());
+            for (Phase phase : Phase.values()) {
+                json.append(", \"").append(phase.methodName)
+                    .append("Nanos\": ").append(nanos[phase.ordinal()]);
+            }
+            json.append(", \"visits\": ")
+                .append(calls[Phase.VISIT_TOKEN.ordinal()])
+                .append(", \"allocatedBytes\": ")
+                .append(allocationMeasured ? allocatedBytes : -1)
+                .append('}');
+        }
+    }
+}
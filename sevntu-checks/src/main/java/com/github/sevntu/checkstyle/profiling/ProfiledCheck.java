@@ -0,0 +1,202 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.profiling;
+
+import java.util.Collection;
+
+import com.github.sevntu.checkstyle.profiling.CheckProfiler.Phase;
+import com.github.sevntu.checkstyle.profiling.CheckProfiler.Stats;
+import com.puppycrawl.tools.checkstyle.DefaultContext;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+
+/**
+ * <p>
+ * Check which is created for TreeWalker instead of the profiled check. It
+ * forwards all the calls of TreeWalker to the profiled check and records the
+ * time and the allocated memory of each call to {@link CheckProfiler}.
+ * </p>
+ * <p>
+ * The wrapper is configured by TreeWalker with a
+ * {@link ProfiledConfiguration}, and configures the profiled check in turn
+ * with the original configuration and the context which TreeWalker gave to
+ * the wrapper. The message collector of TreeWalker can not be passed on, so
+ * the profiled check logs violations to the collector of the wrapper, and
+ * {@link ProfilingChecker} adds them to violations of the file.
+ * </p>
+ */
+final class ProfiledCheck extends Check
+{
+    /** The profiled check. */
+    private final Check check;
+
+    /** The profiler to record calls to. */
+    private final CheckProfiler profiler;
+
+    /** Violations logged by the profiled check. */
+    private final LocalizedMessages messages = new LocalizedMessages();
+
+    /** Statistics of the current file. */
+    private Stats fileStats;
+
+    /**
+     * Creates the wrapper of the check.
+     * @param check
+     *        the profiled check.
+     * @param profiler
+     *        the profiler to record calls to.
+     */
+    ProfiledCheck(Check check, CheckProfiler profiler)
+    {
+        this.check = check;
+        this.profiler = profiler;
+    }
+
+    /**
+     * Gets the profiled check.
+     * @return the profiled check.
+     */
+    Check getCheck()
+    {
+        return check;
+    }
+
+    /**
+     * Moves violations which the profiled check has logged since the
+     * previous call to the collection.
+     * @param target
+     *        the collection of violations of the file.
+     */
+    void drainMessages(Collection<LocalizedMessage> target)
+    {
+        target.addAll(messages.getMessages());
+        messages.reset();
+    }
+
+    @Override
+    protected void finishLocalSetup() throws CheckstyleException
+    {
+        final DefaultContext context = new DefaultContext();
+        context.add("classLoader", getClassLoader());
+        context.add("messages", messages);
+        context.add("severity", getSeverity());
+        context.add("tabWidth", String.valueOf(getTabWidth()));
+        check.contextualize(context);
+        check.configure(((ProfiledConfiguration) getConfiguration()).getOriginal());
+    }
+
+    @Override
+    public int[] getDefaultTokens()
+    {
+        return check.getDefaultTokens();
+    }
+
+    @Override
+    public int[] getAcceptableTokens()
+    {
+        return check.getAcceptableTokens();
+    }
+
+    @Override
+    public int[] getRequiredTokens()
+    {
+        return check.getRequiredTokens();
+    }
+
+    @Override
+    public boolean isCommentNodesRequired()
+    {
+        return check.isCommentNodesRequired();
+    }
+
+    @Override
+    public void init()
+    {
+        check.init();
+    }
+
+    @Override
+    public void destroy()
+    {
+        check.destroy();
+    }
+
+    @Override
+    public void beginTree(DetailAST rootAST)
+    {
+        check.setFileContents(getFileContents());
+        fileStats = new Stats();
+        final long allocated = profiler.getAllocatedBytes();
+        final long start = System.nanoTime();
+        try {
+            check.beginTree(rootAST);
+        }
+        finally {
+            fileStats.record(Phase.BEGIN_TREE, System.nanoTime() - start,
+                    profiler.getAllocatedBytes() - allocated);
+        }
+    }
+
+    @Override
+    public void visitToken(DetailAST ast)
+    {
+        final long allocated = profiler.getAllocatedBytes();
+        final long start = System.nanoTime();
+        try {
+            check.visitToken(ast);
+        }
+        finally {
+            fileStats.record(Phase.VISIT_TOKEN, System.nanoTime() - start,
+                    profiler.getAllocatedBytes() - allocated);
+        }
+    }
+
+    @Override
+    public void leaveToken(DetailAST ast)
+    {
+        final long allocated = profiler.getAllocatedBytes();
+        final long start = System.nanoTime();
+        try {
+            check.leaveToken(ast);
+        }
+        finally {
+            fileStats.record(Phase.LEAVE_TOKEN, System.nanoTime() - start,
+                    profiler.getAllocatedBytes() - allocated);
+        }
+    }
+
+    @Override
+    public void finishTree(DetailAST rootAST)
+    {
+        final long allocated = profiler.getAllocatedBytes();
+        final long start = System.nanoTime();
+        try {
+            check.finishTree(rootAST);
+        }
+        finally {
+            fileStats.record(Phase.FINISH_TREE, System.nanoTime() - start,
+                    profiler.getAllocatedBytes() - allocated);
+            profiler.addFileStats(check.getClass().getName(),
+                    getFileContents().getFilename(), fileStats);
+        }
+    }
+}
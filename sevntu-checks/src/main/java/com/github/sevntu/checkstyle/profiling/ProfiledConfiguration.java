@@ -0,0 +1,104 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.profiling;
+
+import java.util.Arrays;
+
+import com.google.common.collect.ImmutableMap;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+/**
+ * Configuration of a child of TreeWalker which is given to the
+ * {@link ProfiledCheck} created for it. Properties of the check do not exist
+ * in the wrapper, so only the tokens, which TreeWalker reads from the
+ * wrapper to register it, are visible; the wrapper configures the profiled
+ * check with the original configuration.
+ */
+final class ProfiledConfiguration implements Configuration
+{
+    /** Serialization version. */
+    private static final long serialVersionUID = 1L;
+
+    /** The property of tokens of checks. */
+    private static final String TOKENS = "tokens";
+
+    /** The original configuration of the check. */
+    private final Configuration original;
+
+    /**
+     * Creates the configuration of the wrapper.
+     * @param original
+     *        the original configuration of the check.
+     */
+    ProfiledConfiguration(Configuration original)
+    {
+        this.original = original;
+    }
+
+    /**
+     * Gets the original configuration of the check.
+     * @return the original configuration.
+     */
+    Configuration getOriginal()
+    {
+        return original;
+    }
+
+    @Override
+    public String[] getAttributeNames()
+    {
+        final String[] result;
+        if (Arrays.asList(original.getAttributeNames()).contains(TOKENS)) {
+            result = new String[] {TOKENS};
+        }
+        else {
+            result = new String[0];
+        }
+        return result;
+    }
+
+    @Override
+    public String getAttribute(String name) throws CheckstyleException
+    {
+        if (!TOKENS.equals(name)) {
+            throw new CheckstyleException("Property '" + name
+                    + "' is configured in the profiled check");
+        }
+        return original.getAttribute(name);
+    }
+
+    @Override
+    public Configuration[] getChildren()
+    {
+        return new Configuration[0];
+    }
+
+    @Override
+    public String getName()
+    {
+        return original.getName();
+    }
+
+    @Override
+    public ImmutableMap<String, String> getMessages()
+    {
+        return ImmutableMap.of();
+    }
+}
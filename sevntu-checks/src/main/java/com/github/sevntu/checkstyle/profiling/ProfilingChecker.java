@@ -0,0 +1,317 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.profiling;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import com.github.sevntu.checkstyle.PackageModuleFactory;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.DefaultLogger;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+/**
+ * <p>
+ * Checker which profiles checks of any configuration with
+ * {@link CheckProfiler}: modules are created by its own factory, which
+ * wraps each check of TreeWalker in a {@link ProfiledCheck}, and the
+ * profiler is registered as an audit listener to report the results at the
+ * end of the audit. Checks are not profiled if another module factory is
+ * set to the Checker.
+ * </p>
+ * <p>
+ * Every file is measured, so the cache of TreeWalker is not used by
+ * profiled audits.
+ * </p>
+ * <p>
+ * It may be used instead of Checker by the code which runs audits, or from
+ * the command line:
+ * </p>
+ * <pre>
+ * java -cp checkstyle-all.jar:sevntu-checks.jar
+ *     com.github.sevntu.checkstyle.profiling.ProfilingChecker
+ *     -c config.xml [-o report.json] file|directory...
+ * </pre>
+ */
+public class ProfilingChecker extends Checker
+{
+    /** Names of TreeWalker in configurations. */
+    private static final List<String> TREE_WALKER_NAMES = Arrays.asList(
+            "TreeWalker", TreeWalker.class.getName());
+
+    /** The factory of modules. */
+    private final ProfilingModuleFactory moduleFactory;
+
+    /**
+     * Creates the Checker.
+     * @param profiler
+     *        the profiler of checks.
+     * @param moduleClassLoader
+     *        the class loader of modules.
+     * @throws CheckstyleException
+     *         if Checker can not be created.
+     */
+    public ProfilingChecker(CheckProfiler profiler,
+            ClassLoader moduleClassLoader) throws CheckstyleException
+    {
+        moduleFactory = new ProfilingModuleFactory(moduleClassLoader, profiler);
+        setModuleClassLoader(moduleClassLoader);
+        setModuleFactory(moduleFactory);
+        addListener(profiler);
+    }
+
+    /**
+     * Creates the child. Children of TreeWalker get configurations which
+     * keep their properties for the profiled checks.
+     * @param childConf
+     *        the configuration of the child.
+     * @throws CheckstyleException
+     *         if the child can not be created.
+     */
+    @Override
+    protected void setupChild(Configuration childConf)
+        throws CheckstyleException
+    {
+        if (TREE_WALKER_NAMES.contains(childConf.getName())) {
+            super.setupChild(getProfiledConfiguration(childConf));
+        }
+        else {
+            super.setupChild(childConf);
+        }
+    }
+
+    /**
+     * Processes files with profiling of checks.
+     * @param files
+     *        files to process.
+     * @return the count of errors.
+     * @throws IllegalStateException
+     *         if no check is profiled.
+     */
+    @Override
+    public int process(List<File> files)
+    {
+        if (moduleFactory.getChecks().isEmpty()) {
+            throw new IllegalStateException("No check is profiled, the"
+                    + " configuration should have checks of TreeWalker");
+        }
+        for (TreeWalker treeWalker : moduleFactory.getTreeWalkers()) {
+            treeWalker.setCacheFile(null);
+        }
+        return super.process(files);
+    }
+
+    @Override
+    public void fireErrors(String fileName, SortedSet<LocalizedMessage> errors)
+    {
+        for (ProfiledCheck check : moduleFactory.getChecks()) {
+            check.drainMessages(errors);
+        }
+        super.fireErrors(fileName, errors);
+    }
+
+    /**
+     * Copies the configuration of TreeWalker with configurations of its
+     * children replaced by the ones of their wrappers.
+     * @param config
+     *        the configuration of TreeWalker.
+     * @return the copy of the configuration.
+     * @throws CheckstyleException
+     *         if attributes of the configuration can not be read.
+     */
+    private static Configuration getProfiledConfiguration(Configuration config)
+        throws CheckstyleException
+    {
+        final DefaultConfiguration result =
+                new DefaultConfiguration(config.getName());
+        for (String name : config.getAttributeNames()) {
+            result.addAttribute(name, config.getAttribute(name));
+        }
+        for (Map.Entry<String, String> message : config.getMessages().entrySet()) {
+            result.addMessage(message.getKey(), message.getValue());
+        }
+        for (Configuration child : config.getChildren()) {
+            result.addChild(new ProfiledConfiguration(child));
+        }
+        return result;
+    }
+
+    /**
+     * Runs the audit of files with profiling of checks. Violations and the
+     * summary table are printed to the standard output.
+     * @param args
+     *        "-c" configuration, optional "-o" JSON report, files and
+     *        directories to audit.
+     * @throws CheckstyleException
+     *         if the audit can not be run.
+     */
+    public static void main(String[] args) throws CheckstyleException
+    {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the audit of files with profiling of checks.
+     * @param args
+     *        "-c" configuration, optional "-o" JSON report, files and
+     *        directories to audit.
+     * @param out
+     *        the stream of violations and the summary table.
+     * @param err
+     *        the stream of the usage message.
+     * @return the count of errors, or 1 if arguments are not valid.
+     * @throws CheckstyleException
+     *         if the audit can not be run.
+     */
+    static int run(String[] args, PrintStream out, PrintStream err)
+        throws CheckstyleException
+    {
+        String config = null;
+        File jsonReport = null;
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-c".equals(args[i]) && i + 1 < args.length) {
+                config = args[++i];
+            }
+            else if ("-o".equals(args[i]) && i + 1 < args.length) {
+                jsonReport = new File(args[++i]);
+            }
+            else {
+                collectJavaFiles(new File(args[i]), files);
+            }
+        }
+        if (config == null || files.isEmpty()) {
+            err.println("Usage: ProfilingChecker -c <configuration>"
+                    + " [-o <report.json>] <file or directory>...");
+            return 1;
+        }
+
+        final ProfilingChecker checker = new ProfilingChecker(
+                new CheckProfiler(out, jsonReport),
+                ProfilingChecker.class.getClassLoader());
+        checker.configure(ConfigurationLoader.loadConfiguration(config,
+                new PropertiesExpander(System.getProperties())));
+        checker.addListener(new DefaultLogger(out, false));
+        final int errors = checker.process(files);
+        checker.destroy();
+        return errors;
+    }
+
+    /**
+     * Collects Java files of the directory, or the file itself.
+     * @param file
+     *        the file or the directory.
+     * @param result
+     *        the list to add found files to.
+     */
+    private static void collectJavaFiles(File file, List<File> result)
+    {
+        if (file.isDirectory()) {
+            final File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    collectJavaFiles(child, result);
+                }
+            }
+        }
+        else if (file.getName().endsWith(".java")) {
+            result.add(file);
+        }
+    }
+
+    /**
+     * Factory which wraps created checks for the profiler and keeps the
+     * wrappers and TreeWalker modules.
+     */
+    private static final class ProfilingModuleFactory extends PackageModuleFactory
+    {
+        /** The profiler of checks. */
+        private final CheckProfiler profiler;
+
+        /** Wrappers of created checks. */
+        private final List<ProfiledCheck> checks = new ArrayList<ProfiledCheck>();
+
+        /** Created TreeWalker modules. */
+        private final List<TreeWalker> treeWalkers = new ArrayList<TreeWalker>();
+
+        /**
+         * Creates the factory.
+         * @param moduleClassLoader
+         *        the class loader of modules.
+         * @param profiler
+         *        the profiler of checks.
+         * @throws CheckstyleException
+         *         if packages of modules can not be read.
+         */
+        ProfilingModuleFactory(ClassLoader moduleClassLoader,
+                CheckProfiler profiler)
+            throws CheckstyleException
+        {
+            super(moduleClassLoader);
+            this.profiler = profiler;
+        }
+
+        /**
+         * Gets wrappers of created checks.
+         * @return wrappers of checks.
+         */
+        List<ProfiledCheck> getChecks()
+        {
+            return checks;
+        }
+
+        /**
+         * Gets created TreeWalker modules.
+         * @return TreeWalker modules.
+         */
+        List<TreeWalker> getTreeWalkers()
+        {
+            return treeWalkers;
+        }
+
+        @Override
+        protected Object created(Object module)
+        {
+            Object result = module;
+            if (module instanceof Check) {
+                final ProfiledCheck check =
+                        new ProfiledCheck((Check) module, profiler);
+                checks.add(check);
+                result = check;
+            }
+            else if (module instanceof TreeWalker) {
+                treeWalkers.add((TreeWalker) module);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.checks.coding.MultipleVariableDeclarationsExtendedCheck;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class ChangedLinesTest extends BaseCheckTestSupport
+{
+    private static final String DIFF = "diff --git a/A.java b/A.java\n"
+            + "index 1111111..2222222 100644\n"
+            + "--- a/A.java\n"
+            + "+++ b/A.java\n"
+            + "@@ -1,3 +1,4 @@\n"
+            + " line1\n"
+            + "-old2\n"
+            + "+new2\n"
+            + "+++ new3 looks like a header\n"
+            + " line4\n"
+            + "@@ -10 +11,2 @@ class A\n"
+            + "-x\n"
+            + "+y\n"
+            + "+z\n"
+            + "\\ No newline at end of file\n"
+            + "--- a/B.java\n"
+            + "+++ /dev/null\n"
+            + "@@ -1,2 +0,0 @@\n"
+            + "-a\n"
+            + "-b\n"
+            + "--- C.java\t2014-01-01 00:00:00\n"
+            + "+++ C.java\t2014-01-01 00:00:00\n"
+            + "@@ -5,2 +5 @@\n"
+            + " keep\n"
+            + "-gone\n";
+
+    @Test
+    public void testParse()
+            throws Exception
+    {
+        final File base = new File("target").getCanonicalFile();
+        final ChangedLines changedLines = ChangedLines.parse(
+                new BufferedReader(new StringReader(DIFF)), base);
+
+        assertEquals(Collections.singletonList(new File(base, "A.java")),
+                changedLines.getFiles());
+
+        final ChangedLines.Ranges ranges =
+                changedLines.getRanges(new File(base, "A.java").getPath());
+        assertFalse(ranges.contains(1));
+        assertTrue(ranges.contains(2));
+        assertTrue(ranges.contains(3));
+        assertFalse(ranges.contains(4));
+        assertEquals(11, ranges.nextLine(4));
+        assertEquals(12, ranges.nextLine(12));
+        assertEquals(Integer.MAX_VALUE, ranges.nextLine(13));
+        assertTrue(ranges.intersects(5, 11));
+        assertFalse(ranges.intersects(4, 10));
+
+        assertTrue(changedLines.getRanges(
+                new File(base, "C.java").getPath()).isEmpty());
+        assertTrue(changedLines.getRanges(
+                new File(base, "B.java").getPath()).isEmpty());
+    }
+
+    @Test
+    public void testScope()
+            throws Exception
+    {
+        final File base = new File("target").getCanonicalFile();
+        final String fileName = new File(base, "A.java").getPath();
+        final ChangedLines changedLines = ChangedLines.parse(
+                new BufferedReader(new StringReader(DIFF)), base);
+
+        assertNull(ChangedLines.getCurrentRanges(fileName));
+        changedLines.enterScope();
+        try {
+            assertTrue(ChangedLines.getCurrentRanges(fileName).contains(2));
+            assertTrue(ChangedLines.getCurrentRanges("Other.java").isEmpty());
+        }
+        finally {
+            ChangedLines.exitScope();
+        }
+        assertNull(ChangedLines.getCurrentRanges(fileName));
+    }
+
+    @Test
+    public void testQuotedPaths()
+            throws Exception
+    {
+        final File base = new File("target").getCanonicalFile();
+        final String diff = "diff --git \"a/dir with space/X.java\" "
+                + "\"b/dir with space/X.java\"\n"
+                + "--- \"a/dir with space/X.java\"\n"
+                + "+++ \"b/dir with space/X.java\"\n"
+                + "@@ -1 +1 @@\n"
+                + "-old\n"
+                + "+new\n";
+        final ChangedLines changedLines = ChangedLines.parse(
+                new BufferedReader(new StringReader(diff)), base);
+        assertEquals(Collections.singletonList(
+                new File(base, "dir with space/X.java")),
+                changedLines.getFiles());
+
+        assertEquals("b/caf\u00e9.java",
+                ChangedLines.unquote("\"b/caf\\303\\251.java\""));
+        assertEquals("b/a\tb\"c\\d",
+                ChangedLines.unquote("\"b/a\\tb\\\"c\\\\d\"\ttrailing"));
+        // backslashes which do not start escapes of git are kept
+        assertEquals("b/x\\qy\\12\\",
+                ChangedLines.unquote("\"b/x\\qy\\12\\"));
+        assertEquals("b/x\\8aa", ChangedLines.unquote("\"b/x\\8aa\""));
+        assertEquals("b/x\\12", ChangedLines.unquote("\"b/x\\12"));
+
+        // the empty name is the base directory, which has no changed lines
+        assertTrue(ChangedLines.parse(new BufferedReader(new StringReader(
+                "+++ \n")), base).getFiles().isEmpty());
+    }
+
+    @Test
+    public void testUnsortedHunks()
+            throws Exception
+    {
+        final File base = new File("target").getCanonicalFile();
+        // the hunk without the name of the file is ignored
+        final String diff = "@@ -1 +1 @@\n"
+                + "-x\n"
+                + "+y\n"
+                + "+++ b/A.java\n"
+                + "@@ -20,0 +20,2 @@\n"
+                + "+a\n"
+                + "+b\n"
+                + "@@ -5,0 +5 @@\n"
+                + "+c\n"
+                + "@@ -21,0 +21,3 @@\n"
+                + "+d\n"
+                + "+e\n"
+                + "+f\n"
+                + "@@ -24,0 +24 @@\n"
+                + "+g\n"
+                + "+++ b/A.java\n"
+                + "@@ -30,2 +30,3 @@\n"
+                + "\n"
+                + "-h\n"
+                + "\\ No newline at end of file\n"
+                + "+i\n"
+                + "+j\n";
+        final ChangedLines.Ranges ranges = ChangedLines.parse(
+                new BufferedReader(new StringReader(diff)), base)
+                .getRanges(new File(base, "A.java").getPath());
+
+        assertTrue(ranges.contains(5));
+        assertFalse(ranges.contains(6));
+        assertEquals(20, ranges.nextLine(6));
+        assertTrue(ranges.contains(24));
+        assertEquals(31, ranges.nextLine(25));
+        assertEquals(Integer.MAX_VALUE, ranges.nextLine(33));
+        assertTrue(ranges.isInScope(0));
+        assertTrue(ChangedLines.Ranges.EMPTY.isEmpty());
+        assertFalse(ChangedLines.Ranges.EMPTY.isInScope(0));
+    }
+
+    @Test
+    public void testFindNodes()
+            throws Exception
+    {
+        final String fileName = getPath("InputTokenTypeIndex.java");
+        final DetailAST rootAST = TreeWalker.parse(new FileContents(
+                new FileText(new File(fileName), "UTF-8")));
+
+        // the anonymous class of the variable "runnable" has the line 12
+        assertEquals(Arrays.asList("runnable", "second"),
+                getNames(findVariables(rootAST, fileName, 12)));
+        assertEquals(Arrays.asList("runnable"),
+                getNames(findVariables(rootAST, fileName, 13)));
+        // the variable "runnable" may start on the last line of "first"
+        assertEquals(Arrays.asList("first", "runnable"),
+                getNames(findVariables(rootAST, fileName, 7)));
+        assertEquals(Collections.emptyList(),
+                getNames(findVariables(rootAST, fileName, 3)));
+    }
+
+    @Test
+    public void testProcessWithChecker()
+            throws Exception
+    {
+        final File file = new File(getPath(
+                "checks/coding/InputMultipleVariableDeclarations.java"));
+        final String diff = "+++ b/" + file.getName() + "\n"
+                + "@@ -3,2 +3,2 @@\n-old\n-old\n+new\n+new\n";
+        final ChangedLines changedLines = ChangedLines.parse(
+                new BufferedReader(new StringReader(diff)),
+                file.getParentFile());
+        final Checker checker = createChecker(createCheckConfig(
+                MultipleVariableDeclarationsExtendedCheck.class));
+
+        assertEquals(2, changedLines.process(checker,
+                Collections.singletonList(file)));
+        assertNull(ChangedLines.getCurrentRanges(file.getPath()));
+        // the filter is removed after the audit
+        assertEquals(7, checker.process(Collections.singletonList(file)));
+        checker.destroy();
+
+        assertTrue(changedLines.accept(createEvent(file, 3)));
+        assertFalse(changedLines.accept(createEvent(file, 7)));
+        assertTrue(changedLines.accept(createEvent(file, 0)));
+        // the scope of other changed lines is not used
+        ChangedLines.parse(new BufferedReader(new StringReader("")),
+                file.getParentFile()).enterScope();
+        try {
+            assertTrue(changedLines.accept(createEvent(file, 4)));
+        }
+        finally {
+            ChangedLines.exitScope();
+        }
+        assertFalse(changedLines.accept(createEvent(
+                new File(file.getParentFile(), "Other.java"), 0)));
+    }
+
+    private static List<DetailAST> findVariables(DetailAST rootAST,
+            String fileName, int changedLineNo)
+        throws Exception
+    {
+        final String diff = "+++ b/" + new File(fileName).getName() + "\n"
+                + "@@ -" + changedLineNo + " +" + changedLineNo + " @@\n"
+                + "-old\n+new\n";
+        return ChangedLines.parse(new BufferedReader(new StringReader(diff)),
+                new File(fileName).getParentFile()).getRanges(fileName)
+                .findNodes(rootAST, TokenTypes.VARIABLE_DEF);
+    }
+
+    private static List<String> getNames(List<DetailAST> nodes)
+    {
+        final List<String> result = new ArrayList<String>();
+        for (DetailAST node : nodes) {
+            result.add(node.findFirstToken(TokenTypes.IDENT).getText());
+        }
+        return result;
+    }
+
+    private static AuditEvent createEvent(File file, int lineNo)
+    {
+        return new AuditEvent(file, file.getPath(), new LocalizedMessage(
+                lineNo, "messages", "key", null, null,
+                ChangedLinesTest.class, null));
+    }
+}
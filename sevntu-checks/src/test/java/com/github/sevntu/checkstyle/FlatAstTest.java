@@ -0,0 +1,201 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2011  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class FlatAstTest extends BaseCheckTestSupport
+{
+    @Test
+    public void testNavigation()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputTokenTypeIndex.java"));
+        final FlatAst flatAst = FlatAst.getInstance(rootAST);
+        final int classDef = flatAst.getNode(rootAST.getNextSibling());
+
+        assertEquals(0, flatAst.getNode(rootAST));
+        assertEquals(TokenTypes.PACKAGE_DEF, flatAst.getType(0));
+        assertEquals(1, flatAst.getLineNo(0));
+        assertEquals(0, flatAst.getColumnNo(0));
+        assertEquals(FlatAst.NONE, flatAst.getParent(classDef));
+        assertEquals(0, flatAst.getPreviousSibling(classDef));
+        assertEquals(classDef, flatAst.getNextSibling(0));
+        assertEquals(FlatAst.NONE, flatAst.getNextSibling(classDef));
+        assertEquals(flatAst.size(), flatAst.getSubtreeEnd(classDef));
+
+        // modifiers, literal, name and body of the class
+        assertEquals(4, flatAst.getChildCount(classDef));
+        final int objBlock = flatAst.getLastChild(classDef);
+        assertEquals(TokenTypes.OBJBLOCK, flatAst.getType(objBlock));
+        assertEquals(TokenTypes.MODIFIERS,
+                flatAst.getType(flatAst.getFirstChild(classDef)));
+        assertEquals(objBlock,
+                flatAst.findFirstChild(classDef, TokenTypes.OBJBLOCK));
+        assertFalse(flatAst.hasChild(classDef, TokenTypes.METHOD_DEF));
+
+        final int methodDef = flatAst.findFirstChild(objBlock,
+                TokenTypes.METHOD_DEF);
+        final int end = flatAst.getSubtreeEnd(methodDef);
+        final int innerMethodDef = flatAst.findFirst(methodDef + 1, end,
+                TokenTypes.METHOD_DEF);
+        assertEquals("run", flatAst.getText(
+                flatAst.findFirstChild(innerMethodDef, TokenTypes.IDENT)));
+        assertEquals(FlatAst.NONE, flatAst.findFirst(methodDef + 1, end,
+                TokenTypes.LITERAL_THROW));
+        assertEquals(methodDef, flatAst.findAncestor(innerMethodDef,
+                TokenTypes.METHOD_DEF));
+        assertEquals(FlatAst.NONE, flatAst.findAncestor(methodDef,
+                TokenTypes.METHOD_DEF));
+
+        FlatAst.release(rootAST);
+    }
+
+    @Test
+    public void testDerivedLinks()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputTokenTypeIndex.java"));
+        final FlatAst flatAst = FlatAst.getInstance(rootAST);
+
+        for (int node = 0; node < flatAst.size(); node++) {
+            final DetailAST ast = flatAst.getAST(node);
+            assertSame(ast.getFirstChild(), getAST(flatAst,
+                    flatAst.getFirstChild(node)));
+            assertSame(ast.getLastChild(), getAST(flatAst,
+                    flatAst.getLastChild(node)));
+            assertSame(ast.getNextSibling(), getAST(flatAst,
+                    flatAst.getNextSibling(node)));
+            assertSame(ast.getPreviousSibling(), getAST(flatAst,
+                    flatAst.getPreviousSibling(node)));
+            assertEquals(ast.getChildCount(), flatAst.getChildCount(node));
+        }
+
+        FlatAst.release(rootAST);
+    }
+
+    @Test
+    public void testLookupOfNodes()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputTokenTypeIndex.java"));
+        final FlatAst flatAst = FlatAst.getInstance(rootAST);
+
+        // document order, as TreeWalker passes nodes
+        for (int node = 0; node < flatAst.size(); node++) {
+            assertEquals(node, flatAst.getNode(flatAst.getAST(node)));
+        }
+        // reverse order, each node is found by the hash table
+        for (int node = flatAst.size() - 1; node >= 0; node--) {
+            assertEquals(node, flatAst.getNode(flatAst.getAST(node)));
+        }
+
+        final DetailAST otherRootAST = parse(getPath("InputImportTable.java"));
+        try {
+            flatAst.getNode(otherRootAST);
+            fail("The node of other tree is found");
+        }
+        catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().startsWith("The node is not in the tree"));
+        }
+
+        FlatAst.release(rootAST);
+    }
+
+    @Test
+    public void testPositionsAndTexts()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputTokenTypeIndex.java"));
+        final FlatAst flatAst = FlatAst.getInstance(rootAST);
+        final int first = flatAst.findFirst(0, flatAst.size(),
+                TokenTypes.VARIABLE_DEF);
+        final int runnable = flatAst.findFirst(first + 1, flatAst.size(),
+                TokenTypes.VARIABLE_DEF);
+        final int second = flatAst.findFirst(runnable + 1, flatAst.size(),
+                TokenTypes.VARIABLE_DEF);
+        final int name = flatAst.findFirstChild(first, TokenTypes.IDENT);
+
+        // positions are filled by the first request of a column as well
+        assertEquals(12, flatAst.getColumnNo(name));
+        assertEquals(7, flatAst.getLineNo(name));
+        assertEquals(12, flatAst.getLineNo(second));
+
+        // both variables are of the type "int"
+        final int firstTypeName = flatAst.getFirstChild(
+                flatAst.findFirstChild(first, TokenTypes.TYPE));
+        final int secondTypeName = flatAst.getFirstChild(
+                flatAst.findFirstChild(second, TokenTypes.TYPE));
+        assertEquals("int", flatAst.getText(secondTypeName));
+        assertEquals(flatAst.getTextId(firstTypeName),
+                flatAst.getTextId(secondTypeName));
+        assertTrue(flatAst.getTextId(firstTypeName) != flatAst.getTextId(name));
+        assertEquals(flatAst.getTextId(name), flatAst.findTextId("first"));
+        assertEquals(FlatAst.NONE, flatAst.findTextId("absent"));
+
+        FlatAst.release(rootAST);
+    }
+
+    @Test
+    public void testReleaseAndReuse()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputTokenTypeIndex.java"));
+        final DetailAST otherRootAST = parse(getPath("InputImportTable.java"));
+        final FlatAst flatAst = FlatAst.getInstance(rootAST);
+        assertSame(flatAst, FlatAst.getInstance(rootAST));
+
+        // the view of other file is not released
+        FlatAst.release(otherRootAST);
+        assertSame(flatAst, FlatAst.getInstance(rootAST));
+
+        // the view of other file replaces the view of the thread
+        final FlatAst otherFlatAst = FlatAst.getInstance(otherRootAST);
+        assertNotSame(flatAst, otherFlatAst);
+
+        FlatAst.release(otherRootAST);
+        assertNotSame(otherFlatAst, FlatAst.getInstance(otherRootAST));
+        FlatAst.release(otherRootAST);
+        // a released view is not released again
+        FlatAst.release(otherRootAST);
+    }
+
+    private static DetailAST getAST(FlatAst flatAst, int node)
+    {
+        if (node == FlatAst.NONE) {
+            return null;
+        }
+        return flatAst.getAST(node);
+    }
+
+    private static DetailAST parse(String fileName)
+            throws Exception
+    {
+        return TreeWalker.parse(new FileContents(new FileText(new File(fileName),
+                "UTF-8")));
+    }
+}
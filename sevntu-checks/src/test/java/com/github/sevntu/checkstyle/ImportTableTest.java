@@ -0,0 +1,159 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+
+public class ImportTableTest extends BaseCheckTestSupport
+{
+    @Test
+    public void testCandidates()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputImportTable.java"));
+        final ImportTable table = ImportTable.getInstance(rootAST);
+
+        assertEquals("com.github.sevntu.checkstyle", table.getPackageName());
+        assertTrue(table.isImported("java.util.concurrent.*"));
+        assertTrue(table.isImported("java.util.Collections.*"));
+        assertFalse(table.isImported("java.util.Map"));
+
+        // a single import shadows the package and on-demand imports
+        assertEquals(Arrays.asList("java.util.List"),
+                table.getCandidates("List"));
+        assertEquals(Arrays.asList("java.util.Map.Entry.Key"),
+                table.getCandidates("Entry.Key"));
+        assertEquals(Arrays.asList("com.github.sevntu.checkstyle.Queue",
+                "java.util.concurrent.Queue",
+                "java.util.Collections.Queue"),
+                table.getCandidates("Queue"));
+        assertSame(table.getCandidates("List"), table.getCandidates("List"));
+
+        assertSame(table, ImportTable.getInstance(rootAST));
+        ImportTable.release(rootAST);
+        assertNotSame(table, ImportTable.getInstance(rootAST));
+        ImportTable.release(rootAST);
+    }
+
+    @Test
+    public void testDefaultPackage()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputImportTableDefaultPackage.java"));
+        final DetailAST otherRootAST = parse(getPath("InputImportTable.java"));
+        final ImportTable table = ImportTable.getInstance(rootAST);
+
+        assertEquals("", table.getPackageName());
+        assertEquals(Arrays.asList("java.util.ArrayList"),
+                table.getCandidates("ArrayList"));
+
+        // the table of other file is not released
+        ImportTable.release(otherRootAST);
+        assertSame(table, ImportTable.getInstance(rootAST));
+
+        // the table of other file replaces the table of the thread
+        assertEquals("com.github.sevntu.checkstyle",
+                ImportTable.getInstance(otherRootAST).getPackageName());
+        ImportTable.release(otherRootAST);
+        ImportTable.release(rootAST);
+    }
+
+    @Test
+    public void testStaticImports()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputImportTableResolution.java"));
+        final ImportTable table = ImportTable.getInstance(rootAST);
+
+        // static imports are kept without the static keyword
+        assertTrue(table.isImported("java.util.Collections.emptyList"));
+        assertTrue(table.isImported("java.lang.Math.*"));
+        assertFalse(table.isImported("static java.util.Collections.emptyList"));
+
+        // single static import of a member
+        assertEquals(Arrays.asList("java.util.Collections.emptyList"),
+                table.getCandidates("emptyList"));
+        // single static import of a nested type, the rest of the name is kept
+        assertEquals(Arrays.asList("java.util.Map.Entry.Key"),
+                table.getCandidates("Entry.Key"));
+        ImportTable.release(rootAST);
+    }
+
+    @Test
+    public void testOnDemandAndSamePackageNames()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputImportTableResolution.java"));
+        final ImportTable table = ImportTable.getInstance(rootAST);
+
+        // not imported explicitly: the package of the file, then every
+        // on-demand import in order of imports, type and static ones
+        assertEquals(Arrays.asList("com.github.sevntu.checkstyle.File",
+                "java.io.File",
+                "java.lang.Math.File"),
+                table.getCandidates("File"));
+        assertEquals(Arrays.asList("com.github.sevntu.checkstyle.ImportTable",
+                "java.io.ImportTable",
+                "java.lang.Math.ImportTable"),
+                table.getCandidates("ImportTable"));
+        // a qualified name is appended to every prefix as it is written
+        assertEquals(Arrays.asList("com.github.sevntu.checkstyle.checks.Utils",
+                "java.io.checks.Utils",
+                "java.lang.Math.checks.Utils"),
+                table.getCandidates("checks.Utils"));
+        ImportTable.release(rootAST);
+    }
+
+    @Test
+    public void testJavaLangIsNotImplicit()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputImportTableDefaultPackage.java"));
+        final ImportTable table = ImportTable.getInstance(rootAST);
+
+        // types of java.lang are not candidates unless they are imported
+        assertFalse(table.getCandidates("String").contains("java.lang.String"));
+        assertEquals(Arrays.asList("String"), table.getCandidates("String"));
+        assertFalse(table.isImported("java.lang.*"));
+        ImportTable.release(rootAST);
+
+        final DetailAST otherRootAST = parse(getPath("InputImportTableResolution.java"));
+        final ImportTable otherTable = ImportTable.getInstance(otherRootAST);
+
+        // on-demand static import of java.lang.Math members only
+        assertFalse(otherTable.getCandidates("String").contains("java.lang.String"));
+        assertTrue(otherTable.getCandidates("PI").contains("java.lang.Math.PI"));
+        ImportTable.release(otherRootAST);
+    }
+
+    private static DetailAST parse(String fileName)
+            throws Exception
+    {
+        return TreeWalker.parse(new FileContents(new FileText(new File(fileName),
+                "UTF-8")));
+    }
+}
@@ -0,0 +1,99 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.checks.coding.ReturnCountExtendedCheck;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.checks.sizes.FileLengthCheck;
+
+public class PackageModuleFactoryTest extends BaseCheckTestSupport
+{
+    @Test
+    public void testNames()
+            throws Exception
+    {
+        final PackageModuleFactory factory =
+                new PackageModuleFactory(getClass().getClassLoader());
+
+        assertTrue(factory.createModule("TreeWalker") instanceof TreeWalker);
+        assertTrue(factory.createModule("FileLength") instanceof FileLengthCheck);
+        assertTrue(factory.createModule("sizes.FileLengthCheck")
+                instanceof FileLengthCheck);
+        assertTrue(factory.createModule(ReturnCountExtendedCheck.class.getName())
+                instanceof ReturnCountExtendedCheck);
+    }
+
+    @Test
+    public void testUnknownName()
+            throws Exception
+    {
+        try {
+            new PackageModuleFactory(getClass().getClassLoader())
+                    .createModule("UnknownModule");
+            fail();
+        }
+        catch (CheckstyleException e) {
+            assertEquals("Unable to instantiate UnknownModule", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testClassWithoutInstances()
+            throws Exception
+    {
+        final PackageModuleFactory factory =
+                new PackageModuleFactory(getClass().getClassLoader());
+        try {
+            factory.createModule("api.Check");
+            fail();
+        }
+        catch (CheckstyleException e) {
+            assertEquals("Unable to instantiate com.puppycrawl.tools.checkstyle.api.Check",
+                    e.getMessage());
+        }
+        try {
+            factory.createModule("java.lang.Math");
+            fail();
+        }
+        catch (CheckstyleException e) {
+            assertEquals("Unable to instantiate java.lang.Math", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCreatedModules()
+            throws Exception
+    {
+        final Object replacement = new Object();
+        final PackageModuleFactory factory =
+                new PackageModuleFactory(getClass().getClassLoader())
+        {
+            @Override
+            protected Object created(Object module)
+            {
+                return replacement;
+            }
+        };
+
+        assertSame(replacement, factory.createModule("TreeWalker"));
+    }
+}
@@ -0,0 +1,145 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class TokenTypeIndexTest extends BaseCheckTestSupport
+{
+    @Test
+    public void testSubtreeSearches()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputTokenTypeIndex.java"));
+        final TokenTypeIndex index = TokenTypeIndex.getInstance(rootAST);
+        final DetailAST methodDef = rootAST.getNextSibling()
+                .findFirstToken(TokenTypes.OBJBLOCK)
+                .findFirstToken(TokenTypes.METHOD_DEF);
+
+        assertEquals(0, index.getPosition(rootAST));
+        assertEquals(index.size(), index.getSubtreeEnd(rootAST.getNextSibling()));
+
+        final List<DetailAST> methods =
+                index.getSubtreeNodes(methodDef, TokenTypes.METHOD_DEF);
+        assertEquals(2, methods.size());
+        assertSame(methodDef, methods.get(0));
+        assertEquals("run", methods.get(1).findFirstToken(TokenTypes.IDENT).getText());
+        assertEquals(methods.subList(1, 2),
+                index.getDescendants(methodDef, TokenTypes.METHOD_DEF));
+
+        assertEquals(asList("first", "runnable", "run", "second"),
+                getNames(index.getDescendants(methodDef,
+                        TokenTypes.VARIABLE_DEF, TokenTypes.METHOD_DEF)));
+
+        // the variable of the anonymous class is below the skipped node
+        assertEquals(asList("first", "runnable"),
+                getNames(index.getNodes(index.getPosition(methodDef) + 1,
+                        index.getSubtreeEnd(methodDef),
+                        new int[] {TokenTypes.VARIABLE_DEF},
+                        new int[] {TokenTypes.LITERAL_NEW})));
+
+        TokenTypeIndex.release(rootAST);
+    }
+
+    @Test
+    public void testMissingTokenTypes()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputTokenTypeIndex.java"));
+        final TokenTypeIndex index = TokenTypeIndex.getInstance(rootAST);
+
+        assertTrue(index.getDescendants(rootAST.getNextSibling(),
+                TokenTypes.LITERAL_THROW).isEmpty());
+        assertTrue(index.getSubtreeNodes(rootAST.getNextSibling(),
+                -1, Integer.MAX_VALUE).isEmpty());
+        // the range of the package definition has no methods
+        assertTrue(index.getSubtreeNodes(rootAST, TokenTypes.METHOD_DEF).isEmpty());
+
+        TokenTypeIndex.release(rootAST);
+    }
+
+    @Test
+    public void testEmptyIndex()
+    {
+        final TokenTypeIndex index = TokenTypeIndex.getInstance(null);
+
+        assertEquals(0, index.size());
+        assertTrue(index.getNodes(0, 0, new int[] {TokenTypes.METHOD_DEF},
+                new int[] {TokenTypes.CLASS_DEF}).isEmpty());
+
+        TokenTypeIndex.release(null);
+    }
+
+    @Test
+    public void testReleaseAndReuse()
+            throws Exception
+    {
+        final DetailAST rootAST = parse(getPath("InputTokenTypeIndex.java"));
+        final DetailAST otherRootAST = parse(getPath("InputImportTable.java"));
+        final TokenTypeIndex index = TokenTypeIndex.getInstance(rootAST);
+        assertSame(index, TokenTypeIndex.getInstance(rootAST));
+
+        // the index of other file is not released
+        TokenTypeIndex.release(otherRootAST);
+        assertSame(index, TokenTypeIndex.getInstance(rootAST));
+
+        // the index of other file replaces the index of the thread
+        final TokenTypeIndex otherIndex = TokenTypeIndex.getInstance(otherRootAST);
+        assertNotSame(index, otherIndex);
+        assertNotSame(index, TokenTypeIndex.getInstance(rootAST));
+
+        TokenTypeIndex.release(rootAST);
+        assertNotSame(otherIndex, TokenTypeIndex.getInstance(otherRootAST));
+        TokenTypeIndex.release(otherRootAST);
+    }
+
+    private static List<String> asList(String... names)
+    {
+        final List<String> result = new ArrayList<String>();
+        Collections.addAll(result, names);
+        return result;
+    }
+
+    private static List<String> getNames(List<DetailAST> nodes)
+    {
+        final List<String> result = new ArrayList<String>();
+        for (DetailAST node : nodes) {
+            result.add(node.findFirstToken(TokenTypes.IDENT).getText());
+        }
+        return result;
+    }
+
+    private static DetailAST parse(String fileName)
+            throws Exception
+    {
+        return TreeWalker.parse(new FileContents(new FileText(new File(fileName),
+                "UTF-8")));
+    }
+}
@@ -0,0 +1,353 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class TypeHierarchyIndexTest extends BaseCheckTestSupport
+{
+    private static final String[] NO_DIRECTORIES = new String[0];
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void releaseIndexes()
+    {
+        TypeHierarchyIndex.release();
+    }
+
+    @Test
+    public void testDefaultPackageFileIsIndexedAlone()
+            throws Exception
+    {
+        final File root = temporaryFolder.getRoot();
+        final File child = write(new File(root, "Child.java"),
+                "class Child extends Base {}\n");
+        write(new File(root, "Base.java"), "class Base extends Exception {}\n");
+        new File(root, "pkg").mkdir();
+        write(new File(root, "pkg/Other.java"),
+                "package pkg;\nclass Other extends Child {}\n");
+        TypeHierarchyIndex.acquire();
+
+        final TypeHierarchyIndex index = getInstance(NO_DIRECTORIES, child);
+
+        // neither the directory of the file nor its subdirectories are read
+        assertEquals(Collections.singleton("Base"), index.getSupertypes("Child"));
+        assertTrue(index.getSupertypes("Base").isEmpty());
+        assertTrue(index.getSupertypes("pkg.Other").isEmpty());
+        // the index of a single file is not shared
+        assertNotSame(index, getInstance(NO_DIRECTORIES, child));
+
+        final TypeHierarchyIndex configuredIndex =
+                getInstance(new String[] {root.getPath()}, child);
+
+        assertEquals(Arrays.asList("Base", "Exception"),
+                Arrays.asList(configuredIndex.getSupertypes("Child").toArray()));
+        assertTrue(configuredIndex.hasSupertype("pkg.Other", "Exception"));
+        assertSame(configuredIndex,
+                getInstance(new String[] {root.getPath()}, child));
+    }
+
+    @Test
+    public void testFileOutsideOfSourceDirectories()
+            throws Exception
+    {
+        final File sources = temporaryFolder.newFolder("sources");
+        new File(sources, "p").mkdir();
+        write(new File(sources, "p/A.java"), "package p;\npublic class A extends B {}\n");
+        write(new File(sources, "p/B.java"), "package p;\nclass B extends X {}\n");
+        final File other = temporaryFolder.newFolder("other");
+        final File c = write(new File(other, "C.java"),
+                "class C extends p.A {}\n");
+        TypeHierarchyIndex.acquire();
+
+        final String[] directories = {sources.getPath()};
+        final TypeHierarchyIndex index = getInstance(directories, c);
+
+        assertEquals(Arrays.asList("p.A", "p.B", "X"),
+                Arrays.asList(index.getSupertypes("C").toArray()));
+        // the file is added to a copy, the shared index is not changed
+        final TypeHierarchyIndex sharedIndex =
+                getInstance(directories, new File(sources, "p/A.java"));
+        assertNotSame(index, sharedIndex);
+        assertTrue(sharedIndex.getSupertypes("C").isEmpty());
+
+        // the view of other extra file has only that file of extra files
+        final File d = write(new File(other, "D.java"),
+                "class D extends C {}\n");
+        final TypeHierarchyIndex otherIndex = getInstance(directories, d);
+        assertEquals(Collections.singleton("C"), otherIndex.getSupertypes("D"));
+        assertTrue(otherIndex.getSupertypes("C").isEmpty());
+        assertEquals(Arrays.asList("p.B", "X"),
+                Arrays.asList(otherIndex.getSupertypes("p.A").toArray()));
+    }
+
+    @Test
+    public void testExtraFileDoesNotReplaceTypes()
+            throws Exception
+    {
+        final File sources = temporaryFolder.newFolder("sources");
+        new File(sources, "p").mkdir();
+        write(new File(sources, "p/A.java"), "package p;\nclass A extends B {}\n");
+        final File other = temporaryFolder.newFolder("other");
+        new File(other, "p").mkdir();
+        final File a = write(new File(other, "p/A.java"),
+                "package p;\nclass A extends C {}\nclass E extends A {}\n");
+
+        final TypeHierarchyIndex index =
+                getInstance(new String[] {sources.getPath()}, a);
+
+        // the type of the source directories wins over the copy
+        assertEquals(Collections.singleton("B"), index.getSupertypes("p.A"));
+        assertEquals(Arrays.asList("p.A", "B"),
+                Arrays.asList(index.getSupertypes("p.E").toArray()));
+    }
+
+    @Test
+    public void testChangedFilesAreIndexedAgain()
+            throws Exception
+    {
+        final File root = temporaryFolder.getRoot();
+        new File(root, "p").mkdir();
+        final File a = write(new File(root, "p/A.java"),
+                "package p;\npublic class A extends B {}\n");
+        final File b = write(new File(root, "p/B.java"),
+                "package p;\nclass B extends X {}\n");
+        write(new File(root, "p/C.java"), "package p;\nclass C extends B {}\n");
+        TypeHierarchyIndex.acquire();
+
+        final TypeHierarchyIndex index = getInstance(NO_DIRECTORIES, a);
+        assertEquals(Arrays.asList("p.B", "X"),
+                Arrays.asList(index.getSupertypes("p.A").toArray()));
+        assertSame(index, getInstance(NO_DIRECTORIES, b));
+
+        // a base type is changed and a new type is added
+        write(b, "package p;\nclass B extends Y {}\n");
+        b.setLastModified(b.lastModified() - 10000);
+        write(new File(root, "p/D.java"), "package p;\nclass D extends A {}\n");
+        // not changed processed file keeps the index
+        assertSame(index, getInstance(NO_DIRECTORIES, a));
+
+        // changed processed file reads all changed files again
+        write(a, "package p;\npublic class A extends B implements Z {}\n");
+        a.setLastModified(a.lastModified() + 10000);
+        final TypeHierarchyIndex changedIndex = getInstance(NO_DIRECTORIES, a);
+
+        assertNotSame(index, changedIndex);
+        assertEquals(Arrays.asList("p.B", "Z", "Y"),
+                Arrays.asList(changedIndex.getSupertypes("p.A").toArray()));
+        assertTrue(changedIndex.hasSupertype("p.D", "Y"));
+        // the not changed file is taken from the previous index
+        assertTrue(changedIndex.hasSupertype("p.C", "Y"));
+        assertSame(changedIndex, getInstance(NO_DIRECTORIES, b));
+    }
+
+    @Test
+    public void testResolutionOfNames()
+            throws Exception
+    {
+        final File root = temporaryFolder.getRoot();
+        new File(root, "p").mkdir();
+        new File(root, "q").mkdir();
+        write(new File(root, "q/I.java"), "package q;\npublic interface I {}\n");
+        write(new File(root, "q/Outer.java"), "package q;\npublic class Outer\n{\n"
+                + "    public static class Inner implements I {}\n}\n");
+        final File a = write(new File(root, "p/A.java"), "package p;\nimport q.*;\n"
+                + "class A extends Outer.Inner implements I, J {}\n");
+        // a link to nowhere can not be read and is not indexed
+        final File link = new File(root, "p/Link.java");
+        Runtime.getRuntime().exec(new String[] {
+            "ln", "-s", new File(root, "Absent.java").getPath(), link.getPath(),
+        }).waitFor();
+
+        final TypeHierarchyIndex index = getInstance(new String[] {
+            root.getPath(), new File(root, "absent").getPath(),
+        }, a);
+
+        // the member type is qualified by the import on demand, the
+        // interface of both types is collected once
+        assertEquals(Arrays.asList("q.Outer.Inner", "q.I", "J"),
+                Arrays.asList(index.getSupertypes("p.A").toArray()));
+        assertFalse(index.hasSupertype("p.A", "Exception"));
+        assertTrue(index.getSupertypes("p.Link").isEmpty());
+    }
+
+    @Test
+    public void testQualifiedNamesInDefaultPackage()
+            throws Exception
+    {
+        final File root = temporaryFolder.getRoot();
+        final File file = write(new File(root, "Top.java"),
+                "class Top extends Base\n{\n    class Nested {}\n}\n");
+        write(new File(root, "Base.java"), "class Base extends Exception {}\n");
+        final DetailAST topDef = parse(file, UTF_8);
+
+        assertEquals(TokenTypes.CLASS_DEF, topDef.getType());
+        assertEquals("Top", TypeHierarchyIndex.getQualifiedName(topDef));
+        assertEquals("Top.Nested", TypeHierarchyIndex.getQualifiedName(
+                topDef.findFirstToken(TokenTypes.OBJBLOCK)
+                        .findFirstToken(TokenTypes.CLASS_DEF)));
+        assertTrue(getInstance(new String[] {root.getPath()}, file)
+                .hasSupertype("Top", "Exception"));
+    }
+
+    @Test
+    public void testIndexIsKeptWithoutUsers()
+            throws Exception
+    {
+        final File root = temporaryFolder.getRoot();
+        new File(root, "p").mkdir();
+        final File a = write(new File(root, "p/A.java"),
+                "package p;\nclass A extends B {}\n");
+        final File b = write(new File(root, "p/B.java"),
+                "package p;\nclass B {}\n");
+
+        final TypeHierarchyIndex index = getInstance(NO_DIRECTORIES, a);
+        assertSame(index, getInstance(NO_DIRECTORIES, b));
+
+        // the least recently used index is dropped
+        for (int i = 0; i < TypeHierarchyIndex.MAX_INDEXES; i++) {
+            final File directory = temporaryFolder.newFolder("sources" + i);
+            getInstance(new String[] {directory.getPath()}, a);
+        }
+        final TypeHierarchyIndex builtIndex = getInstance(NO_DIRECTORIES, a);
+        assertNotSame(index, builtIndex);
+        assertEquals(index.getSupertypes("p.A"), builtIndex.getSupertypes("p.A"));
+    }
+
+    @Test
+    public void testFilesAreReadWithCharset()
+            throws Exception
+    {
+        final Charset charset = Charset.forName("ISO-8859-1");
+        final File root = temporaryFolder.getRoot();
+        new File(root, "p").mkdir();
+        final File child = write(new File(root, "p/Child.java"),
+                "package p;\nclass Child extends D\u00e9faut {}\n", charset);
+        write(new File(root, "p/D\u00e9faut.java"),
+                "package p;\nclass D\u00e9faut extends Exception {}\n", charset);
+        TypeHierarchyIndex.acquire();
+
+        final DetailAST rootAST = parse(child, charset);
+        final TypeHierarchyIndex index = TypeHierarchyIndex.getInstance(
+                NO_DIRECTORIES, child.getPath(), rootAST, charset);
+
+        assertEquals(Arrays.asList("p.D\u00e9faut", "Exception"),
+                Arrays.asList(index.getSupertypes("p.Child").toArray()));
+        assertSame(index, TypeHierarchyIndex.getInstance(
+                NO_DIRECTORIES, child.getPath(), rootAST, charset));
+
+        // the index of other charset is not shared and misreads the names
+        final TypeHierarchyIndex otherIndex = TypeHierarchyIndex.getInstance(
+                NO_DIRECTORIES, child.getPath(), rootAST, UTF_8);
+        assertNotSame(index, otherIndex);
+        assertFalse(otherIndex.getSupertypes("p.Child").contains("p.D\u00e9faut"));
+    }
+
+    @Test
+    public void testFileNotInDirectoryOfPackage()
+            throws Exception
+    {
+        final File root = temporaryFolder.getRoot();
+        final File a = write(new File(root, "A.java"),
+                "package p;\nclass A extends B {}\n");
+        write(new File(root, "B.java"), "package p;\nclass B extends X {}\n");
+
+        final TypeHierarchyIndex index = getInstance(NO_DIRECTORIES, a);
+
+        assertEquals(Collections.singleton("B"), index.getSupertypes("p.A"));
+    }
+
+    @Test
+    public void testAnnotationsAndIncompleteDeclarations()
+            throws Exception
+    {
+        final File root = temporaryFolder.getRoot();
+        new File(root, "p").mkdir();
+        final File a = write(new File(root, "p/A.java"),
+                "package p;\n@SuppressWarnings(\"rawtypes\")\n"
+                + "public class A<T extends Comparable<T>> extends @NonNull B\n"
+                + "        implements @Tag(name = \"(\") I\n{\n"
+                + "    Class<?> type = A.class;\n}\n");
+        write(new File(root, "p/B.java"), "package p;\nclass B {}\n");
+        write(new File(root, "p/I.java"), "package p;\ninterface I {}\n");
+        write(new File(root, "p/Broken.java"),
+                "package p;\nclass Broken extends B\n");
+
+        final TypeHierarchyIndex index = getInstance(NO_DIRECTORIES, a);
+
+        // annotations of supertypes are skipped, the class literal is not a type
+        assertEquals(Arrays.asList("p.B", "p.I"),
+                Arrays.asList(index.getSupertypes("p.A").toArray()));
+        // the declaration without a body is not indexed
+        assertTrue(index.getSupertypes("p.Broken").isEmpty());
+    }
+
+    private static TypeHierarchyIndex getInstance(String[] directories, File file)
+            throws Exception
+    {
+        return TypeHierarchyIndex.getInstance(directories, file.getPath(),
+                parse(file, UTF_8), UTF_8);
+    }
+
+    private static DetailAST parse(File file, Charset charset)
+            throws Exception
+    {
+        return TreeWalker.parse(new FileContents(
+                new FileText(file, charset.name())));
+    }
+
+    private static File write(File file, String content) throws IOException
+    {
+        return write(file, content, UTF_8);
+    }
+
+    private static File write(File file, String content, Charset charset)
+            throws IOException
+    {
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes(charset));
+        }
+        finally {
+            output.close();
+        }
+        return file;
+    }
+}
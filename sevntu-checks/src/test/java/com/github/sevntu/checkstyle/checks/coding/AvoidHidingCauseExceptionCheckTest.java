@@ -34,7 +34,8 @@ public class AvoidHidingCauseExceptionCheckTest extends BaseCheckTestSupport {
                 "123:21: " + getCheckMessage(MSG_KEY, "x"),
                 "129:13: " + getCheckMessage(MSG_KEY, "e"),
                 "142:13: " + getCheckMessage(MSG_KEY, "e"),
-                "152:13: " + getCheckMessage(MSG_KEY, "e"), 
+                "152:13: " + getCheckMessage(MSG_KEY, "e"),
+                "203:13: " + getCheckMessage(MSG_KEY, "e"),
                 };
 
         verify(checkConfig, getPath("InputAvoidHidingCauseExceptionCheck.java"), expected);
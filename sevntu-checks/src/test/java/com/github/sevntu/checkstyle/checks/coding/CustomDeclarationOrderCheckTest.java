@@ -2,13 +2,28 @@ package com.github.sevntu.checkstyle.checks.coding;
 
 import static com.github.sevntu.checkstyle.checks.coding.CustomDeclarationOrderCheck.*;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.github.sevntu.checkstyle.BaseCheckTestSupport;
 import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
 
 public class CustomDeclarationOrderCheckTest extends BaseCheckTestSupport {
 
+    /** The escape of NEL line terminator in the input with literals. */
+    private static final String NEL_ESCAPE = "\\u0085";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testCustomDecrationOrder() throws Exception
     {
@@ -105,6 +120,21 @@ public class CustomDeclarationOrderCheckTest extends BaseCheckTestSupport {
         verify(checkConfig, getPath("InputCustomDeclarationOrderCheckGettersSetters.java"), expected);
     }
 
+    @Test
+    public void setterUpdatesFieldInItsOwnBody()
+            throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(CustomDeclarationOrderCheck.class);
+        final String[] expected = {};
+        checkConfig.addAttribute(
+                        "customDeclarationOrder",
+                        "GetterSetter(.*) ### Method(.*)"
+                        );
+        checkConfig.addAttribute("caseSensitive", "false");
+        verify(checkConfig, getPath("InputCustomDeclarationOrderCheckSetterBody.java"), expected);
+    }
+
     @Test
     public void innerInterfacesAndEnums()
             throws Exception
@@ -144,4 +174,97 @@ public class CustomDeclarationOrderCheckTest extends BaseCheckTestSupport {
         checkConfig.addAttribute("caseSensitive", "false");
         verify(checkConfig, getPath("InputCustomDeclarationOrderCheckMainMethod.java"), expected);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void mainMethodParameters()
+            throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(CustomDeclarationOrderCheck.class);
+        final String[] expected = {
+                "4:5: " + getCheckMessage(MSG_KEY_FIELD, "Field(private )", "MainMethod(.*)"),
+                "9:5: " + getCheckMessage(MSG_KEY_FIELD, "Field(private )", "Method(.*)"),
+                "14:5: " + getCheckMessage(MSG_KEY_FIELD, "Field(private )", "Method(.*)"),
+        };
+        checkConfig.addAttribute(
+                        "customDeclarationOrder",
+                        "Field(private ) ### Field(public ) ### MainMethod(.*) ### Method(.*)"
+                        );
+        checkConfig.addAttribute("caseSensitive", "false");
+        verify(checkConfig, getPath("InputCustomDeclarationOrderCheckMainMethodParameters.java"),
+                expected);
+    }
+
+    @Test
+    public void literalsAndModifiers()
+            throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(CustomDeclarationOrderCheck.class);
+        final String[] expected = {
+                "9:9: " + getCheckMessage(MSG_KEY_FIELD, "Field(PUBLIC .*)", "Field(private .*)"),
+                "19:9: " + getCheckMessage(MSG_KEY_FIELD, "Field(@suppresswarnings.*private )", "Field(private .*)"),
+                "27:9: " + getCheckMessage(MSG_KEY_FIELD, "Field(private .*static .*final )", "Field(private .*)"),
+        };
+        checkConfig.addAttribute(
+                        "customDeclarationOrder",
+                        "Field(PUBLIC .*) ### Field(@suppresswarnings.*private ) ### "
+                        + "Field(private .*static .*final ) ### Field(private .*)"
+                        );
+        checkConfig.addAttribute("caseSensitive", "false");
+        verify(checkConfig, unescapeLineTerminator("InputCustomDeclarationOrderCheckLiterals.java"),
+                expected);
+    }
+
+    /**
+     * Copies the input to the temporary folder replacing the escape of NEL
+     * with the raw character, as Checkstyle does not translate unicode
+     * escapes and the input is kept free of raw control characters.
+     * @param fileName the name of the input.
+     * @return the path of the copy.
+     * @throws IOException if the input can't be copied.
+     */
+    private String unescapeLineTerminator(String fileName)
+            throws IOException
+    {
+        final File input = new File(getPath(fileName));
+        final byte[] bytes = new byte[(int) input.length()];
+        final InputStream in = new FileInputStream(input);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += in.read(bytes, offset, bytes.length - offset);
+            }
+        }
+        finally {
+            in.close();
+        }
+        final String text = new String(bytes, "iso-8859-1").replace(NEL_ESCAPE, "\u0085");
+        final File copy = new File(temporaryFolder.getRoot(), fileName);
+        final OutputStream out = new FileOutputStream(copy);
+        try {
+            out.write(text.getBytes("iso-8859-1"));
+        }
+        finally {
+            out.close();
+        }
+        return copy.getPath();
+    }
+
+    @Test
+    public void gettersSettersOnSameLine()
+            throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(CustomDeclarationOrderCheck.class);
+        final String[] expected = {
+                "20: " + getCheckMessage(MSG_KEY_INVALID_SETTER, "setZ", "getZ"),
+        };
+        checkConfig.addAttribute(
+                        "customDeclarationOrder",
+                        "Field(.*) ### GetterSetter(.*) ### Method(.*)"
+                        );
+        checkConfig.addAttribute("caseSensitive", "false");
+        verify(checkConfig, getPath("InputCustomDeclarationOrderCheckGettersSettersSameLine.java"), expected);
+    }
+}
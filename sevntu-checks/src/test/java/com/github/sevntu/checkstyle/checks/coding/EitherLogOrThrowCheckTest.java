@@ -43,4 +43,17 @@ public class EitherLogOrThrowCheckTest extends BaseCheckTestSupport
         verify(checkConfig, getPath("InputEitherLogOrThrowCheck.java"),
                 expected);
     }
+
+    @Test
+    public void testSingleImportShadowsOnDemandImport() throws Exception
+    {
+        checkConfig.addAttribute("loggerFullyQualifiedClassName", "org.slf4j.Logger");
+        checkConfig.addAttribute("loggingMethodNames", "log, warn");
+
+        final String[] expected = {
+            "32: " + warningMessage,
+        };
+        verify(checkConfig, getPath("InputEitherLogOrThrowCheckShadowedImport.java"),
+                expected);
+    }
 }
@@ -113,4 +113,19 @@ public class EmptyPublicCtorInClassCheckTest extends BaseCheckTestSupport
 
         verify(config, getPath("InputEmptyPublicCtorInClass10.java"), expected);
     }
+
+    @Test
+    public void testEmptyAnnotationNames() throws Exception
+    {
+        DefaultConfiguration config = createCheckConfig(EmptyPublicCtorInClassCheck.class);
+
+        config.addAttribute("classAnnotationNames", "");
+        config.addAttribute("ctorAnnotationNames", "");
+
+        String expected[] = {
+                "5:5: " + message,
+        };
+
+        verify(config, getPath("InputEmptyPublicCtorInClass7.java"), expected);
+    }
 }
@@ -67,4 +67,18 @@ public class ForbidCCommentsInMethodsTest extends
         final String[] expected = {};
         verify(checkConfig, getPath("InputForbidCCommentsInMethods3.java"), expected);
     }
+
+    @Test
+    public void testCommentsOnBraceLines()
+            throws Exception
+    {
+        final DefaultConfiguration checkConfig = createCheckConfig(ForbidCCommentsInMethods.class);
+        final String[] expected = {
+                "5: " + warningMessage,
+                "12: " + warningMessage,
+                "14: " + warningMessage,
+                "22: " + warningMessage,
+        };
+        verify(checkConfig, getPath("InputForbidCCommentsInMethods4.java"), expected);
+    }
 }
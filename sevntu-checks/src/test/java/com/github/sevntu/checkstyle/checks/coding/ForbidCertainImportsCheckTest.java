@@ -20,10 +20,14 @@ package com.github.sevntu.checkstyle.checks.coding;
 
 import static com.github.sevntu.checkstyle.checks.coding.ForbidCertainImportsCheck.*;
 
+import java.io.File;
+import java.util.Collections;
+
 import org.junit.Test;
 
 import com.github.sevntu.checkstyle.BaseCheckTestSupport;
 import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 
 
 /**
@@ -101,4 +105,75 @@ public class ForbidCertainImportsCheckTest extends BaseCheckTestSupport
 
         verify(checkConfig, getPath("InputForbidCertainImportsDefaultPackageWithoutImports.java"), expected);
     }
+
+    @Test
+    public void testRulesFile() throws Exception
+    {
+        checkConfig.addAttribute("rulesFile", getPath("InputForbidCertainImportsRules.txt"));
+
+        String[] expected = {
+            "3: " + getCheckMessage(MSG_KEY, "com.puppycrawl.tools.checkstyle.**", "com.puppycrawl.tools.checkstyle.api.AutomaticBean"),
+            "4: " + getCheckMessage(MSG_KEY, "java.io.*", "java.io.File"),
+            "9: " + getCheckMessage(MSG_KEY, "com.puppycrawl.tools.checkstyle.**", "com.puppycrawl.tools.checkstyle.api.AutomaticBean"),
+            "21: " + getCheckMessage(MSG_KEY, "com.puppycrawl.tools.checkstyle.**", "com.puppycrawl.tools.checkstyle.api.AutomaticBean"),
+        };
+
+        verify(checkConfig, getPath("InputForbidsCertainImports.java"), expected);
+    }
+
+    @Test
+    public void testRulesFileAndDefaultPackage() throws Exception
+    {
+        checkConfig.addAttribute("rulesFile", getPath("InputForbidCertainImportsDefaultPackageRules.txt"));
+
+        String[] expected = {
+            "1: " + getCheckMessage(MSG_KEY, "java.util.**", "java.util.List"),
+            "6: " + getCheckMessage(MSG_KEY, "java.util.**", "java.util.ArrayList"),
+        };
+
+        verify(checkConfig, getPath("InputForbidCertainImportsDefaultPackage.java"), expected);
+    }
+
+    @Test
+    public void testRulesFileWithoutMatchedRules() throws Exception
+    {
+        checkConfig.addAttribute("rulesFile", getPath("InputForbidCertainImportsRules.txt"));
+
+        String[] expected = {};
+
+        verify(checkConfig, getPath("InputForbidCertainImportsDefaultPackage.java"), expected);
+    }
+
+    @Test(expected = CheckstyleException.class)
+    public void testInvalidRulesFile() throws Exception
+    {
+        checkConfig.addAttribute("rulesFile", getPath("InputForbidCertainImportsInvalidRules.txt"));
+
+        String[] expected = {};
+
+        verify(checkConfig, getPath("InputForbidsCertainImports.java"), expected);
+    }
+
+    @Test(expected = CheckstyleException.class)
+    public void testMissingRulesFile() throws Exception
+    {
+        checkConfig.addAttribute("rulesFile", "NoSuchRulesFile.txt");
+
+        String[] expected = {};
+
+        verify(checkConfig, getPath("InputForbidsCertainImports.java"), expected);
+    }
+
+    @Test
+    public void testDependencyFiles()
+    {
+        final ForbidCertainImportsCheck check = new ForbidCertainImportsCheck();
+        assertFalse(check.dependsOnSourceFiles());
+        assertTrue(check.getDependencyFiles().isEmpty());
+
+        final String rulesFile = getPath("InputForbidCertainImportsRules.txt");
+        check.setRulesFile(rulesFile);
+        assertEquals(Collections.singletonList(new File(rulesFile)),
+                check.getDependencyFiles());
+    }
 }
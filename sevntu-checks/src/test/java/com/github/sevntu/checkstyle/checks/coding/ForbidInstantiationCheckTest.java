@@ -25,6 +25,8 @@ import org.junit.Test;
 import com.github.sevntu.checkstyle.BaseCheckTestSupport;
 import com.github.sevntu.checkstyle.checks.coding.ForbidInstantiationCheck;
 import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 
 /**
  * @author <a href="mailto:Daniil.Yaroslavtsev@gmail.com"> Daniil
@@ -105,4 +107,42 @@ public class ForbidInstantiationCheckTest extends BaseCheckTestSupport
 
         verify(checkConfig, getPath("InputForbidInstantiationCheckWithAsterisk.java"), expected);
     }
+
+    @Test
+    public void testSamePackageClass() throws Exception
+    {
+
+        checkConfig.addAttribute("forbiddenClasses",
+                "com.github.sevntu.checkstyle.checks.coding.InputForbidInstantiationCheck");
+
+        String[] expected = {
+            "10:9: " + getCheckMessage(MSG_KEY, "InputForbidInstantiationCheck"),
+            "15:43: " + getCheckMessage(MSG_KEY, "InputForbidInstantiationCheck"),
+        };
+
+        verify(checkConfig, getPath("InputForbidInstantiationCheckWithoutDots.java"), expected);
+    }
+
+    @Test
+    public void testSingleImportShadowsSamePackageClass() throws Exception
+    {
+
+        checkConfig.addAttribute("forbiddenClasses",
+                "com.github.sevntu.checkstyle.checks.coding.File, "
+                + "com.github.sevntu.checkstyle.checks.coding.InputForbidInstantiationCheck");
+
+        String[] expected = {
+            "9:9: " + getCheckMessage(MSG_KEY, "InputForbidInstantiationCheck"),
+        };
+
+        verify(checkConfig, getPath("InputForbidInstantiationCheckShadowedImport.java"), expected);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedToken()
+    {
+        final DetailAST ast = new DetailAST();
+        ast.setType(TokenTypes.CLASS_DEF);
+        new ForbidInstantiationCheck().visitToken(ast);
+    }
 }
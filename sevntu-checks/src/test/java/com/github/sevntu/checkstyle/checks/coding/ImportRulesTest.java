@@ -0,0 +1,107 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2011  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+
+public class ImportRulesTest extends BaseCheckTestSupport
+{
+    private static final String RULES = "package com.example.dao\n"
+            + "forbid com.example.ui.**\n"
+            + "allow **Exception\n";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testImportFedByPieces()
+            throws Exception
+    {
+        final ImportRules.Cursor cursor = ImportRules.parse(
+                new BufferedReader(new StringReader(RULES))).newCursor();
+        cursor.selectPackage("com.example.dao");
+        assertTrue(cursor.hasActiveRules());
+
+        cursor.startImport();
+        cursor.feedImport("com.example");
+        cursor.feedImport('.');
+        cursor.feedImport("ui.Form");
+        assertEquals("com.example.ui.**", cursor.getForbiddingGlob());
+
+        cursor.startImport();
+        cursor.feedImport("com.example.ui.FormException");
+        assertNull(cursor.getForbiddingGlob());
+
+        // pieces after the mismatch do not revive the scan
+        cursor.startImport();
+        cursor.feedImport("org");
+        cursor.feedImport('.');
+        cursor.feedImport("com.example.ui.Form");
+        assertNull(cursor.getForbiddingGlob());
+
+        cursor.selectPackage("com.example.ui");
+        assertFalse(cursor.hasActiveRules());
+    }
+
+    @Test
+    public void testCacheOfLoadedFiles()
+            throws Exception
+    {
+        final File rulesFile = temporaryFolder.newFile("rules.txt");
+        write(rulesFile, RULES);
+        final ImportRules rules = ImportRules.load(rulesFile);
+        assertSame(rules, ImportRules.load(rulesFile));
+
+        // the changed file is loaded again
+        rulesFile.setLastModified(rulesFile.lastModified() + 2000);
+        final ImportRules changedRules = ImportRules.load(rulesFile);
+        assertNotSame(rules, changedRules);
+        assertSame(changedRules, ImportRules.load(rulesFile));
+
+        // the least recently loaded file is dropped
+        for (int i = 0; i < ImportRules.MAX_LOADED_FILES; i++) {
+            final File otherFile = temporaryFolder.newFile("rules" + i + ".txt");
+            write(otherFile, RULES);
+            ImportRules.load(otherFile);
+        }
+        assertNotSame(changedRules, ImportRules.load(rulesFile));
+    }
+
+    private static void write(File file, String content) throws IOException
+    {
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes("UTF-8"));
+        }
+        finally {
+            output.close();
+        }
+    }
+}
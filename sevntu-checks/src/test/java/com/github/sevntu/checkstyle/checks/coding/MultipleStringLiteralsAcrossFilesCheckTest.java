@@ -0,0 +1,188 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+import static com.github.sevntu.checkstyle.checks.coding.MultipleStringLiteralsAcrossFilesCheck.MSG_KEY;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+
+public class MultipleStringLiteralsAcrossFilesCheckTest extends BaseCheckTestSupport
+{
+    private static final String QUERY = "\"SELECT id, name FROM users WHERE id = ?\"";
+
+    private static final String IN_TWO_FILES = "\"in two files\"";
+
+    @Test
+    public void testDefaultConfiguration() throws Exception
+    {
+        final String[] expected = {
+            getFirstPath() + ":5:41: " + getCheckMessage(MSG_KEY, QUERY, 3, 2),
+            getFirstPath() + ":15:20: " + getCheckMessage(MSG_KEY, IN_TWO_FILES, 2, 2),
+            getSecondPath() + ":10:20: " + getCheckMessage(MSG_KEY, IN_TWO_FILES, 2, 2),
+            getSecondPath() + ":11:24: " + getCheckMessage(MSG_KEY, QUERY, 3, 2),
+        };
+        verifyFiles(createCheckConfig(StringLiteralsCollectorCheck.class),
+                createCheckConfig(MultipleStringLiteralsAcrossFilesCheck.class),
+                expected);
+    }
+
+    @Test
+    public void testHighlightAllDuplicates() throws Exception
+    {
+        final DefaultConfiguration collectorConfig =
+                createCheckConfig(StringLiteralsCollectorCheck.class);
+        collectorConfig.addAttribute("ignoreOccurrenceContext", "");
+        collectorConfig.addAttribute("ignoreStringsRegexp", "");
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(MultipleStringLiteralsAcrossFilesCheck.class);
+        checkConfig.addAttribute("highlightAllDuplicates", "true");
+        // literals which are duplicated in one file only are not reported
+        final String[] expected = {
+            getFirstPath() + ":5:41: " + getCheckMessage(MSG_KEY, QUERY, 3, 2),
+            getFirstPath() + ":9:20: " + getCheckMessage(MSG_KEY, "\"\"", 2, 2),
+            getFirstPath() + ":11:23: " + getCheckMessage(MSG_KEY, "\"unchecked\"", 2, 2),
+            getFirstPath() + ":14:20: " + getCheckMessage(MSG_KEY, QUERY, 3, 2),
+            getFirstPath() + ":15:20: " + getCheckMessage(MSG_KEY, IN_TWO_FILES, 2, 2),
+            getSecondPath() + ":5:20: " + getCheckMessage(MSG_KEY, "\"\"", 2, 2),
+            getSecondPath() + ":7:23: " + getCheckMessage(MSG_KEY, "\"unchecked\"", 2, 2),
+            getSecondPath() + ":10:20: " + getCheckMessage(MSG_KEY, IN_TWO_FILES, 2, 2),
+            getSecondPath() + ":11:24: " + getCheckMessage(MSG_KEY, QUERY, 3, 2),
+        };
+        verifyFiles(collectorConfig, checkConfig, expected);
+    }
+
+    @Test
+    public void testAllowedDuplicates() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(MultipleStringLiteralsAcrossFilesCheck.class);
+        checkConfig.addAttribute("allowedDuplicates", "2");
+        final String[] expected = {
+            getFirstPath() + ":5:41: " + getCheckMessage(MSG_KEY, QUERY, 3, 2),
+            getSecondPath() + ":11:24: " + getCheckMessage(MSG_KEY, QUERY, 3, 2),
+        };
+        verifyFiles(createCheckConfig(StringLiteralsCollectorCheck.class),
+                checkConfig, expected);
+    }
+
+    @Test
+    public void testIgnoreOccurrenceContext() throws Exception
+    {
+        final DefaultConfiguration collectorConfig =
+                createCheckConfig(StringLiteralsCollectorCheck.class);
+        collectorConfig.addAttribute("ignoreOccurrenceContext", "SLIST");
+        collectorConfig.addAttribute("ignoreStringsRegexp", "");
+        // literals of method bodies are ignored, literals of annotations are not
+        final String[] expected = {
+            getFirstPath() + ":9:20: " + getCheckMessage(MSG_KEY, "\"\"", 2, 2),
+            getFirstPath() + ":11:23: " + getCheckMessage(MSG_KEY, "\"unchecked\"", 2, 2),
+            getSecondPath() + ":5:20: " + getCheckMessage(MSG_KEY, "\"\"", 2, 2),
+            getSecondPath() + ":7:23: " + getCheckMessage(MSG_KEY, "\"unchecked\"", 2, 2),
+        };
+        verifyFiles(collectorConfig,
+                createCheckConfig(MultipleStringLiteralsAcrossFilesCheck.class),
+                expected);
+    }
+
+    @Test
+    public void testMaxTrackedLiterals() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(MultipleStringLiteralsAcrossFilesCheck.class);
+        checkConfig.addAttribute("maxTrackedLiterals", "1");
+        final String[] expected = {
+            getFirstPath() + ":5:41: " + getCheckMessage(MSG_KEY, QUERY, 3, 2),
+            getSecondPath() + ":11:24: " + getCheckMessage(MSG_KEY, QUERY, 3, 2),
+        };
+        verifyFiles(createCheckConfig(StringLiteralsCollectorCheck.class),
+                checkConfig, expected);
+    }
+
+    @Test
+    public void testMaxTrackedOccurrences() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(MultipleStringLiteralsAcrossFilesCheck.class);
+        checkConfig.addAttribute("maxTrackedOccurrences", "1");
+        checkConfig.addAttribute("highlightAllDuplicates", "true");
+        // further occurrences are counted, but not reported
+        final String[] expected = {
+            getFirstPath() + ":5:41: " + getCheckMessage(MSG_KEY, QUERY, 3, 2),
+            getFirstPath() + ":15:20: " + getCheckMessage(MSG_KEY, IN_TWO_FILES, 2, 2),
+        };
+        verifyFiles(createCheckConfig(StringLiteralsCollectorCheck.class),
+                checkConfig, expected);
+    }
+
+    @Test
+    public void testWithoutCollector() throws Exception
+    {
+        final String[] expected = {};
+        verifyFiles(null,
+                createCheckConfig(MultipleStringLiteralsAcrossFilesCheck.class),
+                expected);
+    }
+
+    private void verifyFiles(DefaultConfiguration collectorConfig,
+            DefaultConfiguration checkConfig, String[] expected)
+            throws Exception
+    {
+        final DefaultConfiguration checkerConfig = new DefaultConfiguration("configuration");
+        checkerConfig.addAttribute("charset", "iso-8859-1");
+        if (collectorConfig != null) {
+            final DefaultConfiguration treeWalkerConfig =
+                    createCheckConfig(TreeWalker.class);
+            treeWalkerConfig.addChild(collectorConfig);
+            checkerConfig.addChild(treeWalkerConfig);
+        }
+        checkerConfig.addChild(checkConfig);
+
+        final Checker checker = new Checker();
+        checker.setLocaleCountry(Locale.ENGLISH.getCountry());
+        checker.setLocaleLanguage(Locale.ENGLISH.getLanguage());
+        checker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
+        checker.configure(checkerConfig);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        checker.addListener(new BriefLogger(output));
+        final List<String> startedFiles = new ArrayList<String>();
+        checker.addListener(new BriefLogger(new ByteArrayOutputStream())
+        {
+            @Override
+            public void fileStarted(AuditEvent event)
+            {
+                startedFiles.add(event.getFileName());
+            }
+        });
+
+        final int errors = checker.process(Arrays.asList(
+                new File(getFirstPath()), new File(getSecondPath())));
+        checker.destroy();
+
+        final String[] actual = output.toString().split("\\r?\\n");
+        assertEquals(Arrays.asList(expected), Arrays.asList(actual).subList(0, errors));
+        assertEquals(expected.length, errors);
+        // events of files are fired once
+        assertEquals(Arrays.asList(getFirstPath(), getSecondPath()), startedFiles);
+    }
+
+    private String getFirstPath()
+    {
+        return getPath("InputMultipleStringLiteralsAcrossFiles1.java");
+    }
+
+    private String getSecondPath()
+    {
+        return getPath("InputMultipleStringLiteralsAcrossFiles2.java");
+    }
+}
@@ -118,4 +118,64 @@ public class MultipleStringLiteralsExtendedCheckTest extends BaseCheckTestSuppor
 		verify(checkConfig, getPath("InputMultipleStringLiterals.java"), expected);
 	}
 
+	@Test
+	public void testNestedAnnotations() throws Exception
+	{
+		DefaultConfiguration checkConfig =
+				createCheckConfig(MultipleStringLiteralsExtendedCheck.class);
+		checkConfig.addAttribute("allowedDuplicates", "3");
+
+		final String[] expected = {
+				"18:20: " + getCheckMessage(MSG_KEY, "\"name\"", 4),
+		};
+
+		verify(checkConfig, getPath("InputMultipleStringLiteralsNestedAnnotations.java"),
+				expected);
+	}
+
+	@Test
+	public void testIgnoredAnnotationArrays() throws Exception
+	{
+		DefaultConfiguration checkConfig =
+				createCheckConfig(MultipleStringLiteralsExtendedCheck.class);
+		checkConfig.addAttribute("allowedDuplicates", "3");
+		checkConfig.addAttribute("ignoreOccurrenceContext", "ANNOTATION_ARRAY_INIT");
+
+		final String[] expected = {
+				"17:61: " + getCheckMessage(MSG_KEY, "\"name\"", 7),
+		};
+
+		verify(checkConfig, getPath("InputMultipleStringLiteralsNestedAnnotations.java"),
+				expected);
+	}
+
+	@Test
+	public void testTokensProperty() throws Exception
+	{
+		DefaultConfiguration checkConfig =
+				createCheckConfig(MultipleStringLiteralsExtendedCheck.class);
+		checkConfig.addAttribute("allowedDuplicates", "3");
+		checkConfig.addAttribute("tokens", "STRING_LITERAL");
+
+		final String[] expected = {};
+
+		verify(checkConfig, getPath("InputMultipleStringLiterals.java"), expected);
+	}
+
+	@Test
+	public void testTokensPropertyAndNestedAnnotations() throws Exception
+	{
+		DefaultConfiguration checkConfig =
+				createCheckConfig(MultipleStringLiteralsExtendedCheck.class);
+		checkConfig.addAttribute("allowedDuplicates", "3");
+		checkConfig.addAttribute("tokens", "STRING_LITERAL");
+
+		final String[] expected = {
+				"18:20: " + getCheckMessage(MSG_KEY, "\"name\"", 4),
+		};
+
+		verify(checkConfig, getPath("InputMultipleStringLiteralsNestedAnnotations.java"),
+				expected);
+	}
+
 }
@@ -20,9 +20,14 @@ package com.github.sevntu.checkstyle.checks.coding;
 
 import static com.github.sevntu.checkstyle.checks.coding.MultipleVariableDeclarationsExtendedCheck.*;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+
 import org.junit.Test;
 
 import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.ChangedLines;
 import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
 
 /** Test class. */
@@ -110,4 +115,30 @@ public class MultipleVariableDeclarationsCheckTest extends BaseCheckTestSupport
 		verify(checkConfig, getPath("InputMultipleVariableDeclarations.java"), expected);
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testChangedLines() throws Exception
+	{
+		DefaultConfiguration checkConfig = createCheckConfig(MultipleVariableDeclarationsExtendedCheck.class);
+		final File file = new File(getPath("InputMultipleVariableDeclarations.java"));
+		// hunks are not sorted, the second declaration of line 12 is changed only
+		final String diff = "+++ b/" + file.getName() + "\n"
+				+ "@@ -20,1 +20,1 @@\n-old\n+new\n"
+				+ "@@ -8,1 +8,1 @@\n-old\n+new\n"
+				+ "@@ -13,1 +13,1 @@\n-old\n+new\n"
+				+ "@@ -15,1 +15,1 @@\n-old\n+new\n";
+
+		final String[] expected = {
+				"8:9: " + msgVarDeclarations,
+				"15:5: " + msgVarDeclarations,
+				"20:14: " + msgVarDeclarationsComa, };
+
+		ChangedLines.parse(new BufferedReader(new StringReader(diff)),
+				file.getParentFile()).enterScope();
+		try {
+			verify(checkConfig, file.getPath(), expected);
+		}
+		finally {
+			ChangedLines.exitScope();
+		}
+	}
+}
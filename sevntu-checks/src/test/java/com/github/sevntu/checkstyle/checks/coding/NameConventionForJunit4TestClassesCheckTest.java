@@ -130,6 +130,20 @@ public class NameConventionForJunit4TestClassesCheckTest extends BaseCheckTestSu
         verify(customConfig, getPath("InputNameConventionForTest7.java"), expected);
     }
 
+    @Test
+    public void testImportedAnnotationName()
+            throws Exception
+    {
+        DefaultConfiguration customConfig =
+                buildConfiguration(defaultTestClassName, "", "org.junit.Test");
+
+        final String[] expected = {
+                buildMesssage("8:18: ", defaultTestClassName),
+        };
+
+        verify(customConfig, getPath("InputNameConventionForTest2.java"), expected);
+    }
+
     @Test
     public void testCorrectTestClassNameRegexOption()
             throws Exception
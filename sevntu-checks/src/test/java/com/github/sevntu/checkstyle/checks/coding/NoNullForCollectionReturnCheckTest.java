@@ -146,6 +146,43 @@ public class NoNullForCollectionReturnCheckTest extends BaseCheckTestSupport
 
         verify(checkConfig, getPath("InputNoNullForCollectionReturnCheck7.java"), expected);
     }
-    
-    
+
+    @Test
+    public void testAssignmentsInBlocksAndLoops()
+            throws Exception
+    {
+        final DefaultConfiguration checkConfig = createCheckConfig(NoNullForCollectionReturnCheck.class);
+        checkConfig.addAttribute("searchThroughMethodBody", "true");
+        final String[] expected = {
+                "28: " + warningMessage,
+                "59: " + warningMessage,
+                "71: " + warningMessage,
+                "86: " + warningMessage,
+                "100: " + warningMessage,
+                "116: " + warningMessage,
+                "139: " + warningMessage,
+                "151: " + warningMessage,
+                "174: " + warningMessage,
+                "188: " + warningMessage,
+                };
+
+        verify(checkConfig, getPath("InputNoNullForCollectionReturnCheck8.java"), expected);
+    }
+
+    @Test
+    public void testNullsReassignedInBlocksTryCatchLoopsAndTernaries()
+            throws Exception
+    {
+        final DefaultConfiguration checkConfig = createCheckConfig(NoNullForCollectionReturnCheck.class);
+        checkConfig.addAttribute("searchThroughMethodBody", "true");
+        final String[] expected = {
+                "39: " + warningMessage,
+                "71: " + warningMessage,
+                "107: " + warningMessage,
+                "149: " + warningMessage,
+                "168: " + warningMessage,
+                };
+
+        verify(checkConfig, getPath("InputNoNullForCollectionReturnCheck9.java"), expected);
+    }
 }
@@ -21,6 +21,8 @@ package com.github.sevntu.checkstyle.checks.coding;
 import static com.github.sevntu.checkstyle.checks.coding.OverridableMethodInConstructorCheck.MSG_KEY;
 import static com.github.sevntu.checkstyle.checks.coding.OverridableMethodInConstructorCheck.MSG_KEY_LEADS;
 
+import java.io.File;
+
 import org.junit.Test;
 
 import com.github.sevntu.checkstyle.BaseCheckTestSupport;
@@ -417,4 +419,109 @@ public class OverridableMethodInConstructorCheckTest extends BaseCheckTestSuppor
 
         verify(checkConfig, getPath("InputOverridableMethodInConstructor25.java"), expected);
     }
+
+    @Test
+    public final void testSharedHelperChainWithCycles() throws Exception
+    {
+        checkConfig.addAttribute("checkCloneMethod", "true");
+        checkConfig.addAttribute("checkReadObjectMethod", "true");
+        checkConfig.addAttribute("matchMethodsByArgCount", "true");
+
+        String[] expected = {
+            "7:13: " + getCheckMessage(MSG_KEY_LEADS, "init", ctorKey, "overrideMe"),
+            "12:13: " + getCheckMessage(MSG_KEY_LEADS, "init", ctorKey, "overrideMe"),
+            "17:16: " + getCheckMessage(MSG_KEY_LEADS, "prepare", ctorKey, "overrideMe"),
+            };
+
+        verify(checkConfig, getPath("InputOverridableMethodInConstructor28.java"), expected);
+    }
+
+    @Test
+    public final void testInterfacesOfBaseClassesInOtherFiles() throws Exception
+    {
+        checkConfig.addAttribute("checkCloneMethod", "true");
+        checkConfig.addAttribute("checkReadObjectMethod", "true");
+
+        String[] expected = {};
+
+        verify(checkConfig, getPath("InputOverridableMethodInConstructor29.java"), expected);
+    }
+
+    @Test
+    public final void testProjectTypeHierarchy() throws Exception
+    {
+        checkConfig.addAttribute("checkCloneMethod", "true");
+        checkConfig.addAttribute("checkReadObjectMethod", "true");
+        checkConfig.addAttribute("useProjectTypeHierarchy", "true");
+
+        String[] expected = {
+            "12:19: " + getCheckMessage(MSG_KEY, "overrideMe", cloneKey),
+            "19:19: " + getCheckMessage(MSG_KEY, "overrideMe", readObjectKey),
+            };
+
+        verify(checkConfig, getPath("InputOverridableMethodInConstructor29.java"), expected);
+    }
+
+    @Test
+    public final void testProjectTypeHierarchyOfSourceDirectories() throws Exception
+    {
+        final String path = getPath("InputOverridableMethodInConstructor29.java");
+        checkConfig.addAttribute("checkCloneMethod", "true");
+        checkConfig.addAttribute("checkReadObjectMethod", "true");
+        checkConfig.addAttribute("useProjectTypeHierarchy", "true");
+        checkConfig.addAttribute("sourceDirectories", new File(path).getParent());
+
+        String[] expected = {
+            "12:19: " + getCheckMessage(MSG_KEY, "overrideMe", cloneKey),
+            "19:19: " + getCheckMessage(MSG_KEY, "overrideMe", readObjectKey),
+            };
+
+        verify(checkConfig, path, expected);
+    }
+
+    @Test
+    public final void testMethodsOfBaseClassesAndSameClassNames() throws Exception
+    {
+        String[] expected = {
+            "23:17: " + getCheckMessage(MSG_KEY, "init", ctorKey),
+            };
+
+        verify(checkConfig, getPath("InputOverridableMethodInConstructor30.java"), expected);
+    }
+
+    @Test
+    public final void testNamesOfOverridablesInRecursiveCalls() throws Exception
+    {
+        // each private method names the overridable method it was found to
+        // lead to when it was analyzed first
+        String[] expected = {
+            "7:14: " + getCheckMessage(MSG_KEY_LEADS, "start", ctorKey, "second"),
+            "8:13: " + getCheckMessage(MSG_KEY_LEADS, "loop", ctorKey, "second"),
+            "9:15: " + getCheckMessage(MSG_KEY_LEADS, "middle", ctorKey, "second"),
+            };
+
+        verify(checkConfig, getPath("InputOverridableMethodInConstructor31.java"), expected);
+    }
+
+    @Test
+    public final void testLongCyclesOfCallsAndBaseClasses() throws Exception
+    {
+        // the cycle of base classes doesn't compile, but is walked once
+        String[] expected = {};
+
+        verify(checkConfig, "src/test/resources-noncompilable/com/github/sevntu/checkstyle/checks/"
+                + "coding/InputOverridableMethodInConstructor32.java", expected);
+    }
+
+    @Test
+    public final void testDependencies()
+    {
+        final OverridableMethodInConstructorCheck check =
+                new OverridableMethodInConstructorCheck();
+        assertFalse(check.dependsOnSourceFiles());
+        assertTrue(check.getDependencyFiles().isEmpty());
+
+        check.setUseProjectTypeHierarchy(true);
+        assertTrue(check.dependsOnSourceFiles());
+    }
 }
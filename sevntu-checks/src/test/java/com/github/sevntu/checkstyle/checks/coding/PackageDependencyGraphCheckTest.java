@@ -0,0 +1,296 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+import static com.github.sevntu.checkstyle.checks.coding.PackageDependencyGraphCheck.MSG_KEY_CYCLE;
+import static com.github.sevntu.checkstyle.checks.coding.PackageDependencyGraphCheck.MSG_KEY_LAYER;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+
+public class PackageDependencyGraphCheckTest extends BaseCheckTestSupport
+{
+    private static final String PACKAGE =
+            "com.github.sevntu.checkstyle.checks.coding.packagedependency";
+
+    private static final String UI = PACKAGE + ".ui";
+
+    private static final String SERVICE = PACKAGE + ".service";
+
+    private static final String DAO = PACKAGE + ".dao";
+
+    private static final String LOWER = PACKAGE + ".lower";
+
+    private static final String NESTED = PACKAGE + ".nested";
+
+    private static final String LAYERS = "**.ui, **.service, **.dao, java.**";
+
+    @Test
+    public void testDefaultConfiguration() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(PackageDependencyGraphCheck.class);
+        // each cycle is reported once, from its first package by name
+        final String[] expected = {
+            getDaoPath() + ":4:9: " + getCheckMessage(MSG_KEY_CYCLE, DAO, SERVICE,
+                    DAO + " -> " + SERVICE + " -> " + DAO),
+            getServicePath() + ":8:1: " + getCheckMessage(MSG_KEY_CYCLE, SERVICE, UI,
+                    SERVICE + " -> " + UI + " -> " + SERVICE),
+        };
+        verifyFiles(createCollectorConfig(), checkConfig, expected);
+    }
+
+    @Test
+    public void testLayers() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(PackageDependencyGraphCheck.class);
+        checkConfig.addAttribute("layers", LAYERS);
+        checkConfig.addAttribute("checkCycles", "false");
+        final DefaultConfiguration treeWalkerConfig = createCollectorConfig();
+        treeWalkerConfig.addAttribute("tabWidth", "4");
+        final String[] expected = {
+            getDaoPath() + ":4:5: " + getCheckMessage(MSG_KEY_LAYER, DAO, "**.dao",
+                    SERVICE, "**.service"),
+            getServicePath() + ":8:1: " + getCheckMessage(MSG_KEY_LAYER, SERVICE,
+                    "**.service", UI, "**.ui"),
+        };
+        verifyFiles(treeWalkerConfig, checkConfig, expected);
+    }
+
+    @Test
+    public void testLowerCaseNamesAndOverlappingLayers() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(PackageDependencyGraphCheck.class);
+        checkConfig.addAttribute("layers",
+                "org.example.util, **.ui, **.service, **.dao, **");
+        checkConfig.addAttribute("checkCycles", "false");
+        final String[] expected = {
+            getLowerCasePath() + ":3:1: " + getCheckMessage(MSG_KEY_LAYER, LOWER, "**",
+                    "org.example.util", "org.example.util"),
+            getLowerCasePath() + ":4:1: " + getCheckMessage(MSG_KEY_LAYER, LOWER, "**",
+                    "org.example.util", "org.example.util"),
+            getLowerCasePath() + ":5:1: " + getCheckMessage(MSG_KEY_LAYER, LOWER, "**",
+                    "org.example.util", "org.example.util"),
+            getLowerCasePath() + ":7:1: " + getCheckMessage(MSG_KEY_LAYER, LOWER, "**",
+                    UI, "**.ui"),
+            getLowerCasePath() + ":8:1: " + getCheckMessage(MSG_KEY_LAYER, LOWER, "**",
+                    DAO, "**.dao"),
+            getDaoPath() + ":4:9: " + getCheckMessage(MSG_KEY_LAYER, DAO, "**.dao",
+                    SERVICE, "**.service"),
+            getServicePath() + ":8:1: " + getCheckMessage(MSG_KEY_LAYER, SERVICE,
+                    "**.service", UI, "**.ui"),
+        };
+        verifyFiles(createCollectorConfig(), checkConfig, expected,
+                new File(getLowerCasePath()));
+    }
+
+    @Test
+    public void testNestedTypes() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(PackageDependencyGraphCheck.class);
+        checkConfig.addAttribute("layers",
+                "**.service, **.dao, org.example.nested, **");
+        checkConfig.addAttribute("checkCycles", "false");
+        // names of the project belong to the package of their top-level
+        // type, other names lose the type and the member only, so
+        // org.example.nested.Outer is taken for a package
+        final String[] expected = {
+            getNestedPath() + ":3:1: " + getCheckMessage(MSG_KEY_LAYER, NESTED, "**",
+                    SERVICE, "**.service"),
+            getNestedPath() + ":4:1: " + getCheckMessage(MSG_KEY_LAYER, NESTED, "**",
+                    SERVICE, "**.service"),
+            getNestedPath() + ":5:1: " + getCheckMessage(MSG_KEY_LAYER, NESTED, "**",
+                    DAO, "**.dao"),
+            getNestedPath() + ":6:1: " + getCheckMessage(MSG_KEY_LAYER, NESTED, "**",
+                    DAO, "**.dao"),
+            getNestedPath() + ":9:1: " + getCheckMessage(MSG_KEY_LAYER, NESTED, "**",
+                    "org.example.nested", "org.example.nested"),
+            getDaoPath() + ":4:9: " + getCheckMessage(MSG_KEY_LAYER, DAO, "**.dao",
+                    SERVICE, "**.service"),
+            getUiPath() + ":5:1: " + getCheckMessage(MSG_KEY_LAYER, UI, "**",
+                    SERVICE, "**.service"),
+        };
+        verifyFiles(createCollectorConfig(), checkConfig, expected,
+                new File(getNestedPath()));
+    }
+
+    @Test
+    public void testCycleAtFirstImport() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(PackageDependencyGraphCheck.class);
+        checkConfig.addAttribute("layers", "**.service, **.dao");
+        // the cycle is reported at the first import of all files, the layer
+        // at each import
+        final String[] expected = {
+            getDaoHelperPath() + ":3:1: " + getCheckMessage(MSG_KEY_CYCLE, DAO, SERVICE,
+                    DAO + " -> " + SERVICE + " -> " + DAO),
+            getDaoHelperPath() + ":3:1: " + getCheckMessage(MSG_KEY_LAYER, DAO, "**.dao",
+                    SERVICE, "**.service"),
+            getDaoHelperPath() + ":3:108: " + getCheckMessage(MSG_KEY_LAYER, DAO, "**.dao",
+                    SERVICE, "**.service"),
+            getDaoHelperPath() + ":4:1: " + getCheckMessage(MSG_KEY_LAYER, DAO, "**.dao",
+                    SERVICE, "**.service"),
+            getDaoPath() + ":4:9: " + getCheckMessage(MSG_KEY_LAYER, DAO, "**.dao",
+                    SERVICE, "**.service"),
+            getServicePath() + ":8:1: " + getCheckMessage(MSG_KEY_CYCLE, SERVICE, UI,
+                    SERVICE + " -> " + UI + " -> " + SERVICE),
+        };
+        verifyFiles(createCollectorConfig(), checkConfig, expected,
+                new File(getDaoHelperPath()));
+    }
+
+    @Test
+    public void testCycleAtImportOfLaterFile() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(PackageDependencyGraphCheck.class);
+        // the same import of the file, which is processed later, is the first
+        final String[] expected = {
+            getDaoLimitPath() + ":3:1: " + getCheckMessage(MSG_KEY_CYCLE, DAO, SERVICE,
+                    DAO + " -> " + SERVICE + " -> " + DAO),
+            getServicePath() + ":8:1: " + getCheckMessage(MSG_KEY_CYCLE, SERVICE, UI,
+                    SERVICE + " -> " + UI + " -> " + SERVICE),
+        };
+        verifyFiles(createCollectorConfig(), checkConfig, expected,
+                new File(getDaoLimitPath()));
+    }
+
+    @Test
+    public void testComponentsOfPackages()
+    {
+        final PackageGraph graph = new PackageGraph();
+        final int first = graph.getPackageId("org.example.first");
+        final int second = graph.getPackageId("org.example.second");
+        final int third = graph.getPackageId("org.example.third");
+        final int fileId = graph.getFileId("First.java");
+        graph.addImport(first, "org.example.second.Second", false, fileId, 1, 1);
+        graph.addImport(first, "org.example.third.Third", false, fileId, 2, 1);
+        graph.addImport(second, "org.example.third.Third", false, fileId, 3, 1);
+        graph.addImport(third, "org.example.first.First", false, fileId, 4, 1);
+        graph.addImport(third, "org.example.other.Other", false, fileId, 5, 1);
+        graph.addImport(second, "org.example.other.Other", false, fileId, 6, 1);
+        graph.resolveImports();
+
+        // the other package is reached twice from the cycle, but is not a part of it
+        final int[] components = graph.getComponents();
+        assertEquals(components[first], components[second]);
+        assertEquals(components[first], components[third]);
+        assertTrue(components[first]
+                != components[graph.getPackageId("org.example.other")]);
+    }
+
+    @Test
+    public void testFinishWithoutAudit()
+    {
+        final PackageDependencyGraphCheck check = new PackageDependencyGraphCheck();
+        check.finishProcessing();
+        assertNull(PackageDependencyGraphCheck.getRunningGraph());
+    }
+
+    @Test
+    public void testWithoutCollector() throws Exception
+    {
+        final String[] expected = {};
+        verifyFiles(null, createCheckConfig(PackageDependencyGraphCheck.class),
+                expected);
+    }
+
+    private static DefaultConfiguration createCollectorConfig()
+    {
+        final DefaultConfiguration treeWalkerConfig =
+                createCheckConfig(TreeWalker.class);
+        treeWalkerConfig.addChild(createCheckConfig(PackageImportsCollectorCheck.class));
+        return treeWalkerConfig;
+    }
+
+    private void verifyFiles(DefaultConfiguration treeWalkerConfig,
+            DefaultConfiguration checkConfig, String[] expected, File... otherFiles)
+            throws Exception
+    {
+        final DefaultConfiguration checkerConfig = new DefaultConfiguration("configuration");
+        checkerConfig.addAttribute("charset", "iso-8859-1");
+        if (treeWalkerConfig != null) {
+            checkerConfig.addChild(treeWalkerConfig);
+        }
+        checkerConfig.addChild(checkConfig);
+
+        final Checker checker = new Checker();
+        checker.setLocaleCountry(Locale.ENGLISH.getCountry());
+        checker.setLocaleLanguage(Locale.ENGLISH.getLanguage());
+        checker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
+        checker.configure(checkerConfig);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        checker.addListener(new BriefLogger(output));
+        final List<String> startedFiles = new ArrayList<String>();
+        checker.addListener(new BriefLogger(new ByteArrayOutputStream())
+        {
+            @Override
+            public void fileStarted(AuditEvent event)
+            {
+                startedFiles.add(event.getFileName());
+            }
+        });
+
+        final List<File> files = new ArrayList<File>(Arrays.asList(
+                new File(getUiPath()), new File(getServicePath()),
+                new File(getDaoPath())));
+        files.addAll(Arrays.asList(otherFiles));
+        final int errors = checker.process(files);
+        checker.destroy();
+
+        final String[] actual = output.toString().split("\\r?\\n");
+        assertEquals(Arrays.asList(expected), Arrays.asList(actual).subList(0, errors));
+        assertEquals(expected.length, errors);
+        // events of files are fired once
+        assertEquals(files.size(), startedFiles.size());
+    }
+
+    private String getUiPath()
+    {
+        return getPath("packagedependency/ui/InputPackageDependencyUi.java");
+    }
+
+    private String getServicePath()
+    {
+        return getPath("packagedependency/service/InputPackageDependencyService.java");
+    }
+
+    private String getLowerCasePath()
+    {
+        return getPath("packagedependency/lower/InputPackageDependencyLowerCase.java");
+    }
+
+    private String getNestedPath()
+    {
+        return getPath("packagedependency/nested/InputPackageDependencyNested.java");
+    }
+
+    private String getDaoHelperPath()
+    {
+        return getPath("packagedependency/dao/InputPackageDependencyDaoHelper.java");
+    }
+
+    private String getDaoLimitPath()
+    {
+        return getPath("packagedependency/dao/InputPackageDependencyDaoLimit.java");
+    }
+
+    private String getDaoPath()
+    {
+        return getPath("packagedependency/dao/InputPackageDependencyDao.java");
+    }
+}
@@ -0,0 +1,124 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+
+public class PackageImportsCollectorCheckTest extends BaseCheckTestSupport
+{
+    private static final String PACKAGE =
+            "com.github.sevntu.checkstyle.checks.coding.packagedependency";
+
+    @Test
+    public void testCollectedImports() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(PackageImportsCollectorCheck.class);
+        final String path =
+                getPath("packagedependency/service/InputPackageDependencyService.java");
+        final String defaultPackagePath =
+                getPath("InputForbidCertainImportsDefaultPackage.java");
+        final String[] expected = {};
+        final PackageDependencyGraphCheck reportingCheck =
+                new PackageDependencyGraphCheck();
+        reportingCheck.beginProcessing("iso-8859-1");
+        try {
+            verify(checkConfig, path, expected);
+            verify(checkConfig, defaultPackagePath, expected);
+
+            final PackageGraph graph = PackageDependencyGraphCheck.getRunningGraph();
+            graph.resolveImports();
+            final int service = graph.getPackageId(PACKAGE + ".service");
+            final int dao = graph.getPackageId(PACKAGE + ".dao");
+            final int ui = graph.getPackageId(PACKAGE + ".ui");
+            final int defaultPackage = graph.getPackageId("");
+            final int javaUtil = graph.getPackageId("java.util");
+            final int javaIo = graph.getPackageId("java.io");
+            assertEquals(0, graph.getFileId(new File(path).getAbsolutePath()));
+            // both imports of the package make one dependency
+            final Occurrences daoImports =
+                    graph.getImports(PackageGraph.getEdge(service, dao));
+            assertEquals(2, daoImports.size());
+            // imports of different names are resolved in any order
+            assertEquals(13, daoImports.getLine(0) + daoImports.getLine(1));
+            assertEquals(1, daoImports.getColumn(0));
+            assertEquals(1, graph.getImports(PackageGraph.getEdge(service, ui)).size());
+            assertEquals(1, graph.getImports(
+                    PackageGraph.getEdge(defaultPackage, javaUtil)).getLine(0));
+            assertEquals(2, graph.getImports(
+                    PackageGraph.getEdge(defaultPackage, javaIo)).getLine(0));
+            assertEquals(4, graph.getEdges().length);
+        }
+        finally {
+            reportingCheck.destroy();
+        }
+        assertNull(PackageDependencyGraphCheck.getRunningGraph());
+    }
+
+    @Test
+    public void testTypesOfProject() throws Exception
+    {
+        final PackageGraph graph = new PackageGraph();
+        final int project = graph.getPackageId("org.example");
+        final int fileId = graph.getFileId("Main.java");
+        graph.addType(project, "org.example.Outer");
+        graph.addType(graph.getPackageId(""), "Main");
+        graph.addImport(project, "org.example.Outer.Inner", false, fileId, 1, 1);
+        graph.addImport(project, "org.example.Outer.Inner.*", true, fileId, 2, 1);
+        graph.addImport(project, "org.example.util.Helper.run", true, fileId, 3, 1);
+        graph.addImport(project, "org.example.util.Helper.*", true, fileId, 4, 1);
+        graph.addImport(project, "org.example.util.*", false, fileId, 5, 1);
+        graph.addImport(project, "Main", false, fileId, 6, 1);
+        graph.resolveImports();
+
+        // imports of types of the own package make no dependency
+        final long[] edges = graph.getEdges();
+        assertEquals(2, edges.length);
+        final Occurrences utilImports = graph.getImports(PackageGraph.getEdge(
+                project, graph.getPackageId("org.example.util")));
+        assertEquals(3, utilImports.size());
+        assertNotNull(graph.getImports(PackageGraph.getEdge(
+                project, graph.getPackageId(""))));
+    }
+
+    @Test
+    public void testWithoutReportingCheck() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(PackageImportsCollectorCheck.class);
+        final String[] expected = {};
+        verify(checkConfig,
+                getPath("packagedependency/service/InputPackageDependencyService.java"),
+                expected);
+        assertNull(PackageDependencyGraphCheck.getRunningGraph());
+    }
+
+    @Test
+    public void testDependencies()
+    {
+        final PackageImportsCollectorCheck check = new PackageImportsCollectorCheck();
+        assertTrue(check.dependsOnSourceFiles());
+        assertTrue(check.getDependencyFiles().isEmpty());
+    }
+}
@@ -0,0 +1,166 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.checks.coding.StringLiteralTable.Literal;
+
+public class StringLiteralTableTest
+{
+    @Test
+    public void testTextsOfDuplicates()
+    {
+        final StringLiteralTable table = new StringLiteralTable(10, 10, 2);
+        final int fileId = table.getFileId("File.java");
+        table.add("\"a\"", fileId, 1, 5, true);
+        table.add("\"a\"", fileId, 2, 5, false);
+        final Literal literal = table.getLiterals().get(StringLiteralTable.hash("\"a\""));
+        // the literal occurs as often as allowed
+        assertNull(literal.getText());
+        assertEquals(2, literal.getPositions().size());
+
+        table.add("\"a\"", table.getFileId("Other.java"), 3, 7, true);
+        assertEquals("\"a\"", literal.getText());
+        assertEquals(3, literal.getCount());
+        assertEquals(2, literal.getFilesCount());
+        assertEquals(1, literal.getPositions().getFileId(2));
+        assertEquals("Other.java", table.getFileName(1));
+    }
+
+    @Test
+    public void testHash()
+    {
+        assertEquals(StringLiteralTable.hash("\"literal\""),
+                StringLiteralTable.hash(new String("\"literal\"")));
+        assertTrue(StringLiteralTable.hash("\"ab\"")
+                != StringLiteralTable.hash("\"ba\""));
+        // both bytes of characters are hashed
+        assertTrue(StringLiteralTable.hash("\"\u0141\"")
+                != StringLiteralTable.hash("\"A\""));
+    }
+
+    @Test
+    public void testLimitOfLiterals()
+    {
+        final StringLiteralTable table = new StringLiteralTable(1, 1, 1);
+        final int fileId = table.getFileId("File.java");
+        table.add("\"a\"", fileId, 1, 5, true);
+        assertFalse(table.isOverflowed());
+        table.add("\"b\"", fileId, 2, 5, true);
+        assertTrue(table.isOverflowed());
+        // occurrences of the known literal are still counted
+        table.add("\"a\"", fileId, 3, 5, false);
+        assertEquals(1, table.getLiterals().size());
+        assertEquals(2, table.getLiterals().get(
+                StringLiteralTable.hash("\"a\"")).getCount());
+    }
+
+    @Test
+    public void testLimitOfConcurrentlyAddedLiterals()
+            throws Exception
+    {
+        final int maxLiterals = 100;
+        final StringLiteralTable table = new StringLiteralTable(maxLiterals, 1, 1);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final int threadIndex = i;
+            final Thread thread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int literal = 0; literal < maxLiterals; literal++) {
+                        table.add("\"" + threadIndex + "-" + literal + "\"",
+                                threadIndex, literal, 1, true);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        assertFalse(table.isOverflowed());
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(maxLiterals, table.getLiterals().size());
+        assertTrue(table.isOverflowed());
+        assertEquals(maxLiterals, table.getMaxLiterals());
+    }
+
+    @Test
+    public void testSameLiteralsAddedConcurrently()
+            throws Exception
+    {
+        final int literalsCount = 2000;
+        final int threadsCount = 4;
+        final StringLiteralTable table =
+                new StringLiteralTable(literalsCount, threadsCount, 1);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadsCount; i++) {
+            final int threadIndex = i;
+            final Thread thread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int literal = 0; literal < literalsCount; literal++) {
+                        table.add("\"" + literal + "\"", threadIndex, literal, 1, true);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // an occurrence is not lost by a thread which was late to add the literal
+        assertEquals(literalsCount, table.getLiterals().size());
+        for (Literal literal : table.getLiterals().values()) {
+            assertEquals(threadsCount, literal.getCount());
+        }
+        assertFalse(table.isOverflowed());
+    }
+}
@@ -0,0 +1,93 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.File;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.checks.coding.StringLiteralTable.Literal;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+
+public class StringLiteralsCollectorCheckTest extends BaseCheckTestSupport
+{
+    private static final String QUERY = "\"SELECT id, name FROM users WHERE id = ?\"";
+
+    @Test
+    public void testCollectedLiterals() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(StringLiteralsCollectorCheck.class);
+        final String path = getPath("InputMultipleStringLiteralsAcrossFiles1.java");
+        final String[] expected = {};
+        final MultipleStringLiteralsAcrossFilesCheck reportingCheck =
+                new MultipleStringLiteralsAcrossFilesCheck();
+        reportingCheck.beginProcessing("iso-8859-1");
+        try {
+            verify(checkConfig, path, expected);
+
+            final StringLiteralTable table =
+                    MultipleStringLiteralsAcrossFilesCheck.getRunningTable();
+            final Map<Long, Literal> literals = table.getLiterals();
+            assertEquals(4, literals.size());
+            final Literal query = literals.get(StringLiteralTable.hash(QUERY));
+            assertEquals(2, query.getCount());
+            assertEquals(1, query.getFilesCount());
+            assertEquals(QUERY, query.getText());
+            assertEquals(2, query.getPositions().size());
+            assertEquals(14, query.getPositions().getLine(1));
+            final Literal twice = literals.get(
+                    StringLiteralTable.hash("\"twice in one file\""));
+            assertEquals(2, twice.getCount());
+            assertEquals(1, twice.getFilesCount());
+            // texts and positions of literals which occur once are not kept
+            final Literal unique = literals.get(
+                    StringLiteralTable.hash("\"only in the first file\""));
+            assertEquals(1, unique.getCount());
+            assertNull(unique.getText());
+            assertNull(unique.getPositions());
+            assertEquals(0, table.getFileId(new File(path).getAbsolutePath()));
+        }
+        finally {
+            reportingCheck.destroy();
+        }
+        assertNull(MultipleStringLiteralsAcrossFilesCheck.getRunningTable());
+    }
+
+    @Test
+    public void testWithoutReportingCheck() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(StringLiteralsCollectorCheck.class);
+        final String[] expected = {};
+        verify(checkConfig, getPath("InputMultipleStringLiteralsAcrossFiles1.java"),
+                expected);
+        assertNull(MultipleStringLiteralsAcrossFilesCheck.getRunningTable());
+    }
+
+    @Test
+    public void testDependencies()
+    {
+        final StringLiteralsCollectorCheck check = new StringLiteralsCollectorCheck();
+        assertTrue(check.dependsOnSourceFiles());
+        assertTrue(check.getDependencyFiles().isEmpty());
+    }
+}
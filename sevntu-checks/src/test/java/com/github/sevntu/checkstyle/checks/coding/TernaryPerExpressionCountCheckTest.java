@@ -232,4 +232,27 @@ public class TernaryPerExpressionCountCheckTest extends BaseCheckTestSupport {
                 getPath("InputTernaryPerExpressionCountCheck.java"), expected);
     }
 
+    @Test
+    public void testWithValueAboveTernaryCountOfFile() throws Exception {
+        boolean ternaryInBraces = false;
+        boolean oneLine = false;
+        int maxTernaryOperatorsCount = 1000;
+        checkConfig.addAttribute("ignoreTernaryOperatorsInBraces",
+                Boolean.toString(ternaryInBraces));
+        checkConfig.addAttribute("ignoreIsolatedTernaryOnLine",
+                Boolean.toString(oneLine));
+        checkConfig.addAttribute("maxTernaryPerExpressionCount",
+                Integer.toString(maxTernaryOperatorsCount));
+        String[] expected = {};
+        verify(checkConfig,
+                getPath("InputTernaryPerExpressionCountCheck.java"), expected);
+    }
+
+    @Test
+    public void testFileWithoutExpressions() throws Exception {
+        String[] expected = {};
+        verify(checkConfig,
+                getPath("InputTernaryPerExpressionCountCheckWithoutExpressions.java"), expected);
+    }
+
 }
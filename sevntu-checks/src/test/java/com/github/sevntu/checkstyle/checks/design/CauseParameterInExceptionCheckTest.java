@@ -20,6 +20,8 @@ package com.github.sevntu.checkstyle.checks.design;
 
 import static com.github.sevntu.checkstyle.checks.design.CauseParameterInExceptionCheck.*;
 
+import java.io.File;
+
 import org.junit.Test;
 
 
@@ -130,4 +132,53 @@ public class CauseParameterInExceptionCheckTest extends BaseCheckTestSupport
 
         verify(checkConfig, getPath("InputCauseParameterInException4.java"), expected);
     }
+
+    @Test
+    public void testProjectTypeHierarchy() throws Exception
+    {
+        checkConfig.addAttribute("useProjectTypeHierarchy", "true");
+
+        String[] expected = {
+            "5:1: " + getCheckMessage(MSG_KEY, "InputCauseParameterInExceptionHierarchy"),
+            "13:5: " + getCheckMessage(MSG_KEY, "NestedFailure"),
+            "33:5: " + getCheckMessage(MSG_KEY, "Problem"),
+        };
+
+        verify(checkConfig, getPath("InputCauseParameterInExceptionHierarchy.java"), expected);
+    }
+
+    @Test
+    public void testProjectTypeHierarchyOfSourceDirectories() throws Exception
+    {
+        final String path = getPath("InputCauseParameterInExceptionHierarchy.java");
+        checkConfig.addAttribute("useProjectTypeHierarchy", "true");
+        checkConfig.addAttribute("sourceDirectories", new File(path).getParent());
+
+        String[] expected = {
+            "5:1: " + getCheckMessage(MSG_KEY, "InputCauseParameterInExceptionHierarchy"),
+            "13:5: " + getCheckMessage(MSG_KEY, "NestedFailure"),
+            "33:5: " + getCheckMessage(MSG_KEY, "Problem"),
+        };
+
+        verify(checkConfig, path, expected);
+    }
+
+    @Test
+    public void testWithoutProjectTypeHierarchy() throws Exception
+    {
+        String[] expected = {};
+
+        verify(checkConfig, getPath("InputCauseParameterInExceptionHierarchy.java"), expected);
+    }
+
+    @Test
+    public void testDependencies()
+    {
+        final CauseParameterInExceptionCheck check = new CauseParameterInExceptionCheck();
+        assertFalse(check.dependsOnSourceFiles());
+        assertTrue(check.getDependencyFiles().isEmpty());
+
+        check.setUseProjectTypeHierarchy(true);
+        assertTrue(check.dependsOnSourceFiles());
+    }
 }
@@ -147,4 +147,33 @@ public class ChildBlockLengthTest extends BaseCheckTestSupport
 
         verify(checkConfig, getPath("InputChildBlockLengthCheckNestedClass.java"), expected);
     }
+
+    @Test
+    public void testChildBlocksOfNotVisitedTypes() throws Exception
+    {
+        checkConfig.addAttribute("maxChildBlockPercentage", "60");
+        checkConfig.addAttribute("blockTypes", "LITERAL_TRY, LITERAL_FOR, LITERAL_IF");
+        checkConfig.addAttribute("ignoreBlockLinesCount", "0");
+        checkConfig.addAttribute("tokens", "LITERAL_TRY");
+
+        String[] expected = {
+                "12:17: " + getCheckMessage(MSG_KEY, 4, 3),
+        };
+
+        verify(checkConfig, getPath("InputChildBlockLengthCheckTokens.java"), expected);
+    }
+
+    @Test
+    public void testSwitchAndElseIfBlocks() throws Exception
+    {
+        checkConfig.addAttribute("maxChildBlockPercentage", "40");
+        checkConfig.addAttribute("blockTypes", "LITERAL_SWITCH, LITERAL_IF, LITERAL_ELSE");
+        checkConfig.addAttribute("ignoreBlockLinesCount", "0");
+
+        String[] expected = {
+                "34:17: " + getCheckMessage(MSG_KEY, 6, 5),
+        };
+
+        verify(checkConfig, getPath("InputChildBlockLengthCheckTokens.java"), expected);
+    }
 }
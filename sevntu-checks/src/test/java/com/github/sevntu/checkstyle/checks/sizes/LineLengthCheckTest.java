@@ -2,10 +2,16 @@ package com.github.sevntu.checkstyle.checks.sizes;
 
 import static com.github.sevntu.checkstyle.checks.sizes.LineLengthExtendedCheck.*;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+
 import org.junit.Test;
 
 import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.ChangedLines;
 import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 
 public class LineLengthCheckTest extends BaseCheckTestSupport
 {
@@ -56,4 +62,74 @@ public class LineLengthCheckTest extends BaseCheckTestSupport
 		checkConfig.addAttribute("ignoreMethod", "true");
 		verify(checkConfig, getPath("InputSimple.java"), expected);
 	}
+
+	@Test
+	public void testIgnoredIntervals()
+			throws Exception
+	{
+		final DefaultConfiguration checkConfig =
+				createCheckConfig(LineLengthExtendedCheck.class);
+		checkConfig.addAttribute("max", "40");
+		checkConfig.addAttribute("ignorePattern", "^.*is OK.*regexp.*$");
+		checkConfig.addAttribute("ignoreClass", "true");
+		checkConfig.addAttribute("ignoreField", "true");
+		checkConfig.addAttribute("ignoreMethod", "true");
+		// adjacent and overlapping declarations are ignored at once,
+		// line 20 is short, but its tabs make it longer than max
+		final String[] expected = {
+				"1: " + getCheckMessage(MSG_KEY, 40, 50),
+				"5: " + getCheckMessage(MSG_KEY, 40, 51),
+				"9: " + getCheckMessage(MSG_KEY, 40, 65),
+				"12: " + getCheckMessage(MSG_KEY, 40, 63),
+				"17: " + getCheckMessage(MSG_KEY, 40, 59),
+				"20: " + getCheckMessage(MSG_KEY, 40, 44),
+				"22: " + getCheckMessage(MSG_KEY, 40, 41),
+		};
+		verify(checkConfig, getPath("InputLineLengthIgnoredIntervals.java"),
+				expected);
+	}
+
+	@Test
+	public void testChangedLines()
+			throws Exception
+	{
+		final DefaultConfiguration checkConfig =
+				createCheckConfig(LineLengthExtendedCheck.class);
+		checkConfig.addAttribute("max", "40");
+		checkConfig.addAttribute("ignoreField", "true");
+		final File file =
+				new File(getPath("InputLineLengthIgnoredIntervals.java"));
+		final String diff = "+++ b/" + file.getName() + "\n"
+				+ "@@ -1,1 +1,1 @@\n-old\n+new\n"
+				+ "@@ -20,1 +20,1 @@\n-old\n+new\n";
+		// ignored fields are between the changed lines
+		final String[] expected = {
+				"1: " + getCheckMessage(MSG_KEY, 40, 50),
+				"20: " + getCheckMessage(MSG_KEY, 40, 44),
+		};
+		ChangedLines.parse(new BufferedReader(new StringReader(diff)),
+				file.getParentFile()).enterScope();
+		try {
+			verify(checkConfig, file.getPath(), expected);
+		}
+		finally {
+			ChangedLines.exitScope();
+		}
+	}
+
+	@Test
+	public void testInvalidIgnorePattern()
+			throws Exception
+	{
+		final DefaultConfiguration checkConfig =
+				createCheckConfig(LineLengthExtendedCheck.class);
+		checkConfig.addAttribute("ignorePattern", "[");
+		try {
+			createChecker(checkConfig);
+			fail();
+		}
+		catch (CheckstyleException e) {
+			assertTrue(e.getMessage().contains("ignorePattern"));
+		}
+	}
 }
@@ -0,0 +1,790 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.daemon;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.checks.coding.ReturnCountExtendedCheck;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+public class CheckDaemonTest extends BaseCheckTestSupport
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testAuditAndReload()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile, 2);
+        final List<File> files = getInputFiles();
+
+        final CheckDaemon daemon = new CheckDaemon(configFile,
+                Thread.currentThread().getContextClassLoader(), 0,
+                getTokenFile());
+        final Thread thread = start(daemon);
+
+        final StringWriter output = new StringWriter();
+        final int errors = CheckClient.check(daemon.getPort(), getTokenFile(),
+                files, output);
+        assertEquals(auditWithChecker(configFile, files), errors);
+        assertTrue(errors > 0);
+        assertEquals(errors, output.toString().split("\n").length);
+        assertTrue(output.toString().startsWith(files.get(0).getPath() + ":"));
+
+        // the configuration is loaded once while it is not changed
+        assertEquals(errors, CheckClient.check(daemon.getPort(),
+                getTokenFile(), files, new StringWriter()));
+        assertEquals(1, daemon.getLoadCount());
+
+        writeConfig(configFile, 1);
+        final int changedErrors = CheckClient.check(daemon.getPort(),
+                getTokenFile(), files, new StringWriter());
+        assertEquals(auditWithChecker(configFile, files), changedErrors);
+        assertTrue(changedErrors > errors);
+        assertEquals(2, daemon.getLoadCount());
+
+        CheckClient.stop(daemon.getPort(), getTokenFile());
+        thread.join();
+        assertFalse(getTokenFile().exists());
+    }
+
+    @Test
+    public void testReloadOfNamedFile()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        final File suppressionsFile = temporaryFolder.newFile("suppressions.xml");
+        writeSuppressions(suppressionsFile, "NoSuchCheck");
+        writeConfig(configFile, 1, suppressionsFile);
+        final List<File> files = getInputFiles();
+
+        final CheckDaemon daemon = new CheckDaemon(configFile,
+                Thread.currentThread().getContextClassLoader(), 0,
+                getTokenFile());
+        final Thread thread = start(daemon);
+        final int errors = CheckClient.check(daemon.getPort(), getTokenFile(),
+                files, new StringWriter());
+        assertEquals(auditWithChecker(configFile, files), errors);
+        assertTrue(errors > 0);
+
+        // the changed suppressions are loaded though the configuration file
+        // is the same
+        writeSuppressions(suppressionsFile, "ReturnCountExtendedCheck");
+        assertEquals(0, CheckClient.check(daemon.getPort(), getTokenFile(),
+                files, new StringWriter()));
+        assertEquals(2, daemon.getLoadCount());
+        assertEquals(0, CheckClient.check(daemon.getPort(), getTokenFile(),
+                files, new StringWriter()));
+        assertEquals(2, daemon.getLoadCount());
+
+        daemon.stop();
+        thread.join();
+    }
+
+    @Test
+    public void testSilentClients()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile, 1);
+        final List<File> files = getInputFiles();
+
+        final CheckDaemon daemon = new CheckDaemon(configFile,
+                Thread.currentThread().getContextClassLoader(), 0,
+                getTokenFile());
+        daemon.setReadTimeout(300);
+        final ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+        final Thread thread = start(daemon, new PrintStream(errorOutput, true));
+
+        // the client which sends nothing is disconnected
+        final Socket silentSocket = connect(daemon);
+        try {
+            assertEquals(-1, silentSocket.getInputStream().read());
+        }
+        finally {
+            silentSocket.close();
+        }
+
+        // the client which sends the request slowly is disconnected too,
+        // though each read gets data in time
+        final Socket slowSocket = connect(daemon);
+        slowSocket.setSoTimeout(50);
+        try {
+            assertTrue(isDisconnectedBySlowRequest(slowSocket));
+        }
+        finally {
+            slowSocket.close();
+        }
+
+        // the daemon still serves requests
+        assertEquals(auditWithChecker(configFile, files),
+                CheckClient.check(daemon.getPort(), getTokenFile(), files,
+                        new StringWriter()));
+        daemon.stop();
+        thread.join();
+        final String[] errors = errorOutput.toString().split("\\r?\\n");
+        assertEquals(2, errors.length);
+        assertEquals("Request has failed: Read timed out", errors[0]);
+        // the time may be out during a read or between reads
+        assertTrue(errors[1].startsWith("Request has failed: "));
+    }
+
+    @Test
+    public void testStopOfIdleDaemon()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile, 1);
+        final CheckDaemon daemon = new CheckDaemon(configFile,
+                Thread.currentThread().getContextClassLoader(), 0,
+                getTokenFile());
+        final ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+        final Thread thread = start(daemon, new PrintStream(errorOutput, true));
+        waitForAccept(thread);
+
+        daemon.stop();
+        thread.join();
+        assertEquals("", errorOutput.toString());
+        assertFalse(getTokenFile().exists());
+    }
+
+    @Test
+    public void testRequestInputStream()
+            throws Exception
+    {
+        final ServerSocket serverSocket = new ServerSocket(0, 0,
+                InetAddress.getByName(null));
+        final Socket clientSocket = new Socket(InetAddress.getByName(null),
+                serverSocket.getLocalPort());
+        final Socket socket = serverSocket.accept();
+        try {
+            clientSocket.getOutputStream().write("ab".getBytes(CheckDaemon.CHARSET));
+            clientSocket.getOutputStream().flush();
+            final CheckDaemon.RequestInputStream input =
+                    new CheckDaemon.RequestInputStream(socket, 200);
+            assertEquals('a', input.read());
+            assertEquals('b', input.read());
+            Thread.sleep(300);
+            clientSocket.getOutputStream().write('c');
+            clientSocket.getOutputStream().flush();
+            try {
+                input.read(new byte[1]);
+                fail("The time of the request is out");
+            }
+            catch (SocketTimeoutException e) {
+                assertEquals("Request is not read in time", e.getMessage());
+            }
+        }
+        finally {
+            socket.close();
+            clientSocket.close();
+            serverSocket.close();
+        }
+    }
+
+    @Test
+    public void testStreamingLogger()
+    {
+        final StringWriter output = new StringWriter();
+        final CheckDaemon.StreamingLogger logger = new CheckDaemon.StreamingLogger(
+                new PrintWriter(output));
+        logger.auditStarted(null);
+        logger.addError(createEvent(0, SeverityLevel.WARNING));
+        logger.addError(createEvent(3, SeverityLevel.IGNORE));
+        logger.addException(createEvent(0, SeverityLevel.ERROR),
+                new IllegalStateException("failure"));
+        logger.addException(createEvent(0, SeverityLevel.ERROR),
+                new NullPointerException());
+        logger.auditFinished(null);
+        assertEquals("File.java:7: warning: message\n"
+                + "Error auditing File.java: failure\n"
+                + "Error auditing File.java: java.lang.NullPointerException\n",
+                output.toString().replace("\r\n", "\n"));
+    }
+
+    @Test
+    public void testInvalidConfiguration()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        write(configFile, "<module name=\"Checker\">");
+        final List<File> files = getInputFiles();
+
+        final CheckDaemon daemon = new CheckDaemon(configFile,
+                Thread.currentThread().getContextClassLoader(), 0,
+                getTokenFile());
+        final Thread thread = start(daemon);
+        try {
+            CheckClient.check(daemon.getPort(), getTokenFile(), files,
+                    new StringWriter());
+            fail("The configuration is not valid");
+        }
+        catch (CheckstyleException e) {
+            assertTrue(e.getMessage().length() > 0);
+        }
+
+        // the fixed configuration is loaded by the next request
+        writeConfig(configFile, 1);
+        assertEquals(auditWithChecker(configFile, files),
+                CheckClient.check(daemon.getPort(), getTokenFile(), files,
+                        new StringWriter()));
+
+        daemon.stop();
+        thread.join();
+    }
+
+    @Test
+    public void testAuditOfChangedLines()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile, 1);
+        final List<File> files = getInputFiles();
+        final CheckDaemon daemon = new CheckDaemon(configFile,
+                Thread.currentThread().getContextClassLoader(), 0,
+                getTokenFile());
+        final Thread thread = start(daemon);
+
+        // the line of the first violation of the first file is changed
+        final StringWriter fullOutput = new StringWriter();
+        CheckClient.check(daemon.getPort(), getTokenFile(), files, fullOutput);
+        final String firstViolation = fullOutput.toString().split("\n")[0];
+        final String lineNo = firstViolation.substring(
+                files.get(0).getPath().length() + 1).split(":")[0];
+        final String currentDirectory = new File("").getAbsolutePath();
+        final File diffFile = temporaryFolder.newFile("changes.diff");
+        write(diffFile, "+++ b/" + files.get(0).getPath().substring(
+                currentDirectory.length() + 1) + "\n"
+                + "@@ -" + lineNo + " +" + lineNo + " @@\n-old\n+new\n");
+
+        final StringWriter output = new StringWriter();
+        assertEquals(1, CheckClient.check(daemon.getPort(), getTokenFile(),
+                diffFile, files, output));
+        assertEquals(firstViolation, output.toString().split("\n")[0]);
+        // changed files of the diff are audited if no files are given
+        final ByteArrayOutputStream clientOutput = new ByteArrayOutputStream();
+        assertEquals(1, CheckClient.run(new String[] {"-p",
+            String.valueOf(daemon.getPort()), "-t", getTokenFile().getPath(),
+            "-diff", diffFile.getPath(), }, new PrintStream(clientOutput),
+            System.err));
+        assertTrue(clientOutput.toString().startsWith(firstViolation));
+
+        try {
+            CheckClient.check(daemon.getPort(), getTokenFile(),
+                    new File(temporaryFolder.getRoot(), "absent.diff"), files,
+                    new StringWriter());
+            fail("The absent diff is read");
+        }
+        catch (CheckstyleException e) {
+            assertTrue(e.getMessage().startsWith("Diff can not be read"));
+        }
+
+        final Socket socket = connect(daemon);
+        try {
+            final PrintWriter writer = new PrintWriter(socket.getOutputStream());
+            writer.println(CheckDaemon.readToken(getTokenFile()));
+            writer.println(CheckDaemon.CHECK_DIFF_COMMAND);
+            writer.flush();
+            socket.shutdownOutput();
+            final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(),
+                            CheckDaemon.CHARSET));
+            assertEquals(CheckDaemon.FAILURE_PREFIX + "Diff is not given",
+                    reader.readLine());
+        }
+        finally {
+            socket.close();
+        }
+
+        daemon.stop();
+        thread.join();
+    }
+
+    @Test
+    public void testDaemonWithoutResult()
+            throws Exception
+    {
+        final ServerSocket serverSocket = new ServerSocket(0, 1,
+                InetAddress.getByName(null));
+        final Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    // the request is read up to its end and not answered
+                    final Socket socket = serverSocket.accept();
+                    final BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(),
+                                    CheckDaemon.CHARSET));
+                    String line = reader.readLine();
+                    while (line != null && line.length() > 0) {
+                        line = reader.readLine();
+                    }
+                    socket.close();
+                }
+                catch (IOException e) {
+                    // the client fails anyway
+                    return;
+                }
+            }
+        });
+        thread.start();
+        write(getTokenFile(), "token");
+        try {
+            CheckClient.check(serverSocket.getLocalPort(), getTokenFile(),
+                    getInputFiles(), new StringWriter());
+            fail("The audit without result is finished");
+        }
+        catch (IOException e) {
+            assertEquals("Daemon has closed the connection", e.getMessage());
+        }
+        finally {
+            thread.join();
+            serverSocket.close();
+        }
+    }
+
+    @Test
+    public void testRunClient()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile, 1);
+        final List<File> files = getInputFiles();
+
+        final CheckDaemon daemon = new CheckDaemon(configFile,
+                Thread.currentThread().getContextClassLoader(), 0,
+                getTokenFile());
+        final Thread thread = start(daemon);
+        final String port = String.valueOf(daemon.getPort());
+        final String tokenFile = getTokenFile().getPath();
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final String[] args = {"-p", port, "-t", tokenFile,
+            files.get(0).getPath(), files.get(1).getPath(), };
+        final int errors = CheckClient.run(args, new PrintStream(output),
+                System.err);
+        assertEquals(auditWithChecker(configFile, files), errors);
+        assertTrue(output.toString().startsWith(files.get(0).getPath() + ":"));
+
+        assertEquals(0, CheckClient.run(new String[] {"-p", port, "-t",
+            tokenFile, "-stop", }, System.out, System.err));
+        thread.join();
+
+        // the stopped daemon is not available
+        final ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+        assertEquals(1, CheckClient.run(new String[] {"-p", port, "-t",
+            tokenFile, "-stop", }, System.out, new PrintStream(errorOutput)));
+        assertTrue(errorOutput.toString().startsWith("Daemon is not available"));
+    }
+
+    @Test
+    public void testRunClientWithInvalidConfiguration()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        write(configFile, "<module name=\"Checker\">");
+
+        final CheckDaemon daemon = new CheckDaemon(configFile,
+                Thread.currentThread().getContextClassLoader(), 0,
+                getTokenFile());
+        final Thread thread = start(daemon);
+        final ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+        final String[] args = {"-p", String.valueOf(daemon.getPort()),
+            "-t", getTokenFile().getPath(), getInputFiles().get(0).getPath(), };
+        assertEquals(1, CheckClient.run(args, System.out,
+                new PrintStream(errorOutput)));
+        assertTrue(errorOutput.size() > 0);
+
+        daemon.stop();
+        thread.join();
+    }
+
+    @Test
+    public void testRunDaemon()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile, 1);
+        final PipedInputStream input = new PipedInputStream();
+        final PrintStream output = new PrintStream(new PipedOutputStream(input));
+        final int[] status = {-1};
+        final Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    status[0] = CheckDaemon.run(new String[] {"-c",
+                        configFile.getPath(), "-p", "0",
+                        "-t", getTokenFile().getPath(), }, output, System.err);
+                }
+                catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        thread.start();
+
+        final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(input));
+        final String line = reader.readLine();
+        assertTrue(line.startsWith("Listening on port "));
+        assertEquals("Token is written to " + getTokenFile(), reader.readLine());
+        final int port = Integer.parseInt(
+                line.substring("Listening on port ".length()));
+        final List<File> files = getInputFiles();
+        assertEquals(auditWithChecker(configFile, files),
+                CheckClient.check(port, getTokenFile(), files, new StringWriter()));
+        CheckClient.stop(port, getTokenFile());
+        thread.join();
+        assertEquals(0, status[0]);
+    }
+
+    @Test
+    public void testRunDaemonUsage()
+            throws Exception
+    {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(1, CheckDaemon.run(new String[] {"-p", "0"}, System.out,
+                new PrintStream(output)));
+        assertTrue(output.toString().startsWith("Usage: CheckDaemon"));
+    }
+
+    @Test
+    public void testRunDaemonInvalidPort()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        for (String port : new String[] {"any", "-1", "65536", }) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            assertEquals(1, CheckDaemon.run(new String[] {"-c",
+                configFile.getPath(), "-p", port, }, System.out,
+                new PrintStream(output)));
+            assertTrue(output.toString().startsWith("Usage: CheckDaemon"));
+            assertTrue(output.toString().contains("<port> is a number"));
+        }
+        assertFalse(getTokenFile().exists());
+    }
+
+    @Test
+    public void testUnauthorizedRequests()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile, 1);
+        final List<File> files = getInputFiles();
+
+        final CheckDaemon daemon = new CheckDaemon(configFile,
+                Thread.currentThread().getContextClassLoader(), 0,
+                getTokenFile());
+        final ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+        final Thread thread = start(daemon, new PrintStream(errorOutput, true));
+        assertEquals(32, CheckDaemon.readToken(getTokenFile()).length());
+
+        // the request without the token is not served
+        final Socket socket = new Socket(InetAddress.getByName(null),
+                daemon.getPort());
+        try {
+            final OutputStream output = socket.getOutputStream();
+            output.write("stop\n\n".getBytes(CheckDaemon.CHARSET));
+            output.flush();
+            final String response = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), CheckDaemon.CHARSET)).readLine();
+            assertEquals(CheckDaemon.FAILURE_PREFIX
+                    + CheckDaemon.UNAUTHORIZED_MESSAGE, response);
+        }
+        finally {
+            socket.close();
+        }
+
+        final File wrongTokenFile = temporaryFolder.newFile("wrong-token");
+        write(wrongTokenFile, "0123456789abcdef0123456789abcdef\n");
+        try {
+            CheckClient.check(daemon.getPort(), wrongTokenFile, files,
+                    new StringWriter());
+            fail("The token is not valid");
+        }
+        catch (CheckstyleException e) {
+            assertEquals(CheckDaemon.UNAUTHORIZED_MESSAGE, e.getMessage());
+        }
+        final File emptyTokenFile = temporaryFolder.newFile("empty-token");
+        try {
+            CheckClient.check(daemon.getPort(), emptyTokenFile, files,
+                    new StringWriter());
+            fail("The token is missing");
+        }
+        catch (IOException e) {
+            assertEquals("Token file is empty: " + emptyTokenFile,
+                    e.getMessage());
+        }
+
+        // the daemon still serves authorized requests
+        assertEquals(auditWithChecker(configFile, files),
+                CheckClient.check(daemon.getPort(), getTokenFile(), files,
+                        new StringWriter()));
+        CheckClient.stop(daemon.getPort(), getTokenFile());
+        thread.join();
+        final String[] errors = errorOutput.toString().split("\\r?\\n");
+        assertEquals(2, errors.length);
+        assertTrue(errors[0].startsWith(CheckDaemon.UNAUTHORIZED_MESSAGE));
+        assertTrue(errors[1].startsWith(CheckDaemon.UNAUTHORIZED_MESSAGE));
+    }
+
+    @Test
+    public void testDefaultTokenFile()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile, 1);
+        final String userHome = System.getProperty("user.home");
+        System.setProperty("user.home", temporaryFolder.getRoot().getPath());
+        try {
+            final CheckDaemon daemon = new CheckDaemon(configFile,
+                    Thread.currentThread().getContextClassLoader(), 0, null);
+            final Thread thread = start(daemon);
+            final File tokenFile = new File(temporaryFolder.getRoot(),
+                    ".sevntu-checks-daemon-" + daemon.getPort());
+            assertEquals(tokenFile, daemon.getTokenFile());
+            assertTrue(tokenFile.exists());
+
+            assertEquals(0, CheckClient.run(new String[] {"-p",
+                String.valueOf(daemon.getPort()), "-stop", },
+                System.out, System.err));
+            thread.join();
+            assertFalse(tokenFile.exists());
+        }
+        finally {
+            System.setProperty("user.home", userHome);
+        }
+    }
+
+    @Test
+    public void testUnwritableTokenFile()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        final File tokenFile = new File(temporaryFolder.getRoot(),
+                "missing/token");
+        try {
+            new CheckDaemon(configFile,
+                    Thread.currentThread().getContextClassLoader(), 0,
+                    tokenFile);
+            fail("The token file can not be created");
+        }
+        catch (IOException e) {
+            assertFalse(tokenFile.exists());
+        }
+    }
+
+    private File getTokenFile()
+    {
+        return new File(temporaryFolder.getRoot(), "token");
+    }
+
+    private static Socket connect(CheckDaemon daemon)
+            throws IOException
+    {
+        final Socket socket = new Socket(InetAddress.getByName(null),
+                daemon.getPort());
+        socket.setSoTimeout(10000);
+        return socket;
+    }
+
+    private static boolean isDisconnectedBySlowRequest(Socket socket)
+    {
+        try {
+            for (int i = 0; i < 200; i++) {
+                socket.getOutputStream().write('0');
+                socket.getOutputStream().flush();
+                try {
+                    if (socket.getInputStream().read() == -1) {
+                        return true;
+                    }
+                }
+                catch (SocketTimeoutException e) {
+                    // the next byte of the request is sent
+                    continue;
+                }
+            }
+            return false;
+        }
+        catch (IOException e) {
+            // the connection is reset by the daemon
+            return true;
+        }
+    }
+
+    private static AuditEvent createEvent(int column, SeverityLevel severity)
+    {
+        return new AuditEvent(new Object(), "File.java", new LocalizedMessage(
+                7, column, "messages", "key", new Object[0], severity, null,
+                CheckDaemonTest.class, "message"));
+    }
+
+    private static Thread start(CheckDaemon daemon)
+    {
+        return start(daemon, System.err);
+    }
+
+    private static Thread start(final CheckDaemon daemon, final PrintStream err)
+    {
+        final Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                daemon.run(err);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void waitForAccept(Thread thread)
+            throws InterruptedException
+    {
+        while (true) {
+            for (StackTraceElement element : thread.getStackTrace()) {
+                if ("accept".equals(element.getMethodName())) {
+                    return;
+                }
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static int auditWithChecker(File configFile, List<File> files)
+            throws Exception
+    {
+        final Checker checker = new Checker();
+        checker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
+        checker.configure(ConfigurationLoader.loadConfiguration(
+                configFile.getPath(), new PropertiesExpander(System.getProperties())));
+        final int errors = checker.process(files);
+        checker.destroy();
+        return errors;
+    }
+
+    private static void writeConfig(File configFile, int maxReturnCount)
+            throws IOException
+    {
+        writeConfig(configFile, maxReturnCount, null);
+    }
+
+    private static void writeConfig(File configFile, int maxReturnCount,
+            File suppressionsFile)
+            throws IOException
+    {
+        String filter = "";
+        if (suppressionsFile != null) {
+            filter = "  <module name=\"SuppressionFilter\">\n"
+                    + "    <property name=\"file\" value=\""
+                    + suppressionsFile.getPath() + "\"/>\n"
+                    + "  </module>\n";
+        }
+        final long modified = configFile.lastModified();
+        write(configFile, "<?xml version=\"1.0\"?>\n"
+                + "<!DOCTYPE module PUBLIC"
+                + " \"-//Puppy Crawl//DTD Check Configuration 1.3//EN\""
+                + " \"http://www.puppycrawl.com/dtds/configuration_1_3.dtd\">\n"
+                + "<module name=\"Checker\">\n"
+                + "  <property name=\"charset\" value=\"iso-8859-1\"/>\n"
+                + "  <property name=\"localeLanguage\" value=\"en\"/>\n"
+                + filter
+                + "  <module name=\"TreeWalker\">\n"
+                + "    <module name=\"" + ReturnCountExtendedCheck.class.getName() + "\">\n"
+                + "      <property name=\"maxReturnCount\" value=\""
+                + maxReturnCount + "\"/>\n"
+                + "      <property name=\"ignoreMethodLinesCount\" value=\"0\"/>\n"
+                + "      <property name=\"minIgnoreReturnDepth\" value=\"5\"/>\n"
+                + "    </module>\n"
+                + "  </module>\n"
+                + "</module>\n");
+        // the time of modification may be too coarse to notice the change
+        configFile.setLastModified(modified + 2000);
+    }
+
+    private static void writeSuppressions(File suppressionsFile,
+            String checks)
+            throws IOException
+    {
+        final long modified = suppressionsFile.lastModified();
+        write(suppressionsFile, "<?xml version=\"1.0\"?>\n"
+                + "<!DOCTYPE suppressions PUBLIC"
+                + " \"-//Puppy Crawl//DTD Suppressions 1.1//EN\""
+                + " \"http://www.puppycrawl.com/dtds/suppressions_1_1.dtd\">\n"
+                + "<suppressions>\n"
+                + "  <suppress checks=\"" + checks + "\" files=\".*\"/>\n"
+                + "</suppressions>\n");
+        suppressionsFile.setLastModified(modified + 2000);
+    }
+
+    private static void write(File file, String content) throws IOException
+    {
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes("iso-8859-1"));
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    private List<File> getInputFiles()
+    {
+        final List<File> files = new ArrayList<File>();
+        files.add(new File(getPath("/com/github/sevntu/checkstyle/checks/coding/"
+                + "InputReturnCountExtendedCheckMethods.java")));
+        files.add(new File(getPath("/com/github/sevntu/checkstyle/checks/coding/"
+                + "InputReturnCountExtendedCheckCtors.java")));
+        return files;
+    }
+}
@@ -0,0 +1,157 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.parallel.AuditRecorder.Event;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+public class AuditRecorderTest
+{
+    @Test
+    public void testClaimedFiles()
+    {
+        final List<File> files = Arrays.asList(new File("First.java"),
+                new File("Second.java"), new File("Third.java"));
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AuditRecorder first = new AuditRecorder(files, nextFile);
+        final AuditRecorder second = new AuditRecorder(files, nextFile);
+
+        final List<File> firstFiles = first.getFiles();
+        assertEquals(3, firstFiles.size());
+        assertSame(files.get(1), firstFiles.get(1));
+
+        final Iterator<File> firstIterator = firstFiles.iterator();
+        final Iterator<File> secondIterator = second.getFiles().iterator();
+        assertSame(files.get(0), firstIterator.next());
+        assertSame(files.get(1), secondIterator.next());
+        try {
+            secondIterator.remove();
+            fail("files of the audit can not be removed");
+        }
+        catch (UnsupportedOperationException e) {
+            // files of the audit can not be removed
+        }
+        assertTrue(firstIterator.hasNext());
+        assertTrue(firstIterator.hasNext());
+        assertSame(files.get(2), firstIterator.next());
+        assertFalse(secondIterator.hasNext());
+        try {
+            secondIterator.next();
+            fail("all files are claimed");
+        }
+        catch (NoSuchElementException e) {
+            // all files are claimed
+        }
+    }
+
+    @Test
+    public void testReplayedExceptions()
+    {
+        final List<File> files = Arrays.asList(new File("First.java"));
+        final AuditRecorder recorder = new AuditRecorder(files, new AtomicInteger());
+        final Iterator<File> iterator = recorder.getFiles().iterator();
+        final AuditEvent event = new AuditEvent(this, "First.java");
+        final IllegalStateException failure = new IllegalStateException();
+
+        recorder.auditStarted(new AuditEvent(this));
+        iterator.next();
+        recorder.fileStarted(event);
+        recorder.addException(event, failure);
+        recorder.fileFinished(event);
+        assertFalse(iterator.hasNext());
+        recorder.addException(new AuditEvent(this), failure);
+        recorder.auditFinished(new AuditEvent(this));
+
+        final List<Event> fileEvents = recorder.getFileEvents(0);
+        assertEquals(3, fileEvents.size());
+        assertEquals(Event.Kind.EXCEPTION, fileEvents.get(1).getKind());
+        assertEquals(1, recorder.getTrailingEvents().size());
+
+        final ExceptionCollector collector = new ExceptionCollector();
+        for (Event fileEvent : fileEvents) {
+            fileEvent.fireTo(collector);
+        }
+        assertSame(event, collector.event);
+        assertSame(failure, collector.throwable);
+        assertEquals(2, collector.fileEvents);
+    }
+
+    /** Listener which keeps the reported exception. */
+    private static final class ExceptionCollector implements AuditListener
+    {
+        private AuditEvent event;
+
+        private Throwable throwable;
+
+        private int fileEvents;
+
+        @Override
+        public void auditStarted(AuditEvent auditEvent)
+        {
+            fail("the audit is not replayed");
+        }
+
+        @Override
+        public void auditFinished(AuditEvent auditEvent)
+        {
+            fail("the audit is not replayed");
+        }
+
+        @Override
+        public void fileStarted(AuditEvent auditEvent)
+        {
+            fileEvents++;
+        }
+
+        @Override
+        public void fileFinished(AuditEvent auditEvent)
+        {
+            fileEvents++;
+        }
+
+        @Override
+        public void addError(AuditEvent auditEvent)
+        {
+            fail("no errors are recorded");
+        }
+
+        @Override
+        public void addException(AuditEvent auditEvent, Throwable exception)
+        {
+            event = auditEvent;
+            throwable = exception;
+        }
+    }
+}
@@ -0,0 +1,781 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.parallel;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.ChangedLines;
+import com.github.sevntu.checkstyle.checks.coding.ForbidCCommentsInMethods;
+import com.github.sevntu.checkstyle.checks.coding.ForbidCertainImportsCheck;
+import com.github.sevntu.checkstyle.checks.coding.MultipleStringLiteralsAcrossFilesCheck;
+import com.github.sevntu.checkstyle.checks.coding.MultipleStringLiteralsExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.MultipleVariableDeclarationsExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.ReturnCountExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.StringLiteralsCollectorCheck;
+import com.github.sevntu.checkstyle.checks.design.CauseParameterInExceptionCheck;
+import com.github.sevntu.checkstyle.checks.sizes.LineLengthExtendedCheck;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.Filter;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import com.puppycrawl.tools.checkstyle.checks.sizes.FileLengthCheck;
+
+public class ParallelCheckerTest extends BaseCheckTestSupport
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSameOutputAsChecker()
+            throws Exception
+    {
+        final List<File> files = getInputFiles();
+        final DefaultConfiguration config = createConfig(true);
+
+        final ByteArrayOutputStream plainOutput = new ByteArrayOutputStream();
+        final Checker plainChecker = new Checker();
+        plainChecker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
+        plainChecker.configure(config);
+        plainChecker.addListener(new BriefLogger(new PrintStream(plainOutput)));
+        final int plainErrors = plainChecker.process(files);
+        plainChecker.destroy();
+
+        for (int threads = 1; threads <= 4; threads++) {
+            final ByteArrayOutputStream parallelOutput = new ByteArrayOutputStream();
+            final int parallelErrors = audit(config, threads, files, parallelOutput);
+
+            assertTrue(plainErrors > 0);
+            assertEquals(plainErrors, parallelErrors);
+            assertEquals(plainOutput.toString(), parallelOutput.toString());
+        }
+    }
+
+    @Test
+    public void testOnlyTreeWalkerModules()
+            throws Exception
+    {
+        final List<File> files = getInputFiles();
+        final DefaultConfiguration config = createConfig(false);
+
+        final ByteArrayOutputStream oneThreadOutput = new ByteArrayOutputStream();
+        final int oneThreadErrors = audit(config, 1, files, oneThreadOutput);
+        final ByteArrayOutputStream threadsOutput = new ByteArrayOutputStream();
+        final int threadsErrors = audit(config, 3, files, threadsOutput);
+
+        assertEquals(oneThreadErrors, threadsErrors);
+        assertEquals(oneThreadOutput.toString(), threadsOutput.toString());
+    }
+
+    @Test
+    public void testCachedResults()
+            throws Exception
+    {
+        final List<File> files = copyInputFiles();
+        final DefaultConfiguration config = createConfig(true);
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache.bin");
+        final String expected = auditWithChecker(config, files);
+
+        final ParallelChecker checker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 2);
+        checker.setCacheFile(cacheFile);
+        assertEquals(expected, audit(checker, files));
+        assertEquals(0, checker.getCacheHits());
+        assertEquals(expected, audit(checker, files));
+        assertEquals(files.size(), checker.getCacheHits());
+        checker.destroy();
+
+        // the cache file is loaded by a new runner
+        final ParallelChecker newChecker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 2);
+        newChecker.setCacheFile(cacheFile);
+        assertEquals(expected, audit(newChecker, files));
+        assertEquals(files.size(), newChecker.getCacheHits());
+
+        // results of the changed file and across files are not reused
+        write(files.get(0), "class InputChanged { String s = \"ab\" + \"ab\""
+                + " + \"ab\" + \"reused\"; }\n");
+        assertEquals(auditWithChecker(config, files), audit(newChecker, files));
+        assertEquals(files.size() - 1, newChecker.getCacheHits());
+        newChecker.destroy();
+    }
+
+    @Test
+    public void testCacheOfOtherConfiguration()
+            throws Exception
+    {
+        final List<File> files = copyInputFiles();
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache.bin");
+
+        final ParallelChecker checker = new ParallelChecker(createConfig(true),
+                Thread.currentThread().getContextClassLoader(), 2);
+        checker.setCacheFile(cacheFile);
+        audit(checker, files);
+        checker.destroy();
+
+        final DefaultConfiguration otherConfig = createConfig(true);
+        ((DefaultConfiguration) otherConfig.getChildren()[0].getChildren()[0])
+                .addAttribute("allowedDuplicates", "2");
+        final ParallelChecker otherChecker = new ParallelChecker(otherConfig,
+                Thread.currentThread().getContextClassLoader(), 2);
+        otherChecker.setCacheFile(cacheFile);
+        assertEquals(auditWithChecker(otherConfig, files), audit(otherChecker, files));
+        assertEquals(0, otherChecker.getCacheHits());
+        otherChecker.destroy();
+    }
+
+    @Test
+    public void testNoCacheOfChecksDependingOnSourceFiles()
+            throws Exception
+    {
+        final List<File> files = copyInputFiles();
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache.bin");
+        final DefaultConfiguration config = createConfig(false);
+        final DefaultConfiguration causeConfig =
+                createCheckConfig(CauseParameterInExceptionCheck.class);
+        ((DefaultConfiguration) config.getChildren()[0]).addChild(causeConfig);
+
+        final ParallelChecker checker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 2);
+        checker.setCacheFile(cacheFile);
+        audit(checker, files);
+        audit(checker, files);
+        assertEquals(files.size(), checker.getCacheHits());
+        checker.destroy();
+
+        causeConfig.addAttribute("useProjectTypeHierarchy", "true");
+        final ParallelChecker dependentChecker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 2);
+        dependentChecker.setCacheFile(cacheFile);
+        audit(dependentChecker, files);
+        audit(dependentChecker, files);
+        assertEquals(0, dependentChecker.getCacheHits());
+        dependentChecker.destroy();
+    }
+
+    @Test
+    public void testCacheOfChangedRulesFile()
+            throws Exception
+    {
+        final File sources = temporaryFolder.newFolder("p");
+        final File file = new File(sources, "InputImports.java");
+        write(file, "package p;\nimport java.util.List;\nclass InputImports {}\n");
+        final List<File> files = Arrays.asList(file);
+        final File rulesFile = temporaryFolder.newFile("imports.rules");
+        write(rulesFile, "package p\nforbid java.io.**\n");
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache.bin");
+        final DefaultConfiguration config = createConfig(false);
+        final DefaultConfiguration importsConfig =
+                createCheckConfig(ForbidCertainImportsCheck.class);
+        importsConfig.addAttribute("rulesFile", rulesFile.getPath());
+        ((DefaultConfiguration) config.getChildren()[0]).addChild(importsConfig);
+
+        final ParallelChecker checker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 1);
+        checker.setCacheFile(cacheFile);
+        final String expected = auditWithChecker(config, files);
+        assertEquals(expected, audit(checker, files));
+        checker.destroy();
+        final ParallelChecker sameChecker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 1);
+        sameChecker.setCacheFile(cacheFile);
+        assertEquals(expected, audit(sameChecker, files));
+        assertEquals(1, sameChecker.getCacheHits());
+        sameChecker.destroy();
+
+        // the path of the rules file is the same, its content is not
+        write(rulesFile, "package p\nforbid java.util.**\n");
+        rulesFile.setLastModified(rulesFile.lastModified() + 10000);
+        final ParallelChecker changedChecker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 1);
+        changedChecker.setCacheFile(cacheFile);
+        final String changedExpected = auditWithChecker(config, files);
+        assertFalse(expected.equals(changedExpected));
+        assertEquals(changedExpected, audit(changedChecker, files));
+        assertEquals(0, changedChecker.getCacheHits());
+        changedChecker.destroy();
+    }
+
+    @Test
+    public void testVersions()
+    {
+        assertEquals("6.2", ResultCache.getVersion(Checker.class,
+                "com.puppycrawl.tools", "checkstyle"));
+        // classes of the build are not packaged, their digest is the version
+        assertTrue(ResultCache.getVersion(ResultCache.class,
+                "com.github.sevntu.checkstyle", "sevntu-checks").matches("[0-9a-f]{40}"));
+        // classes of the boot class path have no location
+        assertNull(ResultCache.getVersion(String.class, "java", "rt"));
+    }
+
+    @Test
+    public void testLiteralsAcrossFiles()
+            throws Exception
+    {
+        final List<File> files = getInputFiles();
+        final DefaultConfiguration config = createConfig(true);
+        ((DefaultConfiguration) config.getChildren()[0]).addChild(
+                createCheckConfig(StringLiteralsCollectorCheck.class));
+        config.addChild(createCheckConfig(MultipleStringLiteralsAcrossFilesCheck.class));
+        final String expected = auditWithChecker(config, files);
+        assertTrue(expected.contains(" files."));
+
+        for (int threads = 1; threads <= 3; threads++) {
+            final ParallelChecker checker = new ParallelChecker(config,
+                    Thread.currentThread().getContextClassLoader(), threads);
+            // literals of all files are collected, so results are not cached
+            checker.setCacheFile(new File(temporaryFolder.getRoot(), "cache.bin"));
+            assertEquals(expected, audit(checker, files));
+            assertEquals(expected, audit(checker, files));
+            assertEquals(0, checker.getCacheHits());
+            checker.destroy();
+        }
+    }
+
+    @Test
+    public void testCacheEviction()
+            throws Exception
+    {
+        final List<File> files = copyInputFiles();
+        final DefaultConfiguration config = createConfig(false);
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache.bin");
+
+        final ParallelChecker checker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 1);
+        checker.setCacheFile(cacheFile);
+        checker.setMaxCacheEntries(2);
+        audit(checker, files);
+        checker.destroy();
+        final long evictedLength = cacheFile.length();
+
+        final ParallelChecker newChecker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 1);
+        newChecker.setCacheFile(cacheFile);
+        final String expected = auditWithChecker(config, files);
+        assertEquals(expected, audit(newChecker, files));
+        assertEquals(2, newChecker.getCacheHits());
+        assertTrue(cacheFile.length() > evictedLength);
+
+        // a cut off record is ignored
+        final String content = read(cacheFile);
+        write(cacheFile, content.substring(0, content.length() - 3));
+        assertEquals(expected, audit(newChecker, files));
+        newChecker.setCacheFile(cacheFile);
+        assertEquals(expected, audit(newChecker, files));
+        assertEquals(files.size() - 1, newChecker.getCacheHits());
+        newChecker.destroy();
+    }
+
+    @Test
+    public void testChangedLinesScope()
+            throws Exception
+    {
+        final List<File> files = new ArrayList<File>();
+        for (String name : new String[] {"sizes/InputLineLengthCheck.java",
+            "coding/InputForbidCCommentsInMethods.java",
+            "coding/InputMultipleVariableDeclarations.java",
+            "coding/InputReturnCountExtendedCheckMethods.java", })
+        {
+            final File file = new File(getPath(
+                    "/com/github/sevntu/checkstyle/checks/" + name));
+            final File copy = new File(temporaryFolder.getRoot(), file.getName());
+            write(copy, read(file));
+            files.add(copy);
+        }
+        final DefaultConfiguration config = createConfig(true);
+        final DefaultConfiguration checksConfig =
+                (DefaultConfiguration) config.getChildren()[0];
+        final DefaultConfiguration lineLengthConfig =
+                createCheckConfig(LineLengthExtendedCheck.class);
+        lineLengthConfig.addAttribute("max", "40");
+        checksConfig.addChild(lineLengthConfig);
+        checksConfig.addChild(
+                createCheckConfig(MultipleVariableDeclarationsExtendedCheck.class));
+
+        // every third line of all files but the last one is changed
+        final StringBuilder diff = new StringBuilder();
+        for (File file : files.subList(0, 3)) {
+            diff.append("--- a/").append(file.getName()).append('\n');
+            diff.append("+++ b/").append(file.getName()).append('\n');
+            final String[] lines = read(file).split("\n", -1);
+            for (int lineNo = 3; lineNo < lines.length; lineNo += 3) {
+                diff.append("@@ -").append(lineNo).append(",1 +")
+                        .append(lineNo).append(",1 @@\n")
+                        .append("-old\n+").append(lines[lineNo - 1]).append('\n');
+            }
+        }
+        final ChangedLines changedLines = ChangedLines.parse(
+                new BufferedReader(new StringReader(diff.toString())),
+                temporaryFolder.getRoot());
+
+        final String fullOutput = auditWithChecker(config, files);
+        final StringBuilder expected = new StringBuilder();
+        for (String line : fullOutput.split("(?<=\n)")) {
+            final String[] parts = line.split(":");
+            // the line which is not a violation is printed as it is
+            if (parts.length < 2 || !parts[0].endsWith(files.get(3).getName())
+                    && Integer.parseInt(parts[1]) % 3 == 0)
+            {
+                expected.append(line);
+            }
+        }
+        assertTrue(expected.length() > 0);
+        assertTrue(expected.length() < fullOutput.length());
+
+        final ParallelChecker checker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 2);
+        checker.setCacheFile(new File(temporaryFolder.getRoot(), "cache.bin"));
+        checker.setChangedLines(changedLines);
+        assertEquals(expected.toString(), audit(checker, files));
+        assertEquals(0, checker.getCacheHits());
+        checker.setChangedLines(null);
+        assertEquals(fullOutput, audit(checker, files));
+        checker.destroy();
+    }
+
+    @Test
+    public void testQuoteMessage()
+    {
+        final String message = "Don't use '{0}' and {}";
+        assertEquals(message, MessageFormat.format(
+                ResultCache.quoteMessage(message), new Object[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreads()
+            throws Exception
+    {
+        new ParallelChecker(createConfig(false),
+                Thread.currentThread().getContextClassLoader(), 0);
+    }
+
+    @Test
+    public void testRun()
+            throws Exception
+    {
+        final List<File> files = copyInputFiles();
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile);
+        final int expected = audit(createConfig(false), 1, files,
+                new ByteArrayOutputStream());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final String[] args = {"-c", configFile.getPath(), "-j", "2",
+            "-cache", new File(temporaryFolder.getRoot(), "cache.bin").getPath(),
+            temporaryFolder.getRoot().getPath(), };
+        assertEquals(expected, ParallelChecker.run(args,
+                new PrintStream(output), System.err));
+        assertTrue(expected > 0);
+        assertTrue(output.toString().contains(temporaryFolder.getRoot().getPath()));
+    }
+
+    @Test
+    public void testRunWithoutChangedFiles()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile);
+        final File diffFile = temporaryFolder.newFile("changes.diff");
+        write(diffFile, "+++ b/" + temporaryFolder.getRoot().getName()
+                + "/Missing.java\n");
+
+        final String[] args = {"-c", configFile.getPath(),
+            "-diff", diffFile.getPath(), };
+        assertEquals(0, ParallelChecker.run(args,
+                new PrintStream(new ByteArrayOutputStream()), System.err));
+    }
+
+    @Test
+    public void testFailingCheck()
+            throws Exception
+    {
+        final List<File> files = getInputFiles();
+        final DefaultConfiguration config = createConfig(true);
+        ((DefaultConfiguration) config.getChildren()[0]).addChild(
+                createCheckConfig(FailingCheck.class));
+        FailingCheck.failure = new IllegalStateException("failure of a check");
+        try {
+            // TreeWalker reports the failure of the check as an error
+            final String expected = auditWithChecker(config, files);
+            assertTrue(expected.contains("failure of a check"));
+            for (int threads = 1; threads <= 3; threads += 2) {
+                final ParallelChecker checker = new ParallelChecker(config,
+                        FailingCheck.class.getClassLoader(), threads);
+                assertEquals(expected, audit(checker, files));
+                checker.destroy();
+            }
+        }
+        finally {
+            FailingCheck.failure = null;
+        }
+    }
+
+    @Test
+    public void testWorkerFailure()
+            throws Exception
+    {
+        final List<File> files = getInputFiles();
+        final DefaultConfiguration config = createConfig(true);
+        config.addChild(createCheckConfig(FailingFilter.class));
+        final ParallelChecker checker = new ParallelChecker(config,
+                FailingFilter.class.getClassLoader(), 3);
+        try {
+            final IllegalStateException exception =
+                    new IllegalStateException("failure of a filter");
+            FailingFilter.failure = exception;
+            try {
+                checker.process(files);
+                fail("the failure of the worker is rethrown");
+            }
+            catch (IllegalStateException e) {
+                assertSame(exception, e);
+            }
+
+            final AssertionError error = new AssertionError("error of a filter");
+            FailingFilter.failure = error;
+            try {
+                checker.process(files);
+                fail("the error of the worker is rethrown");
+            }
+            catch (AssertionError e) {
+                assertSame(error, e);
+            }
+
+            // the next audit is not affected by failed ones
+            FailingFilter.failure = null;
+            assertEquals(auditWithChecker(config, files), audit(checker, files));
+        }
+        finally {
+            FailingFilter.failure = null;
+            checker.destroy();
+        }
+    }
+
+    @Test
+    public void testInterruptedAudit()
+            throws Exception
+    {
+        final DefaultConfiguration config = createConfig(false);
+        ((DefaultConfiguration) config.getChildren()[0]).addChild(
+                createCheckConfig(FailingCheck.class));
+        final ParallelChecker checker = new ParallelChecker(config,
+                FailingCheck.class.getClassLoader(), 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        FailingCheck.failure = latch;
+        try {
+            Thread.currentThread().interrupt();
+            checker.process(getInputFiles());
+            fail("the audit is interrupted");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("Audit is interrupted", e.getMessage());
+            assertTrue(Thread.interrupted());
+        }
+        finally {
+            FailingCheck.failure = null;
+            latch.countDown();
+            checker.destroy();
+        }
+    }
+
+    @Test
+    public void testUnusableCacheFile()
+            throws Exception
+    {
+        final List<File> files = copyInputFiles();
+        final File directory = temporaryFolder.newFolder("cache");
+        final ParallelChecker checker = new ParallelChecker(createConfig(false),
+                Thread.currentThread().getContextClassLoader(), 2);
+        checker.setCacheFile(directory);
+        try {
+            checker.process(files);
+            fail("the directory is not a cache file");
+        }
+        catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Cache file can not be read"));
+        }
+
+        final File parent = temporaryFolder.newFile("file");
+        checker.setCacheFile(new File(parent, "cache.bin"));
+        try {
+            checker.process(files);
+            fail("the cache file can not be created in a file");
+        }
+        catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Cache file can not be written"));
+        }
+        checker.destroy();
+    }
+
+    @Test
+    public void testCacheOfMissingFile()
+            throws Exception
+    {
+        final List<File> files = new ArrayList<File>(copyInputFiles());
+        files.add(2, new File(temporaryFolder.getRoot(), "Missing.java"));
+        final DefaultConfiguration config = createConfig(true);
+        final String expected = auditWithChecker(config, files);
+        assertTrue(expected.contains("Missing.java"));
+
+        final ParallelChecker checker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), 2);
+        checker.setCacheFile(new File(temporaryFolder.getRoot(), "cache.bin"));
+        assertEquals(expected, audit(checker, files));
+        // results of all files but the missing one are reused
+        assertEquals(expected, audit(checker, files));
+        assertEquals(files.size() - 1, checker.getCacheHits());
+        checker.destroy();
+    }
+
+    @Test
+    public void testRunInvalidThreads()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        writeConfig(configFile);
+        for (String threads : new String[] {"many", "0", "-2", }) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final String[] args = {"-c", configFile.getPath(), "-j", threads,
+                temporaryFolder.getRoot().getPath(), };
+            assertEquals(1, ParallelChecker.run(args, System.out,
+                    new PrintStream(output)));
+            assertTrue(output.toString().startsWith("Usage: ParallelChecker"));
+            assertTrue(output.toString().contains("<threads> is a positive number"));
+        }
+    }
+
+    @Test
+    public void testRunUsage()
+            throws Exception
+    {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(1, ParallelChecker.run(new String[0], System.out,
+                new PrintStream(output)));
+        assertTrue(output.toString().startsWith("Usage: ParallelChecker"));
+    }
+
+    /**
+     * Check which fails on each file by the configured exception, or waits
+     * for the latch.
+     */
+    public static final class FailingCheck extends Check
+    {
+        /** The exception to throw, or the latch to wait for, or null. */
+        private static volatile Object failure;
+
+        @Override
+        public int[] getDefaultTokens()
+        {
+            return new int[] {TokenTypes.CLASS_DEF};
+        }
+
+        @Override
+        public void beginTree(DetailAST rootAST)
+        {
+            final Object currentFailure = failure;
+            if (currentFailure instanceof RuntimeException) {
+                throw (RuntimeException) currentFailure;
+            }
+            if (currentFailure instanceof CountDownLatch) {
+                try {
+                    ((CountDownLatch) currentFailure).await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Filter which fails on each error by the configured failure.
+     */
+    public static final class FailingFilter implements Filter
+    {
+        /** The exception or the error to throw, or null. */
+        private static volatile Throwable failure;
+
+        @Override
+        public boolean accept(AuditEvent event)
+        {
+            final Throwable currentFailure = failure;
+            if (currentFailure instanceof RuntimeException) {
+                throw (RuntimeException) currentFailure;
+            }
+            if (currentFailure instanceof Error) {
+                throw (Error) currentFailure;
+            }
+            return true;
+        }
+    }
+
+    private static String audit(ParallelChecker checker, List<File> files)
+    {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BriefLogger logger = new BriefLogger(new PrintStream(output));
+        checker.addListener(logger);
+        checker.process(files);
+        checker.removeListener(logger);
+        return output.toString();
+    }
+
+    private static String auditWithChecker(DefaultConfiguration config,
+            List<File> files) throws Exception
+    {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Checker checker = new Checker();
+        checker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
+        checker.configure(config);
+        checker.addListener(new BriefLogger(new PrintStream(output)));
+        checker.process(files);
+        checker.destroy();
+        return output.toString();
+    }
+
+    private List<File> copyInputFiles() throws IOException
+    {
+        final List<File> result = new ArrayList<File>();
+        for (File file : getInputFiles().subList(0, 6)) {
+            final File copy = new File(temporaryFolder.getRoot(), file.getName());
+            write(copy, read(file));
+            result.add(copy);
+        }
+        return result;
+    }
+
+    private static String read(File file) throws IOException
+    {
+        final InputStream input = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read = input.read(buffer);
+            while (read != -1) {
+                content.write(buffer, 0, read);
+                read = input.read(buffer);
+            }
+            return content.toString("iso-8859-1");
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    private static void write(File file, String content) throws IOException
+    {
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes("iso-8859-1"));
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    private static void writeConfig(File configFile) throws IOException
+    {
+        write(configFile, "<?xml version=\"1.0\"?>\n"
+                + "<!DOCTYPE module PUBLIC"
+                + " \"-//Puppy Crawl//DTD Check Configuration 1.3//EN\""
+                + " \"http://www.puppycrawl.com/dtds/configuration_1_3.dtd\">\n"
+                + "<module name=\"Checker\">\n"
+                + "  <property name=\"charset\" value=\"iso-8859-1\"/>\n"
+                + "  <property name=\"localeLanguage\" value=\"en\"/>\n"
+                + "  <module name=\"TreeWalker\">\n"
+                + "    <module name=\""
+                + MultipleStringLiteralsExtendedCheck.class.getName() + "\"/>\n"
+                + "    <module name=\""
+                + ForbidCCommentsInMethods.class.getName() + "\"/>\n"
+                + "    <module name=\""
+                + ReturnCountExtendedCheck.class.getName() + "\"/>\n"
+                + "  </module>\n"
+                + "</module>\n");
+    }
+
+    private static int audit(DefaultConfiguration config, int threads,
+            List<File> files, ByteArrayOutputStream output)
+            throws Exception
+    {
+        final ParallelChecker checker = new ParallelChecker(config,
+                Thread.currentThread().getContextClassLoader(), threads);
+        checker.addListener(new BriefLogger(new PrintStream(output)));
+        final int errors = checker.process(files);
+        checker.destroy();
+        return errors;
+    }
+
+    private static DefaultConfiguration createConfig(boolean withFileSetChecks)
+    {
+        final DefaultConfiguration config = new DefaultConfiguration("configuration");
+        config.addAttribute("charset", "iso-8859-1");
+        config.addAttribute("localeCountry", Locale.ENGLISH.getCountry());
+        config.addAttribute("localeLanguage", Locale.ENGLISH.getLanguage());
+        final DefaultConfiguration checksConfig = createCheckConfig(TreeWalker.class);
+        checksConfig.addChild(createCheckConfig(MultipleStringLiteralsExtendedCheck.class));
+        checksConfig.addChild(createCheckConfig(ForbidCCommentsInMethods.class));
+        checksConfig.addChild(createCheckConfig(ReturnCountExtendedCheck.class));
+        config.addChild(checksConfig);
+        if (withFileSetChecks) {
+            final DefaultConfiguration fileLengthConfig =
+                    createCheckConfig(FileLengthCheck.class);
+            fileLengthConfig.addAttribute("max", "20");
+            config.addChild(fileLengthConfig);
+        }
+        return config;
+    }
+
+    private List<File> getInputFiles()
+    {
+        final File directory = new File(
+                getPath("/com/github/sevntu/checkstyle/checks/coding/InputMultipleStringLiterals.java"))
+                .getParentFile();
+        final File[] children = directory.listFiles();
+        Arrays.sort(children);
+        final List<File> files = new ArrayList<File>();
+        for (File child : children) {
+            if (child.getName().endsWith(".java")) {
+                files.add(child);
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,398 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.sevntu.checkstyle.parallel.AuditRecorder.Event;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+public class ResultCacheTest
+{
+    private static final String FINGERPRINT = "fingerprint";
+
+    private static final String PATH = "/sources/InputFile.java";
+
+    private static final byte[] DIGEST = {1, 2, 3, 4};
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testStoredResults()
+            throws Exception
+    {
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache.bin");
+        final ResultCache cache = new ResultCache(cacheFile, FINGERPRINT, 10);
+        cache.load();
+        cache.putFileEvents(PATH, DIGEST, createEvents("Don't use '{0}'", ""));
+        cache.save();
+
+        final ResultCache loadedCache = loadCache(cacheFile);
+        final List<Event> events = loadedCache.getFileEvents(PATH, DIGEST,
+                getClass().getClassLoader());
+        assertEquals(4, events.size());
+        final LocalizedMessage message = events.get(1).getAuditEvent()
+                .getLocalizedMessage();
+        assertEquals(PATH, events.get(1).getAuditEvent().getFileName());
+        assertEquals(7, message.getLineNo());
+        assertEquals(3, message.getColumnNo());
+        assertEquals("Don't use '{0}'", message.getMessage());
+        assertEquals("", events.get(2).getAuditEvent().getMessage());
+        assertEquals(1, loadedCache.getHits());
+
+        // the content of the file is changed
+        assertNull(loadedCache.getFileEvents(PATH, new byte[] {1},
+                getClass().getClassLoader()));
+        assertNull(loadedCache.getFileEvents("/sources/Other.java", DIGEST,
+                getClass().getClassLoader()));
+        assertEquals(1, loadedCache.getHits());
+        loadedCache.startAudit();
+        assertEquals(0, loadedCache.getHits());
+    }
+
+    @Test
+    public void testFileOfOtherFormat()
+            throws Exception
+    {
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache.bin");
+        write(cacheFile, "not a cache file".getBytes("UTF-8"));
+        final ResultCache cache = loadCache(cacheFile);
+        assertNull(cache.getFileEvents(PATH, DIGEST, getClass().getClassLoader()));
+
+        // the file is replaced by the cache
+        cache.putFileEvents(PATH, DIGEST, createEvents("message", "message"));
+        cache.save();
+        assertNotNull(loadCache(cacheFile).getFileEvents(PATH, DIGEST,
+                getClass().getClassLoader()));
+
+        // the cache of another configuration is dropped
+        final ResultCache otherCache = new ResultCache(cacheFile, "other", 10);
+        otherCache.load();
+        assertNull(otherCache.getFileEvents(PATH, DIGEST,
+                getClass().getClassLoader()));
+    }
+
+    @Test
+    public void testDamagedLengthOfRecord()
+            throws Exception
+    {
+        final File cacheFile = createCacheFile();
+        final byte[] content = read(cacheFile);
+        // the length of the payload follows the kind, the path and the digest
+        final int lengthOffset = getFirstRecordOffset()
+                + 1 + 2 + PATH.length() + 1 + DIGEST.length;
+        content[lengthOffset] = (byte) 0x7f;
+        write(cacheFile, content);
+
+        final ResultCache cache = loadCache(cacheFile);
+        assertNull(cache.getFileEvents(PATH, DIGEST, getClass().getClassLoader()));
+
+        // the damaged file is rewritten on save
+        cache.putFileEvents(PATH, DIGEST, createEvents("message", "message"));
+        cache.save();
+        assertNotNull(loadCache(cacheFile).getFileEvents(PATH, DIGEST,
+                getClass().getClassLoader()));
+    }
+
+    @Test
+    public void testDamagedPayload()
+            throws Exception
+    {
+        final int payloadOffset = getFirstRecordOffset()
+                + 1 + 2 + PATH.length() + 1 + DIGEST.length + 4;
+
+        // the count of events
+        assertNull(getDamagedEvents(payloadOffset, (byte) 0x7f));
+        // the kind of the first event
+        assertNull(getDamagedEvents(payloadOffset + 4, (byte) 0x7f));
+        // the first letter of the severity level of the error
+        final byte[] content = read(createCacheFile());
+        final int severityOffset = indexOf(content,
+                SeverityLevel.WARNING.name().getBytes("UTF-8"));
+        assertNull(getDamagedEvents(severityOffset, (byte) 'X'));
+    }
+
+    @Test
+    public void testUnknownModule()
+            throws Exception
+    {
+        final ResultCache cache = loadCache(createCacheFile());
+        // the class loader does not see classes of tests
+        final ClassLoader classLoader = new URLClassLoader(new URL[0], null);
+        assertNull(cache.getFileEvents(PATH, DIGEST, classLoader));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testExceptionsAreNotCached()
+            throws Exception
+    {
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache.bin");
+        final ResultCache cache = new ResultCache(cacheFile, FINGERPRINT, 10);
+        final List<Event> events = createEvents("message", "message");
+        events.add(2, new Event(Event.Kind.EXCEPTION, new AuditEvent(this, PATH),
+                new IllegalStateException()));
+        cache.putFileEvents(PATH, DIGEST, events);
+        // the file could not be read
+        cache.putFileEvents("/sources/Unreadable.java", null,
+                createEvents("message", "message"));
+        cache.save();
+        assertNull(loadCache(cacheFile).getFileEvents(PATH, DIGEST,
+                getClass().getClassLoader()));
+        assertNull(loadCache(cacheFile).getFileEvents("/sources/Unreadable.java",
+                null, getClass().getClassLoader()));
+
+        final List<File> files = Arrays.asList(new File(PATH));
+        final AuditRecorder recorder = new AuditRecorder(files, new AtomicInteger());
+        recorder.addFileEvents(0, events);
+        cache.storeAudit(DIGEST, recorder, files.size());
+        assertFalse(cache.restoreAudit(DIGEST,
+                new AuditRecorder(files, new AtomicInteger()),
+                getClass().getClassLoader()));
+
+        final AuditRecorder trailingRecorder =
+                new AuditRecorder(files, new AtomicInteger());
+        trailingRecorder.addTrailingEvents(events);
+        cache.storeAudit(DIGEST, trailingRecorder, files.size());
+        assertFalse(cache.restoreAudit(DIGEST,
+                new AuditRecorder(files, new AtomicInteger()),
+                getClass().getClassLoader()));
+    }
+
+    @Test
+    public void testAuditResults()
+            throws Exception
+    {
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache.bin");
+        final List<File> files = Arrays.asList(new File(PATH),
+                new File("/sources/Other.java"));
+        final ResultCache cache = new ResultCache(cacheFile, FINGERPRINT, 10);
+        cache.load();
+        final AuditRecorder recorder = new AuditRecorder(files, new AtomicInteger());
+        recorder.addFileEvents(1, createEvents("message", "message"));
+        recorder.addTrailingEvents(createEvents("trailing", "trailing"));
+        cache.storeAudit(DIGEST, recorder, files.size());
+        cache.save();
+
+        final ResultCache loadedCache = loadCache(cacheFile);
+        final AuditRecorder restored = new AuditRecorder(files, new AtomicInteger());
+        assertTrue(loadedCache.restoreAudit(DIGEST, restored,
+                getClass().getClassLoader()));
+        assertTrue(restored.getFileEvents(0).isEmpty());
+        assertEquals(4, restored.getFileEvents(1).size());
+        assertEquals(4, restored.getTrailingEvents().size());
+
+        // another list of files, or another content of them
+        assertFalse(loadedCache.restoreAudit(new byte[] {1}, restored,
+                getClass().getClassLoader()));
+        assertFalse(loadedCache.restoreAudit(DIGEST,
+                new AuditRecorder(files, new AtomicInteger()),
+                new URLClassLoader(new URL[0], null)));
+
+        // the damaged payload of the audit
+        final byte[] content = read(cacheFile);
+        final int trailingOffset = indexOf(content, "trailing".getBytes("UTF-8"));
+        content[indexOf(content, SeverityLevel.WARNING.name().getBytes("UTF-8"),
+                trailingOffset)] = (byte) 'X';
+        write(cacheFile, content);
+        assertFalse(loadCache(cacheFile).restoreAudit(DIGEST,
+                new AuditRecorder(files, new AtomicInteger()),
+                getClass().getClassLoader()));
+    }
+
+    @Test
+    public void testUnwritableFile()
+            throws Exception
+    {
+        final File parent = temporaryFolder.newFile("file");
+        final ResultCache cache = new ResultCache(new File(parent, "cache.bin"),
+                FINGERPRINT, 10);
+        cache.load();
+        cache.putFileEvents(PATH, DIGEST, createEvents("message", "message"));
+        try {
+            cache.save();
+            fail("the directory of the cache can not be created");
+        }
+        catch (FileNotFoundException e) {
+            assertTrue(e.getMessage().contains(parent.getPath()));
+        }
+
+        // the cache file is replaced by a directory after it is loaded
+        final ResultCache directoryCache = new ResultCache(
+                new File(temporaryFolder.getRoot(), "cache.bin"), FINGERPRINT, 10);
+        directoryCache.load();
+        directoryCache.putFileEvents(PATH, DIGEST, createEvents("message", "message"));
+        final File directory = temporaryFolder.newFolder("cache.bin");
+        assertTrue(new File(directory, "content").createNewFile());
+        try {
+            directoryCache.save();
+            fail("the directory can not be replaced");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Cache file can not be replaced"));
+        }
+    }
+
+    @Test
+    public void testDigests()
+            throws Exception
+    {
+        final File file = temporaryFolder.newFile("InputFile.java");
+        final List<File> files = Arrays.asList(file, new File(PATH));
+        final byte[] fileDigest = ResultCache.digest(file);
+        assertNull(ResultCache.digestAudit(files, new byte[][] {fileDigest, null}));
+        assertNotNull(ResultCache.digestAudit(files,
+                new byte[][] {fileDigest, DIGEST}));
+        try {
+            ResultCache.digest(new File(PATH));
+            fail("the file does not exist");
+        }
+        catch (FileNotFoundException e) {
+            assertTrue(e.getMessage().contains("InputFile.java"));
+        }
+    }
+
+    private List<Event> getDamagedEvents(int offset, byte value)
+            throws Exception
+    {
+        final File cacheFile = createCacheFile();
+        final byte[] content = read(cacheFile);
+        content[offset] = value;
+        write(cacheFile, content);
+        return loadCache(cacheFile).getFileEvents(PATH, DIGEST,
+                getClass().getClassLoader());
+    }
+
+    private File createCacheFile()
+            throws IOException
+    {
+        final File cacheFile = new File(temporaryFolder.getRoot(), "cache.bin");
+        assertTrue(!cacheFile.exists() || cacheFile.delete());
+        final ResultCache cache = new ResultCache(cacheFile, FINGERPRINT, 10);
+        cache.load();
+        cache.putFileEvents(PATH, DIGEST, createEvents("message", "message"));
+        cache.save();
+        assertNotNull(loadCache(cacheFile).getFileEvents(PATH, DIGEST,
+                getClass().getClassLoader()));
+        return cacheFile;
+    }
+
+    private static int getFirstRecordOffset()
+    {
+        // the magic number, the format version and the fingerprint
+        return 4 + 4 + 2 + FINGERPRINT.length();
+    }
+
+    private static ResultCache loadCache(File cacheFile)
+            throws IOException
+    {
+        final ResultCache result = new ResultCache(cacheFile, FINGERPRINT, 10);
+        result.load();
+        return result;
+    }
+
+    private List<Event> createEvents(String firstMessage, String secondMessage)
+    {
+        final List<Event> result = new ArrayList<Event>();
+        result.add(new Event(Event.Kind.FILE_STARTED, new AuditEvent(this, PATH), null));
+        result.add(new Event(Event.Kind.ERROR, new AuditEvent(this, PATH,
+                createMessage(7, firstMessage)), null));
+        result.add(new Event(Event.Kind.ERROR, new AuditEvent(this, PATH,
+                createMessage(9, secondMessage)), null));
+        result.add(new Event(Event.Kind.FILE_FINISHED, new AuditEvent(this, PATH), null));
+        return result;
+    }
+
+    private LocalizedMessage createMessage(int line, String message)
+    {
+        return new LocalizedMessage(line, 3, "messages", "key", new Object[0],
+                SeverityLevel.WARNING, null, getClass(),
+                ResultCache.quoteMessage(message));
+    }
+
+    private static int indexOf(byte[] content, byte[] part)
+    {
+        return indexOf(content, part, 0);
+    }
+
+    private static int indexOf(byte[] content, byte[] part, int from)
+    {
+        for (int i = from; i <= content.length - part.length; i++) {
+            if (Arrays.equals(part, Arrays.copyOfRange(content, i, i + part.length))) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not found");
+    }
+
+    private static byte[] read(File file)
+            throws IOException
+    {
+        final byte[] result = new byte[(int) file.length()];
+        final InputStream input = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < result.length) {
+                offset += input.read(result, offset, result.length - offset);
+            }
+        }
+        finally {
+            input.close();
+        }
+        return result;
+    }
+
+    private static void write(File file, byte[] content)
+            throws IOException
+    {
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content);
+        }
+        finally {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,493 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.profiling;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.checks.coding.ForbidCCommentsInMethods;
+import com.github.sevntu.checkstyle.checks.coding.ForbidReturnInFinallyBlockCheck;
+import com.github.sevntu.checkstyle.profiling.CheckProfiler.Phase;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.checks.coding.EmptyStatementCheck;
+import com.puppycrawl.tools.checkstyle.checks.sizes.FileLengthCheck;
+import com.puppycrawl.tools.checkstyle.checks.sizes.MethodLengthCheck;
+
+public class CheckProfilerTest extends BaseCheckTestSupport
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testViolationsAreNotChanged()
+            throws Exception
+    {
+        final ByteArrayOutputStream plainOutput = new ByteArrayOutputStream();
+        final Checker plainChecker = new Checker();
+        final int plainErrors = audit(plainChecker, plainOutput);
+
+        final ByteArrayOutputStream profiledOutput = new ByteArrayOutputStream();
+        final CheckProfiler profiler = new CheckProfiler(null, null);
+        final int profiledErrors = audit(createProfilingChecker(profiler),
+                profiledOutput);
+
+        assertEquals(2, plainErrors);
+        assertEquals(plainErrors, profiledErrors);
+        assertEquals(plainOutput.toString(), profiledOutput.toString());
+    }
+
+    @Test
+    public void testReport()
+            throws Exception
+    {
+        final CheckProfiler profiler = new CheckProfiler(null, null);
+        audit(createProfilingChecker(profiler), new ByteArrayOutputStream());
+
+        final String fileName = getInputPath();
+        final String sevntuCheck = ForbidReturnInFinallyBlockCheck.class.getName();
+        final CheckProfiler.CheckStats checkStats =
+                profiler.getCheckStats(sevntuCheck);
+        assertEquals(1, checkStats.getFileCount());
+        assertEquals(fileName, checkStats.getSlowestFiles().get(0).getKey());
+        final CheckProfiler.Stats stats = checkStats.getTotal();
+        assertEquals(1, stats.getCalls(Phase.BEGIN_TREE));
+        assertEquals(1, stats.getCalls(Phase.FINISH_TREE));
+        assertTrue(stats.getCalls(Phase.VISIT_TOKEN) > 0);
+        assertEquals(stats.getCalls(Phase.VISIT_TOKEN),
+                stats.getCalls(Phase.LEAVE_TOKEN));
+
+        final String json = profiler.toJson();
+        assertTrue(json.contains("\"check\": \"" + sevntuCheck + "\""));
+        assertTrue(json.contains("\"visitTokenNanos\": "));
+        // checks of all packages are profiled
+        assertTrue(json.contains(EmptyStatementCheck.class.getName()));
+
+        final ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        profiler.printSummary(new PrintStream(summary));
+        assertTrue(summary.toString().contains(
+                ForbidReturnInFinallyBlockCheck.class.getSimpleName()));
+    }
+
+    @Test
+    public void testReportFormat()
+    {
+        final CheckProfiler profiler = new CheckProfiler(null, null);
+        profiler.addFileStats("checks.Fast", "name \"quoted\" \\ \n",
+                createStats(Phase.VISIT_TOKEN, 1000));
+        profiler.addFileStats("checks.Slow", "first.java",
+                createStats(Phase.BEGIN_TREE, 1000));
+        profiler.addFileStats("checks.Slow", "second.java",
+                createStats(Phase.BEGIN_TREE, 3000));
+        profiler.addFileStats("checks.Slow", "third.java",
+                createStats(Phase.BEGIN_TREE, 2000));
+        profiler.addFileStats("checks.Same", "third.java",
+                createStats(Phase.FINISH_TREE, 1000));
+
+        final String json = profiler.toJson();
+        assertTrue(json.contains("{\"file\": \"name \\\"quoted\\\" \\\\ \\u000a\", "));
+        assertTrue(json.contains("{\"file\": \"first.java\", "));
+        assertTrue(json.contains("{\"file\": \"second.java\", "));
+        assertTrue(json.contains("\"files\": 3,"));
+        // the slowest file is the first one
+        assertTrue(json.indexOf("second.java") < json.indexOf("first.java"));
+
+        final ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        profiler.printSummary(new PrintStream(summary));
+        final String[] lines = summary.toString().split("\\r?\\n");
+        // the slowest check is the first one
+        assertTrue(lines[1].startsWith("Slow "));
+        assertTrue(lines[1].endsWith("second.java"));
+    }
+
+    @Test
+    public void testSlowestFiles()
+    {
+        final CheckProfiler profiler = new CheckProfiler(null, null);
+        final int fileCount = CheckProfiler.SLOWEST_FILES * 2;
+        for (int i = 0; i < fileCount; i++) {
+            // files of the same time are ordered by name
+            profiler.addFileStats("checks.Check", "file" + (char) ('a' + i),
+                    createStats(Phase.VISIT_TOKEN, i / 2));
+        }
+
+        final CheckProfiler.CheckStats checkStats =
+                profiler.getCheckStats("checks.Check");
+        assertEquals(fileCount, checkStats.getFileCount());
+        assertEquals(fileCount, checkStats.getTotal().getCalls(Phase.VISIT_TOKEN));
+        final List<Map.Entry<String, CheckProfiler.Stats>> slowestFiles =
+                checkStats.getSlowestFiles();
+        assertEquals(CheckProfiler.SLOWEST_FILES, slowestFiles.size());
+        assertEquals("files", slowestFiles.get(0).getKey());
+        assertEquals("filet", slowestFiles.get(1).getKey());
+        assertEquals("filel", slowestFiles.get(CheckProfiler.SLOWEST_FILES - 1)
+                .getKey());
+        assertNull(profiler.getCheckStats("checks.Other"));
+    }
+
+    @Test
+    public void testAllocationIsNotMeasured()
+            throws Exception
+    {
+        // the bean of other JVM, or the measurement is not supported or enabled
+        assertFalse(new CheckProfiler(null, null, new Object())
+                .isAllocationMeasured());
+        assertFalse(createProfiler(false, true, 0L).isAllocationMeasured());
+        assertFalse(createProfiler(null, true, 0L).isAllocationMeasured());
+        final CheckProfiler profiler = createProfiler(true, false, 0L);
+        assertFalse(profiler.isAllocationMeasured());
+        assertEquals(0, profiler.getAllocatedBytes());
+
+        profiler.addFileStats("checks.Check", "file.java",
+                createStats(Phase.BEGIN_TREE, 1));
+        assertTrue(profiler.toJson().contains("\"allocatedBytes\": -1}"));
+        final ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        profiler.printSummary(new PrintStream(summary));
+        assertTrue(summary.toString().contains(" n/a "));
+    }
+
+    @Test
+    public void testAllocationIsMeasured()
+            throws Exception
+    {
+        final CheckProfiler profiler = createProfiler(true, true, 2048L);
+        assertTrue(profiler.isAllocationMeasured());
+        assertEquals(2048, profiler.getAllocatedBytes());
+        try {
+            createProfiler(true, true, null).getAllocatedBytes();
+            fail("The failure of the bean is not reported");
+        }
+        catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof InvocationTargetException);
+        }
+    }
+
+    @Test
+    public void testIgnoredEvents()
+    {
+        // violations and exceptions of files are reported by other listeners
+        final CheckProfiler profiler = new CheckProfiler(null, null);
+        profiler.fileStarted(null);
+        profiler.addError(null);
+        profiler.addException(null, new IllegalStateException());
+        profiler.fileFinished(null);
+        assertTrue(profiler.toJson().contains("\"checks\": [\n  ]"));
+    }
+
+    @Test
+    public void testRun()
+            throws Exception
+    {
+        final File configFile = temporaryFolder.newFile("config.xml");
+        write(configFile, "<?xml version=\"1.0\"?>\n"
+                + "<!DOCTYPE module PUBLIC"
+                + " \"-//Puppy Crawl//DTD Check Configuration 1.3//EN\""
+                + " \"http://www.puppycrawl.com/dtds/configuration_1_3.dtd\">\n"
+                + "<module name=\"Checker\">\n"
+                + "  <property name=\"charset\" value=\"iso-8859-1\"/>\n"
+                + "  <property name=\"localeLanguage\" value=\"en\"/>\n"
+                + "  <module name=\"TreeWalker\">\n"
+                + "    <module name=\""
+                + ForbidReturnInFinallyBlockCheck.class.getName() + "\"/>\n"
+                + "    <module name=\""
+                + ForbidCCommentsInMethods.class.getName() + "\"/>\n"
+                + "  </module>\n"
+                + "</module>\n");
+        final File inputDirectory = new File(getInputPath()).getParentFile();
+        final File jsonReport = new File(temporaryFolder.getRoot(), "report.json");
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final String[] args = {"-c", configFile.getPath(),
+            "-o", jsonReport.getPath(), inputDirectory.getPath(), };
+        assertEquals(1, ProfilingChecker.run(args, new PrintStream(output),
+                System.err));
+        assertTrue(output.toString().contains(
+                ForbidReturnInFinallyBlockCheck.class.getSimpleName()));
+        assertTrue(output.toString().contains(
+                ForbidCCommentsInMethods.class.getSimpleName()));
+        assertTrue(jsonReport.length() > 0);
+    }
+
+    @Test
+    public void testRunUsage()
+            throws Exception
+    {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(1, ProfilingChecker.run(new String[] {"-c"}, System.out,
+                new PrintStream(output)));
+        assertTrue(output.toString().startsWith("Usage: ProfilingChecker"));
+        output.reset();
+        assertEquals(1, ProfilingChecker.run(new String[] {"-c", "config.xml",
+            "-o", }, System.out, new PrintStream(output)));
+        assertTrue(output.toString().startsWith("Usage: ProfilingChecker"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnwritableReport()
+    {
+        new CheckProfiler(null, temporaryFolder.getRoot()).auditFinished(null);
+    }
+
+    @Test
+    public void testProfiledCheck()
+    {
+        final ForbidReturnInFinallyBlockCheck check =
+                new ForbidReturnInFinallyBlockCheck();
+        final ProfiledCheck profiledCheck =
+                new ProfiledCheck(check, new CheckProfiler(null, null));
+        profiledCheck.init();
+        assertSame(check, profiledCheck.getCheck());
+        assertArrayEquals(check.getDefaultTokens(),
+                profiledCheck.getDefaultTokens());
+        assertArrayEquals(check.getAcceptableTokens(),
+                profiledCheck.getAcceptableTokens());
+        assertArrayEquals(check.getRequiredTokens(),
+                profiledCheck.getRequiredTokens());
+        assertEquals(check.isCommentNodesRequired(),
+                profiledCheck.isCommentNodesRequired());
+    }
+
+    @Test
+    public void testConfiguredChecks()
+            throws Exception
+    {
+        final DefaultConfiguration returnConfig =
+                createCheckConfig(ForbidReturnInFinallyBlockCheck.class);
+        returnConfig.addAttribute("severity", "warning");
+        returnConfig.addAttribute("id", "returnInFinally");
+        returnConfig.addMessage(ForbidReturnInFinallyBlockCheck.MSG_KEY,
+                "Custom message");
+        final DefaultConfiguration emptyConfig =
+                createCheckConfig(EmptyStatementCheck.class);
+        emptyConfig.addAttribute("tokens", "EMPTY_STAT");
+        final DefaultConfiguration lengthConfig =
+                createCheckConfig(MethodLengthCheck.class);
+        lengthConfig.addAttribute("max", "2");
+        lengthConfig.addAttribute("tokens", "CTOR_DEF");
+        final DefaultConfiguration checkerConfig = createCheckerConfig(
+                returnConfig, emptyConfig, lengthConfig);
+        final DefaultConfiguration treeWalkerConfig =
+                (DefaultConfiguration) checkerConfig.getChildren()[0];
+        treeWalkerConfig.addAttribute("tabWidth", "4");
+        treeWalkerConfig.addMessage("general.exception", "Custom exception");
+
+        final ByteArrayOutputStream plainOutput = new ByteArrayOutputStream();
+        final int plainErrors =
+                audit(new Checker(), checkerConfig, plainOutput);
+        final ByteArrayOutputStream profiledOutput = new ByteArrayOutputStream();
+        final int profiledErrors = audit(createProfilingChecker(
+                new CheckProfiler(null, null)), checkerConfig, profiledOutput);
+
+        // the warning is not counted, methods are not checked
+        assertEquals(1, plainErrors);
+        assertEquals(plainErrors, profiledErrors);
+        assertTrue(plainOutput.toString().contains("Custom message"));
+        assertEquals(plainOutput.toString(), profiledOutput.toString());
+    }
+
+    @Test
+    public void testRepeatedAudits()
+            throws Exception
+    {
+        final Checker checker = createProfilingChecker(new CheckProfiler(null, null));
+        configure(checker, createCheckerConfig(
+                createCheckConfig(ForbidReturnInFinallyBlockCheck.class)));
+        final List<File> files = Collections.singletonList(new File(getInputPath()));
+        // violations of profiled checks are kept in the cache of TreeWalker
+        assertEquals(1, checker.process(files));
+        assertEquals(1, checker.process(files));
+        checker.destroy();
+    }
+
+    @Test
+    public void testNoProfiledChecks()
+            throws Exception
+    {
+        final Checker checker = createProfilingChecker(new CheckProfiler(null, null));
+        final DefaultConfiguration checkerConfig =
+                new DefaultConfiguration("configuration");
+        checkerConfig.addChild(createCheckConfig(FileLengthCheck.class));
+        configure(checker, checkerConfig);
+        try {
+            checker.process(Collections.singletonList(new File(getInputPath())));
+            fail("No check is profiled");
+        }
+        catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("No check is profiled"));
+        }
+    }
+
+    @Test
+    public void testProfiledConfiguration()
+            throws Exception
+    {
+        final DefaultConfiguration original = createCheckConfig(MethodLengthCheck.class);
+        original.addAttribute("max", "2");
+        original.addMessage("maxLen.method", "Custom message");
+        original.addChild(createCheckConfig(FileLengthCheck.class));
+        final ProfiledConfiguration config = new ProfiledConfiguration(original);
+        assertEquals(original.getName(), config.getName());
+        assertSame(original, config.getOriginal());
+        assertEquals(0, config.getAttributeNames().length);
+        assertEquals(0, config.getChildren().length);
+        assertTrue(config.getMessages().isEmpty());
+        try {
+            config.getAttribute("max");
+            fail("Properties are hidden from the wrapper");
+        }
+        catch (CheckstyleException e) {
+            assertEquals("Property 'max' is configured in the profiled check",
+                    e.getMessage());
+        }
+
+        original.addAttribute("tokens", "CTOR_DEF");
+        assertArrayEquals(new String[] {"tokens"}, config.getAttributeNames());
+        assertEquals("CTOR_DEF", config.getAttribute("tokens"));
+    }
+
+    // the thread management bean of HotSpot answers the values, null fails
+    private static CheckProfiler createProfiler(final Boolean supported,
+            final boolean enabled, final Long allocatedBytes)
+            throws ClassNotFoundException
+    {
+        final Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+        final Object bean = Proxy.newProxyInstance(beanClass.getClassLoader(),
+                new Class<?>[] {beanClass}, new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args)
+                    {
+                        final Object result;
+                        if ("isThreadAllocatedMemorySupported".equals(
+                                method.getName()))
+                        {
+                            result = supported;
+                        }
+                        else if ("isThreadAllocatedMemoryEnabled".equals(
+                                method.getName()))
+                        {
+                            result = enabled;
+                        }
+                        else {
+                            result = allocatedBytes;
+                        }
+                        if (result == null) {
+                            throw new IllegalStateException("Not answered");
+                        }
+                        return result;
+                    }
+                });
+        return new CheckProfiler(null, null, bean);
+    }
+
+    private static CheckProfiler.Stats createStats(Phase phase, long time)
+    {
+        final CheckProfiler.Stats stats = new CheckProfiler.Stats();
+        stats.record(phase, time, 0);
+        return stats;
+    }
+
+    private Checker createProfilingChecker(CheckProfiler profiler)
+            throws CheckstyleException
+    {
+        return new ProfilingChecker(profiler,
+                Thread.currentThread().getContextClassLoader());
+    }
+
+    private static DefaultConfiguration createCheckerConfig(
+            DefaultConfiguration... checkConfigs)
+    {
+        final DefaultConfiguration checkerConfig = new DefaultConfiguration(
+                "configuration");
+        checkerConfig.addAttribute("charset", "iso-8859-1");
+        final DefaultConfiguration treeWalkerConfig =
+                createCheckConfig(com.puppycrawl.tools.checkstyle.TreeWalker.class);
+        for (DefaultConfiguration checkConfig : checkConfigs) {
+            treeWalkerConfig.addChild(checkConfig);
+        }
+        checkerConfig.addChild(treeWalkerConfig);
+        return checkerConfig;
+    }
+
+    private static void write(File file, String content) throws IOException
+    {
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes("iso-8859-1"));
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    private int audit(Checker checker, ByteArrayOutputStream output)
+            throws Exception
+    {
+        return audit(checker, createCheckerConfig(
+                createCheckConfig(ForbidReturnInFinallyBlockCheck.class),
+                createCheckConfig(EmptyStatementCheck.class)), output);
+    }
+
+    private int audit(Checker checker, DefaultConfiguration checkerConfig,
+            ByteArrayOutputStream output)
+            throws Exception
+    {
+        configure(checker, checkerConfig);
+        checker.addListener(new BriefLogger(new PrintStream(output)));
+
+        final List<File> files = Collections.singletonList(new File(getInputPath()));
+        final int errors = checker.process(files);
+        checker.destroy();
+        return errors;
+    }
+
+    private static void configure(Checker checker,
+            DefaultConfiguration checkerConfig)
+            throws CheckstyleException
+    {
+        checker.setLocaleCountry(Locale.ENGLISH.getCountry());
+        checker.setLocaleLanguage(Locale.ENGLISH.getLanguage());
+        checker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
+        checker.configure(checkerConfig);
+    }
+
+    private String getInputPath()
+    {
+        return getPath("InputCheckProfiler.java");
+    }
+}
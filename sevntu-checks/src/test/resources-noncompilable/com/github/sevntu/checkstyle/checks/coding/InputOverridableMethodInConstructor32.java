@@ -0,0 +1,108 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputOverridableMethodInConstructor32 extends InputOverridableMethodInConstructor32Base
+{
+    public InputOverridableMethodInConstructor32()
+    {
+        method0();
+        inherited();
+    }
+
+    private void method0()
+    {
+        method1();
+    }
+
+    private void method1()
+    {
+        method2();
+    }
+
+    private void method2()
+    {
+        method3();
+    }
+
+    private void method3()
+    {
+        method4();
+    }
+
+    private void method4()
+    {
+        method5();
+    }
+
+    private void method5()
+    {
+        method6();
+    }
+
+    private void method6()
+    {
+        method7();
+    }
+
+    private void method7()
+    {
+        method8();
+    }
+
+    private void method8()
+    {
+        method9();
+    }
+
+    private void method9()
+    {
+        method10();
+    }
+
+    private void method10()
+    {
+        method11();
+    }
+
+    private void method11()
+    {
+        method12();
+    }
+
+    private void method12()
+    {
+        method13();
+    }
+
+    private void method13()
+    {
+        method14();
+    }
+
+    private void method14()
+    {
+        method15();
+    }
+
+    private void method15()
+    {
+        method16();
+    }
+
+    private void method16()
+    {
+        method17();
+    }
+
+    private void method17()
+    {
+        method0();
+    }
+}
+
+class InputOverridableMethodInConstructor32Base extends InputOverridableMethodInConstructor32Other
+{
+}
+
+class InputOverridableMethodInConstructor32Other extends InputOverridableMethodInConstructor32Base
+{
+}
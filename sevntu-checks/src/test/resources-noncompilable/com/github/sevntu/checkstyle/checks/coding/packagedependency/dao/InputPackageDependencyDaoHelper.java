@@ -0,0 +1,8 @@
+package com.github.sevntu.checkstyle.checks.coding.packagedependency.dao;
+
+import com.github.sevntu.checkstyle.checks.coding.packagedependency.service.InputPackageDependencyService; import com.github.sevntu.checkstyle.checks.coding.packagedependency.service.*;
+import static com.github.sevntu.checkstyle.checks.coding.packagedependency.service.InputPackageDependencyService.LIMIT;
+
+class InputPackageDependencyDaoHelper
+{
+}
@@ -0,0 +1,8 @@
+package com.github.sevntu.checkstyle.checks.coding.packagedependency.dao;
+
+import static com.github.sevntu.checkstyle.checks.coding.packagedependency.service.InputPackageDependencyService.LIMIT;
+
+class InputPackageDependencyDaoLimit
+{
+}
+; // the empty declaration is not a type
@@ -0,0 +1,8 @@
+package com.github.sevntu.checkstyle.checks.coding.packagedependency.lower;
+
+import org.example.util.helper;
+import static org.example.util.helper.run;
+import static org.example.util.helper.*;
+import org.example.*;
+import com.github.sevntu.checkstyle.checks.coding.packagedependency.ui.InputPackageDependencyUi;
+import com.github.sevntu.checkstyle.checks.coding.packagedependency.dao.*;
@@ -0,0 +1,13 @@
+package com.github.sevntu.checkstyle.checks.coding.packagedependency.nested;
+
+import com.github.sevntu.checkstyle.checks.coding.packagedependency.service.InputPackageDependencyService.Helper;
+import static com.github.sevntu.checkstyle.checks.coding.packagedependency.service.InputPackageDependencyService.Helper.VALUE;
+import com.github.sevntu.checkstyle.checks.coding.packagedependency.dao.InputPackageDependencyDao.*;
+import static com.github.sevntu.checkstyle.checks.coding.packagedependency.dao.InputPackageDependencyDao.*;
+import org.example.nested.Outer.Inner;
+import static org.example.nested.Outer.Inner.VALUE;
+import org.example.nested.*;
+
+public class InputPackageDependencyNested
+{
+}
@@ -0,0 +1,11 @@
+package com.github.sevntu.checkstyle;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.List;
+import static java.util.Map.Entry;
+import static java.util.Collections.*;
+
+public class InputImportTable
+{
+}
@@ -0,0 +1,6 @@
+import java.util.ArrayList;
+
+public class InputImportTableDefaultPackage
+{
+    private final ArrayList<String> list = new ArrayList<String>();
+}
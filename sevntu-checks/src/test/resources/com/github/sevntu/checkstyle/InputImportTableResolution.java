@@ -0,0 +1,10 @@
+package com.github.sevntu.checkstyle;
+
+import static java.util.Collections.emptyList;
+import static java.util.Map.Entry;
+import java.io.*;
+import static java.lang.Math.*;
+
+public class InputImportTableResolution
+{
+}
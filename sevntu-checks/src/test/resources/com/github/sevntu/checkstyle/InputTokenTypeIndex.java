@@ -0,0 +1,16 @@
+package com.github.sevntu.checkstyle;
+
+public class InputTokenTypeIndex
+{
+    public void method()
+    {
+        int first = 1;
+        Runnable runnable = new Runnable()
+        {
+            public void run()
+            {
+                int second = 2;
+            }
+        };
+    }
+}
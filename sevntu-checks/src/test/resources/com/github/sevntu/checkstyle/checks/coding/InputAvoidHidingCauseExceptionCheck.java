@@ -195,4 +195,23 @@ public class InputAvoidHidingCauseExceptionCheck
 
     }
 
+    public void anonymousException()
+    {
+        try {
+        }
+        catch (IllegalStateException e) {
+            throw new RuntimeException() { // !
+                public String getMessage(int code)
+                {
+                    try {
+                        return String.valueOf(code);
+                    }
+                    finally {
+                        code = 0;
+                    }
+                }
+            };
+        }
+    }
+
 }
\ No newline at end of file
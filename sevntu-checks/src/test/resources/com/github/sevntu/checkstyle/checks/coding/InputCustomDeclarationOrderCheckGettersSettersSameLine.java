@@ -0,0 +1,21 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputCustomDeclarationOrderCheckGettersSettersSameLine
+{
+    private int x;
+
+    private int y;
+
+    private int z;
+
+    public int getZ()
+    {
+        return z;
+    }
+
+    public int getX() { return x; } public void setX(int x) { this.x = x; }
+
+    public void setY(int y) { this.y = y; } public int getY() { return y; }
+
+    public void setZ(int z) { this.z = z; } // violation
+}
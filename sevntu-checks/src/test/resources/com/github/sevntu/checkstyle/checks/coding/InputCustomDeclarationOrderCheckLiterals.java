@@ -0,0 +1,29 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputCustomDeclarationOrderCheckLiterals
+{
+    class CaseInsensitiveLiterals
+    {
+        private int first;
+
+        public int second; // violation, "PUBLIC " is found in any case
+    }
+
+    class LineTerminators
+    {
+        // the test replaces the escape with the raw NEL,
+        // ".*" doesn't match the line terminator in the annotation
+        @SuppressWarnings("a\u0085b")
+        private int first;
+
+        @SuppressWarnings("ab")
+        private int second; // violation
+    }
+
+    class ModifierSequence
+    {
+        static private final int FIRST = 1;
+
+        private static final int SECOND = 2; // violation
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.sevntu.checkstyle.checks.coding;
+class InputCustomDeclarationOrderCheckMainMethodParameters {
+    public static void main(String... agrs) {}
+    private int t;
+}
+
+class F {
+    public static void main(int... agrs) {}
+    private int t;
+}
+
+class G {
+    public static void main(String[] agrs, int count) {}
+    private int t;
+}
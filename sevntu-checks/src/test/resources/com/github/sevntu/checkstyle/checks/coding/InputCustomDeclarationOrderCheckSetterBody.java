@@ -0,0 +1,37 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputCustomDeclarationOrderCheckSetterBody
+{
+    private int value;
+
+    public int getValue()
+    {
+        return value;
+    }
+
+    public void reset()
+    {
+        this.value = 0;
+    }
+
+    // not a setter, the field is updated only in other methods
+    public void setValue(int value)
+    {
+        System.out.println(value);
+    }
+}
+
+class InputCustomDeclarationOrderCheckSetterBodyNested
+{
+    private int value;
+
+    public int getValue()
+    {
+        return value;
+    }
+
+    public void setValue(int value)
+    {
+        this.value = value;
+    }
+}
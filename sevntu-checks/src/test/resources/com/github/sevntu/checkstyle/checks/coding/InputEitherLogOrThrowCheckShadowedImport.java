@@ -0,0 +1,36 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.slf4j.*;
+
+public class InputEitherLogOrThrowCheckShadowedImport
+{
+    private static Logger julLogger = Logger.getLogger("jul");
+    private org.slf4j.Logger slfLogger = LoggerFactory.getLogger(Object.class);
+
+    public void get1()
+            throws Exception
+    {
+        try {
+            throw new Exception();
+        }
+        catch (Exception e) { // NO warning, Logger is imported from java.util.logging
+            julLogger.log(Level.WARNING, "Exception: ", e);
+            throw e;
+        }
+    }
+
+    public void get2()
+            throws Exception
+    {
+        try {
+            throw new Exception();
+        }
+        catch (Exception e) { // warning
+            slfLogger.warn("Exception: ", e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.sevntu.checkstyle.checks.coding;
+public class InputForbidCCommentsInMethods4
+{
+    private void openingBraceLine()
+    { /* comment after the opening brace, that has error */
+        int i = 0;
+    }
+
+    private void closingBraceLine()
+    {
+        int i = 0;
+    /* comment before the closing brace, that has error */ }
+
+    private void oneLine() { /* comment in one line body, that has error */ }
+
+    private void outside() /* comment before the body, that hasn't error */ {
+        int i = 0;
+    } /* comment after the body, that hasn't error */
+
+    private void severalComments()
+    {
+        int i = 0; /* first */ i++; /* second, on the same line */
+    }
+}
@@ -0,0 +1,9 @@
+import java.util.List;
+import java.io.File;
+
+public class InputForbidCertainImportsDefaultPackage
+{
+    private final List<String> list = new java.util.ArrayList<String>();
+
+    private final File file = new java.io.File("");
+}
@@ -0,0 +1,11 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.File;
+
+public class InputForbidInstantiationCheckShadowedImport
+{
+    public void method() {
+        File file = new File(""); // File of the package is shadowed by the import
+        new InputForbidInstantiationCheck(); // !
+    }
+}
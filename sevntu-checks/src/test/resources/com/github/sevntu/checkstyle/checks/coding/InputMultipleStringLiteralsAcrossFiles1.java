@@ -0,0 +1,18 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputMultipleStringLiteralsAcrossFiles1
+{
+    private static final String QUERY = "SELECT id, name FROM users WHERE id = ?";
+
+    String unique = "only in the first file";
+
+    String empty = "";
+
+    @SuppressWarnings("unchecked")
+    void method()
+    {
+        String s = "SELECT id, name FROM users WHERE id = ?";
+        String t = "in two files";
+        String u = "twice in one file" + "twice in one file";
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputMultipleStringLiteralsAcrossFiles2
+{
+    String empty = "";
+
+    @SuppressWarnings("unchecked")
+    void method()
+    {
+        String t = "in two files";
+        String query = "SELECT id, name FROM users WHERE id = ?";
+    }
+}
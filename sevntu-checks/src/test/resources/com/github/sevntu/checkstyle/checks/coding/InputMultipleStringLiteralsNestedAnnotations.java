@@ -0,0 +1,25 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputMultipleStringLiteralsNestedAnnotations
+{
+    @interface Inner
+    {
+        String value();
+    }
+
+    @interface Outer
+    {
+        Inner[] value();
+
+        String name() default "default";
+    }
+
+    @Outer(value = {@Inner("name"), @Inner("name")}, name = "name")
+    String field = "name";
+
+    @Outer(@Inner("name"))
+    @SuppressWarnings("name")
+    String other = "name" + "name";
+
+    String[] names = {"name"};
+}
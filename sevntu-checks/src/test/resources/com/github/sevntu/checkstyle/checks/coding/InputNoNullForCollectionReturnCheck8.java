@@ -0,0 +1,191 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InputNoNullForCollectionReturnCheck8
+{
+    private List<String> cache;
+
+    public List<String> lazy()
+    {
+        List<String> result = cache;
+        if (result == null)
+        {
+            result = new ArrayList<String>();
+            cache = result;
+        }
+        return result;
+    }
+
+    public List<String> assignedInLoop(int count)
+    {
+        List<String> result = null;
+        for (int i = 0; i < count; i++)
+        {
+            result = new ArrayList<String>();
+        }
+        return result; // violation: the loop may not be passed
+    }
+
+    public List<String> assignedInNestedBlock(boolean flag)
+    {
+        List<String> result;
+        if (flag)
+        {
+            result = new ArrayList<String>();
+        }
+        else
+        {
+            try
+            {
+                result = new ArrayList<String>();
+            }
+            finally
+            {
+                cache = null;
+            }
+        }
+        return result;
+    }
+
+    public List<String> nullInBranch(boolean flag)
+    {
+        List<String> result = new ArrayList<String>();
+        if (flag)
+        {
+            result = flag ? null : result;
+        }
+        return result; // violation
+    }
+
+    public List<String> whileLoop(List<String> source)
+    {
+        List<String> result = null;
+        List<String> next = null;
+        while (next == null)
+        {
+            result = next;
+            next = source;
+        }
+        return result; // violation: null from the previous iteration
+    }
+
+    public List<String> breakOfLoop(List<String> source)
+    {
+        List<String> result = null;
+        do
+        {
+            if (source.isEmpty())
+            {
+                break;
+            }
+            result = source;
+        }
+        while (result == null);
+        return result; // violation: the loop is left before the assignment
+    }
+
+    public List<String> switchCases(int kind)
+    {
+        List<String> result;
+        switch (kind)
+        {
+            case 0:
+                result = null;
+            case 1:
+                result = new ArrayList<String>();
+                break;
+            default:
+                return null; // violation
+        }
+        return result;
+    }
+
+    public List<String> earlyReturn(List<String> source)
+    {
+        List<String> result = null;
+        if (source == null)
+        {
+            throw new IllegalArgumentException();
+        }
+        for (String item : source)
+        {
+            if (item == null)
+            {
+                return result; // violation
+            }
+        }
+        result = source;
+        return result;
+    }
+
+    public List<String> labeledLoops(List<List<String>> sources)
+    {
+        List<String> result = null;
+        outer:
+        for (List<String> source : sources)
+        {
+            for (;;)
+            {
+                if (null != source)
+                {
+                    continue outer;
+                }
+                result = (List<String>) (source);
+                break outer;
+            }
+        }
+        return result; // violation
+    }
+
+    public List<String> caughtException(List<String> source)
+    {
+        List<String> result = null;
+        try
+        {
+            result = source.subList(0, 1);
+        }
+        catch (RuntimeException e)
+        {
+            return (result); // violation
+        }
+        synchronized (this)
+        {
+            class Local
+            {
+                List<String> field = null;
+            }
+            result = new Local().field;
+        }
+        return result;
+    }
+
+    public List<String> previousIteration(List<String> source)
+    {
+        List<String> current = source;
+        List<String> previous = source;
+        while (!source.isEmpty())
+        {
+            final List<String> next = source.isEmpty() ? (null) : source;
+            previous = (current);
+            current = next;
+        }
+        return previous; // violation: null from the iteration before the last one
+    }
+
+    public List<String> switchWithoutDefault(int kind)
+    {
+        List<String> result = null;
+        switch (kind)
+        {
+            case 0:
+                result = new ArrayList<String>();
+                break;
+        }
+        synchronized (this)
+        {
+            return result; // violation
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InputNoNullForCollectionReturnCheck9
+{
+    private List<String> cache;
+
+    public List<String> reassignedInNestedBlocks(boolean flag)
+    {
+        List<String> result = null;
+        {
+            if (flag)
+            {
+                {
+                    result = new ArrayList<String>();
+                }
+            }
+            else
+            {
+                result = cache;
+            }
+        }
+        return result;
+    }
+
+    public List<String> nullInNestedBlocks(boolean flag)
+    {
+        List<String> result = new ArrayList<String>();
+        {
+            {
+                if (flag)
+                {
+                    result = null;
+                }
+            }
+        }
+        return result; // violation
+    }
+
+    public List<String> reassignedInCatch(List<String> source)
+    {
+        List<String> result = null;
+        try
+        {
+            result = source.subList(0, 1);
+        }
+        catch (RuntimeException e)
+        {
+            result = new ArrayList<String>() {
+                {
+                    add(null);
+                }
+            };
+        }
+        return result;
+    }
+
+    public List<String> nullInCatch(List<String> source)
+    {
+        List<String> result = source;
+        try
+        {
+            result.clear();
+        }
+        catch (RuntimeException e)
+        {
+            result = null;
+        }
+        return result; // violation
+    }
+
+    public List<String> returnFromTryWithFinally(List<String> source)
+    {
+        List<String> result = null;
+        try
+        {
+            result = source;
+            return result;
+        }
+        finally
+        {
+            cache = null;
+        }
+    }
+
+    public List<String> nullInLoop(List<String> source)
+    {
+        List<String> result = new ArrayList<String>();
+        for (String item : source)
+        {
+            if (item.isEmpty())
+            {
+                continue;
+            }
+            result = null;
+            block:
+            {
+                if (item.length() > 1)
+                {
+                    break; // leaves the loop, not the block
+                }
+            }
+            result = new ArrayList<String>();
+        }
+        return result; // violation
+    }
+
+    public List<String> reassignedInLoop(List<String> source)
+    {
+        List<String> result = null;
+        int i = 0;
+        do
+        {
+            i++;
+            switch (i)
+            {
+                case 1:
+                    continue;
+                default:
+                    result = new ArrayList<String>();
+                    break;
+            }
+        }
+        while (result == null);
+        return result;
+    }
+
+    public List<String> loopWithoutNextIteration(List<String> source)
+    {
+        List<String> result = null;
+        do
+        {
+            if (source.isEmpty())
+            {
+                break;
+            }
+            return source;
+        }
+        while (result == null);
+        result = new ArrayList<String>();
+        return result;
+    }
+
+    public List<String> nullFromTernary(List<String> source, boolean flag)
+    {
+        List<String> result = flag ? source : (List<String>) null;
+        return result; // violation
+    }
+
+    public List<String> reassignedTernary(List<String> source, boolean flag)
+    {
+        List<String> result = flag ? null : source;
+        result = flag ? source : new ArrayList<String>();
+        return result;
+    }
+
+    public List<String> otherComparisons(List<String> source)
+    {
+        List<String> result = null;
+        if (source.get(0) == null)
+        {
+            result = source;
+        }
+        if (result == source)
+        {
+            return result; // violation: the comparison does not refine
+        }
+        return new ArrayList<String>();
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputOverridableMethodInConstructor28
+{
+    public InputOverridableMethodInConstructor28()
+    {
+        init();
+    }
+
+    public InputOverridableMethodInConstructor28(int value)
+    {
+        init();
+    }
+
+    public InputOverridableMethodInConstructor28(String value)
+    {
+        prepare();
+    }
+
+    private void init()
+    {
+        prepare();
+    }
+
+    private void prepare()
+    {
+        if (System.currentTimeMillis() == 0) {
+            init();
+        }
+        configure();
+    }
+
+    private void configure()
+    {
+        overrideMe();
+    }
+
+    public void overrideMe()
+    {
+    }
+}
+
+class InputOverridableMethodInConstructor28Cycle
+{
+    InputOverridableMethodInConstructor28Cycle()
+    {
+        first();
+    }
+
+    InputOverridableMethodInConstructor28Cycle(int value)
+    {
+        second();
+    }
+
+    private void first()
+    {
+        second();
+    }
+
+    private void second()
+    {
+        first();
+        third();
+    }
+
+    private void third()
+    {
+        second();
+    }
+}
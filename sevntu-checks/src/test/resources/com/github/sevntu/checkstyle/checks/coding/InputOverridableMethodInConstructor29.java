@@ -0,0 +1,25 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+public class InputOverridableMethodInConstructor29
+        extends InputOverridableMethodInConstructor29Base
+{
+    @Override
+    public Object clone() throws CloneNotSupportedException
+    {
+        overrideMe(); // Cloneable is implemented by a class of another file
+        return super.clone();
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException
+    {
+        overrideMe(); // Serializable is implemented by a class of another file
+    }
+
+    public void overrideMe()
+    {
+    }
+}
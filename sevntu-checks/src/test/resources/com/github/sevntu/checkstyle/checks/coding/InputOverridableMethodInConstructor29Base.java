@@ -0,0 +1,13 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+import java.io.Serializable;
+
+public class InputOverridableMethodInConstructor29Base
+        extends InputOverridableMethodInConstructor29Root
+        implements Serializable
+{
+}
+
+abstract class InputOverridableMethodInConstructor29Root implements Cloneable
+{
+}
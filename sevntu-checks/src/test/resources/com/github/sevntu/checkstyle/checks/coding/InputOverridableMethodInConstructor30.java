@@ -0,0 +1,40 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputOverridableMethodInConstructor30
+{
+    class Base
+    {
+        public void init()
+        {
+        }
+    }
+
+    class Middle extends Base
+    {
+        public void prepare()
+        {
+        }
+    }
+
+    class Derived extends Middle
+    {
+        Derived()
+        {
+            init(); // a warning here, the method is defined in the base of the base class
+        }
+    }
+
+    class First
+    {
+        class Holder
+        {
+        }
+    }
+
+    class Second
+    {
+        class Holder // the same name as of the class above
+        {
+        }
+    }
+}
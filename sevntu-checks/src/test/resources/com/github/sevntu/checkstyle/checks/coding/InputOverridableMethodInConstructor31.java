@@ -0,0 +1,37 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputOverridableMethodInConstructor31
+{
+    public InputOverridableMethodInConstructor31()
+    {
+        start();
+        loop();
+        middle();
+    }
+
+    private void start()
+    {
+        loop();
+        first();
+    }
+
+    private void loop()
+    {
+        loop();
+        middle();
+    }
+
+    private void middle()
+    {
+        start();
+        second();
+    }
+
+    public void first()
+    {
+    }
+
+    public void second()
+    {
+    }
+}
@@ -0,0 +1,6 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public interface InputTernaryPerExpressionCountCheckWithoutExpressions
+{
+    void method();
+}
@@ -0,0 +1,10 @@
+package com.github.sevntu.checkstyle.checks.coding.packagedependency.dao;
+
+import java.io.*;
+	import static com.github.sevntu.checkstyle.checks.coding.packagedependency
+        .service.InputPackageDependencyService.LIMIT;
+
+public class InputPackageDependencyDao
+{
+    private final int limit = LIMIT;
+}
@@ -0,0 +1,21 @@
+/*
+ * import of the comment.Ignored;
+ */
+package com.github.sevntu.checkstyle.checks.coding.packagedependency.service;
+
+import com.github.sevntu.checkstyle.checks.coding.packagedependency.dao.InputPackageDependencyDao;
+import com.github.sevntu.checkstyle.checks.coding.packagedependency.dao.*; // the same dependency
+import com.github.sevntu.checkstyle.checks.coding.packagedependency.ui.InputPackageDependencyUi;
+
+public class InputPackageDependencyService
+{
+    public static final int LIMIT = 10;
+
+    private InputPackageDependencyDao dao;
+
+    private InputPackageDependencyUi ui;
+}
+
+class InputPackageDependencyServiceHelper
+{
+}
@@ -0,0 +1,10 @@
+package com.github.sevntu.checkstyle.checks.coding.packagedependency.ui;
+
+import java.util.List;
+
+import com.github.sevntu.checkstyle.checks.coding.packagedependency.service.InputPackageDependencyService;
+
+public class InputPackageDependencyUi
+{
+    private List<InputPackageDependencyService> services;
+}
@@ -0,0 +1,36 @@
+package com.github.sevntu.checkstyle.checks.design;
+
+import java.io.IOException;
+
+public class InputCauseParameterInExceptionHierarchy
+        extends InputCauseParameterInExceptionHierarchyBase
+{
+    public InputCauseParameterInExceptionHierarchy(String message)
+    {
+        super(message);
+    }
+
+    static class NestedFailure extends InputCauseParameterInExceptionHierarchy
+    {
+        public NestedFailure(String message)
+        {
+            super(message);
+        }
+    }
+
+    static class WrappedFailure extends IOException
+    {
+        public WrappedFailure(String message, Throwable cause)
+        {
+            super(message, cause);
+        }
+    }
+
+    static class NotFailure
+    {
+    }
+
+    static class Problem extends Throwable
+    {
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.sevntu.checkstyle.checks.design;
+
+public class InputCauseParameterInExceptionHierarchyBase extends RuntimeException
+{
+    public InputCauseParameterInExceptionHierarchyBase(String message)
+    {
+        super(message);
+    }
+
+    public InputCauseParameterInExceptionHierarchyBase(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.sevntu.checkstyle.checks.design;
+
+public class InputChildBlockLengthCheckTokens {
+
+    public void process(int[] values) {
+        try { // 18 lines
+            int sum = 0;
+
+
+
+            for (int value : values) { // 6 lines = 33%
+                if (value > 0) { // 4 lines = 67% of the loop !
+                    sum += value;
+
+
+
+                }
+            }
+
+
+
+
+
+            System.out.println(sum);
+        }
+        finally {
+            System.out.println();
+        }
+    }
+
+    public int dispatch(int state) {
+        switch (state) { // 14 lines
+            case 1:
+                if (state > 0) { // 6 lines = 43% !
+                    state++;
+
+
+
+
+
+                } else if (state < 0) {
+                    state--;
+                }
+                break;
+            default:
+                break;
+        }
+        return state;
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.sevntu.checkstyle.checks.sizes;
+
+public class InputLineLengthIgnoredIntervals extends Object
+{
+    // adjacent fields, each one is longer than max
+    private String first = "the initializer of the first field";
+    private String second = "the initializer of the second field";
+
+    // the class, its field and its method start on the same line
+    class Inner { String value = "v"; void method(String first,
+            String second) {
+            String local = "the local variable is not a field";
+        }
+    }
+
+    private Runnable runnable = new Runnable() { public void run() {
+        String local = "the local variable is not a field";
+    } };
+}
+//			short line with tabs
+// the long line is OK because of the regexp
+// the long line without tabs is reported
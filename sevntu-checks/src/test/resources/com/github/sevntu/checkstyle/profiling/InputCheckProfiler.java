@@ -0,0 +1,20 @@
+package com.github.sevntu.checkstyle.profiling;
+
+public class InputCheckProfiler
+{
+    boolean returnInFinally()
+    {
+        boolean result = false;
+        try {
+            result = true;
+        }
+        finally {
+            return result; //violation of ForbidReturnInFinallyBlockCheck
+        }
+    }
+
+    void emptyStatement()
+    {
+        ; //violation of EmptyStatementCheck
+    }
+}